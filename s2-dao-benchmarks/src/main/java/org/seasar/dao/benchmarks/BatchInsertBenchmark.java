@@ -0,0 +1,96 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.TransactionManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 自動生成されたSQLによるバッチ更新で、Beanの値をバインドして実行するコストを測ります。
+ * <p>
+ * 毎回トランザクションを開始してロールバックするため、テーブルの内容は変わりません。
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BatchInsertBenchmark {
+
+    @Param( { "10", "100" })
+    public int size;
+
+    private BenchmarkDatabase database;
+
+    private TransactionManager transactionManager;
+
+    private EmpDao empDao;
+
+    private Emp[] emps;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.open();
+        transactionManager = (TransactionManager) database
+                .getComponent(TransactionManager.class);
+        empDao = (EmpDao) database.getComponent(EmpDao.class);
+        emps = new Emp[size];
+        for (int i = 0; i < size; ++i) {
+            Emp emp = new Emp();
+            emp.setEmpno(new Integer(i + 1));
+            emp.setEname("EMP" + i);
+            emp.setJob("CLERK");
+            emp.setSal(new BigDecimal(1000 + i));
+            emp.setHiredate(new Date());
+            emp.setDeptno(new Integer(i % BenchmarkDatabase.DEPT_SIZE + 1));
+            emps[i] = emp;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int[] insertBatch() throws Exception {
+        transactionManager.begin();
+        try {
+            return empDao.insertBatch(emps);
+        } finally {
+            transactionManager.rollback();
+        }
+    }
+}
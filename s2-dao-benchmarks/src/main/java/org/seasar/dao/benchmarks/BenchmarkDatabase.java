@@ -0,0 +1,151 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.benchmarks;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.S2ContainerFactory;
+import org.seasar.framework.exception.SQLRuntimeException;
+
+/**
+ * ベンチマークで使用するコンテナとインメモリのHSQLDBを管理するクラスです。
+ * <p>
+ * ベンチマークは<code>mvn -P benchmarks package</code>でビルドし、次のように実行します。
+ * 各ベンチマークのウォームアップ、計測、フォークの回数はアノテーションで固定しているため、
+ * コミットごとにJSONで保存した結果をそのまま比較できます。
+ * </p>
+ * 
+ * <pre>
+ * java -jar s2-dao-benchmarks/target/benchmarks.jar -rf json -rff result-&lt;commit&gt;.json
+ * </pre>
+ */
+public class BenchmarkDatabase {
+
+    public static final String PATH = "benchmarks.dicon";
+
+    public static final int DEPT_SIZE = 10;
+
+    private S2Container container;
+
+    /**
+     * コンテナを生成して、テーブルを作成します。
+     */
+    public void open() {
+        container = S2ContainerFactory.create(PATH);
+        container.init();
+        execute("DROP TABLE EMP IF EXISTS");
+        execute("DROP TABLE DEPT IF EXISTS");
+        execute("CREATE TABLE DEPT(DEPTNO INTEGER NOT NULL PRIMARY KEY,"
+                + " DNAME VARCHAR(14), LOC VARCHAR(13))");
+        execute("CREATE TABLE EMP(EMPNO INTEGER NOT NULL PRIMARY KEY,"
+                + " ENAME VARCHAR(10), JOB VARCHAR(9), SAL DECIMAL(7, 2),"
+                + " HIREDATE DATE, DEPTNO INTEGER)");
+        for (int i = 1; i <= DEPT_SIZE; ++i) {
+            execute("INSERT INTO DEPT VALUES(" + i + ", 'DEPT" + i
+                    + "', 'LOC" + i + "')");
+        }
+    }
+
+    /**
+     * コンテナを破棄します。
+     */
+    public void close() {
+        if (container != null) {
+            container.destroy();
+            container = null;
+        }
+    }
+
+    public Object getComponent(Object componentKey) {
+        return container.getComponent(componentKey);
+    }
+
+    public DataSource getDataSource() {
+        return (DataSource) getComponent(DataSource.class);
+    }
+
+    /**
+     * <code>EMP</code>テーブルの行を、指定した件数に入れ替えます。
+     * 
+     * @param rows
+     *            行数
+     */
+    public void setupEmployees(int rows) {
+        execute("DELETE FROM EMP");
+        Connection con = getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO EMP VALUES(?, ?, ?, ?, ?, ?)");
+            try {
+                for (int i = 1; i <= rows; ++i) {
+                    ps.setInt(1, i);
+                    ps.setString(2, "EMP" + i);
+                    ps.setString(3, i % 2 == 0 ? "CLERK" : "MANAGER");
+                    ps.setBigDecimal(4, new BigDecimal(1000 + i));
+                    ps.setDate(5, new Date(86400000L * i));
+                    ps.setInt(6, i % DEPT_SIZE + 1);
+                    ps.executeUpdate();
+                }
+            } finally {
+                ps.close();
+            }
+        } catch (SQLException e) {
+            throw new SQLRuntimeException(e);
+        } finally {
+            close(con);
+        }
+    }
+
+    public void execute(String sql) {
+        Connection con = getConnection();
+        try {
+            Statement stmt = con.createStatement();
+            try {
+                stmt.execute(sql);
+            } finally {
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            throw new SQLRuntimeException(e);
+        } finally {
+            close(con);
+        }
+    }
+
+    public Connection getConnection() {
+        try {
+            return getDataSource().getConnection();
+        } catch (SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+    }
+
+    public static void close(Connection con) {
+        try {
+            con.close();
+        } catch (SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.seasar.dao.CommandContext;
+import org.seasar.dao.impl.AbstractDynamicCommand;
+import org.seasar.extension.jdbc.impl.BasicStatementFactory;
+
+/**
+ * 動的なSQLのコマンドが、引数からSQLとバインド変数を組み立てるコストを測ります。
+ * <p>
+ * 1回の実行で割り当てるメモリの量は、<code>-prof gc</code>を指定して実行すると
+ * <code>gc.alloc.rate.norm</code>として出力されます。
+ * </p>
+ * 
+ * <pre>
+ * java -jar s2-dao-benchmarks/target/benchmarks.jar DynamicCommandBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DynamicCommandBenchmark {
+
+    @Param( { "static", "dynamic" })
+    public String template;
+
+    private ApplyCommand command;
+
+    private Object[] args;
+
+    @Setup
+    public void setUp() {
+        command = new ApplyCommand();
+        command.setSql(Templates.get(template));
+        if ("static".equals(template)) {
+            command.setArgNames(new String[] { "empno", "deptno" });
+            command.setArgTypes(new Class[] { Integer.class, Integer.class });
+            args = new Object[] { new Integer(7788), new Integer(20) };
+        } else {
+            EmpCondition dto = new EmpCondition();
+            dto.setJob("CLERK");
+            dto.setDeptno(new Integer(20));
+            dto.setEnames(Arrays.asList(new String[] { "SCOTT", "MARY",
+                    "SMITH" }));
+            command.setArgNames(new String[] { "dto" });
+            command.setArgTypes(new Class[] { EmpCondition.class });
+            args = new Object[] { dto };
+        }
+    }
+
+    @Benchmark
+    public void apply(Blackhole blackhole) {
+        command.applyArgs(args, blackhole);
+    }
+
+    /**
+     * <code>apply()</code>を呼び出すためのコマンドです。
+     */
+    public static class ApplyCommand extends AbstractDynamicCommand {
+
+        public ApplyCommand() {
+            super(null, BasicStatementFactory.INSTANCE);
+        }
+
+        /**
+         * {@link org.seasar.dao.impl.SelectDynamicCommand#execute(Object[])}と同じように、
+         * SQLとバインド変数を取り出してからコンテキストを解放します。
+         */
+        public void applyArgs(Object[] args, Blackhole blackhole) {
+            CommandContext ctx = apply(args);
+            blackhole.consume(ctx.getSql());
+            blackhole.consume(ctx.getBindVariables());
+            blackhole.consume(ctx.getBindVariableTypes());
+            release(ctx);
+        }
+
+        public Object execute(Object[] args) {
+            throw new UnsupportedOperationException("execute");
+        }
+    }
+}
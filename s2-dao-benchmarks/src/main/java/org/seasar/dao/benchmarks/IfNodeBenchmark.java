@@ -0,0 +1,80 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.dao.CommandContext;
+import org.seasar.dao.context.CommandContextImpl;
+import org.seasar.dao.node.IfNode;
+import org.seasar.dao.node.SqlNode;
+
+/**
+ * {@link IfNode}の条件を評価するコストを測ります。
+ * <p>
+ * <code>compiled</code>はコンパイル済みの式で評価できる条件、
+ * <code>ognl</code>はメソッド呼び出しを含むためOGNLで評価する条件です。
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class IfNodeBenchmark {
+
+    @Param( { "compiled", "ognl" })
+    public String expression;
+
+    private IfNode node;
+
+    private EmpCondition dto;
+
+    @Setup
+    public void setUp() {
+        if ("compiled".equals(expression)) {
+            node = new IfNode("dto.job != null && dto.deptno > 10");
+        } else {
+            node = new IfNode("dto.enames.size() > 0");
+        }
+        node.addChild(new SqlNode("AND job = 'CLERK'"));
+        dto = new EmpCondition();
+        dto.setJob("CLERK");
+        dto.setDeptno(new Integer(20));
+        dto.setEnames(Arrays.asList(new String[] { "SCOTT" }));
+    }
+
+    @Benchmark
+    public CommandContext accept() {
+        CommandContext ctx = new CommandContextImpl();
+        ctx.addArg("dto", dto, EmpCondition.class);
+        node.accept(ctx);
+        return ctx;
+    }
+}
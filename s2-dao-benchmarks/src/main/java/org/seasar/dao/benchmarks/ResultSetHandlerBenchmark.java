@@ -0,0 +1,112 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.dao.BeanMetaData;
+import org.seasar.dao.BeanMetaDataFactory;
+import org.seasar.dao.impl.BeanListMetaDataResultSetHandler;
+import org.seasar.dao.impl.RelationRowCreatorImpl;
+import org.seasar.dao.impl.RowCreatorImpl;
+
+/**
+ * {@link BeanListMetaDataResultSetHandler}が{@link ResultSet}をBeanのリストに変換するコストを測ります。
+ * <p>
+ * 結果セットはセットアップで一度だけ取得し、スクロールで先頭に戻して繰り返し変換します。
+ * インメモリのHSQLDBの結果セットはメモリ上にあるため、データベースとの通信は含まれません。
+ * <code>relation</code>は関連(<code>RELNO</code>)のBeanも生成します。
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ResultSetHandlerBenchmark {
+
+    private static final String SELECT = "SELECT empno, ename, job, sal, hiredate, deptno"
+            + " FROM emp ORDER BY empno";
+
+    private static final String SELECT_WITH_RELATION = "SELECT e.empno, e.ename, e.job, e.sal,"
+            + " e.hiredate, e.deptno, d.deptno AS deptno_0, d.dname AS dname_0,"
+            + " d.loc AS loc_0 FROM emp e LEFT OUTER JOIN dept d"
+            + " ON e.deptno = d.deptno ORDER BY e.empno";
+
+    @Param( { "10", "1000" })
+    public int rows;
+
+    @Param( { "false", "true" })
+    public boolean relation;
+
+    private BenchmarkDatabase database;
+
+    private Connection connection;
+
+    private PreparedStatement statement;
+
+    private ResultSet resultSet;
+
+    private BeanListMetaDataResultSetHandler handler;
+
+    @Setup
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.open();
+        database.setupEmployees(rows);
+        BeanMetaDataFactory factory = (BeanMetaDataFactory) database
+                .getComponent(BeanMetaDataFactory.class);
+        BeanMetaData bmd = factory.createBeanMetaData(Emp.class);
+        handler = new BeanListMetaDataResultSetHandler(bmd,
+                new RowCreatorImpl(), new RelationRowCreatorImpl());
+        connection = database.getConnection();
+        statement = connection.prepareStatement(relation ? SELECT_WITH_RELATION
+                : SELECT, ResultSet.TYPE_SCROLL_INSENSITIVE,
+                ResultSet.CONCUR_READ_ONLY);
+        resultSet = statement.executeQuery();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        resultSet.close();
+        statement.close();
+        BenchmarkDatabase.close(connection);
+        database.close();
+    }
+
+    @Benchmark
+    public Object handle() throws SQLException {
+        resultSet.beforeFirst();
+        return handler.handle(resultSet);
+    }
+}
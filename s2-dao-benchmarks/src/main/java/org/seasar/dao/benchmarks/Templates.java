@@ -0,0 +1,61 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.benchmarks;
+
+/**
+ * ベンチマークで使用するSQLのテンプレートです。
+ */
+public final class Templates {
+
+    public static final String STATIC = "SELECT empno, ename, job, sal, hiredate, deptno"
+            + " FROM emp WHERE empno = /*empno*/1 AND deptno = /*deptno*/10";
+
+    public static final String DYNAMIC = "SELECT empno, ename, job, sal, hiredate, deptno FROM emp"
+            + "/*BEGIN*/ WHERE"
+            + " /*IF dto.job != null*/job = /*dto.job*/'CLERK'/*END*/"
+            + " /*IF dto.deptno != null && dto.deptno > 0*/AND deptno = /*dto.deptno*/10"
+            + "-- ELSE AND deptno IS NULL/*END*/"
+            + " /*IF dto.enames != null*/AND ename IN /*dto.enames*/('SCOTT', 'MARY')/*END*/"
+            + "/*END*/ ORDER BY empno";
+
+    public static final String LARGE = createLarge(100);
+
+    private Templates() {
+    }
+
+    private static String createLarge(int conditions) {
+        StringBuffer buf = new StringBuffer(
+                "SELECT empno, ename, job, sal, hiredate, deptno FROM emp /* large */"
+                        + "/*BEGIN*/ WHERE");
+        for (int i = 0; i < conditions; ++i) {
+            buf.append("\n /*IF dto.job != null*/AND job").append(i).append(
+                    " = /*dto.job*/'CLERK'/*END*/ -- condition ").append(i);
+        }
+        buf.append("\n/*END*/ ORDER BY empno");
+        return buf.toString();
+    }
+
+    public static String get(String name) {
+        if ("static".equals(name)) {
+            return STATIC;
+        } else if ("dynamic".equals(name)) {
+            return DYNAMIC;
+        } else if ("large".equals(name)) {
+            return LARGE;
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao;
+
+/**
+ * 検索結果を1行ずつ受け取るためのインタフェースです。
+ * <p>
+ * Daoのメソッドの最後の引数をこのインタフェースにすると、検索結果を{@link java.util.List}に溜めずに、
+ * Bean、DTO、{@link java.util.Map}などに変換した行を読み込むたびに{@link #handleRow(Object)}
+ * を呼び出します。 大量の行を読み込む場合でもメモリの使用量は一定になります。
+ * 行の型はメソッドの<code>_BEAN</code>アノテーションで指定でき、指定しない場合はDaoのBeanになります。
+ * メソッドの戻り値の型を<code>int</code>にすると、処理した行数を返します。
+ * </p>
+ * 
+ * <pre>
+ * public interface EmpDao {
+ *     Class BEAN = Emp.class;
+ * 
+ *     String findByDeptno_ARGS = &quot;deptno&quot;;
+ * 
+ *     int findByDeptno(Integer deptno, RowHandler rowHandler);
+ * }
+ * </pre>
+ */
+public interface RowHandler {
+
+    /**
+     * 1行を処理します。
+     * 
+     * @param row
+     *            行
+     * @return 続けて次の行を処理する場合は<code>true</code>、処理を打ち切る場合は<code>false</code>
+     */
+    boolean handleRow(Object row);
+
+}
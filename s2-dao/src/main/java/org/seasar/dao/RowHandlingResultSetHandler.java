@@ -0,0 +1,44 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.seasar.extension.jdbc.ResultSetHandler;
+
+/**
+ * 結果セットの行を{@link RowHandler}に1行ずつ渡すことができる{@link ResultSetHandler}です。
+ */
+public interface RowHandlingResultSetHandler extends ResultSetHandler {
+
+    /**
+     * 結果セットの行を1行ずつ変換して{@link RowHandler}に渡します。
+     * <p>
+     * {@link RowHandler#handleRow(Object)}が<code>false</code>を返した場合は、残りの行を読み込まずに終了します。
+     * </p>
+     * 
+     * @param resultSet
+     *            結果セット
+     * @param rowHandler
+     *            行を受け取る{@link RowHandler}
+     * @return {@link RowHandler}に渡した行数
+     * @throws SQLException
+     */
+    int handle(ResultSet resultSet, RowHandler rowHandler)
+            throws SQLException;
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao;
+
+import java.sql.DatabaseMetaData;
+import java.util.Set;
+
+/**
+ * テーブルのカラムや主キーの情報を読み込むためのインタフェースです。
+ * 
+ */
+public interface TableMetaDataReader {
+
+    /**
+     * テーブルのカラム名のセットを返します。
+     * <p>
+     * 返されるセットは大文字小文字を区別しません。テーブルが見つからない場合は空のセットを返します。
+     * </p>
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @param tableName テーブル名
+     * @return カラム名のセット
+     */
+    Set getColumnNames(DatabaseMetaData dbMetaData, String tableName);
+
+    /**
+     * テーブルの主キーのカラム名のセットを返します。
+     * <p>
+     * 返されるセットは大文字小文字を区別しません。
+     * </p>
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @param tableName テーブル名
+     * @return 主キーのカラム名のセット
+     */
+    Set getPrimaryKeyNames(DatabaseMetaData dbMetaData, String tableName);
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.context;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.seasar.framework.util.CaseInsensitiveMap;
+
+/**
+ * 引数名を引数のインデックス(スロット)に解決します。
+ * <p>
+ * 大文字小文字を区別しない解決は、SQLに現れた綴りごとに一度だけ行い、
+ * 以降はその綴りをキーにして、文字列を変換せずにインデックスを求めます。
+ * 解決した結果はコマンドごとに保持するため、複数のコマンドで共有される{@link org.seasar.dao.Node}には持たせません。
+ * </p>
+ * <p>
+ * 複数のスレッドから同時に使用できます。
+ * </p>
+ */
+public final class ArgSlots {
+
+    /**
+     * 引数名に対応するスロットがないことを表します。
+     */
+    public static final int NOT_FOUND = -1;
+
+    private static final Integer NOT_FOUND_SLOT = new Integer(NOT_FOUND);
+
+    private final CaseInsensitiveMap argIndexes;
+
+    private volatile Map resolved;
+
+    /**
+     * インスタンスを作成します。
+     * 
+     * @param argIndexes 引数名をキー、インデックス({@link Integer})を値とするマップ、変更してはいけません
+     */
+    public ArgSlots(CaseInsensitiveMap argIndexes) {
+        this.argIndexes = argIndexes;
+        Map map = new HashMap(argIndexes.size() * 2 + 1);
+        for (Iterator i = argIndexes.entrySet().iterator(); i.hasNext();) {
+            Map.Entry entry = (Map.Entry) i.next();
+            map.put(entry.getKey(), entry.getValue());
+        }
+        resolved = map;
+    }
+
+    /**
+     * 引数名に対応するスロットを返します。
+     * 
+     * @param name 引数名
+     * @return スロット、ない場合は{@link #NOT_FOUND}
+     */
+    public int getSlot(String name) {
+        Integer slot = (Integer) resolved.get(name);
+        if (slot == null) {
+            slot = resolve(name);
+        }
+        return slot.intValue();
+    }
+
+    /**
+     * 引数が1つだけの場合に、その引数のスロットを返します。
+     * 
+     * @return スロット、引数が1つでない場合は{@link #NOT_FOUND}
+     */
+    public int getOnlySlot() {
+        if (argIndexes.size() != 1) {
+            return NOT_FOUND;
+        }
+        return ((Integer) argIndexes.get(0)).intValue();
+    }
+
+    /**
+     * 引数の数を返します。
+     * 
+     * @return 引数の数
+     */
+    public int size() {
+        return argIndexes.size();
+    }
+
+    /**
+     * 引数名とインデックスの対応を返します。
+     * 
+     * @return 引数名をキー、インデックスを値とするマップ、変更してはいけません
+     */
+    public CaseInsensitiveMap getArgIndexes() {
+        return argIndexes;
+    }
+
+    private Integer resolve(String name) {
+        Integer slot = (Integer) argIndexes.get(name);
+        if (slot == null) {
+            slot = NOT_FOUND_SLOT;
+        }
+        // 同時に解決された綴りが失われても、次に解決し直すだけなので同期しない
+        Map map = new HashMap(resolved);
+        map.put(name, slot);
+        resolved = map;
+        return slot;
+    }
+}
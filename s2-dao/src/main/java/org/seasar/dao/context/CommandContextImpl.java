@@ -15,9 +15,6 @@
  */
 package org.seasar.dao.context;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import ognl.OgnlRuntime;
 
 import org.seasar.dao.CommandContext;
@@ -32,65 +29,236 @@ public class CommandContextImpl implements CommandContext {
 
     private static Logger logger = Logger.getLogger(CommandContextImpl.class);
 
-    private CaseInsensitiveMap args = new CaseInsensitiveMap();
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    private static final Class[] EMPTY_TYPES = new Class[0];
+
+    private static final int INITIAL_SQL_FRAGMENT_SIZE = 16;
+
+    /**
+     * 再利用するときに保持し続ける配列の最大の長さです。これを超えた配列は破棄します。
+     */
+    private static final int MAX_RETAINED_SIZE = 256;
+
+    private ArgSlots argSlots;
+
+    private CaseInsensitiveMap argIndexes;
+
+    private Object[] argValues = EMPTY_VALUES;
+
+    private Class[] argValueTypes = EMPTY_TYPES;
+
+    private int argSize;
+
+    private boolean argsShared;
+
+    private String[] sqlFragments;
+
+    private int sqlFragmentSize;
 
-    private CaseInsensitiveMap argTypes = new CaseInsensitiveMap();
+    private String sql;
 
-    private StringBuffer sqlBuf = new StringBuffer(100);
+    private SqlShapeCache sqlShapeCache;
 
-    private List bindVariables = new ArrayList();
+    private Object[] bindVariables = EMPTY_VALUES;
 
-    private List bindVariableTypes = new ArrayList();
+    private Class[] bindVariableTypes = EMPTY_TYPES;
+
+    private int bindVariableSize;
 
     private boolean enabled = true;
 
+    private boolean inListPadding;
+
+    private int maxInListSize;
+
     private CommandContext parent;
 
+    private CommandContextImpl child;
+
     static {
         OgnlRuntime.setPropertyAccessor(CommandContext.class,
                 new CommandContextPropertyAccessor());
     }
 
     public CommandContextImpl() {
+        sqlFragments = new String[INITIAL_SQL_FRAGMENT_SIZE];
     }
 
     public CommandContextImpl(CommandContext parent) {
         this.parent = parent;
         enabled = false;
+        sqlFragments = new String[8];
+        if (parent instanceof CommandContextImpl) {
+            inListPadding = ((CommandContextImpl) parent).inListPadding;
+            maxInListSize = ((CommandContextImpl) parent).maxInListSize;
+        }
+    }
+
+    /**
+     * 引数をまとめて設定したインスタンスを作成します。
+     * <p>
+     * <code>argIndexes</code>と<code>args</code>、<code>argTypes</code>は、
+     * 複数のインスタンスで共有できるように変更しません。
+     * {@link #addArg(String, Object, Class)}が呼ばれた場合は、コピーしてから変更します。
+     * </p>
+     * 
+     * @param argIndexes 引数名をキー、<code>args</code>のインデックス({@link Integer})を値とするマップ
+     * @param args 引数の値
+     * @param argTypes 引数の型
+     * @param sqlShapeCache 組み立てたSQLのキャッシュ、キャッシュしない場合は<code>null</code>
+     */
+    public CommandContextImpl(CaseInsensitiveMap argIndexes, Object[] args,
+            Class[] argTypes, SqlShapeCache sqlShapeCache) {
+        this(new ArgSlots(argIndexes), args, argTypes, sqlShapeCache);
+    }
+
+    /**
+     * 引数をまとめて設定したインスタンスを作成します。
+     * <p>
+     * 引数名は<code>argSlots</code>でインデックスに解決します。
+     * <code>args</code>と<code>argTypes</code>は変更しません。
+     * </p>
+     * 
+     * @param argSlots 引数名をインデックスに解決する{@link ArgSlots}
+     * @param args 引数の値
+     * @param argTypes 引数の型
+     * @param sqlShapeCache 組み立てたSQLのキャッシュ、キャッシュしない場合は<code>null</code>
+     */
+    public CommandContextImpl(ArgSlots argSlots, Object[] args,
+            Class[] argTypes, SqlShapeCache sqlShapeCache) {
+        sqlFragments = new String[INITIAL_SQL_FRAGMENT_SIZE];
+        reset(argSlots, args, argTypes, sqlShapeCache);
+    }
+
+    /**
+     * 再利用するために、引数を設定し直し、組み立てたSQLとバインド変数を破棄します。
+     * 
+     * @param argSlots 引数名をインデックスに解決する{@link ArgSlots}
+     * @param args 引数の値
+     * @param argTypes 引数の型
+     * @param sqlShapeCache 組み立てたSQLのキャッシュ、キャッシュしない場合は<code>null</code>
+     * @see #CommandContextImpl(ArgSlots, Object[], Class[], SqlShapeCache)
+     */
+    public void reset(ArgSlots argSlots, Object[] args, Class[] argTypes,
+            SqlShapeCache sqlShapeCache) {
+        clear();
+        this.argSlots = argSlots;
+        argIndexes = null;
+        argValues = args;
+        argValueTypes = argTypes;
+        argSize = args.length;
+        argsShared = true;
+        this.sqlShapeCache = sqlShapeCache;
+        enabled = true;
+    }
+
+    /**
+     * 引数と、組み立てたSQLとバインド変数を破棄します。
+     * <p>
+     * 再利用するために保持したインスタンスが、引数やバインド変数、SQLのキャッシュを参照し続けないようにします。
+     * </p>
+     */
+    public void clear() {
+        if (!argsShared) {
+            fill(argValues, argSize);
+            fill(argValueTypes, argSize);
+        }
+        argSlots = null;
+        argIndexes = null;
+        argValues = EMPTY_VALUES;
+        argValueTypes = EMPTY_TYPES;
+        argSize = 0;
+        argsShared = false;
+        if (sqlFragments.length > MAX_RETAINED_SIZE) {
+            sqlFragments = new String[INITIAL_SQL_FRAGMENT_SIZE];
+        } else {
+            fill(sqlFragments, sqlFragmentSize);
+        }
+        sqlFragmentSize = 0;
+        sql = null;
+        sqlShapeCache = null;
+        if (bindVariables.length > MAX_RETAINED_SIZE) {
+            bindVariables = EMPTY_VALUES;
+            bindVariableTypes = EMPTY_TYPES;
+        } else {
+            fill(bindVariables, bindVariableSize);
+            fill(bindVariableTypes, bindVariableSize);
+        }
+        bindVariableSize = 0;
+        if (child != null) {
+            child.clear();
+        }
+    }
+
+    /**
+     * このコンテキストを親とする子供のコンテキストを返します。
+     * <p>
+     * 子供のコンテキストは再利用するため、前回返したコンテキストは使えなくなります。
+     * 前回返したコンテキストの内容は、{@link #appendTo(CommandContext)}で追加し終えている必要があります。
+     * </p>
+     * 
+     * @return 子供のコンテキスト
+     */
+    public CommandContextImpl getChildContext() {
+        if (child == null) {
+            child = new CommandContextImpl(this);
+        } else {
+            child.clear();
+            child.enabled = false;
+            child.inListPadding = inListPadding;
+            child.maxInListSize = maxInListSize;
+        }
+        return child;
     }
 
     /**
      * @see org.seasar.dao.CommandContext#getArg(java.lang.String)
      */
     public Object getArg(String name) {
-        if (args.containsKey(name)) {
-            return args.get(name);
-        } else if (parent != null) {
-            return parent.getArg(name);
-        } else {
-            if (args.size() == 1) {
-                return args.get(0);
-            }
-            logger.log("WDAO0001", new Object[] { name });
-            return null;
+        int index = getArgIndex(name);
+        if (index >= 0) {
+            return argValues[index];
         }
+        return parent != null ? parent.getArg(name) : null;
     }
 
     /**
      * @see org.seasar.dao.CommandContext#getArgType(java.lang.String)
      */
     public Class getArgType(String name) {
-        if (argTypes.containsKey(name)) {
-            return (Class) argTypes.get(name);
-        } else if (parent != null) {
-            return parent.getArgType(name);
-        } else {
-            if (argTypes.size() == 1) {
-                return (Class) argTypes.get(0);
+        int index = getArgIndex(name);
+        if (index >= 0) {
+            return argValueTypes[index];
+        }
+        return parent != null ? parent.getArgType(name) : null;
+    }
+
+    private int getArgIndex(String name) {
+        if (argSlots != null) {
+            int slot = argSlots.getSlot(name);
+            if (slot != ArgSlots.NOT_FOUND) {
+                return slot;
             }
-            logger.log("WDAO0001", new Object[] { name });
-            return null;
+        } else if (argIndexes != null) {
+            Integer index = (Integer) argIndexes.get(name);
+            if (index != null) {
+                return index.intValue();
+            }
+        }
+        if (parent != null) {
+            return -1;
+        }
+        if (argSlots != null) {
+            int slot = argSlots.getOnlySlot();
+            if (slot != ArgSlots.NOT_FOUND) {
+                return slot;
+            }
+        } else if (argIndexes != null && argIndexes.size() == 1) {
+            return ((Integer) argIndexes.get(0)).intValue();
         }
+        logger.log("WDAO0001", new Object[] { name });
+        return -1;
     }
 
     /**
@@ -98,37 +266,63 @@ public class CommandContextImpl implements CommandContext {
      *      java.lang.Object, java.lang.Class)
      */
     public void addArg(String name, Object arg, Class argType) {
-        args.put(name, arg);
-        argTypes.put(name, argType);
+        if (argSlots != null) {
+            CaseInsensitiveMap shared = argSlots.getArgIndexes();
+            argIndexes = new CaseInsensitiveMap(shared.size() + 1);
+            argIndexes.putAll(shared);
+            argSlots = null;
+        } else if (argIndexes == null) {
+            argIndexes = new CaseInsensitiveMap();
+        }
+        if (argsShared) {
+            argValues = copyOf(argValues, argValues.length);
+            argValueTypes = copyOf(argValueTypes, argValueTypes.length);
+            argsShared = false;
+        }
+        Integer index = (Integer) argIndexes.get(name);
+        if (index == null) {
+            if (argSize == argValues.length) {
+                argValues = copyOf(argValues, argSize * 2 + 1);
+                argValueTypes = copyOf(argValueTypes, argSize * 2 + 1);
+            }
+            index = new Integer(argSize++);
+            argIndexes.put(name, index);
+        }
+        argValues[index.intValue()] = arg;
+        argValueTypes[index.intValue()] = argType;
     }
 
     /**
      * @see org.seasar.dao.CommandContext#getSql()
      */
     public String getSql() {
-        return sqlBuf.toString();
+        if (sql == null) {
+            sql = sqlShapeCache != null ? sqlShapeCache.getSql(sqlFragments,
+                    sqlFragmentSize) : SqlShapeCache.join(sqlFragments,
+                    sqlFragmentSize);
+        }
+        return sql;
     }
 
     /**
      * @see org.seasar.dao.CommandContext#getBindVariables()
      */
     public Object[] getBindVariables() {
-        return bindVariables.toArray(new Object[bindVariables.size()]);
+        return copyOf(bindVariables, bindVariableSize);
     }
 
     /**
      * @see org.seasar.dao.CommandContext#getBindVariableTypes()
      */
     public Class[] getBindVariableTypes() {
-        return (Class[]) bindVariableTypes.toArray(new Class[bindVariableTypes
-                .size()]);
+        return copyOf(bindVariableTypes, bindVariableSize);
     }
 
     /**
      * @see org.seasar.dao.CommandContext#addSql(java.lang.String)
      */
     public CommandContext addSql(String sql) {
-        sqlBuf.append(sql);
+        addSqlFragment(sql);
         return this;
     }
 
@@ -139,23 +333,145 @@ public class CommandContextImpl implements CommandContext {
     public CommandContext addSql(String sql, Object bindVariable,
             Class bindVariableType) {
 
-        sqlBuf.append(sql);
-        bindVariables.add(bindVariable);
-        bindVariableTypes.add(bindVariableType);
+        addSqlFragment(sql);
+        ensureBindVariableCapacity(bindVariableSize + 1);
+        bindVariables[bindVariableSize] = bindVariable;
+        bindVariableTypes[bindVariableSize] = bindVariableType;
+        ++bindVariableSize;
         return this;
     }
 
     public CommandContext addSql(String sql, Object[] bindVariables,
             Class[] bindVariableTypes) {
 
-        sqlBuf.append(sql);
-        for (int i = 0; i < bindVariables.length; ++i) {
-            this.bindVariables.add(bindVariables[i]);
-            this.bindVariableTypes.add(bindVariableTypes[i]);
-        }
+        addSqlFragment(sql);
+        addBindVariables(bindVariables, bindVariableTypes,
+                bindVariables.length);
         return this;
     }
 
+    /**
+     * 最後に追加されたSQLの断片を取り除いて返します。
+     * 
+     * @return 最後に追加されたSQLの断片、ない場合は<code>null</code>
+     */
+    public String removeLastSql() {
+        if (sqlFragmentSize == 0) {
+            return null;
+        }
+        sql = null;
+        String fragment = sqlFragments[--sqlFragmentSize];
+        sqlFragments[sqlFragmentSize] = null;
+        return fragment;
+    }
+
+    /**
+     * このコンテキストに追加されたSQLとバインド変数を、<code>ctx</code>に追加します。
+     * 
+     * @param ctx 追加先のコンテキスト
+     */
+    public void appendTo(CommandContext ctx) {
+        if (ctx instanceof CommandContextImpl) {
+            CommandContextImpl impl = (CommandContextImpl) ctx;
+            impl.addSqlFragments(sqlFragments, sqlFragmentSize);
+            impl.addBindVariables(bindVariables, bindVariableTypes,
+                    bindVariableSize);
+        } else {
+            ctx.addSql(getSql(), getBindVariables(), getBindVariableTypes());
+        }
+    }
+
+    private void addSqlFragment(String fragment) {
+        if (sqlFragmentSize == sqlFragments.length) {
+            sqlFragments = copyOf(sqlFragments, sqlFragmentSize * 2);
+        }
+        sqlFragments[sqlFragmentSize++] = fragment;
+        sql = null;
+    }
+
+    private void addSqlFragments(String[] fragments, int size) {
+        if (sqlFragmentSize + size > sqlFragments.length) {
+            sqlFragments = copyOf(sqlFragments, Math.max(
+                    sqlFragmentSize + size, sqlFragmentSize * 2));
+        }
+        System.arraycopy(fragments, 0, sqlFragments, sqlFragmentSize, size);
+        sqlFragmentSize += size;
+        sql = null;
+    }
+
+    private void addBindVariables(Object[] values, Class[] types, int size) {
+        ensureBindVariableCapacity(bindVariableSize + size);
+        System.arraycopy(values, 0, bindVariables, bindVariableSize, size);
+        System.arraycopy(types, 0, bindVariableTypes, bindVariableSize, size);
+        bindVariableSize += size;
+    }
+
+    private void ensureBindVariableCapacity(int capacity) {
+        if (capacity > bindVariables.length) {
+            int newCapacity = Math.max(capacity, bindVariables.length * 2 + 4);
+            bindVariables = copyOf(bindVariables, newCapacity);
+            bindVariableTypes = copyOf(bindVariableTypes, newCapacity);
+        }
+    }
+
+    private static void fill(Object[] array, int size) {
+        for (int i = 0; i < size; ++i) {
+            array[i] = null;
+        }
+    }
+
+    private static Object[] copyOf(Object[] src, int length) {
+        Object[] dest = new Object[length];
+        System.arraycopy(src, 0, dest, 0, Math.min(src.length, length));
+        return dest;
+    }
+
+    private static String[] copyOf(String[] src, int length) {
+        String[] dest = new String[length];
+        System.arraycopy(src, 0, dest, 0, Math.min(src.length, length));
+        return dest;
+    }
+
+    private static Class[] copyOf(Class[] src, int length) {
+        Class[] dest = new Class[length];
+        System.arraycopy(src, 0, dest, 0, Math.min(src.length, length));
+        return dest;
+    }
+
+    public boolean isInListPadding() {
+        return inListPadding;
+    }
+
+    /**
+     * IN句のバインド変数の数を、2のべき乗に切り上げるかどうかを設定します。
+     * <p>
+     * 切り上げた分は最後の値を繰り返してバインドします。
+     * 要素の数が違ってもSQLの種類が増えにくくなるため、ステートメントのキャッシュが効きやすくなります。
+     * </p>
+     * 
+     * @param inListPadding 切り上げる場合は<code>true</code>
+     */
+    public void setInListPadding(boolean inListPadding) {
+        this.inListPadding = inListPadding;
+    }
+
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    /**
+     * IN句に指定できる要素の最大数を設定します。
+     * <p>
+     * 要素の数が最大数を超えた場合は、複数のIN句に分割して<code>OR</code>で連結します。
+     * <code>0</code>の場合は分割しません。
+     * </p>
+     * 
+     * @param maxInListSize IN句に指定できる要素の最大数
+     */
+    public void setMaxInListSize(int maxInListSize) {
+        this.maxInListSize = maxInListSize;
+    }
+
     /**
      * @see org.seasar.dao.CommandContext#isEnabled()
      */
@@ -169,4 +485,4 @@ public class CommandContextImpl implements CommandContext {
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
-}
\ No newline at end of file
+}
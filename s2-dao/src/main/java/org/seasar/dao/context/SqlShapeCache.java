@@ -0,0 +1,223 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.context;
+
+/**
+ * 動的なSQLを組み立てた結果を、断片の並びごとにキャッシュするクラスです。
+ * <p>
+ * IFコメントなどで分岐したSQLは、どの分岐を通ったかによって断片の並びが決まります。
+ * 同じ並びであれば同じ{@link String}のインスタンスを返すので、文字列を組み立て直す必要がなく、
+ * JDBCドライバのステートメントキャッシュにもそのまま同じSQLが渡ります。
+ * 保持する並びの数は{@link #getMaxSize()}までで、超えた場合はおおよそ最も古く使われたものから破棄します。
+ * </p>
+ * <p>
+ * 参照はロックを取らずに行います。
+ * 並びを追加するときだけロックを取り、ハッシュ表をコピーしてから差し替えます。
+ * 最後に使われた順序は参照のたびに同期せずに記録するため、複数のスレッドから使われた場合は厳密ではありません。
+ * </p>
+ */
+public class SqlShapeCache {
+
+    private static final Shape[] EMPTY_TABLE = new Shape[0];
+
+    private final int maxSize;
+
+    private volatile Shape[] table = EMPTY_TABLE;
+
+    private int size;
+
+    private long clock;
+
+    /**
+     * インスタンスを作成します。
+     * 
+     * @param maxSize 保持する並びの最大数
+     */
+    public SqlShapeCache(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 断片を連結したSQLを返します。
+     * 
+     * @param fragments SQLの断片
+     * @param size 断片の数
+     * @return 断片を連結したSQL
+     */
+    public String getSql(final String[] fragments, final int size) {
+        final int hashCode = hashCode(fragments, size);
+        Shape shape = find(table, fragments, size, hashCode);
+        if (shape != null) {
+            shape.lastUsed = ++clock;
+            return shape.sql;
+        }
+        final String sql = join(fragments, size);
+        if (maxSize <= 0) {
+            return sql;
+        }
+        synchronized (this) {
+            shape = find(table, fragments, size, hashCode);
+            if (shape != null) {
+                return shape.sql;
+            }
+            final String[] copy = new String[size];
+            System.arraycopy(fragments, 0, copy, 0, size);
+            add(new Shape(copy, size, hashCode, sql, ++clock));
+        }
+        return sql;
+    }
+
+    /**
+     * 保持している並びの数を返します。
+     * 
+     * @return 保持している並びの数
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * 断片を連結します。
+     * 
+     * @param fragments SQLの断片
+     * @param size 断片の数
+     * @return 断片を連結したSQL
+     */
+    public static String join(final String[] fragments, final int size) {
+        if (size == 1 && fragments[0] != null) {
+            return fragments[0];
+        }
+        int length = 0;
+        for (int i = 0; i < size; ++i) {
+            length += fragments[i] != null ? fragments[i].length() : 4;
+        }
+        final StringBuffer buf = new StringBuffer(length);
+        for (int i = 0; i < size; ++i) {
+            buf.append(fragments[i]);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * 並びを追加したハッシュ表を作成して差し替えます。
+     * 最大数を超える場合は、最後に使われたのが最も古い並びを取り除きます。
+     * 
+     * @param shape 追加する並び
+     */
+    private void add(final Shape shape) {
+        final Shape[] oldTable = table;
+        Shape eldest = null;
+        if (size >= maxSize) {
+            for (int i = 0; i < oldTable.length; ++i) {
+                final Shape s = oldTable[i];
+                if (s != null
+                        && (eldest == null || s.lastUsed < eldest.lastUsed)) {
+                    eldest = s;
+                }
+            }
+        } else {
+            ++size;
+        }
+        int capacity = 4;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        final Shape[] newTable = new Shape[capacity];
+        for (int i = 0; i < oldTable.length; ++i) {
+            if (oldTable[i] != null && oldTable[i] != eldest) {
+                put(newTable, oldTable[i]);
+            }
+        }
+        put(newTable, shape);
+        table = newTable;
+    }
+
+    private static void put(final Shape[] table, final Shape shape) {
+        final int mask = table.length - 1;
+        int index = shape.hashCode & mask;
+        while (table[index] != null) {
+            index = (index + 1) & mask;
+        }
+        table[index] = shape;
+    }
+
+    private static Shape find(final Shape[] table, final String[] fragments,
+            final int size, final int hashCode) {
+        if (table.length == 0) {
+            return null;
+        }
+        final int mask = table.length - 1;
+        int index = hashCode & mask;
+        Shape shape;
+        while ((shape = table[index]) != null) {
+            if (shape.matches(fragments, size, hashCode)) {
+                return shape;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int hashCode(final String[] fragments, final int size) {
+        int h = size;
+        for (int i = 0; i < size; ++i) {
+            h = h * 31 + (fragments[i] != null ? fragments[i].hashCode() : 0);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static class Shape {
+
+        private final String[] fragments;
+
+        private final int size;
+
+        private final int hashCode;
+
+        private final String sql;
+
+        private long lastUsed;
+
+        private Shape(final String[] fragments, final int size,
+                final int hashCode, final String sql, final long lastUsed) {
+            this.fragments = fragments;
+            this.size = size;
+            this.hashCode = hashCode;
+            this.sql = sql;
+            this.lastUsed = lastUsed;
+        }
+
+        private boolean matches(final String[] otherFragments,
+                final int otherSize, final int otherHashCode) {
+            if (hashCode != otherHashCode || size != otherSize) {
+                return false;
+            }
+            for (int i = 0; i < size; ++i) {
+                final String s1 = fragments[i];
+                final String s2 = otherFragments[i];
+                if (s1 != s2 && (s1 == null || !s1.equals(s2))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
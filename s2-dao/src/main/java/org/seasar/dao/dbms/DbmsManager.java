@@ -25,10 +25,14 @@ import java.util.Properties;
 import javax.sql.DataSource;
 
 import org.seasar.dao.Dbms;
+import org.seasar.dao.util.SelectableDataSourceProxyUtil;
+import org.seasar.dao.util.StartupProfileUtil;
 import org.seasar.extension.jdbc.util.ConnectionUtil;
 import org.seasar.extension.jdbc.util.DataSourceUtil;
 import org.seasar.extension.jdbc.util.DatabaseMetaDataUtil;
 import org.seasar.framework.util.ClassUtil;
+import org.seasar.framework.util.Disposable;
+import org.seasar.framework.util.DisposableUtil;
 import org.seasar.framework.util.ResourceUtil;
 
 /**
@@ -39,7 +43,13 @@ public final class DbmsManager {
 
     private static Properties dbmsClassNames;
 
-    private static Map dbmsInstances = new HashMap();
+    private static volatile Map dbmsInstances = new HashMap();
+
+    private static volatile Map dataSourceDbms = new HashMap();
+
+    private static final Object lock = new Object();
+
+    private static boolean registered = false;
 
     static {
         dbmsClassNames = ResourceUtil.getProperties("dbms.properties");
@@ -48,15 +58,49 @@ public final class DbmsManager {
     private DbmsManager() {
     }
 
+    /**
+     * データソースに対応する{@link Dbms}を返します。
+     * <p>
+     * 結果はデータソースごとにキャッシュされるため、コネクションを取得するのは各データソースにつき最初の1回だけです。
+     * 動的なデータソースの場合は、選択されているデータソースの名前ごとにキャッシュします。
+     * </p>
+     * 
+     * @param dataSource データソース
+     * @return {@link Dbms}
+     */
     public static Dbms getDbms(DataSource dataSource) {
-        Dbms dbms = null;
+        final Object key = new DataSourceKey(dataSource,
+                SelectableDataSourceProxyUtil
+                        .getSelectableDataSourceName(dataSource));
+        Dbms dbms = (Dbms) dataSourceDbms.get(key);
+        if (dbms != null) {
+            return dbms;
+        }
+        final long start = StartupProfileUtil.start();
         Connection con = DataSourceUtil.getConnection(dataSource);
+        StartupProfileUtil.record(StartupProfileUtil.CONNECTION, start);
         try {
             DatabaseMetaData dmd = ConnectionUtil.getMetaData(con);
             dbms = getDbms(dmd);
         } finally {
             ConnectionUtil.close(con);
         }
+        synchronized (lock) {
+            final Map map = new HashMap(dataSourceDbms);
+            map.put(key, dbms);
+            dataSourceDbms = map;
+            if (!registered) {
+                DisposableUtil.add(new Disposable() {
+                    public void dispose() {
+                        synchronized (lock) {
+                            dataSourceDbms = new HashMap();
+                            registered = false;
+                        }
+                    }
+                });
+                registered = true;
+            }
+        }
         return dbms;
     }
 
@@ -66,19 +110,55 @@ public final class DbmsManager {
 
     public static Dbms getDbms(String productName) {
         Dbms dbms = (Dbms) dbmsInstances.get(productName);
-        if (dbms == null) {
-            String className = dbmsClassNames.getProperty("");
-            for (Iterator i = dbmsClassNames.keySet().iterator(); i.hasNext();) {
-                String productPrefix = (String) i.next();
-                if (productName.startsWith(productPrefix)) {
-                    className = dbmsClassNames.getProperty(productPrefix);
-                    break;
+        if (dbms != null) {
+            return dbms;
+        }
+        synchronized (lock) {
+            dbms = (Dbms) dbmsInstances.get(productName);
+            if (dbms == null) {
+                String className = dbmsClassNames.getProperty("");
+                for (Iterator i = dbmsClassNames.keySet().iterator(); i
+                        .hasNext();) {
+                    String productPrefix = (String) i.next();
+                    if (productName.startsWith(productPrefix)) {
+                        className = dbmsClassNames.getProperty(productPrefix);
+                        break;
+                    }
                 }
+                dbms = (Dbms) ClassUtil.newInstance(className);
+                final Map map = new HashMap(dbmsInstances);
+                map.put(productName, dbms);
+                dbmsInstances = map;
             }
-            dbms = (Dbms) ClassUtil.newInstance(className);
-            dbmsInstances.put(productName, dbms);
         }
         return dbms;
 
     }
+
+    private static class DataSourceKey {
+
+        private final DataSource dataSource;
+
+        private final String dataSourceName;
+
+        private DataSourceKey(DataSource dataSource, String dataSourceName) {
+            this.dataSource = dataSource;
+            this.dataSourceName = dataSourceName;
+        }
+
+        public int hashCode() {
+            return System.identityHashCode(dataSource)
+                    + (dataSourceName != null ? dataSourceName.hashCode() : 0);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof DataSourceKey)) {
+                return false;
+            }
+            final DataSourceKey other = (DataSourceKey) o;
+            return dataSource == other.dataSource
+                    && (dataSourceName == null ? other.dataSourceName == null
+                            : dataSourceName.equals(other.dataSourceName));
+        }
+    }
 }
\ No newline at end of file
@@ -20,14 +20,13 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.sql.DataSource;
 
 import org.seasar.dao.Dbms;
+import org.seasar.dao.util.SqlLogUtil;
 import org.seasar.extension.jdbc.StatementFactory;
 import org.seasar.extension.jdbc.ValueType;
 import org.seasar.extension.jdbc.impl.BasicStatementFactory;
@@ -239,23 +238,7 @@ public abstract class AbstractBasicProcedureHandler implements ProcedureHandler
     }
 
     protected String getBindVariableText(Object bindVariable) {
-        if (bindVariable instanceof String) {
-            return "'" + bindVariable + "'";
-        } else if (bindVariable instanceof Number) {
-            return bindVariable.toString();
-        } else if (bindVariable instanceof Timestamp) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss");
-            return "'" + sdf.format((java.util.Date) bindVariable) + "'";
-        } else if (bindVariable instanceof java.util.Date) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-            return "'" + sdf.format((java.util.Date) bindVariable) + "'";
-        } else if (bindVariable instanceof Boolean) {
-            return bindVariable.toString();
-        } else if (bindVariable == null) {
-            return "null";
-        } else {
-            return "'" + bindVariable.toString() + "'";
-        }
+        return SqlLogUtil.getBindVariableText(bindVariable);
     }
 
     protected ValueType getValueType(Class clazz) {
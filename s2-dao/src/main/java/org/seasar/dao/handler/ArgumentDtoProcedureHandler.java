@@ -25,14 +25,19 @@ import javax.sql.DataSource;
 
 import org.seasar.dao.ProcedureMetaData;
 import org.seasar.dao.ProcedureParameterType;
+import org.seasar.dao.util.SqlLogUtil;
 import org.seasar.extension.jdbc.ResultSetFactory;
 import org.seasar.extension.jdbc.ResultSetHandler;
+import org.seasar.extension.jdbc.SqlLogRegistry;
+import org.seasar.extension.jdbc.SqlLogRegistryLocator;
 import org.seasar.extension.jdbc.StatementFactory;
 import org.seasar.extension.jdbc.ValueType;
 import org.seasar.extension.jdbc.impl.BasicSelectHandler;
+import org.seasar.extension.jdbc.impl.SqlLogImpl;
 import org.seasar.framework.exception.EmptyRuntimeException;
 import org.seasar.framework.exception.SIllegalArgumentException;
 import org.seasar.framework.exception.SQLRuntimeException;
+import org.seasar.framework.log.Logger;
 import org.seasar.framework.util.ResultSetUtil;
 import org.seasar.framework.util.StatementUtil;
 
@@ -88,16 +93,24 @@ public class ArgumentDtoProcedureHandler extends BasicSelectHandler implements
     public Object execute(final Connection connection, final Object[] args,
             final Class[] argTypes) {
         final Object dto = getArgumentDto(args);
-        logSql(args, argTypes);
+        if (SqlLogUtil.isSqlLogEnabled(loggerClass)) {
+            logSql(args, argTypes);
+        }
         CallableStatement cs = null;
         try {
             cs = prepareCallableStatement(connection);
             bindArgs(cs, dto);
-            if (cs.execute()) {
+            final long start = SqlLogUtil.start();
+            final boolean resultSetReturned = cs.execute();
+            final long time = SqlLogUtil.getSlowQueryTime(start);
+            if (time >= 0) {
+                SqlLogUtil.logSlowQuery(loggerClass, time,
+                        getCompleteSql(args));
+            }
+            if (resultSetReturned) {
                 return handleResultSet(cs);
-            } else {
-                return handleOutParameters(cs, dto);
             }
+            return handleOutParameters(cs, dto);
         } catch (final SQLException e) {
             throw new SQLRuntimeException(e);
         } finally {
@@ -105,6 +118,33 @@ public class ArgumentDtoProcedureHandler extends BasicSelectHandler implements
         }
     }
 
+    /**
+     * SQLをデバッグログに出力し、<code>SqlLogRegistry</code>に登録します。
+     * <p>
+     * デバッグログへの出力だけを{@link SqlLogUtil#isSampled()}でサンプリングします。
+     * </p>
+     * 
+     * @param args SQLにバインドされる値の配列
+     * @param argTypes SQLにバインドされる値の型の配列
+     */
+    protected void logSql(final Object[] args, final Class[] argTypes) {
+        final Logger logger = Logger.getLogger(loggerClass);
+        final boolean debug = logger.isDebugEnabled()
+                && SqlLogUtil.isSampled();
+        final SqlLogRegistry sqlLogRegistry = SqlLogRegistryLocator
+                .getInstance();
+        if (debug || sqlLogRegistry != null) {
+            final String completeSql = getCompleteSql(args);
+            if (debug) {
+                logger.debug(completeSql);
+            }
+            if (sqlLogRegistry != null) {
+                sqlLogRegistry.add(new SqlLogImpl(getSql(), completeSql,
+                        args, argTypes));
+            }
+        }
+    }
+
     protected String getCompleteSql(final Object[] args) {
         String sql = getSql();
         Object dto = getArgumentDto(args);
@@ -132,6 +172,10 @@ public class ArgumentDtoProcedureHandler extends BasicSelectHandler implements
         return buf.toString();
     }
 
+    protected String getBindVariableText(final Object bindVariable) {
+        return SqlLogUtil.getBindVariableText(bindVariable);
+    }
+
     /**
      * ストアドプロシージャを表す文を生成します。
      * 
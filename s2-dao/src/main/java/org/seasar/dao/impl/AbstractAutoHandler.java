@@ -27,11 +27,15 @@ import javax.sql.DataSource;
 
 import org.seasar.dao.BeanMetaData;
 import org.seasar.dao.NotSingleRowUpdatedRuntimeException;
+import org.seasar.dao.util.SqlLogUtil;
 import org.seasar.extension.jdbc.PropertyType;
+import org.seasar.extension.jdbc.SqlLogRegistry;
+import org.seasar.extension.jdbc.SqlLogRegistryLocator;
 import org.seasar.extension.jdbc.StatementFactory;
 import org.seasar.extension.jdbc.UpdateHandler;
 import org.seasar.extension.jdbc.ValueType;
 import org.seasar.extension.jdbc.impl.BasicHandler;
+import org.seasar.extension.jdbc.impl.SqlLogImpl;
 import org.seasar.extension.jdbc.util.ConnectionUtil;
 import org.seasar.framework.beans.PropertyDesc;
 import org.seasar.framework.exception.SQLRuntimeException;
@@ -137,12 +141,18 @@ public abstract class AbstractAutoHandler extends BasicHandler implements
     protected int execute(Connection connection, Object bean) {
         preUpdateBean(bean);
         setupBindVariables(bean);
-        logSql(bindVariables, getArgTypes(bindVariables));
+        logSql(bindVariables);
         PreparedStatement ps = prepareStatement(connection);
         int ret = -1;
         try {
             bindArgs(ps, bindVariables, bindVariableValueTypes);
+            final long start = SqlLogUtil.start();
             ret = PreparedStatementUtil.executeUpdate(ps);
+            final long time = SqlLogUtil.getSlowQueryTime(start);
+            if (time >= 0) {
+                SqlLogUtil.logSlowQuery(loggerClass, time, SqlLogUtil
+                        .getCompleteSql(getSql(), bindVariables));
+            }
         } finally {
             StatementUtil.close(ps);
         }
@@ -153,6 +163,50 @@ public abstract class AbstractAutoHandler extends BasicHandler implements
         return ret;
     }
 
+    /**
+     * SQLをログに出力します。
+     * <p>
+     * {@link SqlLogUtil#isSqlLogEnabled(Class)}が<code>true</code>の場合だけ、
+     * バインド変数の型の取得とSQLの組み立てを行います。
+     * </p>
+     * 
+     * @param args SQLにバインドされる値の配列
+     */
+    protected void logSql(Object[] args) {
+        if (SqlLogUtil.isSqlLogEnabled(loggerClass)) {
+            logSql(args, getArgTypes(args));
+        }
+    }
+
+    /**
+     * SQLをデバッグログに出力し、<code>SqlLogRegistry</code>に登録します。
+     * <p>
+     * デバッグログへの出力だけを{@link SqlLogUtil#isSampled()}でサンプリングします。
+     * </p>
+     * 
+     * @param args SQLにバインドされる値の配列
+     * @param argTypes SQLにバインドされる値の型の配列
+     */
+    protected void logSql(Object[] args, Class[] argTypes) {
+        Logger logger = Logger.getLogger(loggerClass);
+        boolean debug = logger.isDebugEnabled() && SqlLogUtil.isSampled();
+        SqlLogRegistry sqlLogRegistry = SqlLogRegistryLocator.getInstance();
+        if (debug || sqlLogRegistry != null) {
+            String completeSql = getCompleteSql(args);
+            if (debug) {
+                logger.debug(completeSql);
+            }
+            if (sqlLogRegistry != null) {
+                sqlLogRegistry.add(new SqlLogImpl(getSql(), completeSql,
+                        args, argTypes));
+            }
+        }
+    }
+
+    protected String getBindVariableText(Object bindVariable) {
+        return SqlLogUtil.getBindVariableText(bindVariable);
+    }
+
     protected void bindArgs(PreparedStatement ps, Object[] args,
             ValueType[] valueTypes) {
         if (args == null) {
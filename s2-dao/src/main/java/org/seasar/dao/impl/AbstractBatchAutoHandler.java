@@ -24,6 +24,7 @@ import java.util.List;
 import javax.sql.DataSource;
 
 import org.seasar.dao.BeanMetaData;
+import org.seasar.dao.util.SqlLogUtil;
 import org.seasar.extension.jdbc.PropertyType;
 import org.seasar.extension.jdbc.ReturningRowsBatchHandler;
 import org.seasar.extension.jdbc.StatementFactory;
@@ -63,7 +64,13 @@ public abstract class AbstractBatchAutoHandler extends AbstractAutoHandler
                     Object bean = (Object) iter.next();
                     execute(ps, bean);
                 }
-                return PreparedStatementUtil.executeBatch(ps);
+                final long start = SqlLogUtil.start();
+                final int[] ret = PreparedStatementUtil.executeBatch(ps);
+                final long time = SqlLogUtil.getSlowQueryTime(start);
+                if (time >= 0) {
+                    SqlLogUtil.logSlowQuery(loggerClass, time, getSql());
+                }
+                return ret;
             } finally {
                 StatementUtil.close(ps);
             }
@@ -107,7 +114,7 @@ public abstract class AbstractBatchAutoHandler extends AbstractAutoHandler
 
     protected void execute(PreparedStatement ps, Object bean) {
         setupBindVariables(bean);
-        logSql(getBindVariables(), getArgTypes(getBindVariables()));
+        logSql(getBindVariables());
         bindArgs(ps, getBindVariables(), getBindVariableValueTypes());
         PreparedStatementUtil.addBatch(ps);
     }
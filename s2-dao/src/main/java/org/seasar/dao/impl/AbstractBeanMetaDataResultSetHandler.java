@@ -17,8 +17,6 @@ package org.seasar.dao.impl;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -26,6 +24,7 @@ import org.seasar.dao.BeanMetaData;
 import org.seasar.dao.RelationPropertyType;
 import org.seasar.dao.RelationRowCreator;
 import org.seasar.dao.RowCreator;
+import org.seasar.dao.util.OverrideUtil;
 import org.seasar.extension.jdbc.PropertyType;
 import org.seasar.extension.jdbc.ValueType;
 
@@ -39,6 +38,14 @@ public abstract class AbstractBeanMetaDataResultSetHandler extends
 
     protected RelationRowCreator relationRowCreator;
 
+    /**
+     * {@link #createRelationKey(ResultSet, RelationPropertyType, Set, Map)}がサブクラスでオーバーライドされているかどうか。
+     */
+    private final boolean relationKeyOverridden = OverrideUtil.isOverridden(
+            getClass(), AbstractBeanMetaDataResultSetHandler.class,
+            "createRelationKey", new Class[] { ResultSet.class,
+                    RelationPropertyType.class, Set.class, Map.class });
+
     /**
      * @param dtoMetaData
      *            Dto meta data. (NotNull)
@@ -65,7 +72,12 @@ public abstract class AbstractBeanMetaDataResultSetHandler extends
         // - - - - - - - - -
         // Override for Bean
         // - - - - - - - - -
-        return rowCreator.createPropertyCache(columnNames, beanMetaData);
+        final Map propertyCache = mappingCache.getPropertyCache(columnNames);
+        if (propertyCache != null) {
+            return propertyCache;
+        }
+        return mappingCache.putPropertyCache(columnNames, rowCreator
+                .createPropertyCache(columnNames, beanMetaData));
     }
 
     /**
@@ -95,8 +107,14 @@ public abstract class AbstractBeanMetaDataResultSetHandler extends
      */
     protected Map createRelationPropertyCache(Set columnNames)
             throws SQLException {
-        return relationRowCreator
-                .createPropertyCache(columnNames, beanMetaData);
+        final Map relationPropertyCache = mappingCache
+                .getRelationPropertyCache(columnNames);
+        if (relationPropertyCache != null) {
+            return relationPropertyCache;
+        }
+        return mappingCache.putRelationPropertyCache(columnNames,
+                relationRowCreator.createPropertyCache(columnNames,
+                        beanMetaData));
     }
 
     /**
@@ -132,13 +150,55 @@ public abstract class AbstractBeanMetaDataResultSetHandler extends
         return beanMetaData;
     }
 
+    /**
+     * @param columnNames
+     *            The set of column name. (NotNull)
+     * @return The array of relation key readers indexed by relation number.
+     *         An element is null if its keys are not selected. (Nullable: if
+     *         the creation of relation keys is overridden)
+     */
+    protected RelationKeyReader[] createRelationKeyReaders(Set columnNames) {
+        if (relationKeyOverridden) {
+            return null;
+        }
+        final int relSize = beanMetaData.getRelationPropertyTypeSize();
+        final RelationKeyReader[] readers = new RelationKeyReader[relSize];
+        for (int i = 0; i < relSize; ++i) {
+            final RelationPropertyType rpt = beanMetaData
+                    .getRelationPropertyType(i);
+            if (rpt != null) {
+                readers[i] = RelationKeyReader.create(beanMetaData, rpt,
+                        columnNames);
+            }
+        }
+        return readers;
+    }
+
+    /**
+     * @param rs
+     *            Result set. (NotNull)
+     * @return The expected size of relation rows. (Zero or minus: unknown)
+     */
+    protected int getExpectedRelationRowSize(ResultSet rs) {
+        try {
+            return rs.getFetchSize();
+        } catch (SQLException ignore) {
+            // [DAO-2] Some drivers do not support the fetch size.
+            return 0;
+        }
+    }
+
     protected RelationKey createRelationKey(ResultSet rs,
             RelationPropertyType rpt, Set columnNames, Map relKeyValues)
             throws SQLException {
 
-        List keyList = new ArrayList();
+        final int keySize = rpt.getKeySize();
+        if (keySize == 0) {
+            return null;
+        }
+        final Object[] keys = new Object[keySize];
         BeanMetaData bmd = rpt.getBeanMetaData();
-        for (int i = 0; i < rpt.getKeySize(); ++i) {
+        for (int i = 0; i < keySize; ++i) {
             /*
              * PropertyType pt = bmd
              * .getPropertyTypeByColumnName(rpt.getYourKey(i)); ValueType
@@ -166,13 +226,11 @@ public abstract class AbstractBeanMetaDataResultSetHandler extends
                 return null;
             }
             relKeyValues.put(columnName, value);
-            keyList.add(value);
+            keys[i] = value;
         }
-        if (keyList.size() > 0) {
-            Object[] keys = keyList.toArray();
-            return new RelationKey(keys);
-        } else {
-            return null;
+        if (keySize == 1) {
+            return new RelationKey(keys[0]);
         }
+        return new RelationKey(keys);
     }
 }
@@ -24,8 +24,6 @@ import java.util.Set;
 import org.seasar.dao.DtoMetaData;
 import org.seasar.dao.RowCreator;
 import org.seasar.extension.jdbc.ResultSetHandler;
-import org.seasar.framework.util.CaseInsensitiveSet;
-
 /**
  * @author jflute
  */
@@ -36,6 +34,10 @@ public abstract class AbstractDtoMetaDataResultSetHandler implements
 
     protected RowCreator rowCreator;// [DAO-118] (2007/08/25)
 
+    /** The cache of column names and property caches per column layout of result set. */
+    protected final ResultSetMappingCache mappingCache = new ResultSetMappingCache(
+            16);
+
     /**
      * @param dtoMetaData Dto meta data. (NotNull)
      * @param rowCreator Row creator. (NotNull)
@@ -52,7 +54,12 @@ public abstract class AbstractDtoMetaDataResultSetHandler implements
      * @throws SQLException
      */
     protected Map createPropertyCache(Set columnNames) throws SQLException {
-        return rowCreator.createPropertyCache(columnNames, dtoMetaData);
+        final Map propertyCache = mappingCache.getPropertyCache(columnNames);
+        if (propertyCache != null) {
+            return propertyCache;
+        }
+        return mappingCache.putPropertyCache(columnNames, rowCreator
+                .createPropertyCache(columnNames, dtoMetaData));
     }
 
     /**
@@ -70,21 +77,32 @@ public abstract class AbstractDtoMetaDataResultSetHandler implements
     /*
      * https://www.seasar.org/issues/browse/DAO-41
      * SQLiteでは[TABLE名.COLUMN名]がcolumnNamesに入るため、[COLUMN名]だけにしておく。
+     * 
+     * カラムの並びが同じ結果セットには、前回と同じインスタンスを返す。
      */
     protected Set createColumnNames(final ResultSetMetaData rsmd)
             throws SQLException {
         final int count = rsmd.getColumnCount();
-        final Set columnNames = new CaseInsensitiveSet();
+        final String[] columnLabels = new String[count];
+        for (int i = 0; i < count; ++i) {
+            columnLabels[i] = rsmd.getColumnLabel(i + 1);
+        }
+        final ColumnNameSet cachedColumnNames = mappingCache
+                .getColumnNames(columnLabels);
+        if (cachedColumnNames != null) {
+            return cachedColumnNames;
+        }
+        final ColumnNameSet columnNames = new ColumnNameSet();
         for (int i = 0; i < count; ++i) {
-            final String columnName = rsmd.getColumnLabel(i + 1);
+            final String columnName = columnLabels[i];
             final int pos = columnName.lastIndexOf('.');
             if (-1 < pos) {
-                columnNames.add(columnName.substring(pos + 1));
+                columnNames.add(columnName.substring(pos + 1), i + 1);
             } else {
-                columnNames.add(columnName);
+                columnNames.add(columnName, i + 1);
             }
         }
-        return columnNames;
+        return mappingCache.putColumnNames(columnLabels, columnNames);
     }
 
     public DtoMetaData getDtoMetaData() {
@@ -19,10 +19,15 @@ import javax.sql.DataSource;
 
 import org.seasar.dao.CommandContext;
 import org.seasar.dao.Node;
+import org.seasar.dao.context.ArgSlots;
 import org.seasar.dao.context.CommandContextImpl;
-import org.seasar.dao.parser.SqlParserImpl;
+import org.seasar.dao.context.SqlShapeCache;
 import org.seasar.dao.util.FetchHandlerUtil;
+import org.seasar.dao.util.RowHandlerUtil;
+import org.seasar.dao.util.SqlCacheUtil;
+import org.seasar.dao.util.StartupProfileUtil;
 import org.seasar.extension.jdbc.StatementFactory;
+import org.seasar.framework.util.CaseInsensitiveMap;
 
 /**
  * @author higa
@@ -36,6 +41,20 @@ public abstract class AbstractDynamicCommand extends AbstractSqlCommand {
 
     private Class[] argTypes = new Class[0];
 
+    private volatile ArgSlots argSlots;
+
+    private SqlShapeCache sqlShapeCache = new SqlShapeCache(64);
+
+    private boolean inListPadding;
+
+    private int maxInListSize;
+
+    /**
+     * 次の実行で再利用する{@link CommandContextImpl}です。
+     * 使用中のインスタンスは取り出しておくため、複数のスレッドで同時に実行しても共有されません。
+     */
+    private CommandContextImpl idleContext;
+
     public AbstractDynamicCommand(DataSource dataSource,
             StatementFactory statementFactory) {
         super(dataSource, statementFactory);
@@ -43,7 +62,9 @@ public abstract class AbstractDynamicCommand extends AbstractSqlCommand {
 
     public void setSql(String sql) {
         super.setSql(sql);
-        this.rootNode = new SqlParserImpl(sql).parse();
+        final long start = StartupProfileUtil.start();
+        this.rootNode = SqlCacheUtil.getNode(sql);
+        StartupProfileUtil.record(StartupProfileUtil.PARSE, start);
     }
 
     public String[] getArgNames() {
@@ -52,6 +73,7 @@ public abstract class AbstractDynamicCommand extends AbstractSqlCommand {
 
     public void setArgNames(String[] argNames) {
         this.argNames = argNames;
+        argSlots = null;
     }
 
     public Class[] getArgTypes() {
@@ -62,33 +84,149 @@ public abstract class AbstractDynamicCommand extends AbstractSqlCommand {
         this.argTypes = argTypes;
     }
 
+    public SqlShapeCache getSqlShapeCache() {
+        return sqlShapeCache;
+    }
+
+    /**
+     * 組み立てたSQLのキャッシュを設定します。デフォルトでは64通りまでキャッシュします。
+     * 
+     * @param sqlShapeCache 組み立てたSQLのキャッシュ、キャッシュしない場合は<code>null</code>
+     */
+    public void setSqlShapeCache(SqlShapeCache sqlShapeCache) {
+        this.sqlShapeCache = sqlShapeCache;
+    }
+
+    public boolean isInListPadding() {
+        return inListPadding;
+    }
+
+    /**
+     * @param inListPadding
+     * @see CommandContextImpl#setInListPadding(boolean)
+     */
+    public void setInListPadding(boolean inListPadding) {
+        this.inListPadding = inListPadding;
+    }
+
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    /**
+     * @param maxInListSize
+     * @see CommandContextImpl#setMaxInListSize(int)
+     */
+    public void setMaxInListSize(int maxInListSize) {
+        this.maxInListSize = maxInListSize;
+    }
+
+    /**
+     * 引数からSQLとバインド変数を組み立てます。
+     * <p>
+     * 返したコンテキストを使い終わったら、{@link #release(CommandContext)}を呼び出してください。
+     * </p>
+     * 
+     * @param args 引数
+     * @return SQLとバインド変数を組み立てたコンテキスト
+     */
     protected CommandContext apply(Object[] args) {
         CommandContext ctx = createCommandContext(args);
         rootNode.accept(ctx);
         return ctx;
     }
 
+    /**
+     * {@link #apply(Object[])}が返したコンテキストを、このコマンドの次の実行で再利用できるようにします。
+     * <p>
+     * 呼び出した後は<code>ctx</code>を使ってはいけません。<code>ctx</code>から取得したSQLやバインド変数の配列は、そのまま使えます。
+     * </p>
+     * 
+     * @param ctx {@link #apply(Object[])}が返したコンテキスト
+     */
+    protected void release(CommandContext ctx) {
+        if (ctx instanceof CommandContextImpl) {
+            CommandContextImpl impl = (CommandContextImpl) ctx;
+            impl.clear();
+            synchronized (this) {
+                idleContext = impl;
+            }
+        }
+    }
+
     protected CommandContext createCommandContext(Object[] args) {
-        CommandContext ctx = new CommandContextImpl();
+        int size = 0;
         if (args != null) {
-            for (int i = 0; i < args.length; ++i) {
-                if (i == (args.length - 1) && args[i] != null
-                        && FetchHandlerUtil.isFetchHandler(args[i].getClass())) {
-                    break;
-                }
-                Class argType = null;
-                if (i < argTypes.length) {
-                    argType = argTypes[i];
-                } else if (args[i] != null) {
-                    argType = args[i].getClass();
-                }
-                if (i < argNames.length) {
-                    ctx.addArg(argNames[i], args[i], argType);
-                } else {
-                    ctx.addArg("$" + (i + 1), args[i], argType);
-                }
+            size = args.length;
+            if (size > 0 && args[size - 1] != null
+                    && (FetchHandlerUtil.isFetchHandler(args[size - 1].getClass()) || RowHandlerUtil
+                            .isRowHandler(args[size - 1].getClass()))) {
+                --size;
+            }
+        }
+        Object[] values = args;
+        if (values == null || values.length != size) {
+            values = new Object[size];
+            if (size > 0) {
+                System.arraycopy(args, 0, values, 0, size);
             }
         }
+        CommandContextImpl ctx;
+        synchronized (this) {
+            ctx = idleContext;
+            idleContext = null;
+        }
+        if (ctx != null) {
+            ctx.reset(getArgSlots(size), values, getArgTypes(values),
+                    sqlShapeCache);
+        } else {
+            ctx = new CommandContextImpl(getArgSlots(size), values,
+                    getArgTypes(values), sqlShapeCache);
+        }
+        ctx.setInListPadding(inListPadding);
+        ctx.setMaxInListSize(maxInListSize);
         return ctx;
     }
+
+    private Class[] getArgTypes(Object[] args) {
+        if (args.length <= argTypes.length) {
+            return argTypes;
+        }
+        Class[] types = new Class[args.length];
+        System.arraycopy(argTypes, 0, types, 0, argTypes.length);
+        for (int i = argTypes.length; i < args.length; ++i) {
+            if (args[i] != null) {
+                types[i] = args[i].getClass();
+            }
+        }
+        return types;
+    }
+
+    /**
+     * 引数名を引数のインデックスに解決する{@link ArgSlots}を返します。
+     * <p>
+     * 引数の数が同じであれば結果は変わらないため、直前の結果を再利用します。
+     * 解決した引数名は{@link ArgSlots}に記録されるため、同じSQLを繰り返し実行しても引数名を解決し直しません。
+     * </p>
+     * 
+     * @param size 引数の数
+     * @return 引数名をインデックスに解決する{@link ArgSlots}
+     */
+    private ArgSlots getArgSlots(int size) {
+        ArgSlots slots = argSlots;
+        if (slots != null && slots.size() == size) {
+            return slots;
+        }
+        CaseInsensitiveMap argIndexes = new CaseInsensitiveMap(size);
+        for (int i = 0; i < size; ++i) {
+            if (i < argNames.length) {
+                argIndexes.put(argNames[i], new Integer(i));
+            } else {
+                argIndexes.put("$" + (i + 1), new Integer(i));
+            }
+        }
+        slots = new ArgSlots(argIndexes);
+        argSlots = slots;
+        return slots;
+    }
 }
\ No newline at end of file
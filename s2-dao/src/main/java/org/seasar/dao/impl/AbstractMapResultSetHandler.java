@@ -36,7 +36,8 @@ public abstract class AbstractMapResultSetHandler implements ResultSetHandler {
     protected Map createRow(ResultSet rs, PropertyType[] propertyTypes)
             throws SQLException {
 
-        Map row = new CaseInsensitiveMap();
+        Map row = new CaseInsensitiveMap(
+                (int) (propertyTypes.length / .75f) + 1);
         for (int i = 0; i < propertyTypes.length; ++i) {
             Object value = propertyTypes[i].getValueType().getValue(rs, i + 1);
             row.put(propertyTypes[i].getPropertyName(), value);
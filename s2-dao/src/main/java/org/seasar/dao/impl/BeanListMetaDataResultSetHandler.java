@@ -27,13 +27,16 @@ import org.seasar.dao.BeanMetaData;
 import org.seasar.dao.RelationPropertyType;
 import org.seasar.dao.RelationRowCreator;
 import org.seasar.dao.RowCreator;
+import org.seasar.dao.RowHandler;
+import org.seasar.dao.RowHandlingResultSetHandler;
 import org.seasar.framework.beans.PropertyDesc;
 
 /**
  * @author jflute
  */
 public class BeanListMetaDataResultSetHandler extends
-        AbstractBeanMetaDataResultSetHandler {
+        AbstractBeanMetaDataResultSetHandler implements
+        RowHandlingResultSetHandler {
 
     /**
      * @param dtoMetaData
@@ -52,6 +55,27 @@ public class BeanListMetaDataResultSetHandler extends
      * @see org.seasar.extension.jdbc.ResultSetHandler#handle(java.sql.ResultSet)
      */
     public Object handle(ResultSet rs) throws SQLException {
+        final List list = new ArrayList();
+        handleRows(rs, list, null);
+        return list;
+    }
+
+    /**
+     * @see org.seasar.dao.RowHandlingResultSetHandler#handle(java.sql.ResultSet, org.seasar.dao.RowHandler)
+     */
+    public int handle(ResultSet rs, RowHandler rowHandler) throws SQLException {
+        return handleRows(rs, null, rowHandler);
+    }
+
+    /**
+     * @param rs Result set. (NotNull)
+     * @param list The list to add rows to. (Nullable: if rowHandler is specified)
+     * @param rowHandler Row handler. (Nullable: if list is specified)
+     * @return The count of handled rows.
+     * @throws SQLException
+     */
+    protected int handleRows(ResultSet rs, List list, RowHandler rowHandler)
+            throws SQLException {
         // Set<String(columnName)>
         final Set columnNames = createColumnNames(rs.getMetaData());
 
@@ -61,11 +85,21 @@ public class BeanListMetaDataResultSetHandler extends
         // Map<String(relationNoSuffix), Map<String(columnName), PropertyType>>
         Map relationPropertyCache = null;// [DAO-118] (2007/08/25)
 
-        final List list = new ArrayList();
+        // Array<RelationKeyReader> indexed by relation number
+        RelationKeyReader[] relKeyReaders = null;
+
         final int relSize = getBeanMetaData().getRelationPropertyTypeSize();
-        final RelationRowCache relRowCache = new RelationRowCache(relSize);
+        final RelationRowCache relRowCache = new RelationRowCache(relSize,
+                getExpectedRelationRowSize(rs));
+        int count = 0;
 
         while (rs.next()) {
+            // When streaming rows, the cache of relation rows is bounded to
+            // keep the memory usage constant.
+            if (rowHandler != null
+                    && relRowCache.size() >= getStreamingRelationRowCacheLimit()) {
+                relRowCache.clear();
+            }
             // Lazy initialization because if the result is zero, the cache is
             // unused.
             if (propertyCache == null) {
@@ -73,6 +107,7 @@ public class BeanListMetaDataResultSetHandler extends
             }
             if (relationPropertyCache == null) {
                 relationPropertyCache = createRelationPropertyCache(columnNames);
+                relKeyReaders = createRelationKeyReaders(columnNames);
             }
 
             // Create row instance of base table by row property cache.
@@ -85,16 +120,34 @@ public class BeanListMetaDataResultSetHandler extends
                     continue;
                 }
                 Object relationRow = null;
-                Map relKeyValues = new HashMap();
-                // TODO 1レコード目でnullが返るなら、2レコード目以降は不要では?
-                RelationKey relKey = createRelationKey(rs, rpt, columnNames,
-                        relKeyValues);
-                if (relKey != null) {
-                    relationRow = relRowCache.getRelationRow(i, relKey);
-                    if (relationRow == null) {
-                        relationRow = createRelationRow(rs, rpt, columnNames,
-                                relKeyValues, relationPropertyCache);
-                        relRowCache.addRelationRow(i, relKey, relationRow);
+                if (relKeyReaders != null) {
+                    // Read the key by column index and look up the cache
+                    // without creating the key. The key and the map of key
+                    // values are created only when the relation row is new.
+                    final RelationKeyReader reader = relKeyReaders[i];
+                    if (reader != null && reader.read(rs)) {
+                        relationRow = relRowCache.getRelationRow(i, reader
+                                .getValues());
+                        if (relationRow == null) {
+                            relationRow = createRelationRow(rs, rpt,
+                                    columnNames, reader.createRelKeyValues(),
+                                    relationPropertyCache);
+                            relRowCache.addRelationRow(i, reader
+                                    .createRelationKey(), relationRow);
+                        }
+                    }
+                } else {
+                    Map relKeyValues = new HashMap();
+                    RelationKey relKey = createRelationKey(rs, rpt,
+                            columnNames, relKeyValues);
+                    if (relKey != null) {
+                        relationRow = relRowCache.getRelationRow(i, relKey);
+                        if (relationRow == null) {
+                            relationRow = createRelationRow(rs, rpt,
+                                    columnNames, relKeyValues,
+                                    relationPropertyCache);
+                            relRowCache.addRelationRow(i, relKey, relationRow);
+                        }
                     }
                 }
                 if (relationRow != null) {
@@ -104,9 +157,23 @@ public class BeanListMetaDataResultSetHandler extends
                 }
             }
             postCreateRow(row);
-            list.add(row);
+            ++count;
+            if (rowHandler == null) {
+                list.add(row);
+            } else if (!rowHandler.handleRow(row)) {
+                break;
+            }
         }
-        return list;
+        return count;
+    }
+
+    /**
+     * @return The limit of relation rows cached while streaming rows to a
+     *         {@link RowHandler}. Relation rows are shared among rows only
+     *         within this limit.
+     */
+    protected int getStreamingRelationRowCacheLimit() {
+        return 1000;
     }
 
 }
\ No newline at end of file
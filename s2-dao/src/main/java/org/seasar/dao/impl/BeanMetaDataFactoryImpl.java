@@ -17,6 +17,8 @@ package org.seasar.dao.impl;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
@@ -34,14 +36,24 @@ import org.seasar.dao.RelationPropertyTypeFactory;
 import org.seasar.dao.RelationPropertyTypeFactoryBuilder;
 import org.seasar.dao.TableNaming;
 import org.seasar.dao.dbms.DbmsManager;
+import org.seasar.dao.util.StartupProfileUtil;
 import org.seasar.extension.jdbc.util.ConnectionUtil;
 import org.seasar.extension.jdbc.util.DataSourceUtil;
+import org.seasar.framework.util.Disposable;
+import org.seasar.framework.util.DisposableUtil;
 
 /**
+ * {@link BeanMetaDataFactory}の実装クラスです。
+ * <p>
+ * 生成した{@link BeanMetaData}はBeanのクラス、関連のネストレベル、{@link Dbms}ごとにキャッシュし、
+ * Daoや関連をまたがって共有します。
+ * </p>
+ * 
  * @author jflute
  * @author manhole
  */
-public class BeanMetaDataFactoryImpl implements BeanMetaDataFactory {
+public class BeanMetaDataFactoryImpl implements BeanMetaDataFactory,
+        Disposable {
 
     public static final String annotationReaderFactory_BINDING = "bindingType=must";
 
@@ -71,6 +83,12 @@ public class BeanMetaDataFactoryImpl implements BeanMetaDataFactory {
 
     protected RelationPropertyTypeFactoryBuilder relationPropertyTypeFactoryBuilder;
 
+    private volatile Map cache = new HashMap();
+
+    private final Object lock = new Object();
+
+    protected boolean initialized = false;
+
     public BeanMetaData createBeanMetaData(final Class daoInterface,
             final Class beanClass) {
         if (NullBean.class == beanClass) {
@@ -88,7 +106,14 @@ public class BeanMetaDataFactoryImpl implements BeanMetaDataFactory {
         if (beanClass == null) {
             throw new NullPointerException("beanClass");
         }
+        final BeanMetaData cached = getCachedBeanMetaData(beanClass,
+                relationNestLevel, getDbms());
+        if (cached != null) {
+            return cached;
+        }
+        final long start = StartupProfileUtil.start();
         final Connection con = DataSourceUtil.getConnection(dataSource);
+        StartupProfileUtil.record(StartupProfileUtil.CONNECTION, start);
         try {
             final DatabaseMetaData metaData = ConnectionUtil.getMetaData(con);
             return createBeanMetaData(metaData, beanClass, relationNestLevel);
@@ -102,9 +127,33 @@ public class BeanMetaDataFactoryImpl implements BeanMetaDataFactory {
         if (beanClass == null) {
             throw new NullPointerException("beanClass");
         }
+        final Dbms dbms = getDbms(dbMetaData);
+        final BeanMetaData cached = getCachedBeanMetaData(beanClass,
+                relationNestLevel, dbms);
+        if (cached != null) {
+            return cached;
+        }
+        final long start = StartupProfileUtil.start();
+        final BeanMetaData bmd = createBeanMetaData(dbMetaData, beanClass,
+                relationNestLevel, dbms);
+        StartupProfileUtil.record(StartupProfileUtil.BEAN_META_DATA, start);
+        return putBeanMetaData(beanClass, relationNestLevel, dbms, bmd);
+    }
+
+    /**
+     * {@link BeanMetaData}を生成します。
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @param beanClass Beanのクラス
+     * @param relationNestLevel 関連のネストレベル
+     * @param dbms DBMS
+     * @return {@link BeanMetaData}
+     */
+    protected BeanMetaData createBeanMetaData(
+            final DatabaseMetaData dbMetaData, final Class beanClass,
+            final int relationNestLevel, final Dbms dbms) {
         final BeanEnhancer enhancer = getBeanEnhancer();
         final Class originalBeanClass = enhancer.getOriginalClass(beanClass);
-        final Dbms dbms = getDbms(dbMetaData);
         final boolean stopRelationCreation = isLimitRelationNestLevel(relationNestLevel);
         final BeanAnnotationReader bar = annotationReaderFactory
                 .createBeanAnnotationReader(originalBeanClass);
@@ -127,14 +176,69 @@ public class BeanMetaDataFactoryImpl implements BeanMetaDataFactory {
         bmd.setRelationPropertyTypeFactory(rptf);
         bmd.initialize();
 
+        final long start = StartupProfileUtil.start();
         final Class enhancedBeanClass = enhancer.enhanceBeanClass(beanClass,
                 versionNoPropertyName, timestampPropertyName);
+        StartupProfileUtil.record(StartupProfileUtil.ENHANCE, start);
         bmd.setModifiedPropertySupport(enhancer.getSupporter());
         bmd.setBeanClass(enhancedBeanClass);
 
         return bmd;
     }
 
+    /**
+     * キャッシュされている{@link BeanMetaData}を返します。
+     * 
+     * @param beanClass Beanのクラス
+     * @param relationNestLevel 関連のネストレベル
+     * @param dbms DBMS
+     * @return キャッシュされている{@link BeanMetaData}、存在しない場合は<code>null</code>
+     */
+    protected BeanMetaData getCachedBeanMetaData(final Class beanClass,
+            final int relationNestLevel, final Dbms dbms) {
+        return (BeanMetaData) cache.get(new CacheKey(beanClass,
+                relationNestLevel, dbms));
+    }
+
+    /**
+     * {@link BeanMetaData}をキャッシュに登録します。
+     * <p>
+     * 他のスレッドが先に登録していた場合は、そちらを返します。
+     * </p>
+     * 
+     * @param beanClass Beanのクラス
+     * @param relationNestLevel 関連のネストレベル
+     * @param dbms DBMS
+     * @param beanMetaData {@link BeanMetaData}
+     * @return キャッシュに登録されている{@link BeanMetaData}
+     */
+    protected BeanMetaData putBeanMetaData(final Class beanClass,
+            final int relationNestLevel, final Dbms dbms,
+            final BeanMetaData beanMetaData) {
+        final Object key = new CacheKey(beanClass, relationNestLevel, dbms);
+        synchronized (lock) {
+            if (!initialized) {
+                DisposableUtil.add(this);
+                initialized = true;
+            }
+            final BeanMetaData current = (BeanMetaData) cache.get(key);
+            if (current != null) {
+                return current;
+            }
+            final Map map = new HashMap(cache);
+            map.put(key, beanMetaData);
+            cache = map;
+        }
+        return beanMetaData;
+    }
+
+    public void dispose() {
+        synchronized (lock) {
+            cache = new HashMap();
+            initialized = false;
+        }
+    }
+
     protected String getVersionNoPropertyName(
             BeanAnnotationReader beanAnnotationReader) {
         final String defaultName = getDaoNamingConvention()
@@ -232,4 +336,34 @@ public class BeanMetaDataFactoryImpl implements BeanMetaDataFactory {
         this.relationPropertyTypeFactoryBuilder = relationPropertyTypeFactoryBuilder;
     }
 
+    private static class CacheKey {
+
+        private final Class beanClass;
+
+        private final int relationNestLevel;
+
+        private final Dbms dbms;
+
+        private CacheKey(final Class beanClass, final int relationNestLevel,
+                final Dbms dbms) {
+            this.beanClass = beanClass;
+            this.relationNestLevel = relationNestLevel;
+            this.dbms = dbms;
+        }
+
+        public int hashCode() {
+            return beanClass.hashCode() * 31 + relationNestLevel;
+        }
+
+        public boolean equals(final Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) o;
+            return beanClass == other.beanClass
+                    && relationNestLevel == other.relationNestLevel
+                    && dbms == other.dbms;
+        }
+    }
+
 }
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.seasar.dao.Dbms;
+import org.seasar.dao.TableMetaDataReader;
+import org.seasar.dao.dbms.DbmsManager;
+import org.seasar.dao.dbms.Firebird;
+import org.seasar.dao.dbms.H2;
+import org.seasar.dao.dbms.HSQL;
+import org.seasar.dao.dbms.MSSQLServer;
+import org.seasar.dao.dbms.MySQL;
+import org.seasar.dao.dbms.PostgreSQL;
+import org.seasar.dao.dbms.Sybase;
+import org.seasar.extension.jdbc.util.DatabaseMetaDataUtil;
+import org.seasar.framework.exception.SQLRuntimeException;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.CaseInsensitiveMap;
+import org.seasar.framework.util.CaseInsensitiveSet;
+import org.seasar.framework.util.Disposable;
+import org.seasar.framework.util.DisposableUtil;
+import org.seasar.framework.util.ResultSetUtil;
+import org.seasar.framework.util.StringUtil;
+
+/**
+ * スキーマ内のすべてのテーブルのカラムをまとめて読み込む{@link TableMetaDataReader}の実装クラスです。
+ * <p>
+ * スキーマごとに1回だけ<code>DatabaseMetaData#getColumns(null, schema, "%", null)</code>を発行し、
+ * 結果をメモリ上に保持します。テーブルごとに問い合わせるとカタログの検索が遅いOracleやDB2などで、
+ * 多数のDaoのメタ情報を生成するときの待ち時間を減らせます。
+ * </p>
+ * <p>
+ * スキーマはテーブル名に<code>スキーマ名.テーブル名</code>の形式で指定されたものか、
+ * {@link #setSchemaName(String)}で指定したもの、それもなければDBMSごとのデフォルトのスキーマを使用します
+ * ({@link #getDefaultSchema(DatabaseMetaData)})。
+ * <code>getColumns</code>のスキーマはLIKEのパターンなので、スキーマ名の<code>_</code>などはエスケープし、
+ * さらに結果のうち<code>TABLE_SCHEM</code>がスキーマと異なる行は読み捨てます。
+ * まとめて読み込んだ結果に含まれないテーブルは、{@link #setTableMetaDataReader(TableMetaDataReader)}
+ * で指定したリーダでテーブルごとに読み込みます。
+ * </p>
+ * <p>
+ * 主キーは、{@link #setBulkPrimaryKeys(boolean)}に<code>true</code>を指定した場合のみ
+ * <code>DatabaseMetaData#getPrimaryKeys(null, schema, null)</code>でまとめて読み込みます。
+ * テーブル名に<code>null</code>を指定できないJDBCドライバもあるため、デフォルトは<code>false</code>です。
+ * </p>
+ */
+public class BulkTableMetaDataReader implements TableMetaDataReader,
+        Disposable {
+
+    private static final Logger logger = Logger
+            .getLogger(BulkTableMetaDataReader.class);
+
+    public static final String tableMetaDataReader_BINDING = "bindingType=none";
+
+    protected TableMetaDataReader tableMetaDataReader = new TableMetaDataReaderImpl();
+
+    protected String schemaName;
+
+    protected boolean bulkPrimaryKeys = false;
+
+    private volatile Map indexes = new HashMap();
+
+    private final Object lock = new Object();
+
+    private boolean initialized = false;
+
+    public Set getColumnNames(final DatabaseMetaData dbMetaData,
+            final String tableName) {
+        final int pos = tableName.indexOf('.');
+        final String schema = pos >= 0 ? tableName.substring(0, pos) : null;
+        final SchemaIndex index = getSchemaIndex(dbMetaData, schema);
+        final Set columns = (Set) index.columns.get(tableName
+                .substring(pos + 1));
+        if (columns != null) {
+            return columns;
+        }
+        return tableMetaDataReader.getColumnNames(dbMetaData, tableName);
+    }
+
+    public Set getPrimaryKeyNames(final DatabaseMetaData dbMetaData,
+            final String tableName) {
+        if (!bulkPrimaryKeys) {
+            return tableMetaDataReader.getPrimaryKeyNames(dbMetaData,
+                    tableName);
+        }
+        final int pos = tableName.indexOf('.');
+        final String schema = pos >= 0 ? tableName.substring(0, pos) : null;
+        final SchemaIndex index = getSchemaIndex(dbMetaData, schema);
+        final String name = tableName.substring(pos + 1);
+        if (!index.columns.containsKey(name)) {
+            return tableMetaDataReader.getPrimaryKeyNames(dbMetaData,
+                    tableName);
+        }
+        final Set primaryKeys = (Set) index.primaryKeys.get(name);
+        return primaryKeys != null ? primaryKeys : Collections.EMPTY_SET;
+    }
+
+    /**
+     * スキーマのカラムと主キーの索引を返します。
+     * <p>
+     * 索引がまだなければデータベースから読み込みます。
+     * </p>
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @param schema スキーマ名、デフォルトのスキーマの場合は<code>null</code>
+     * @return スキーマの索引
+     */
+    protected SchemaIndex getSchemaIndex(final DatabaseMetaData dbMetaData,
+            final String schema) {
+        final String convertedSchema = DatabaseMetaDataUtil.convertIdentifier(
+                dbMetaData, schema != null ? schema
+                        : getDefaultSchema(dbMetaData));
+        final String key = getURL(dbMetaData) + "|" + convertedSchema;
+        SchemaIndex index = (SchemaIndex) indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        synchronized (lock) {
+            index = (SchemaIndex) indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            final long start = System.currentTimeMillis();
+            index = loadSchemaIndex(dbMetaData, convertedSchema);
+            logger.log("DDAO0002", new Object[] {
+                    String.valueOf(index.columns.size()), convertedSchema,
+                    String.valueOf(System.currentTimeMillis() - start) });
+            final Map map = new HashMap(indexes);
+            map.put(key, index);
+            indexes = map;
+            if (!initialized) {
+                DisposableUtil.add(this);
+                initialized = true;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * スキーマのカラムと主キーをデータベースから読み込みます。
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @param schema スキーマ名
+     * @return スキーマの索引
+     */
+    protected SchemaIndex loadSchemaIndex(final DatabaseMetaData dbMetaData,
+            final String schema) {
+        final Map columns = new CaseInsensitiveMap();
+        final Map primaryKeys = new CaseInsensitiveMap();
+        try {
+            // スキーマをサポートしないDBMSでは、接続中のカタログに絞り込む
+            final String catalog = schema == null ? dbMetaData.getConnection()
+                    .getCatalog() : null;
+            final ResultSet rs = dbMetaData.getColumns(catalog,
+                    escapeSearchString(dbMetaData, schema), "%", null);
+            try {
+                while (rs.next()) {
+                    if (isTarget(catalog, schema, rs)) {
+                        add(columns, rs.getString(3), rs.getString(4));
+                    }
+                }
+            } finally {
+                ResultSetUtil.close(rs);
+            }
+            if (bulkPrimaryKeys) {
+                final ResultSet pkrs = dbMetaData.getPrimaryKeys(catalog,
+                        schema, null);
+                try {
+                    while (pkrs.next()) {
+                        if (isTarget(catalog, schema, pkrs)) {
+                            add(primaryKeys, pkrs.getString(3), pkrs
+                                    .getString(4));
+                        }
+                    }
+                } finally {
+                    ResultSetUtil.close(pkrs);
+                }
+            }
+        } catch (final SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+        return new SchemaIndex(toUnmodifiable(columns),
+                toUnmodifiable(primaryKeys));
+    }
+
+    public void dispose() {
+        synchronized (lock) {
+            indexes = new HashMap();
+            initialized = false;
+        }
+    }
+
+    /**
+     * テーブル名にスキーマが指定されていない場合に使用するスキーマ名を返します。
+     * <p>
+     * {@link #setSchemaName(String)}で指定されていなければ、DBMSごとのデフォルトのスキーマを返します。
+     * HSQLDBとH2は<code>PUBLIC</code>、PostgreSQLは<code>public</code>、
+     * SQL ServerとSybaseは<code>dbo</code>、スキーマをサポートしないMySQLとFirebirdは<code>null</code>、
+     * それ以外(Oracle、DB2、Derbyなど)は接続ユーザ名です。
+     * </p>
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @return スキーマ名、スキーマをサポートしない場合は<code>null</code>
+     */
+    protected String getDefaultSchema(final DatabaseMetaData dbMetaData) {
+        if (schemaName != null) {
+            return schemaName;
+        }
+        final Dbms dbms = DbmsManager.getDbms(dbMetaData);
+        if (dbms instanceof HSQL || dbms instanceof H2) {
+            return "PUBLIC";
+        }
+        if (dbms instanceof PostgreSQL) {
+            return "public";
+        }
+        if (dbms instanceof MSSQLServer || dbms instanceof Sybase) {
+            return "dbo";
+        }
+        if (dbms instanceof MySQL || dbms instanceof Firebird) {
+            return null;
+        }
+        try {
+            return dbMetaData.getUserName();
+        } catch (final SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+    }
+
+    /**
+     * LIKEのパターンとして扱われる文字列の<code>_</code>と<code>%</code>をエスケープします。
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @param name 名前
+     * @return エスケープした名前
+     * @throws SQLException
+     */
+    protected static String escapeSearchString(
+            final DatabaseMetaData dbMetaData, final String name)
+            throws SQLException {
+        if (name == null) {
+            return null;
+        }
+        final String escape = dbMetaData.getSearchStringEscape();
+        if (StringUtil.isEmpty(escape)) {
+            return name;
+        }
+        final StringBuffer buf = new StringBuffer(name.length() + 4);
+        for (int i = 0; i < name.length(); ++i) {
+            final char c = name.charAt(i);
+            if (c == '_' || c == '%' || escape.indexOf(c) >= 0) {
+                buf.append(escape);
+            }
+            buf.append(c);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * 結果セットの行が対象のカタログとスキーマのものかどうかを返します。
+     * <p>
+     * ドライバが<code>TABLE_CAT</code>や<code>TABLE_SCHEM</code>を返さない場合は対象とみなします。
+     * </p>
+     */
+    private static boolean isTarget(final String catalog, final String schema,
+            final ResultSet rs) throws SQLException {
+        if (catalog != null) {
+            final String tableCatalog = rs.getString(1);
+            if (tableCatalog != null && !catalog.equals(tableCatalog)) {
+                return false;
+            }
+        }
+        if (schema != null) {
+            final String tableSchema = rs.getString(2);
+            if (tableSchema != null && !schema.equals(tableSchema)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getURL(final DatabaseMetaData dbMetaData) {
+        try {
+            return dbMetaData.getURL();
+        } catch (final SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+    }
+
+    private static void add(final Map map, final String tableName,
+            final String columnName) {
+        Set set = (Set) map.get(tableName);
+        if (set == null) {
+            set = new CaseInsensitiveSet();
+            map.put(tableName, set);
+        }
+        set.add(columnName);
+    }
+
+    private static Map toUnmodifiable(final Map map) {
+        final Map result = new CaseInsensitiveMap();
+        for (final Iterator i = map.entrySet().iterator(); i.hasNext();) {
+            final Map.Entry entry = (Map.Entry) i.next();
+            result.put(entry.getKey(), Collections
+                    .unmodifiableSet((Set) entry.getValue()));
+        }
+        return result;
+    }
+
+    public void setTableMetaDataReader(
+            final TableMetaDataReader tableMetaDataReader) {
+        this.tableMetaDataReader = tableMetaDataReader;
+    }
+
+    public String getSchemaName() {
+        return schemaName;
+    }
+
+    /**
+     * まとめて読み込むスキーマ名を設定します。デフォルトはDBMSごとのデフォルトのスキーマです。
+     * 
+     * @param schemaName スキーマ名
+     */
+    public void setSchemaName(final String schemaName) {
+        this.schemaName = schemaName;
+    }
+
+    public boolean isBulkPrimaryKeys() {
+        return bulkPrimaryKeys;
+    }
+
+    /**
+     * 主キーもまとめて読み込むかどうかを設定します。デフォルトは<code>false</code>です。
+     * 
+     * @param bulkPrimaryKeys 主キーもまとめて読み込む場合は<code>true</code>
+     */
+    public void setBulkPrimaryKeys(final boolean bulkPrimaryKeys) {
+        this.bulkPrimaryKeys = bulkPrimaryKeys;
+    }
+
+    /**
+     * スキーマ内のテーブルのカラムと主キーの索引です。
+     */
+    protected static class SchemaIndex {
+
+        protected final Map columns;
+
+        protected final Map primaryKeys;
+
+        protected SchemaIndex(final Map columns, final Map primaryKeys) {
+            this.columns = columns;
+            this.primaryKeys = primaryKeys;
+        }
+    }
+
+}
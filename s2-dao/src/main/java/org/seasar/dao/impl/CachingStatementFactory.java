@@ -0,0 +1,431 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.transaction.RollbackException;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+
+import org.seasar.dao.pager.PagerContext;
+import org.seasar.extension.jdbc.StatementFactory;
+import org.seasar.extension.jdbc.impl.BasicStatementFactory;
+import org.seasar.framework.util.StatementUtil;
+
+/**
+ * 生成した{@link PreparedStatement}をトランザクション中のコネクションごとにキャッシュする{@link StatementFactory}です。
+ * <p>
+ * 同じトランザクションの中で同じSQLが実行された場合は、前回準備した{@link PreparedStatement}を再利用します。
+ * 返した{@link PreparedStatement}の<code>close()</code>ではステートメントを閉じずにキャッシュに戻し、
+ * トランザクションが完了してコネクションが返却されるときにまとめて閉じます。
+ * トランザクションが開始されていない場合は、コネクションがすぐに返却されるため、キャッシュせずに{@link #setStatementFactory(StatementFactory)}
+ * で指定した{@link StatementFactory}にそのまま委譲します。
+ * </p>
+ * <p>
+ * キャッシュのキーはSQLと{@link ResultSet}のタイプです。コネクションごとに{@link #setMaxSize(int)}
+ * で指定した数まで保持し、超えた場合は最も古く使われたものから閉じます。
+ * {@link CallableStatement}はキャッシュしません。
+ * </p>
+ * <p>
+ * キャッシュに戻すときは、パラメータとバッチをクリアし、フェッチサイズと最大行数、タイムアウトを準備したときの値に戻します。
+ * 例外が発生した場合や、それ以外のステートメントの設定が変更された場合は、キャッシュに戻さずに閉じます。
+ * </p>
+ * <p>
+ * j2ee.diconなどで次のように定義し、既存の{@link StatementFactory}と置き換えます。
+ * </p>
+ * 
+ * <pre>
+ * &lt;component class=&quot;org.seasar.dao.impl.CachingStatementFactory&quot;&gt;
+ *     &lt;property name=&quot;statementFactory&quot;&gt;
+ *         &lt;component class=&quot;org.seasar.extension.jdbc.impl.ConfigurableStatementFactory&quot;&gt;
+ *             &lt;arg&gt;&lt;component class=&quot;org.seasar.dao.pager.PagerStatementFactory&quot;/&gt;&lt;/arg&gt;
+ *         &lt;/component&gt;
+ *     &lt;/property&gt;
+ * &lt;/component&gt;
+ * </pre>
+ */
+public class CachingStatementFactory implements StatementFactory {
+
+    public static final String statementFactory_BINDING = "bindingType=none";
+
+    public static final String transactionManager_BINDING = "bindingType=may";
+
+    protected StatementFactory statementFactory = BasicStatementFactory.INSTANCE;
+
+    protected TransactionManager transactionManager;
+
+    protected int maxSize = 32;
+
+    private final Map transactionCaches = new HashMap();
+
+    private long hitCount;
+
+    private long missCount;
+
+    public PreparedStatement createPreparedStatement(final Connection con,
+            final String sql) {
+        final TransactionCache cache = getTransactionCache();
+        if (cache == null) {
+            return statementFactory.createPreparedStatement(con, sql);
+        }
+        return cache.getStatement(con, sql, getResultSetType());
+    }
+
+    public CallableStatement createCallableStatement(final Connection con,
+            final String sql) {
+        return statementFactory.createCallableStatement(con, sql);
+    }
+
+    /**
+     * 生成される{@link PreparedStatement}の{@link ResultSet}のタイプを返します。
+     * <p>
+     * 委譲先の{@link StatementFactory}がSQL以外の条件でステートメントを作り分ける場合は、
+     * このメソッドでその条件を返すようにしてください。
+     * デフォルトでは、ページングの条件が指定されている場合にスクロール可能なタイプを返します。
+     * </p>
+     * 
+     * @return {@link ResultSet}のタイプ
+     */
+    protected int getResultSetType() {
+        final PagerContext context = PagerContext.getContext();
+        if (context != null
+                && PagerContext.isPagerCondition(context.peekArgs())) {
+            return ResultSet.TYPE_SCROLL_INSENSITIVE;
+        }
+        return ResultSet.TYPE_FORWARD_ONLY;
+    }
+
+    private TransactionCache getTransactionCache() {
+        if (transactionManager == null) {
+            return null;
+        }
+        try {
+            final Transaction tx = transactionManager.getTransaction();
+            if (tx == null) {
+                return null;
+            }
+            synchronized (transactionCaches) {
+                TransactionCache cache = (TransactionCache) transactionCaches
+                        .get(tx);
+                if (cache == null) {
+                    cache = new TransactionCache(tx);
+                    tx.registerSynchronization(cache);
+                    transactionCaches.put(tx, cache);
+                }
+                return cache;
+            }
+        } catch (final SystemException e) {
+            return null;
+        } catch (final RollbackException e) {
+            return null;
+        } catch (final IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * キャッシュから取得できた回数を返します。
+     * 
+     * @return キャッシュから取得できた回数
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * トランザクション中にステートメントを準備した回数を返します。
+     * 
+     * @return トランザクション中にステートメントを準備した回数
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private synchronized void count(final boolean hit) {
+        if (hit) {
+            ++hitCount;
+        } else {
+            ++missCount;
+        }
+    }
+
+    public StatementFactory getStatementFactory() {
+        return statementFactory;
+    }
+
+    /**
+     * ステートメントの生成を委譲する{@link StatementFactory}を設定します。
+     * 
+     * @param statementFactory 委譲先の{@link StatementFactory}
+     */
+    public void setStatementFactory(final StatementFactory statementFactory) {
+        this.statementFactory = statementFactory;
+    }
+
+    public void setTransactionManager(
+            final TransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * コネクションごとにキャッシュするステートメントの最大数を設定します。デフォルトは32です。
+     * 
+     * @param maxSize コネクションごとにキャッシュするステートメントの最大数
+     */
+    public void setMaxSize(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private class TransactionCache implements Synchronization {
+
+        private final Transaction tx;
+
+        private final Map connectionCaches = new HashMap();
+
+        private boolean closed;
+
+        private TransactionCache(final Transaction tx) {
+            this.tx = tx;
+        }
+
+        private synchronized PreparedStatement getStatement(
+                final Connection con, final String sql, final int resultSetType) {
+            if (closed) {
+                return statementFactory.createPreparedStatement(con, sql);
+            }
+            Map statements = (Map) connectionCaches.get(con);
+            if (statements == null) {
+                statements = new LinkedHashMap(16, 0.75f, true);
+                connectionCaches.put(con, statements);
+            }
+            final String key = resultSetType + ":" + sql;
+            CachedStatement cached = (CachedStatement) statements.get(key);
+            if (cached != null && cached.isEvicted()) {
+                statements.remove(key);
+                cached = null;
+            }
+            if (cached != null && cached.acquire()) {
+                count(true);
+                return cached.proxy;
+            }
+            count(false);
+            final PreparedStatement ps = statementFactory
+                    .createPreparedStatement(con, sql);
+            if (cached != null) {
+                return ps;
+            }
+            cached = new CachedStatement(ps);
+            cached.acquire();
+            statements.put(key, cached);
+            if (statements.size() > maxSize) {
+                final Iterator i = statements.values().iterator();
+                ((CachedStatement) i.next()).evict();
+                i.remove();
+            }
+            return cached.proxy;
+        }
+
+        public void beforeCompletion() {
+            closeAll();
+        }
+
+        public void afterCompletion(final int status) {
+            closeAll();
+        }
+
+        private void closeAll() {
+            synchronized (transactionCaches) {
+                transactionCaches.remove(tx);
+            }
+            final List statements = new ArrayList();
+            synchronized (this) {
+                closed = true;
+                for (final Iterator i = connectionCaches.values().iterator(); i
+                        .hasNext();) {
+                    statements.addAll(((Map) i.next()).values());
+                }
+                connectionCaches.clear();
+            }
+            for (int i = 0; i < statements.size(); ++i) {
+                ((CachedStatement) statements.get(i)).evict();
+            }
+        }
+    }
+
+    private static class CachedStatement implements InvocationHandler {
+
+        private static final Class[] INTERFACES = new Class[] { PreparedStatement.class };
+
+        /**
+         * 変更されても、キャッシュに戻すときに元の値に戻せる設定です。
+         */
+        private static final Set RESTORABLE_SETTERS = new HashSet(Arrays
+                .asList(new String[] { "setFetchSize", "setMaxRows",
+                        "setQueryTimeout" }));
+
+        /**
+         * 変更された場合に、キャッシュに戻さずに閉じる設定です。
+         */
+        private static final Set UNRESTORABLE_SETTERS = new HashSet(Arrays
+                .asList(new String[] { "setFetchDirection",
+                        "setMaxFieldSize", "setEscapeProcessing",
+                        "setCursorName", "setPoolable", "setLargeMaxRows",
+                        "closeOnCompletion" }));
+
+        private final PreparedStatement statement;
+
+        private final PreparedStatement proxy;
+
+        private int fetchSize;
+
+        private int maxRows;
+
+        private int queryTimeout;
+
+        private boolean restorable;
+
+        private boolean inUse;
+
+        private boolean evicted;
+
+        // 以下は使用中のスレッドだけが変更し、release()で参照する
+        private boolean settingsChanged;
+
+        private boolean batched;
+
+        private boolean reusable = true;
+
+        private CachedStatement(final PreparedStatement statement) {
+            this.statement = statement;
+            proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    CachingStatementFactory.class.getClassLoader(), INTERFACES,
+                    this);
+            try {
+                fetchSize = statement.getFetchSize();
+                maxRows = statement.getMaxRows();
+                queryTimeout = statement.getQueryTimeout();
+                restorable = true;
+            } catch (final SQLException e) {
+                restorable = false;
+            }
+        }
+
+        private synchronized boolean acquire() {
+            if (inUse || evicted) {
+                return false;
+            }
+            inUse = true;
+            return true;
+        }
+
+        private synchronized boolean isEvicted() {
+            return evicted;
+        }
+
+        private synchronized void evict() {
+            evicted = true;
+            if (!inUse) {
+                StatementUtil.close(statement);
+            }
+        }
+
+        private synchronized void release() throws SQLException {
+            inUse = false;
+            if (!evicted && reusable) {
+                try {
+                    reset();
+                    return;
+                } catch (final SQLException e) {
+                    reusable = false;
+                }
+            }
+            evicted = true;
+            statement.close();
+        }
+
+        private void reset() throws SQLException {
+            statement.clearParameters();
+            if (batched) {
+                statement.clearBatch();
+                batched = false;
+            }
+            if (settingsChanged) {
+                statement.setFetchSize(fetchSize);
+                statement.setMaxRows(maxRows);
+                statement.setQueryTimeout(queryTimeout);
+                settingsChanged = false;
+            }
+        }
+
+        public Object invoke(final Object proxy, final Method method,
+                final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if ("close".equals(name) && method.getParameterTypes().length == 0) {
+                release();
+                return null;
+            } else if ("equals".equals(name)
+                    && method.getParameterTypes().length == 1) {
+                return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+            } else if ("hashCode".equals(name)
+                    && method.getParameterTypes().length == 0) {
+                return new Integer(System.identityHashCode(proxy));
+            }
+            if ("addBatch".equals(name)) {
+                batched = true;
+            } else if (RESTORABLE_SETTERS.contains(name)) {
+                if (restorable) {
+                    settingsChanged = true;
+                } else {
+                    reusable = false;
+                }
+            } else if (UNRESTORABLE_SETTERS.contains(name)) {
+                reusable = false;
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (final InvocationTargetException e) {
+                // ステートメントの状態がわからないため再利用しない
+                reusable = false;
+                throw e.getTargetException();
+            }
+        }
+    }
+
+}
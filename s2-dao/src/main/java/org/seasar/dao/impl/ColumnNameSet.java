@@ -0,0 +1,113 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.seasar.framework.util.CaseInsensitiveMap;
+import org.seasar.framework.util.CaseInsensitiveSet;
+import org.seasar.framework.util.StringUtil;
+
+/**
+ * 結果セットのカラム名とその位置を保持する{@link java.util.Set}です。
+ * <p>
+ * 同じ名前のカラムが複数ある場合は、最初のカラムの位置を保持します。
+ * また、アンダースコアを除いたカラム名からカラム名を引く索引を必要になった時点で作成します。
+ * </p>
+ */
+public class ColumnNameSet extends CaseInsensitiveSet {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map columnIndexes = new CaseInsensitiveMap();
+
+    private transient Map columnNamesWithoutUnderscore;
+
+    /**
+     * カラム名を位置とともに追加します。
+     * 
+     * @param columnName
+     *            カラム名
+     * @param columnIndex
+     *            カラムの位置(1から始まる)
+     * @return 追加された場合は<code>true</code>
+     */
+    public synchronized boolean add(final String columnName,
+            final int columnIndex) {
+        if (!add(columnName)) {
+            return false;
+        }
+        columnIndexes.put(columnName, new Integer(columnIndex));
+        return true;
+    }
+
+    /**
+     * カラムの位置を返します。
+     * 
+     * @param columnName
+     *            カラム名
+     * @return カラムの位置(1から始まる)。位置が分からない場合は<code>-1</code>
+     */
+    public int getColumnIndex(final String columnName) {
+        final Integer columnIndex = (Integer) columnIndexes.get(columnName);
+        if (columnIndex == null) {
+            return -1;
+        }
+        return columnIndex.intValue();
+    }
+
+    /**
+     * アンダースコアを除いた名前が一致する最初のカラム名を返します。
+     * 
+     * @param name
+     *            アンダースコアを含まない名前
+     * @return カラム名。一致するカラムがない場合は<code>null</code>
+     */
+    public synchronized String findColumnNameWithoutUnderscore(
+            final String name) {
+        if (columnNamesWithoutUnderscore == null) {
+            final Map names = new CaseInsensitiveMap();
+            for (final Iterator it = iterator(); it.hasNext();) {
+                final String columnName = (String) it.next();
+                final String key = StringUtil.replace(columnName, "_", "");
+                if (!names.containsKey(key)) {
+                    names.put(key, columnName);
+                }
+            }
+            columnNamesWithoutUnderscore = names;
+        }
+        return (String) columnNamesWithoutUnderscore.get(name);
+    }
+
+    public synchronized boolean add(final Object o) {
+        columnNamesWithoutUnderscore = null;
+        return super.add(o);
+    }
+
+    public synchronized boolean remove(final Object o) {
+        columnNamesWithoutUnderscore = null;
+        columnIndexes.remove(o);
+        return super.remove(o);
+    }
+
+    public synchronized void clear() {
+        columnNamesWithoutUnderscore = null;
+        columnIndexes.clear();
+        super.clear();
+    }
+
+}
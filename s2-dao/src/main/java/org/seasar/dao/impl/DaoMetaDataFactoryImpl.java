@@ -31,6 +31,7 @@ import org.seasar.dao.ProcedureMetaDataFactory;
 import org.seasar.dao.ResultSetHandlerFactory;
 import org.seasar.dao.ValueTypeFactory;
 import org.seasar.dao.pager.PagingSqlRewriter;
+import org.seasar.dao.util.StartupProfileUtil;
 import org.seasar.extension.jdbc.ResultSetFactory;
 import org.seasar.extension.jdbc.StatementFactory;
 import org.seasar.framework.beans.BeanDesc;
@@ -89,7 +90,20 @@ public class DaoMetaDataFactoryImpl implements DaoMetaDataFactory, Disposable {
 
     protected PagingSqlRewriter pagingSqlRewriter;
 
-    protected Map daoMetaDataCache = new HashMap();
+    /**
+     * 生成済みの{@link DaoMetaData}のキャッシュです。
+     * <p>
+     * 参照時にロックを取らないよう、一度公開したマップは変更せず、追加時は複製したマップに差し替えます。
+     * </p>
+     */
+    protected volatile Map daoMetaDataCache = new HashMap();
+
+    /**
+     * 生成中の{@link DaoMetaData}を待ち合わせるための{@link DaoMetaDataFuture}のマップです。
+     */
+    protected final Map pendingDaoMetaData = new HashMap();
+
+    private final Object lock = new Object();
 
     protected boolean initialized;
 
@@ -97,6 +111,16 @@ public class DaoMetaDataFactoryImpl implements DaoMetaDataFactory, Disposable {
 
     protected String sqlFileEncoding;
 
+    protected boolean eagerSqlCommandSetup;
+
+    protected boolean useSqlFileIndex;
+
+    protected boolean inListPadding;
+
+    protected int maxInListSize;
+
+    protected int rowHandlerFetchSize = -1;
+
     public DaoMetaDataFactoryImpl() {
     }
 
@@ -116,31 +140,95 @@ public class DaoMetaDataFactoryImpl implements DaoMetaDataFactory, Disposable {
     }
 
     public DaoMetaData getDaoMetaData(final Class daoClass) {
-        if (!initialized) {
-            DisposableUtil.add(this);
-            initialized = true;
-        }
         final String key = daoClass.getName();
-        DaoMetaData dmd;
-        synchronized (daoMetaDataCache) {
-            dmd = (DaoMetaData) daoMetaDataCache.get(key);
-        }
+        final DaoMetaData dmd = (DaoMetaData) daoMetaDataCache.get(key);
         if (dmd != null) {
             return dmd;
         }
-        final DaoMetaData dmdi = createDaoMetaData(daoClass);
-        synchronized (daoMetaDataCache) {
-            dmd = (DaoMetaData) daoMetaDataCache.get(daoClass);
+        return getOrCreateDaoMetaData(daoClass, key);
+    }
+
+    /**
+     * キャッシュに存在しない{@link DaoMetaData}を生成します。
+     * <p>
+     * 同じDaoに対して複数のスレッドが同時に要求した場合も、{@link #createDaoMetaData(Class)}
+     * を実行するのは最初のスレッドだけで、他のスレッドはその結果を待ち合わせます。
+     * </p>
+     * 
+     * @param daoClass
+     *            Daoのクラス
+     * @param key
+     *            キャッシュのキー
+     * @return {@link DaoMetaData}
+     */
+    protected DaoMetaData getOrCreateDaoMetaData(final Class daoClass,
+            final String key) {
+        final DaoMetaDataFuture future;
+        final boolean owner;
+        synchronized (lock) {
+            if (!initialized) {
+                DisposableUtil.add(this);
+                initialized = true;
+            }
+            final DaoMetaData dmd = (DaoMetaData) daoMetaDataCache.get(key);
             if (dmd != null) {
                 return dmd;
+            }
+            final DaoMetaDataFuture pending = (DaoMetaDataFuture) pendingDaoMetaData
+                    .get(key);
+            if (pending != null) {
+                future = pending;
+                owner = false;
             } else {
-                daoMetaDataCache.put(key, dmdi);
+                future = new DaoMetaDataFuture();
+                pendingDaoMetaData.put(key, future);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            return future.get();
+        }
+        try {
+            final DaoMetaData dmd = createDaoMetaData(daoClass);
+            synchronized (lock) {
+                if (pendingDaoMetaData.get(key) == future) {
+                    pendingDaoMetaData.remove(key);
+                    final Map newCache = new HashMap(daoMetaDataCache);
+                    newCache.put(key, dmd);
+                    daoMetaDataCache = newCache;
+                }
+            }
+            future.set(dmd);
+            return dmd;
+        } catch (final RuntimeException e) {
+            removePending(key, future);
+            future.setThrowable(e);
+            throw e;
+        } catch (final Error e) {
+            removePending(key, future);
+            future.setThrowable(e);
+            throw e;
+        }
+    }
+
+    private void removePending(final String key, final DaoMetaDataFuture future) {
+        synchronized (lock) {
+            if (pendingDaoMetaData.get(key) == future) {
+                pendingDaoMetaData.remove(key);
             }
         }
-        return dmdi;
     }
 
     protected DaoMetaData createDaoMetaData(final Class daoClass) {
+        final long start = StartupProfileUtil.begin(daoClass.getName(), null);
+        try {
+            return createDaoMetaDataInternal(daoClass);
+        } finally {
+            StartupProfileUtil.end(start);
+        }
+    }
+
+    private DaoMetaData createDaoMetaDataInternal(final Class daoClass) {
         final BeanDesc daoBeanDesc = BeanDescFactory.getBeanDesc(daoClass);
         final DaoAnnotationReader daoAnnotationReader = annotationReaderFactory
                 .createDaoAnnotationReader(daoBeanDesc);
@@ -158,6 +246,11 @@ public class DaoMetaDataFactoryImpl implements DaoMetaDataFactory, Disposable {
         daoMetaData.setProcedureMetaDataFactory(procedureMetaDataFactory);
         daoMetaData.setDtoMetaDataFactory(dtoMetaDataFactory);
         daoMetaData.setResultSetHandlerFactory(resultSetHandlerFactory);
+        daoMetaData.setEagerSqlCommandSetup(eagerSqlCommandSetup);
+        daoMetaData.setUseSqlFileIndex(useSqlFileIndex);
+        daoMetaData.setInListPadding(inListPadding);
+        daoMetaData.setMaxInListSize(maxInListSize);
+        daoMetaData.setRowHandlerFetchSize(rowHandlerFetchSize);
         if (sqlFileEncoding != null) {
             daoMetaData.setSqlFileEncoding(sqlFileEncoding);
         }
@@ -185,9 +278,12 @@ public class DaoMetaDataFactoryImpl implements DaoMetaDataFactory, Disposable {
         this.beanMetaDataFactory = beanMetaDataFactory;
     }
 
-    public synchronized void dispose() {
-        daoMetaDataCache.clear();
-        initialized = false;
+    public void dispose() {
+        synchronized (lock) {
+            daoMetaDataCache = new HashMap();
+            pendingDaoMetaData.clear();
+            initialized = false;
+        }
     }
 
     public DaoNamingConvention getDaoNamingConvention() {
@@ -216,6 +312,52 @@ public class DaoMetaDataFactoryImpl implements DaoMetaDataFactory, Disposable {
         this.statementFactory = statementFactory;
     }
 
+    /**
+     * 初期化時にDaoのすべてのメソッドの{@link org.seasar.dao.SqlCommand}を生成するかどうかを設定します。
+     * 
+     * @param eagerSqlCommandSetup
+     *            初期化時にすべての{@link org.seasar.dao.SqlCommand}を生成する場合は<code>true</code>
+     * @see DaoMetaDataImpl#setEagerSqlCommandSetup(boolean)
+     */
+    public void setEagerSqlCommandSetup(final boolean eagerSqlCommandSetup) {
+        this.eagerSqlCommandSetup = eagerSqlCommandSetup;
+    }
+
+    /**
+     * {@link SqlFileIndexGenerator}で生成されたSQLファイルの索引を使用するかどうかを設定します。
+     * 
+     * @param useSqlFileIndex
+     *            SQLファイルの索引を使用する場合は<code>true</code>
+     * @see DaoMetaDataImpl#setUseSqlFileIndex(boolean)
+     */
+    public void setUseSqlFileIndex(final boolean useSqlFileIndex) {
+        this.useSqlFileIndex = useSqlFileIndex;
+    }
+
+    /**
+     * @param inListPadding
+     * @see DaoMetaDataImpl#setInListPadding(boolean)
+     */
+    public void setInListPadding(final boolean inListPadding) {
+        this.inListPadding = inListPadding;
+    }
+
+    /**
+     * @param maxInListSize
+     * @see DaoMetaDataImpl#setMaxInListSize(int)
+     */
+    public void setMaxInListSize(final int maxInListSize) {
+        this.maxInListSize = maxInListSize;
+    }
+
+    /**
+     * @param rowHandlerFetchSize
+     * @see DaoMetaDataImpl#setRowHandlerFetchSize(int)
+     */
+    public void setRowHandlerFetchSize(final int rowHandlerFetchSize) {
+        this.rowHandlerFetchSize = rowHandlerFetchSize;
+    }
+
     public void setUseDaoClassForLog(final boolean userDaoClassForLog) {
         useDaoClassForLog = userDaoClassForLog;
     }
@@ -239,4 +381,50 @@ public class DaoMetaDataFactoryImpl implements DaoMetaDataFactory, Disposable {
         this.pagingSqlRewriter = pagingSqlRewriter;
     }
 
+    /**
+     * 他のスレッドが生成中の{@link DaoMetaData}を受け渡すためのクラスです。
+     */
+    protected static class DaoMetaDataFuture {
+
+        private boolean done;
+
+        private DaoMetaData daoMetaData;
+
+        private Throwable throwable;
+
+        public synchronized DaoMetaData get() {
+            boolean interrupted = false;
+            while (!done) {
+                try {
+                    wait();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (throwable instanceof RuntimeException) {
+                throw (RuntimeException) throwable;
+            }
+            if (throwable instanceof Error) {
+                throw (Error) throwable;
+            }
+            return daoMetaData;
+        }
+
+        public synchronized void set(final DaoMetaData daoMetaData) {
+            this.daoMetaData = daoMetaData;
+            done = true;
+            notifyAll();
+        }
+
+        public synchronized void setThrowable(final Throwable throwable) {
+            this.throwable = throwable;
+            done = true;
+            notifyAll();
+        }
+
+    }
+
 }
@@ -16,15 +16,14 @@
 package org.seasar.dao.impl;
 
 import java.io.InputStream;
-import java.io.Reader;
 import java.lang.reflect.Method;
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -56,24 +55,27 @@ import org.seasar.dao.handler.ProcedureHandlerImpl;
 import org.seasar.dao.pager.NullPagingSqlRewriter;
 import org.seasar.dao.pager.PagingSqlRewriter;
 import org.seasar.dao.util.FetchHandlerUtil;
+import org.seasar.dao.util.RowHandlerUtil;
+import org.seasar.dao.util.SqlCacheUtil;
+import org.seasar.dao.util.StartupProfileUtil;
 import org.seasar.extension.jdbc.PropertyType;
 import org.seasar.extension.jdbc.ResultSetFactory;
 import org.seasar.extension.jdbc.ResultSetHandler;
 import org.seasar.extension.jdbc.StatementFactory;
 import org.seasar.extension.jdbc.impl.ObjectResultSetHandler;
-import org.seasar.extension.jdbc.util.ConnectionUtil;
-import org.seasar.extension.jdbc.util.DataSourceUtil;
 import org.seasar.framework.beans.BeanDesc;
 import org.seasar.framework.beans.MethodNotFoundRuntimeException;
 import org.seasar.framework.beans.factory.BeanDescFactory;
 import org.seasar.framework.exception.NoSuchMethodRuntimeException;
 import org.seasar.framework.exception.SRuntimeException;
+import org.seasar.framework.log.Logger;
 import org.seasar.framework.util.ClassUtil;
-import org.seasar.framework.util.InputStreamReaderUtil;
+import org.seasar.framework.util.InputStreamUtil;
 import org.seasar.framework.util.MethodUtil;
-import org.seasar.framework.util.ReaderUtil;
+import org.seasar.framework.util.PropertiesUtil;
 import org.seasar.framework.util.ResourceUtil;
 import org.seasar.framework.util.StringUtil;
+import org.seasar.framework.util.URLUtil;
 
 /**
  * @author higa
@@ -82,6 +84,9 @@ import org.seasar.framework.util.StringUtil;
  */
 public class DaoMetaDataImpl implements DaoMetaData {
 
+    private static final Logger logger = Logger
+            .getLogger(DaoMetaDataImpl.class);
+
     private static final Pattern startWithOrderByPattern = Pattern.compile(
             "(/\\*[^*]+\\*/)*order by", Pattern.CASE_INSENSITIVE);
 
@@ -121,7 +126,36 @@ public class DaoMetaDataImpl implements DaoMetaData {
 
     protected BeanMetaData beanMetaData;
 
-    protected Map sqlCommands = new HashMap();
+    /**
+     * 生成済みの{@link SqlCommand}のマップです。
+     * <p>
+     * 参照時にロックを取らないよう、一度公開したマップは変更せず、追加時は複製したマップに差し替えます。
+     * </p>
+     */
+    protected volatile Map sqlCommands = new HashMap();
+
+    /**
+     * {@link SqlCommand}をまだ生成していないメソッドのマップです。キーはメソッド名です。
+     */
+    protected Map pendingMethods = new HashMap();
+
+    /**
+     * {@link SqlCommand}を生成中のメソッドごとのロックのマップです。キーはメソッド名です。
+     */
+    private final Map sqlCommandSetupLocks = new HashMap();
+
+    /**
+     * 初期化時にすべての{@link SqlCommand}を生成する場合は<code>true</code>です。
+     */
+    protected boolean eagerSqlCommandSetup = false;
+
+    protected boolean inListPadding = false;
+
+    protected int maxInListSize = 0;
+
+    protected int rowHandlerFetchSize = -1;
+
+    private final Object sqlCommandLock = new Object();
 
     protected ValueTypeFactory valueTypeFactory;
 
@@ -141,6 +175,13 @@ public class DaoMetaDataImpl implements DaoMetaData {
 
     protected boolean checkSingleRowUpdateForAll = true;
 
+    /**
+     * {@link SqlFileIndexGenerator}で生成されたSQLファイルの索引を使用する場合は<code>true</code>です。
+     */
+    protected boolean useSqlFileIndex = false;
+
+    protected Properties sqlFileIndex;
+
     public DaoMetaDataImpl() {
     }
 
@@ -148,13 +189,8 @@ public class DaoMetaDataImpl implements DaoMetaData {
         beanClass = daoAnnotationReader.getBeanClass();
         daoInterface = getDaoInterface(daoClass);
         daoBeanDesc = BeanDescFactory.getBeanDesc(daoClass);
-        final Connection con = DataSourceUtil.getConnection(dataSource);
-        try {
-            final DatabaseMetaData dbMetaData = ConnectionUtil.getMetaData(con);
-            dbms = DbmsManager.getDbms(dbMetaData);
-        } finally {
-            ConnectionUtil.close(con);
-        }
+        sqlFileIndex = useSqlFileIndex ? loadSqlFileIndex() : null;
+        dbms = DbmsManager.getDbms(dataSource);
         this.beanMetaData = beanMetaDataFactory.createBeanMetaData(
                 daoInterface, beanClass);
         checkSingleRowUpdateForAll = daoAnnotationReader
@@ -168,7 +204,13 @@ public class DaoMetaDataImpl implements DaoMetaData {
         for (int i = 0; i < names.length; ++i) {
             final Method[] methods = daoBeanDesc.getMethods(names[i]);
             if (methods.length == 1 && MethodUtil.isAbstract(methods[0])) {
-                setupMethod(methods[0]);
+                if (eagerSqlCommandSetup) {
+                    setupMethod(methods[0]);
+                } else {
+                    synchronized (sqlCommandLock) {
+                        pendingMethods.put(names[i], methods[0]);
+                    }
+                }
             } else if (methods.length > 1) {
                 for (int j = 0; j < methods.length; j++) {
                     if (MethodUtil.isAbstract(methods[j])) {
@@ -183,11 +225,54 @@ public class DaoMetaDataImpl implements DaoMetaData {
         }
     }
 
+    /**
+     * 遅延初期化の対象になっているメソッドの{@link SqlCommand}を生成します。
+     * 
+     * @param methodName
+     *            メソッド名
+     * @return 生成した{@link SqlCommand}。対象のメソッドが存在しない場合は<code>null</code>
+     */
+    protected SqlCommand setupSqlCommand(final String methodName) {
+        final Method method;
+        final Object setupLock;
+        synchronized (sqlCommandLock) {
+            final SqlCommand cmd = (SqlCommand) sqlCommands.get(methodName);
+            if (cmd != null) {
+                return cmd;
+            }
+            method = (Method) pendingMethods.get(methodName);
+            if (method == null) {
+                return null;
+            }
+            Object lock = sqlCommandSetupLocks.get(methodName);
+            if (lock == null) {
+                lock = new Object();
+                sqlCommandSetupLocks.put(methodName, lock);
+            }
+            setupLock = lock;
+        }
+        // SQLファイルの読み込みや解析はメソッドごとのロックで行い、同じDaoの別のメソッドの生成を待たせない
+        synchronized (setupLock) {
+            final SqlCommand cmd = (SqlCommand) sqlCommands.get(methodName);
+            if (cmd != null) {
+                return cmd;
+            }
+            setupMethod(method);
+            synchronized (sqlCommandLock) {
+                pendingMethods.remove(methodName);
+                sqlCommandSetupLocks.remove(methodName);
+            }
+            return (SqlCommand) sqlCommands.get(methodName);
+        }
+    }
+
     protected void setupMethod(final Method method) {
         setupMethod(daoInterface, method);
     }
 
     protected void setupMethod(final Class daoInterface, final Method method) {
+        final long start = StartupProfileUtil.begin(daoClass.getName(), method
+                .getName());
         try {
             assertAnnotation(method);
 
@@ -218,6 +303,8 @@ public class DaoMetaDataImpl implements DaoMetaData {
         } catch (final SRuntimeException e) {
             throw new MethodSetupFailureRuntimeException(
                     daoInterface.getName(), method.getName(), e);
+        } finally {
+            StartupProfileUtil.end(start);
         }
     }
 
@@ -280,10 +367,73 @@ public class DaoMetaDataImpl implements DaoMetaData {
     }
 
     protected String readText(final String path) {
-        final InputStream is = ResourceUtil.getResourceAsStream(path);
-        final Reader reader = InputStreamReaderUtil.create(is,
-                getSqlFileEncoding());
-        return ReaderUtil.readText(reader);
+        final long start = StartupProfileUtil.start();
+        try {
+            return SqlCacheUtil.readText(path, getSqlFileEncoding());
+        } finally {
+            StartupProfileUtil.record(StartupProfileUtil.SQL_FILE, start);
+        }
+    }
+
+    /**
+     * {@link SqlFileIndexGenerator}で生成されたSQLファイルの索引を読み込みます。
+     * <p>
+     * 索引を生成した後にDaoのクラスが変更されている場合や、SQLファイルの一覧が変わっている場合は、索引を使用しません。
+     * </p>
+     * 
+     * @return SQLファイルの索引、存在しないか古い場合は<code>null</code>
+     */
+    protected Properties loadSqlFileIndex() {
+        final URL url = ResourceUtil.getResourceNoException(SqlFileIndexGenerator
+                .getIndexPath(daoInterface));
+        if (url == null) {
+            return null;
+        }
+        final Properties props = new Properties();
+        final InputStream is = URLUtil.openStream(url);
+        try {
+            PropertiesUtil.load(props, is);
+        } finally {
+            InputStreamUtil.close(is);
+        }
+        if (!SqlFileIndexGenerator.getFingerprint(daoInterface).equals(
+                props.getProperty(SqlFileIndexGenerator.FINGERPRINT_KEY))) {
+            logger.log("WDAO0007", new Object[] { daoInterface.getName() });
+            return null;
+        }
+        final String sqlFilesFingerprint = SqlFileIndexGenerator
+                .getSqlFilesFingerprint(props);
+        if (sqlFilesFingerprint == null
+                || !sqlFilesFingerprint.equals(props
+                        .getProperty(SqlFileIndexGenerator.SQL_FILES_FINGERPRINT_KEY))) {
+            logger.log("WDAO0007", new Object[] { daoInterface.getName() });
+            return null;
+        }
+        return props;
+    }
+
+    /**
+     * SQLファイルが存在するかどうかを返します。
+     * <p>
+     * SQLファイルの索引にパスがあれば索引を参照し、なければクラスパスから探します。
+     * </p>
+     * 
+     * @param path SQLファイルのパス
+     * @return SQLファイルが存在する場合は<code>true</code>
+     */
+    protected boolean isSqlFileExist(final String path) {
+        if (sqlFileIndex != null) {
+            final String exist = sqlFileIndex.getProperty(path);
+            if (exist != null) {
+                return Boolean.valueOf(exist).booleanValue();
+            }
+        }
+        final long start = StartupProfileUtil.start();
+        try {
+            return SqlCacheUtil.isExist(path);
+        } finally {
+            StartupProfileUtil.record(StartupProfileUtil.SQL_FILE, start);
+        }
     }
 
     protected void setupMethodBySqlFile(final Class daoInterface,
@@ -291,10 +441,10 @@ public class DaoMetaDataImpl implements DaoMetaData {
         final String base = getSqlFilePath(daoInterface, method);
         final String dbmsPath = base + dbms.getSuffix() + ".sql";
         final String standardPath = base + ".sql";
-        if (ResourceUtil.isExist(dbmsPath)) {
+        if (isSqlFileExist(dbmsPath)) {
             final String sql = readText(dbmsPath);
             setupMethodByManual(method, sql);
-        } else if (ResourceUtil.isExist(standardPath)) {
+        } else if (isSqlFileExist(standardPath)) {
             final String sql = readText(standardPath);
             setupMethodByManual(method, sql);
         } else if (isDelete(method.getName())) {
@@ -357,7 +507,7 @@ public class DaoMetaDataImpl implements DaoMetaData {
     }
 
     protected boolean completedSetupMethod(final Method method) {
-        return hasSqlCommand(method.getName());
+        return sqlCommands.containsKey(method.getName());
     }
 
     private Method getSameSignatureMethod(final Class clazz, final Method method) {
@@ -401,8 +551,21 @@ public class DaoMetaDataImpl implements DaoMetaData {
 
     protected SelectDynamicCommand createSelectDynamicCommand(
             final ResultSetHandler rsh) {
-        return new SelectDynamicCommand(dataSource, statementFactory, rsh,
-                resultSetFactory, pagingSqlRewriter);
+        final SelectDynamicCommand cmd = new SelectDynamicCommand(dataSource,
+                statementFactory, rsh, resultSetFactory, pagingSqlRewriter);
+        setupInList(cmd);
+        cmd.setRowHandlerFetchSize(rowHandlerFetchSize);
+        return cmd;
+    }
+
+    /**
+     * IN句のバインド変数の展開方法を設定します。
+     * 
+     * @param cmd コマンド
+     */
+    protected void setupInList(final AbstractDynamicCommand cmd) {
+        cmd.setInListPadding(inListPadding);
+        cmd.setMaxInListSize(getMaxInListSize());
     }
 
     protected SelectDynamicCommand createSelectDynamicCommand(
@@ -502,6 +665,7 @@ public class DaoMetaDataImpl implements DaoMetaData {
             final String sql) {
         final UpdateDynamicCommand cmd = new UpdateDynamicCommand(dataSource,
                 statementFactory);
+        setupInList(cmd);
         cmd.setSql(sql);
         String[] argNames = daoAnnotationReader.getArgNames(method);
         if (argNames.length == 0 && isUpdateSignatureForBean(method)) {
@@ -761,7 +925,8 @@ public class DaoMetaDataImpl implements DaoMetaData {
                 return true;
             } else if (method.getParameterTypes().length == 2) {
                 Class clazz = method.getParameterTypes()[1];
-                if (FetchHandlerUtil.isFetchHandler(clazz)) {
+                if (FetchHandlerUtil.isFetchHandler(clazz)
+                        || RowHandlerUtil.isRowHandler(clazz)) {
                     return true;
                 }
             }
@@ -978,7 +1143,11 @@ public class DaoMetaDataImpl implements DaoMetaData {
                 ((InjectDaoClassSupport) cmd).setDaoClass(daoClass);
             }
         }
-        sqlCommands.put(methodName, cmd);
+        synchronized (sqlCommandLock) {
+            final Map newSqlCommands = new HashMap(sqlCommands);
+            newSqlCommands.put(methodName, cmd);
+            sqlCommands = newSqlCommands;
+        }
     }
 
     /**
@@ -1022,7 +1191,10 @@ public class DaoMetaDataImpl implements DaoMetaData {
     public SqlCommand getSqlCommand(final String methodName)
             throws MethodNotFoundRuntimeException {
 
-        final SqlCommand cmd = (SqlCommand) sqlCommands.get(methodName);
+        SqlCommand cmd = (SqlCommand) sqlCommands.get(methodName);
+        if (cmd == null) {
+            cmd = setupSqlCommand(methodName);
+        }
         if (cmd == null) {
             throw new MethodNotFoundRuntimeException(daoClass, methodName, null);
         }
@@ -1033,7 +1205,12 @@ public class DaoMetaDataImpl implements DaoMetaData {
      * @see org.seasar.dao.DaoMetaData#hasSqlCommand(java.lang.String)
      */
     public boolean hasSqlCommand(final String methodName) {
-        return sqlCommands.containsKey(methodName);
+        if (sqlCommands.containsKey(methodName)) {
+            return true;
+        }
+        synchronized (sqlCommandLock) {
+            return pendingMethods.containsKey(methodName);
+        }
     }
 
     /**
@@ -1195,6 +1372,91 @@ public class DaoMetaDataImpl implements DaoMetaData {
         this.daoNamingConvention = daoNamingConvention;
     }
 
+    public boolean isEagerSqlCommandSetup() {
+        return eagerSqlCommandSetup;
+    }
+
+    /**
+     * 初期化時にすべてのメソッドの{@link SqlCommand}を生成するかどうかを設定します。
+     * <p>
+     * デフォルトは<code>false</code>で、{@link SqlCommand}はメソッドが最初に呼び出された時に生成されます。
+     * <code>true</code>を設定すると、SQLファイルの不備などを初期化時に検出できます。
+     * </p>
+     * 
+     * @param eagerSqlCommandSetup
+     *            初期化時にすべての{@link SqlCommand}を生成する場合は<code>true</code>
+     */
+    public void setEagerSqlCommandSetup(final boolean eagerSqlCommandSetup) {
+        this.eagerSqlCommandSetup = eagerSqlCommandSetup;
+    }
+
+    public boolean isUseSqlFileIndex() {
+        return useSqlFileIndex;
+    }
+
+    /**
+     * {@link SqlFileIndexGenerator}で生成されたSQLファイルの索引を使用するかどうかを設定します。
+     * <p>
+     * デフォルトは<code>false</code>で、SQLファイルは常にクラスパスから探します。
+     * <code>true</code>を設定すると、索引がありDaoのクラスとSQLファイルの一覧が索引の生成時から変わっていない場合に、
+     * SQLファイルを探すかわりに索引を参照します。
+     * </p>
+     * 
+     * @param useSqlFileIndex
+     *            SQLファイルの索引を使用する場合は<code>true</code>
+     */
+    public void setUseSqlFileIndex(final boolean useSqlFileIndex) {
+        this.useSqlFileIndex = useSqlFileIndex;
+    }
+
+    public boolean isInListPadding() {
+        return inListPadding;
+    }
+
+    /**
+     * IN句のバインド変数の数を、2のべき乗に切り上げるかどうかを設定します。デフォルトは<code>false</code>です。
+     * 
+     * @param inListPadding
+     *            切り上げる場合は<code>true</code>
+     * @see org.seasar.dao.context.CommandContextImpl#setInListPadding(boolean)
+     */
+    public void setInListPadding(final boolean inListPadding) {
+        this.inListPadding = inListPadding;
+    }
+
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    /**
+     * IN句に指定できる要素の最大数を設定します。デフォルトは<code>0</code>(分割しない)です。
+     * <p>
+     * DBMSの制限を超える要素を指定する場合に設定します。たとえばOracleでは1000を設定します。
+     * </p>
+     * 
+     * @param maxInListSize
+     *            IN句に指定できる要素の最大数、分割しない場合は<code>0</code>
+     * @see org.seasar.dao.context.CommandContextImpl#setMaxInListSize(int)
+     */
+    public void setMaxInListSize(final int maxInListSize) {
+        this.maxInListSize = maxInListSize;
+    }
+
+    public int getRowHandlerFetchSize() {
+        return rowHandlerFetchSize;
+    }
+
+    /**
+     * {@link org.seasar.dao.RowHandler}で行を処理する場合のフェッチサイズを設定します。デフォルトは<code>-1</code>(設定しない)です。
+     * 
+     * @param rowHandlerFetchSize
+     *            フェッチサイズ
+     * @see SelectDynamicCommand#setRowHandlerFetchSize(int)
+     */
+    public void setRowHandlerFetchSize(final int rowHandlerFetchSize) {
+        this.rowHandlerFetchSize = rowHandlerFetchSize;
+    }
+
     public boolean isUseDaoClassForLog() {
         return useDaoClassForLog;
     }
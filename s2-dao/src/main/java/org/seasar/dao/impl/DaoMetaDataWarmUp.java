@@ -0,0 +1,311 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.seasar.dao.DaoMetaData;
+import org.seasar.dao.DaoMetaDataFactory;
+import org.seasar.dao.DaoNamingConvention;
+import org.seasar.dao.util.StartupProfileUtil;
+import org.seasar.framework.container.ComponentDef;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.MethodUtil;
+
+/**
+ * コンテナに登録されているDaoの{@link DaoMetaData}を、起動時に並列で生成するクラスです。
+ * <p>
+ * ルートのコンテナから辿れるコンポーネントのうち、アスペクトが設定されていて、
+ * クラス名がDaoのサフィックスで終わるインタフェースまたは抽象クラスをDaoとみなします。
+ * {@link #setSetupSqlCommand(boolean)}が<code>true</code>の場合は、
+ * Daoのすべてのメソッドの{@link org.seasar.dao.SqlCommand}も生成するため、
+ * 関連する<code>BeanMetaData</code>や<code>DtoMetaData</code>も合わせて構築されます。
+ * </p>
+ * <p>
+ * 各スレッドが同時に使用するコネクションは1本なので、{@link #setThreadSize(int)}
+ * で指定したスレッド数がウォームアップ中に使用するコネクション数の上限になります。
+ * </p>
+ * <p>
+ * {@link StartupProfileUtil}が有効な場合は、ウォームアップの後にDaoごとの内訳をログに出力します。
+ * </p>
+ * <p>
+ * dao.diconなどで次のように定義し、<code>initMethod</code>で{@link #warmUp()}を呼び出します。
+ * </p>
+ *
+ * <pre>
+ * &lt;component class=&quot;org.seasar.dao.impl.DaoMetaDataWarmUp&quot;&gt;
+ *     &lt;property name=&quot;threadSize&quot;&gt;4&lt;/property&gt;
+ *     &lt;initMethod name=&quot;warmUp&quot;/&gt;
+ * &lt;/component&gt;
+ * </pre>
+ */
+public class DaoMetaDataWarmUp {
+
+    private static final Logger logger = Logger
+            .getLogger(DaoMetaDataWarmUp.class);
+
+    public static final String daoMetaDataFactory_BINDING = "bindingType=must";
+
+    public static final String daoNamingConvention_BINDING = "bindingType=must";
+
+    public static final String container_BINDING = "bindingType=must";
+
+    protected DaoMetaDataFactory daoMetaDataFactory;
+
+    protected DaoNamingConvention daoNamingConvention;
+
+    protected S2Container container;
+
+    protected int threadSize = 4;
+
+    protected boolean setupSqlCommand = true;
+
+    protected Map buildTimes = Collections.EMPTY_MAP;
+
+    protected Map failures = Collections.EMPTY_MAP;
+
+    /**
+     * 登録されているすべてのDaoの{@link DaoMetaData}を生成します。
+     * <p>
+     * 生成に失敗したDaoがあっても残りのDaoの生成は続けます。失敗したDaoは{@link #getFailures()}で参照できます。
+     * </p>
+     */
+    public void warmUp() {
+        final Class[] daoClasses = findDaoClasses();
+        final Map times = new LinkedHashMap();
+        final Map errors = new LinkedHashMap();
+        final long start = System.currentTimeMillis();
+        final Worker[] workers = new Worker[Math.max(1, Math.min(threadSize,
+                daoClasses.length))];
+        final int[] next = new int[1];
+        for (int i = 0; i < workers.length; ++i) {
+            workers[i] = new Worker(daoClasses, next, times, errors);
+            workers[i].setName("S2Dao-warmUp-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        boolean interrupted = false;
+        for (int i = 0; i < workers.length; ++i) {
+            while (workers[i].isAlive()) {
+                try {
+                    workers[i].join();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        buildTimes = Collections.unmodifiableMap(times);
+        failures = Collections.unmodifiableMap(errors);
+        logger.log("IDAO0001", new Object[] {
+                String.valueOf(daoClasses.length),
+                String.valueOf(System.currentTimeMillis() - start),
+                String.valueOf(workers.length) });
+        if (StartupProfileUtil.isEnabled()) {
+            logger.log("IDAO0004", new Object[] { StartupProfileUtil
+                    .getReport() });
+        }
+    }
+
+    /**
+     * Daoを1つウォームアップします。
+     *
+     * @param daoClass
+     *            Daoのクラス
+     */
+    protected void warmUp(final Class daoClass) {
+        final DaoMetaData dmd = daoMetaDataFactory.getDaoMetaData(daoClass);
+        if (!setupSqlCommand) {
+            return;
+        }
+        final Method[] methods = daoClass.getMethods();
+        for (int i = 0; i < methods.length; ++i) {
+            final String methodName = methods[i].getName();
+            if (MethodUtil.isAbstract(methods[i])
+                    && dmd.hasSqlCommand(methodName)) {
+                dmd.getSqlCommand(methodName);
+            }
+        }
+    }
+
+    /**
+     * コンテナに登録されているDaoのクラスを返します。
+     *
+     * @return Daoのクラスの配列
+     */
+    protected Class[] findDaoClasses() {
+        final Set daoClasses = new HashSet();
+        final List result = new ArrayList();
+        collectDaoClasses(container.getRoot(), new HashSet(), daoClasses,
+                result);
+        return (Class[]) result.toArray(new Class[result.size()]);
+    }
+
+    private void collectDaoClasses(final S2Container container,
+            final Set visited, final Set daoClasses, final List result) {
+        if (!visited.add(container)) {
+            return;
+        }
+        for (int i = 0; i < container.getComponentDefSize(); ++i) {
+            final ComponentDef cd = container.getComponentDef(i);
+            final Class componentClass = cd.getComponentClass();
+            if (componentClass != null && cd.getAspectDefSize() > 0
+                    && isDaoClass(componentClass)
+                    && daoClasses.add(componentClass)) {
+                result.add(componentClass);
+            }
+        }
+        for (int i = 0; i < container.getChildSize(); ++i) {
+            collectDaoClasses(container.getChild(i), visited, daoClasses,
+                    result);
+        }
+    }
+
+    protected boolean isDaoClass(final Class clazz) {
+        if (!clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers())) {
+            return false;
+        }
+        final String[] daoSuffixes = daoNamingConvention.getDaoSuffixes();
+        for (int i = 0; i < daoSuffixes.length; ++i) {
+            if (clazz.getName().endsWith(daoSuffixes[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 直前の{@link #warmUp()}でDaoごとに要した時間(ミリ秒)を返します。
+     *
+     * @return Daoのクラス名をキー、{@link Long}を値とする{@link Map}
+     */
+    public Map getBuildTimes() {
+        return buildTimes;
+    }
+
+    /**
+     * 直前の{@link #warmUp()}で生成に失敗したDaoを返します。
+     *
+     * @return Daoのクラス名をキー、発生した例外を値とする{@link Map}
+     */
+    public Map getFailures() {
+        return failures;
+    }
+
+    public void setDaoMetaDataFactory(
+            final DaoMetaDataFactory daoMetaDataFactory) {
+        this.daoMetaDataFactory = daoMetaDataFactory;
+    }
+
+    public void setDaoNamingConvention(
+            final DaoNamingConvention daoNamingConvention) {
+        this.daoNamingConvention = daoNamingConvention;
+    }
+
+    public void setContainer(final S2Container container) {
+        this.container = container;
+    }
+
+    public int getThreadSize() {
+        return threadSize;
+    }
+
+    /**
+     * ウォームアップに使用するスレッド数を設定します。デフォルトは4です。
+     *
+     * @param threadSize
+     *            スレッド数
+     */
+    public void setThreadSize(final int threadSize) {
+        this.threadSize = threadSize;
+    }
+
+    public boolean isSetupSqlCommand() {
+        return setupSqlCommand;
+    }
+
+    /**
+     * Daoのすべてのメソッドの{@link org.seasar.dao.SqlCommand}も生成するかどうかを設定します。デフォルトは<code>true</code>です。
+     *
+     * @param setupSqlCommand
+     *            {@link org.seasar.dao.SqlCommand}も生成する場合は<code>true</code>
+     */
+    public void setSetupSqlCommand(final boolean setupSqlCommand) {
+        this.setupSqlCommand = setupSqlCommand;
+    }
+
+    protected class Worker extends Thread {
+
+        private final Class[] daoClasses;
+
+        private final int[] next;
+
+        private final Map times;
+
+        private final Map errors;
+
+        public Worker(final Class[] daoClasses, final int[] next,
+                final Map times, final Map errors) {
+            this.daoClasses = daoClasses;
+            this.next = next;
+            this.times = times;
+            this.errors = errors;
+        }
+
+        public void run() {
+            for (Class daoClass = nextDaoClass(); daoClass != null; daoClass = nextDaoClass()) {
+                final long start = System.currentTimeMillis();
+                try {
+                    warmUp(daoClass);
+                    final long time = System.currentTimeMillis() - start;
+                    synchronized (times) {
+                        times.put(daoClass.getName(), new Long(time));
+                    }
+                    logger.log("DDAO0001", new Object[] { daoClass.getName(),
+                            String.valueOf(time) });
+                } catch (final RuntimeException e) {
+                    synchronized (errors) {
+                        errors.put(daoClass.getName(), e);
+                    }
+                    logger.log("WDAO0004", new Object[] { daoClass.getName() },
+                            e);
+                }
+            }
+        }
+
+        private Class nextDaoClass() {
+            synchronized (next) {
+                if (next[0] >= daoClasses.length) {
+                    return null;
+                }
+                return daoClasses[next[0]++];
+            }
+        }
+
+    }
+
+}
@@ -24,12 +24,15 @@ import java.util.Set;
 
 import org.seasar.dao.DtoMetaData;
 import org.seasar.dao.RowCreator;
+import org.seasar.dao.RowHandler;
+import org.seasar.dao.RowHandlingResultSetHandler;
 
 /**
  * @author jflute
  */
 public class DtoListMetaDataResultSetHandler extends
-        AbstractDtoMetaDataResultSetHandler {
+        AbstractDtoMetaDataResultSetHandler implements
+        RowHandlingResultSetHandler {
 
     /**
      * @param dtoMetaData Dto meta data. (NotNull)
@@ -41,19 +44,42 @@ public class DtoListMetaDataResultSetHandler extends
     }
 
     public Object handle(ResultSet rs) throws SQLException {
+        final List list = new ArrayList();
+        handleRows(rs, list, null);
+        return list;
+    }
+
+    public int handle(ResultSet rs, RowHandler rowHandler) throws SQLException {
+        return handleRows(rs, null, rowHandler);
+    }
+
+    /**
+     * @param rs Result set. (NotNull)
+     * @param list The list to add rows to. (Nullable: if rowHandler is specified)
+     * @param rowHandler Row handler. (Nullable: if list is specified)
+     * @return The count of handled rows.
+     * @throws SQLException
+     */
+    protected int handleRows(ResultSet rs, List list, RowHandler rowHandler)
+            throws SQLException {
         // Map<String(columnName), PropertyType>
         Map propertyCache = null;// [DAO-118] (2007/08/26)
 
         final Set columnNames = createColumnNames(rs.getMetaData());
-        final List list = new ArrayList();
+        int count = 0;
         while (rs.next()) {
             // Lazy initialization because if the result is zero, the cache is unused.
             if (propertyCache == null) {
                 propertyCache = createPropertyCache(columnNames);
             }
             final Object row = createRow(rs, propertyCache);
-            list.add(row);
+            ++count;
+            if (rowHandler == null) {
+                list.add(row);
+            } else if (!rowHandler.handleRow(row)) {
+                break;
+            }
         }
-        return list;
+        return count;
     }
 }
\ No newline at end of file
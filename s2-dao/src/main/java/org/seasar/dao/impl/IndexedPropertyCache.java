@@ -0,0 +1,199 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.seasar.extension.jdbc.PropertyType;
+
+/**
+ * カラム名をキー、{@link PropertyType}を値とするプロパティキャッシュです。
+ * <p>
+ * {@link #resolveColumnIndexes(ColumnNameSet)}を呼び出すと、
+ * キャッシュの内容をカラムの位置、カラム名、{@link PropertyType}の配列に展開します。
+ * 行を作成する際はこの配列を使って結果セットから位置で値を取得するため、
+ * 行ごと、プロパティごとのカラム名の検索が不要になります。
+ * 展開した配列に対応する{@link RowMapper}も合わせて保持します。
+ * キャッシュの内容を変更すると展開した配列と{@link RowMapper}は破棄されます。
+ * </p>
+ * <p>
+ * {@link ResultSetMappingCache}に登録した後は、キャッシュの内容を変更してはいけません。
+ * {@link RowMapper}だけは、登録した後に行を作成するスレッドが設定します。
+ * Beanのクラスと{@link RowMapper}は1つの不変なオブジェクトにまとめて<code>volatile</code>のフィールドで保持するため、
+ * 他のスレッドからも設定した組み合わせのまま参照できます。
+ * </p>
+ */
+public class IndexedPropertyCache extends HashMap {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient int[] columnIndexes;
+
+    private transient String[] columnNames;
+
+    private transient PropertyType[] propertyTypes;
+
+    private transient volatile RowMapperEntry rowMapperEntry;
+
+    /**
+     * キャッシュの内容をカラムの位置で展開します。
+     * <p>
+     * 位置の分からないカラムが含まれている場合は展開しません。
+     * </p>
+     * 
+     * @param columnNameSet
+     *            結果セットのカラム名
+     * @return 展開できた場合は<code>true</code>
+     */
+    public boolean resolveColumnIndexes(final ColumnNameSet columnNameSet) {
+        final int size = size();
+        final int[] indexes = new int[size];
+        final String[] names = new String[size];
+        final PropertyType[] types = new PropertyType[size];
+        int i = 0;
+        for (final Iterator it = entrySet().iterator(); it.hasNext(); ++i) {
+            final Map.Entry entry = (Map.Entry) it.next();
+            names[i] = (String) entry.getKey();
+            indexes[i] = columnNameSet.getColumnIndex(names[i]);
+            if (indexes[i] < 1) {
+                clearColumnIndexes();
+                return false;
+            }
+            types[i] = (PropertyType) entry.getValue();
+        }
+        columnNames = names;
+        propertyTypes = types;
+        columnIndexes = indexes;
+        return true;
+    }
+
+    /**
+     * キャッシュの内容がカラムの位置で展開されているかどうかを返します。
+     * 
+     * @return 展開されている場合は<code>true</code>
+     */
+    public boolean isColumnIndexResolved() {
+        return columnIndexes != null;
+    }
+
+    /**
+     * @return カラムの位置の配列。展開されていない場合は<code>null</code>
+     */
+    public int[] getColumnIndexes() {
+        return columnIndexes;
+    }
+
+    /**
+     * @return カラム名の配列。展開されていない場合は<code>null</code>
+     */
+    public String[] getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @return {@link PropertyType}の配列。展開されていない場合は<code>null</code>
+     */
+    public PropertyType[] getPropertyTypes() {
+        return propertyTypes;
+    }
+
+    /**
+     * Beanのクラスに対応する{@link RowMapper}が設定済みかどうかを返します。
+     * 
+     * @param beanClass
+     *            Beanのクラス
+     * @return 設定済みの場合は<code>true</code>
+     */
+    public boolean hasRowMapper(final Class beanClass) {
+        final RowMapperEntry entry = rowMapperEntry;
+        return entry != null && entry.beanClass == beanClass;
+    }
+
+    /**
+     * @return {@link RowMapper}。設定されていないか生成できなかった場合は<code>null</code>
+     */
+    public RowMapper getRowMapper() {
+        final RowMapperEntry entry = rowMapperEntry;
+        return entry != null ? entry.rowMapper : null;
+    }
+
+    /**
+     * Beanのクラスに対応する{@link RowMapper}を返します。
+     * 
+     * @param beanClass
+     *            Beanのクラス
+     * @return {@link RowMapper}。Beanのクラスに対応する{@link RowMapper}が設定されていないか生成できなかった場合は<code>null</code>
+     */
+    public RowMapper getRowMapper(final Class beanClass) {
+        final RowMapperEntry entry = rowMapperEntry;
+        return entry != null && entry.beanClass == beanClass ? entry.rowMapper
+                : null;
+    }
+
+    /**
+     * {@link RowMapper}を設定します。
+     * 
+     * @param beanClass
+     *            Beanのクラス
+     * @param rowMapper
+     *            {@link RowMapper}。生成できなかった場合は<code>null</code>
+     */
+    public void setRowMapper(final Class beanClass, final RowMapper rowMapper) {
+        rowMapperEntry = new RowMapperEntry(beanClass, rowMapper);
+    }
+
+    public Object put(final Object key, final Object value) {
+        clearColumnIndexes();
+        return super.put(key, value);
+    }
+
+    public void putAll(final Map m) {
+        clearColumnIndexes();
+        super.putAll(m);
+    }
+
+    public Object remove(final Object key) {
+        clearColumnIndexes();
+        return super.remove(key);
+    }
+
+    public void clear() {
+        clearColumnIndexes();
+        super.clear();
+    }
+
+    protected void clearColumnIndexes() {
+        columnIndexes = null;
+        columnNames = null;
+        propertyTypes = null;
+        rowMapperEntry = null;
+    }
+
+    private static class RowMapperEntry {
+
+        private final Class beanClass;
+
+        private final RowMapper rowMapper;
+
+        private RowMapperEntry(final Class beanClass, final RowMapper rowMapper) {
+            this.beanClass = beanClass;
+            this.rowMapper = rowMapper;
+        }
+    }
+
+}
@@ -20,9 +20,12 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.seasar.dao.RowHandler;
+import org.seasar.dao.RowHandlingResultSetHandler;
 import org.seasar.extension.jdbc.PropertyType;
 
-public class MapListResultSetHandler extends AbstractMapResultSetHandler {
+public class MapListResultSetHandler extends AbstractMapResultSetHandler
+        implements RowHandlingResultSetHandler {
 
     public MapListResultSetHandler() {
     }
@@ -39,4 +42,21 @@ public class MapListResultSetHandler extends AbstractMapResultSetHandler {
         }
         return list;
     }
+
+    /**
+     * @see org.seasar.dao.RowHandlingResultSetHandler#handle(java.sql.ResultSet, org.seasar.dao.RowHandler)
+     */
+    public int handle(ResultSet resultSet, RowHandler rowHandler)
+            throws SQLException {
+        PropertyType[] propertyTypes = createPropertyTypes(resultSet
+                .getMetaData());
+        int count = 0;
+        while (resultSet.next()) {
+            ++count;
+            if (!rowHandler.handleRow(createRow(resultSet, propertyTypes))) {
+                break;
+            }
+        }
+        return count;
+    }
 }
\ No newline at end of file
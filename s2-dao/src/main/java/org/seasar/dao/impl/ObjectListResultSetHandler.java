@@ -20,6 +20,8 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.seasar.dao.RowHandler;
+import org.seasar.dao.RowHandlingResultSetHandler;
 import org.seasar.extension.jdbc.ResultSetHandler;
 import org.seasar.extension.jdbc.ValueType;
 
@@ -28,7 +30,8 @@ import org.seasar.extension.jdbc.ValueType;
  * 
  * @author taedium
  */
-public class ObjectListResultSetHandler extends AbstractObjectResultSetHandler {
+public class ObjectListResultSetHandler extends AbstractObjectResultSetHandler
+        implements RowHandlingResultSetHandler {
 
     /**
      * {@link ObjectListResultSetHandler}を作成します。
@@ -48,4 +51,16 @@ public class ObjectListResultSetHandler extends AbstractObjectResultSetHandler {
         }
         return ret;
     }
+
+    public int handle(ResultSet rs, RowHandler rowHandler) throws SQLException {
+        ValueType valueType = getValueType(rs);
+        int count = 0;
+        while (rs.next()) {
+            ++count;
+            if (!rowHandler.handleRow(valueType.getValue(rs, 1))) {
+                break;
+            }
+        }
+        return count;
+    }
 }
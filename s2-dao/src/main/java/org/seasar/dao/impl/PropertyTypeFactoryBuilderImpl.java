@@ -23,6 +23,7 @@ import org.seasar.dao.DaoNamingConvention;
 import org.seasar.dao.Dbms;
 import org.seasar.dao.PropertyTypeFactory;
 import org.seasar.dao.PropertyTypeFactoryBuilder;
+import org.seasar.dao.TableMetaDataReader;
 import org.seasar.dao.ValueTypeFactory;
 
 /**
@@ -39,12 +40,16 @@ public class PropertyTypeFactoryBuilderImpl implements
 
     public static final String daoNamingConvention_BINDING = "bindingType=must";
 
+    public static final String tableMetaDataReader_BINDING = "bindingType=may";
+
     protected ValueTypeFactory valueTypeFactory;
 
     protected ColumnNaming columnNaming;
 
     protected DaoNamingConvention daoNamingConvention;
 
+    protected TableMetaDataReader tableMetaDataReader = new TableMetaDataReaderImpl();
+
     public void setColumnNaming(ColumnNaming columnNaming) {
         this.columnNaming = columnNaming;
     }
@@ -57,6 +62,10 @@ public class PropertyTypeFactoryBuilderImpl implements
         this.valueTypeFactory = valueTypeFactory;
     }
 
+    public void setTableMetaDataReader(TableMetaDataReader tableMetaDataReader) {
+        this.tableMetaDataReader = tableMetaDataReader;
+    }
+
     public PropertyTypeFactory build(Class beanClass,
             BeanAnnotationReader beanAnnotationReader) {
 
@@ -69,7 +78,8 @@ public class PropertyTypeFactoryBuilderImpl implements
             DatabaseMetaData databaseMetaData) {
 
         return new PropertyTypeFactoryImpl(beanClass, beanAnnotationReader,
-                valueTypeFactory, columnNaming, dbms, databaseMetaData);
+                valueTypeFactory, columnNaming, dbms, databaseMetaData,
+                tableMetaDataReader);
     }
 
 }
@@ -25,10 +25,11 @@ import org.seasar.dao.BeanAnnotationReader;
 import org.seasar.dao.ColumnNaming;
 import org.seasar.dao.Dbms;
 import org.seasar.dao.PropertyTypeFactory;
+import org.seasar.dao.TableMetaDataReader;
 import org.seasar.dao.ValueTypeFactory;
+import org.seasar.dao.util.StartupProfileUtil;
 import org.seasar.extension.jdbc.PropertyType;
 import org.seasar.extension.jdbc.ValueType;
-import org.seasar.extension.jdbc.util.DatabaseMetaDataUtil;
 import org.seasar.framework.beans.BeanDesc;
 import org.seasar.framework.beans.PropertyDesc;
 import org.seasar.framework.exception.EmptyRuntimeException;
@@ -50,6 +51,8 @@ public class PropertyTypeFactoryImpl extends AbstractPropertyTypeFactory {
 
     private DatabaseMetaData databaseMetaData;
 
+    private TableMetaDataReader tableMetaDataReader;
+
     /**
      * インスタンスを構築します。
      * 
@@ -83,6 +86,27 @@ public class PropertyTypeFactoryImpl extends AbstractPropertyTypeFactory {
         this.databaseMetaData = databaseMetaData;
     }
 
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param beanClass Beanのクラス
+     * @param beanAnnotationReader Beanのアノテーションリーダ
+     * @param valueTypeFactory {@link ValueType}のファクトリ
+     * @param columnNaming カラムのネーミング
+     * @param dbms DBMS
+     * @param databaseMetaData データベースのメタ情報
+     * @param tableMetaDataReader テーブルのメタ情報のリーダ
+     */
+    public PropertyTypeFactoryImpl(Class beanClass,
+            BeanAnnotationReader beanAnnotationReader,
+            ValueTypeFactory valueTypeFactory, ColumnNaming columnNaming,
+            Dbms dbms, DatabaseMetaData databaseMetaData,
+            TableMetaDataReader tableMetaDataReader) {
+        this(beanClass, beanAnnotationReader, valueTypeFactory, columnNaming,
+                dbms, databaseMetaData);
+        this.tableMetaDataReader = tableMetaDataReader;
+    }
+
     public PropertyType[] createBeanPropertyTypes(String tableName) {
         List list = new ArrayList();
         BeanDesc beanDesc = getBeanDesc();
@@ -117,8 +141,10 @@ public class PropertyTypeFactoryImpl extends AbstractPropertyTypeFactory {
      * @return カラム名のセット
      */
     protected Set getColumns(String tableName) {
-        Set columnSet = DatabaseMetaDataUtil.getColumnMap(
-                getDatabaseMetaData(), tableName).keySet();
+        final long start = StartupProfileUtil.start();
+        Set columnSet = getTableMetaDataReader().getColumnNames(
+                getDatabaseMetaData(), tableName);
+        StartupProfileUtil.record(StartupProfileUtil.DATABASE_META_DATA, start);
         if (columnSet.isEmpty()) {
             logger.log("WDAO0002", new Object[] { tableName });
         }
@@ -167,8 +193,10 @@ public class PropertyTypeFactoryImpl extends AbstractPropertyTypeFactory {
      */
     protected void setupPrimaryKey(PropertyType[] propertyTypes,
             String tableName) {
-        Set primaryKeySet = DatabaseMetaDataUtil.getPrimaryKeySet(
+        final long start = StartupProfileUtil.start();
+        Set primaryKeySet = getTableMetaDataReader().getPrimaryKeyNames(
                 getDatabaseMetaData(), tableName);
+        StartupProfileUtil.record(StartupProfileUtil.DATABASE_META_DATA, start);
         for (int i = 0; i < propertyTypes.length; ++i) {
             PropertyType pt = propertyTypes[i];
             if (primaryKeySet.contains(pt.getColumnName())) {
@@ -188,4 +216,16 @@ public class PropertyTypeFactoryImpl extends AbstractPropertyTypeFactory {
         }
         return databaseMetaData;
     }
+
+    /**
+     * テーブルのメタ情報のリーダを返します。
+     * 
+     * @return テーブルのメタ情報のリーダ
+     */
+    protected TableMetaDataReader getTableMetaDataReader() {
+        if (tableMetaDataReader == null) {
+            tableMetaDataReader = new TableMetaDataReaderImpl();
+        }
+        return tableMetaDataReader;
+    }
 }
@@ -16,23 +16,50 @@
 package org.seasar.dao.impl;
 
 /**
+ * 関連のキーです。
+ * <p>
+ * キーのカラムが1つの場合は配列を作らずに値を保持します。
+ * 複合キーのハッシュ値は値の順序も反映するため、(1, 2)と(2, 1)は別のハッシュ値になります。
+ * </p>
+ * 
  * @author higa
  * 
  */
 public final class RelationKey {
 
+    private final Object value;
+
     private Object[] values;
 
-    private int hashCode;
+    private final int hashCode;
 
+    /**
+     * 複合キーを作成します。
+     * 
+     * @param values
+     *            キーの値の配列。要素は<code>null</code>であってはいけません。
+     */
     public RelationKey(Object[] values) {
+        this.value = values.length == 1 ? values[0] : null;
         this.values = values;
-        for (int i = 0; i < values.length; ++i) {
-            hashCode += values[i].hashCode();
-        }
+        this.hashCode = hashCode(values);
+    }
+
+    /**
+     * 1カラムのキーを作成します。
+     * 
+     * @param value
+     *            キーの値。<code>null</code>であってはいけません。
+     */
+    public RelationKey(Object value) {
+        this.value = value;
+        this.hashCode = value.hashCode();
     }
 
     public Object[] getValues() {
+        if (values == null) {
+            values = new Object[] { value };
+        }
         return values;
     }
 
@@ -41,11 +68,45 @@ public final class RelationKey {
     }
 
     public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
         if (!(o instanceof RelationKey)) {
             return false;
         }
-        Object[] otherValues = ((RelationKey) o).values;
-        if (values.length != otherValues.length) {
+        final RelationKey other = (RelationKey) o;
+        if (hashCode != other.hashCode) {
+            return false;
+        }
+        if (other.value != null) {
+            return matches(other.value);
+        }
+        return matches(other.values);
+    }
+
+    /**
+     * 1カラムの値がこのキーと等しい場合に<code>true</code>を返します。
+     * 
+     * @param otherValue
+     *            キーの値
+     * @return 等しい場合は<code>true</code>
+     */
+    boolean matches(Object otherValue) {
+        return value != null && value.equals(otherValue);
+    }
+
+    /**
+     * 値の配列がこのキーと等しい場合に<code>true</code>を返します。
+     * 
+     * @param otherValues
+     *            キーの値の配列
+     * @return 等しい場合は<code>true</code>
+     */
+    boolean matches(Object[] otherValues) {
+        if (otherValues.length == 1) {
+            return matches(otherValues[0]);
+        }
+        if (values == null || values.length != otherValues.length) {
             return false;
         }
         for (int i = 0; i < values.length; ++i) {
@@ -55,4 +116,19 @@ public final class RelationKey {
         }
         return true;
     }
+
+    /**
+     * キーの値の配列のハッシュ値を返します。1要素の場合は値のハッシュ値と同じになります。
+     * 
+     * @param values
+     *            キーの値の配列
+     * @return ハッシュ値
+     */
+    static int hashCode(Object[] values) {
+        int hash = 0;
+        for (int i = 0; i < values.length; ++i) {
+            hash = 31 * hash + values[i].hashCode();
+        }
+        return hash;
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.seasar.dao.BeanMetaData;
+import org.seasar.dao.RelationPropertyType;
+import org.seasar.extension.jdbc.PropertyType;
+import org.seasar.extension.jdbc.ValueType;
+
+/**
+ * 結果セットの各行から関連のキーの値を読み込むクラスです。
+ * <p>
+ * キーのカラム名、位置、{@link ValueType}は結果セットごとに一度だけ解決し、
+ * 行ごとには値を読み込むだけにします。読み込んだ値は再利用する配列に保持するため、
+ * {@link RelationRowCache}にヒットした行ではオブジェクトを作成しません。
+ * このクラスのインスタンスはスレッドセーフではありません。
+ * </p>
+ */
+public class RelationKeyReader {
+
+    private final String[] columnNames;
+
+    private final int[] columnIndexes;
+
+    private final ValueType[] valueTypes;
+
+    private final Object[] values;
+
+    /**
+     * @param columnNames
+     *            キーのカラム名の配列
+     * @param columnIndexes
+     *            キーのカラムの位置の配列。位置がわからない場合は<code>0</code>以下
+     * @param valueTypes
+     *            キーのカラムの{@link ValueType}の配列
+     */
+    public RelationKeyReader(String[] columnNames, int[] columnIndexes,
+            ValueType[] valueTypes) {
+        this.columnNames = columnNames;
+        this.columnIndexes = columnIndexes;
+        this.valueTypes = valueTypes;
+        this.values = new Object[columnNames.length];
+    }
+
+    /**
+     * 関連のキーを読み込む{@link RelationKeyReader}を作成します。
+     * 
+     * @param beanMetaData
+     *            基点となるBeanの{@link BeanMetaData}
+     * @param rpt
+     *            関連の{@link RelationPropertyType}
+     * @param columnNames
+     *            結果セットのカラム名の{@link Set}
+     * @return {@link RelationKeyReader}。キーのカラムが結果セットに含まれていない場合は<code>null</code>
+     */
+    public static RelationKeyReader create(BeanMetaData beanMetaData,
+            RelationPropertyType rpt, Set columnNames) {
+        final int keySize = rpt.getKeySize();
+        if (keySize == 0) {
+            return null;
+        }
+        final String[] keyColumnNames = new String[keySize];
+        final int[] keyColumnIndexes = new int[keySize];
+        final ValueType[] keyValueTypes = new ValueType[keySize];
+        final BeanMetaData bmd = rpt.getBeanMetaData();
+        for (int i = 0; i < keySize; ++i) {
+            String columnName = rpt.getMyKey(i);
+            PropertyType pt;
+            if (columnNames.contains(columnName)) {
+                pt = beanMetaData.getPropertyTypeByColumnName(columnName);
+            } else {
+                pt = bmd.getPropertyTypeByColumnName(rpt.getYourKey(i));
+                columnName = pt.getColumnName() + "_" + rpt.getRelationNo();
+                if (!columnNames.contains(columnName)) {
+                    return null;
+                }
+            }
+            keyColumnNames[i] = columnName;
+            keyColumnIndexes[i] = columnNames instanceof ColumnNameSet ? ((ColumnNameSet) columnNames)
+                    .getColumnIndex(columnName)
+                    : -1;
+            keyValueTypes[i] = pt.getValueType();
+        }
+        return new RelationKeyReader(keyColumnNames, keyColumnIndexes,
+                keyValueTypes);
+    }
+
+    /**
+     * 現在の行からキーの値を読み込みます。
+     * 
+     * @param rs
+     *            結果セット
+     * @return キーの値がすべて<code>null</code>でない場合は<code>true</code>
+     * @throws SQLException
+     */
+    public boolean read(ResultSet rs) throws SQLException {
+        for (int i = 0; i < values.length; ++i) {
+            final Object value = columnIndexes[i] > 0 ? valueTypes[i]
+                    .getValue(rs, columnIndexes[i]) : valueTypes[i].getValue(
+                    rs, columnNames[i]);
+            if (value == null) {
+                return false;
+            }
+            values[i] = value;
+        }
+        return true;
+    }
+
+    /**
+     * 直前に読み込んだキーの値の配列を返します。配列は次の読み込みで上書きされます。
+     * 
+     * @return キーの値の配列
+     */
+    public Object[] getValues() {
+        return values;
+    }
+
+    /**
+     * 直前に読み込んだキーの値から{@link RelationKey}を作成します。
+     * 
+     * @return {@link RelationKey}
+     */
+    public RelationKey createRelationKey() {
+        if (values.length == 1) {
+            return new RelationKey(values[0]);
+        }
+        return new RelationKey((Object[]) values.clone());
+    }
+
+    /**
+     * 直前に読み込んだキーの値を、カラム名をキーとする{@link Map}にして返します。
+     * 
+     * @return Map{String(columnName), Object(value)}
+     */
+    public Map createRelKeyValues() {
+        final Map relKeyValues = new HashMap();
+        for (int i = 0; i < values.length; ++i) {
+            relKeyValues.put(columnNames[i], values[i]);
+        }
+        return relKeyValues;
+    }
+}
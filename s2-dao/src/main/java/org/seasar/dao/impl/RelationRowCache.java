@@ -15,35 +15,321 @@
  */
 package org.seasar.dao.impl;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
+ * 関連の行を{@link RelationKey}ごとにキャッシュするクラスです。
+ * <p>
+ * 関連ごとにオープンアドレス法のハッシュ表を持ちます。
+ * キーの値の配列で検索できるため、キャッシュにヒットした場合は{@link RelationKey}を作成する必要がありません。
+ * </p>
+ * 
  * @author higa
  * 
  */
 public class RelationRowCache {
 
-    private List rowMapList;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final int MAXIMUM_INITIAL_CAPACITY = 1024;
+
+    private final int initialCapacity;
+
+    private final RelationKey[][] keyTables;
+
+    private final Object[][] rowTables;
+
+    private final int[] sizes;
 
     public RelationRowCache(int size) {
-        rowMapList = new ArrayList();
-        for (int i = 0; i < size; ++i) {
-            rowMapList.add(new HashMap());
-        }
+        this(size, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param size
+     *            関連の数
+     * @param expectedRowSize
+     *            関連ごとにキャッシュする行数の見込み(フェッチサイズなど)。
+     *            <code>0</code>以下の場合はデフォルトの大きさになります。
+     */
+    public RelationRowCache(int size, int expectedRowSize) {
+        initialCapacity = tableSizeFor(expectedRowSize);
+        keyTables = new RelationKey[size][];
+        rowTables = new Object[size][];
+        sizes = new int[size];
     }
 
     public Object getRelationRow(int relno, RelationKey key) {
-        return getRowMap(relno).get(key);
+        final RelationKey[] keys = keyTables[relno];
+        if (keys == null) {
+            return null;
+        }
+        final int mask = keys.length - 1;
+        for (int i = indexFor(key.hashCode(), mask);; i = (i + 1) & mask) {
+            final RelationKey k = keys[i];
+            if (k == null) {
+                return null;
+            }
+            if (k.equals(key)) {
+                return rowTables[relno][i];
+            }
+        }
+    }
+
+    /**
+     * キーの値の配列で関連の行を検索します。
+     * 
+     * @param relno
+     *            関連番号
+     * @param values
+     *            キーの値の配列。要素は<code>null</code>であってはいけません。
+     * @return 関連の行。キャッシュされていない場合は<code>null</code>
+     */
+    public Object getRelationRow(int relno, Object[] values) {
+        final RelationKey[] keys = keyTables[relno];
+        if (keys == null) {
+            return null;
+        }
+        final int hash = RelationKey.hashCode(values);
+        final int mask = keys.length - 1;
+        for (int i = indexFor(hash, mask);; i = (i + 1) & mask) {
+            final RelationKey k = keys[i];
+            if (k == null) {
+                return null;
+            }
+            if (k.hashCode() == hash && k.matches(values)) {
+                return rowTables[relno][i];
+            }
+        }
     }
 
     public void addRelationRow(int relno, RelationKey key, Object row) {
-        getRowMap(relno).put(key, row);
+        RelationKey[] keys = keyTables[relno];
+        if (keys == null) {
+            keys = keyTables[relno] = new RelationKey[initialCapacity];
+            rowTables[relno] = new Object[initialCapacity];
+        } else if ((sizes[relno] + 1) * 2 > keys.length) {
+            resize(relno, keys.length * 2);
+            keys = keyTables[relno];
+        }
+        final int mask = keys.length - 1;
+        for (int i = indexFor(key.hashCode(), mask);; i = (i + 1) & mask) {
+            final RelationKey k = keys[i];
+            if (k == null) {
+                keys[i] = key;
+                rowTables[relno][i] = row;
+                ++sizes[relno];
+                return;
+            }
+            if (k.equals(key)) {
+                rowTables[relno][i] = row;
+                return;
+            }
+        }
     }
 
+    /**
+     * 関連の行を、{@link RelationKey}をキー、関連の行を値とする変更できない{@link Map}として返します。
+     * <p>
+     * 返す{@link Map}はキャッシュのビューで、後から追加された行も反映されます。
+     * </p>
+     * 
+     * @param relno
+     *            関連番号
+     * @return 関連の行の{@link Map}
+     * @deprecated キャッシュは{@link Map}を使わなくなりました。
+     *             {@link #getRelationRow(int, RelationKey)}と{@link #addRelationRow(int, RelationKey, Object)}
+     *             を使用してください。
+     */
     protected Map getRowMap(int relno) {
-        return (Map) rowMapList.get(relno);
+        return new RowMapView(relno);
+    }
+
+    /**
+     * @return キャッシュしている関連の行の総数
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < sizes.length; ++i) {
+            size += sizes[i];
+        }
+        return size;
+    }
+
+    /**
+     * キャッシュしている関連の行をすべて破棄します。
+     * <p>
+     * 大きくなったハッシュ表も破棄し、次に追加するときは初期の大きさから作り直します。
+     * </p>
+     */
+    public void clear() {
+        for (int i = 0; i < sizes.length; ++i) {
+            keyTables[i] = null;
+            rowTables[i] = null;
+            sizes[i] = 0;
+        }
+    }
+
+    private void resize(int relno, int capacity) {
+        final RelationKey[] oldKeys = keyTables[relno];
+        final Object[] oldRows = rowTables[relno];
+        final RelationKey[] keys = new RelationKey[capacity];
+        final Object[] rows = new Object[capacity];
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            final RelationKey key = oldKeys[i];
+            if (key == null) {
+                continue;
+            }
+            int j = indexFor(key.hashCode(), mask);
+            while (keys[j] != null) {
+                j = (j + 1) & mask;
+            }
+            keys[j] = key;
+            rows[j] = oldRows[i];
+        }
+        keyTables[relno] = keys;
+        rowTables[relno] = rows;
+    }
+
+    private class RowMapView extends AbstractMap {
+
+        private final int relno;
+
+        private RowMapView(int relno) {
+            this.relno = relno;
+        }
+
+        public Object get(Object key) {
+            if (!(key instanceof RelationKey)) {
+                return null;
+            }
+            return getRelationRow(relno, (RelationKey) key);
+        }
+
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        public int size() {
+            return sizes[relno];
+        }
+
+        public Set entrySet() {
+            return new AbstractSet() {
+
+                public int size() {
+                    return sizes[relno];
+                }
+
+                public Iterator iterator() {
+                    return new EntryIterator(keyTables[relno],
+                            rowTables[relno]);
+                }
+            };
+        }
+    }
+
+    private static class EntryIterator implements Iterator {
+
+        private final RelationKey[] keys;
+
+        private final Object[] rows;
+
+        private int index = -1;
+
+        private EntryIterator(RelationKey[] keys, Object[] rows) {
+            this.keys = keys;
+            this.rows = rows;
+            advance();
+        }
+
+        public boolean hasNext() {
+            return keys != null && index < keys.length;
+        }
+
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Entry entry = new Entry(keys[index], rows[index]);
+            advance();
+            return entry;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        private void advance() {
+            if (keys == null) {
+                return;
+            }
+            do {
+                ++index;
+            } while (index < keys.length && keys[index] == null);
+        }
+    }
+
+    private static class Entry implements Map.Entry {
+
+        private final Object key;
+
+        private final Object value;
+
+        private Entry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException("setValue");
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry e = (Map.Entry) o;
+            return key.equals(e.getKey())
+                    && (value == null ? e.getValue() == null : value.equals(e
+                            .getValue()));
+        }
+
+        public int hashCode() {
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+    }
+
+    private static int indexFor(int hash, int mask) {
+        // 連番のキーが連続した位置に集まらないように、ハッシュ値を攪拌する
+        final int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedRowSize) {
+        if (expectedRowSize <= 0) {
+            return DEFAULT_CAPACITY;
+        }
+        final int expected = Math.min(expectedRowSize,
+                MAXIMUM_INITIAL_CAPACITY / 2) * 2;
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expected) {
+            capacity <<= 1;
+        }
+        return capacity;
     }
 }
@@ -16,7 +16,6 @@
 package org.seasar.dao.impl;
 
 import java.sql.ResultSet;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
@@ -66,6 +65,9 @@ public class RelationRowCreationResource {
     /** Current property type. This variable is temporary. */
     protected PropertyType currentPropertyType;
 
+    /** The column index of current property type. This variable is temporary. Zero means unknown. */
+    protected int currentColumnIndex;
+
     /** The count of valid value. */
     protected int validValueCount;
 
@@ -152,7 +154,7 @@ public class RelationRowCreationResource {
     //                                 ---------------------
     // The type of relationPropertyCache is Map<String(relationNoSuffix), Map<String(columnName), PropertyType>>.
     public void initializePropertyCacheElement() {
-        relationPropertyCache.put(relationNoSuffix, new HashMap());
+        relationPropertyCache.put(relationNoSuffix, new IndexedPropertyCache());
     }
 
     public boolean hasPropertyCacheElement() {
@@ -351,6 +353,14 @@ public class RelationRowCreationResource {
         this.currentPropertyType = propertyType;
     }
 
+    public int getCurrentColumnIndex() {
+        return currentColumnIndex;
+    }
+
+    public void setCurrentColumnIndex(int currentColumnIndex) {
+        this.currentColumnIndex = currentColumnIndex;
+    }
+
     public boolean isCreateDeadLink() {
         return createDeadLink;
     }
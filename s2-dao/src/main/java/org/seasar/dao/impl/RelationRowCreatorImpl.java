@@ -129,18 +129,42 @@ public class RelationRowCreatorImpl implements RelationRowCreator {
     protected void setupRelationAllValue(RelationRowCreationResource res)
             throws SQLException {
         final Map propertyCacheElement = res.extractPropertyCacheElement();
-        final Set columnNameCacheElementKeySet = propertyCacheElement.keySet();
-        for (final Iterator ite = columnNameCacheElementKeySet.iterator(); ite
-                .hasNext();) {
-            final String columnName = (String) ite.next();
-            final PropertyType pt = (PropertyType) propertyCacheElement
-                    .get(columnName);
-            res.setCurrentPropertyType(pt);
-            if (!isValidRelationPerPropertyLoop(res)) {
-                res.clearRowInstance();
-                return;
+        if (propertyCacheElement instanceof IndexedPropertyCache
+                && ((IndexedPropertyCache) propertyCacheElement)
+                        .isColumnIndexResolved()) {
+            final IndexedPropertyCache indexedPropertyCache = (IndexedPropertyCache) propertyCacheElement;
+            final int[] columnIndexes = indexedPropertyCache
+                    .getColumnIndexes();
+            final PropertyType[] propertyTypes = indexedPropertyCache
+                    .getPropertyTypes();
+            try {
+                for (int i = 0; i < columnIndexes.length; ++i) {
+                    res.setCurrentPropertyType(propertyTypes[i]);
+                    res.setCurrentColumnIndex(columnIndexes[i]);
+                    if (!isValidRelationPerPropertyLoop(res)) {
+                        res.clearRowInstance();
+                        return;
+                    }
+                    setupRelationProperty(res);
+                }
+            } finally {
+                res.setCurrentColumnIndex(0);
+            }
+        } else {
+            final Set columnNameCacheElementKeySet = propertyCacheElement
+                    .keySet();
+            for (final Iterator ite = columnNameCacheElementKeySet.iterator(); ite
+                    .hasNext();) {
+                final String columnName = (String) ite.next();
+                final PropertyType pt = (PropertyType) propertyCacheElement
+                        .get(columnName);
+                res.setCurrentPropertyType(pt);
+                if (!isValidRelationPerPropertyLoop(res)) {
+                    res.clearRowInstance();
+                    return;
+                }
+                setupRelationProperty(res);
             }
-            setupRelationProperty(res);
         }
         if (!isValidRelationAfterPropertyLoop(res)) {
             res.clearRowInstance();
@@ -182,7 +206,12 @@ public class RelationRowCreatorImpl implements RelationRowCreator {
             value = res.extractRelKeyValue(columnName);
         } else {
             final ValueType valueType = pt.getValueType();
-            value = valueType.getValue(res.getResultSet(), columnName);
+            final int columnIndex = res.getCurrentColumnIndex();
+            if (columnIndex > 0) {
+                value = valueType.getValue(res.getResultSet(), columnIndex);
+            } else {
+                value = valueType.getValue(res.getResultSet(), columnName);
+            }
         }
         if (value != null) {
             registerRelationValidValue(res, pt, value);
@@ -266,6 +295,7 @@ public class RelationRowCreatorImpl implements RelationRowCreator {
             }
             setupPropertyCache(res);
         }
+        resolveColumnIndexes(relationPropertyCache, columnNames);
         return relationPropertyCache;
     }
 
@@ -366,6 +396,27 @@ public class RelationRowCreatorImpl implements RelationRowCreator {
         return new HashMap();
     }
 
+    /**
+     * 結果セットのカラムの位置が分かる場合は、リレーションごとのプロパティキャッシュをカラムの位置で展開します。
+     * 
+     * @param relationPropertyCache The map of relation property cache. (NotNull)
+     * @param columnNames The set of column name. (NotNull)
+     */
+    protected void resolveColumnIndexes(Map relationPropertyCache,
+            Set columnNames) {
+        if (!(columnNames instanceof ColumnNameSet)) {
+            return;
+        }
+        for (final Iterator ite = relationPropertyCache.values().iterator(); ite
+                .hasNext();) {
+            final Object propertyCacheElement = ite.next();
+            if (propertyCacheElement instanceof IndexedPropertyCache) {
+                ((IndexedPropertyCache) propertyCacheElement)
+                        .resolveColumnIndexes((ColumnNameSet) columnNames);
+            }
+        }
+    }
+
     // ===================================================================================
     //                                                                        Common Logic
     //                                                                        ============
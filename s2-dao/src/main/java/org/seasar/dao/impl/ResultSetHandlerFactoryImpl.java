@@ -24,6 +24,7 @@ import org.seasar.dao.BeanMetaData;
 import org.seasar.dao.DaoAnnotationReader;
 import org.seasar.dao.DtoMetaData;
 import org.seasar.dao.DtoMetaDataFactory;
+import org.seasar.dao.IllegalSignatureRuntimeException;
 import org.seasar.dao.RelationRowCreator;
 import org.seasar.dao.ResultSetHandlerFactory;
 import org.seasar.dao.RowCreator;
@@ -31,6 +32,7 @@ import org.seasar.dao.impl.BeanMetaDataResultSetHandler.RestrictBeanMetaDataResu
 import org.seasar.dao.impl.DtoMetaDataResultSetHandler.RestrictDtoMetaDataResultSetHandler;
 import org.seasar.dao.impl.MapResultSetHandler.RestrictMapResultSetHandler;
 import org.seasar.dao.impl.ObjectResultSetHandler.RestrictObjectResultSetHandler;
+import org.seasar.dao.util.RowHandlerUtil;
 import org.seasar.dao.util.TypeUtil;
 import org.seasar.extension.jdbc.ResultSetHandler;
 
@@ -60,6 +62,10 @@ public class ResultSetHandlerFactoryImpl implements ResultSetHandlerFactory {
 
         final Class beanClass = daoAnnotationReader.getBeanClass();
         final Class clazz = daoAnnotationReader.getBeanClass(method);
+        if (RowHandlerUtil.isRowHandlerMethod(method)) {
+            return getRowHandlingResultSetHandler(beanMetaData, method,
+                    beanClass, clazz);
+        }
         if ((clazz != null) && !clazz.isAssignableFrom(beanClass)) {
             if (TypeUtil.isSimpleType(clazz)) {
                 if (List.class.isAssignableFrom(method.getReturnType())) {
@@ -102,6 +108,47 @@ public class ResultSetHandlerFactoryImpl implements ResultSetHandlerFactory {
         return createObjectResultSetHandler(null);
     }
 
+    /**
+     * 最後の引数が{@link org.seasar.dao.RowHandler}のメソッド用に、行を1件ずつ渡せる{@link ResultSetHandler}を返します。
+     * <p>
+     * 行の型は<code>メソッド名_BEAN</code>アノテーションで指定でき、指定がない場合はBeanになります。
+     * 処理した件数を返すため、メソッドの戻り値の型は<code>void</code>、<code>int</code>、
+     * {@link Integer}、{@link Number}のいずれかでなければなりません。
+     * </p>
+     * 
+     * @throws IllegalSignatureRuntimeException
+     *             メソッドの戻り値の型が不正な場合
+     */
+    protected ResultSetHandler getRowHandlingResultSetHandler(
+            final BeanMetaData beanMetaData, final Method method,
+            final Class beanClass, Class clazz) {
+        checkRowHandlingReturnType(method);
+        if (clazz == method.getReturnType()) {
+            // 戻り値の型は件数なので、行の型ではない
+            clazz = null;
+        }
+        if (clazz == null || clazz.isAssignableFrom(beanClass)) {
+            return createBeanListMetaDataResultSetHandler(beanMetaData);
+        }
+        if (TypeUtil.isSimpleType(clazz)) {
+            return createObjectListResultSetHandler(clazz);
+        }
+        if (Map.class.isAssignableFrom(clazz)) {
+            return createMapListResultSetHandler();
+        }
+        return createDtoListMetaDataResultSetHandler(dtoMetaDataFactory
+                .getDtoMetaData(clazz));
+    }
+
+    protected void checkRowHandlingReturnType(final Method method) {
+        final Class returnType = method.getReturnType();
+        if (returnType != void.class && returnType != int.class
+                && returnType != Integer.class && returnType != Number.class) {
+            throw new IllegalSignatureRuntimeException("EDAO0037", method
+                    .toString());
+        }
+    }
+
     protected ResultSetHandler createDtoListMetaDataResultSetHandler(
             final DtoMetaData dtoMetaData) {
         return new DtoListMetaDataResultSetHandler(dtoMetaData,
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 結果セットのカラムの並びごとに、カラム名の{@link Set}とプロパティキャッシュを保持するクラスです。
+ * <p>
+ * {@link org.seasar.extension.jdbc.ResultSetHandler}が同じカラムの並びの結果セットを繰り返し処理する際に、
+ * カラム名とプロパティの対応付けを実行のたびに作り直さないために使います。
+ * 保持したカラム名の{@link Set}とプロパティキャッシュは複数のスレッドから参照されるため、
+ * 登録した後に変更してはいけません。
+ * ただし、{@link IndexedPropertyCache}の{@link RowMapper}は登録した後に行を作成するスレッドが設定します。
+ * {@link IndexedPropertyCache#setRowMapper(Class, RowMapper)}は<code>volatile</code>のフィールドで安全に公開します。
+ * </p>
+ */
+public class ResultSetMappingCache {
+
+    private final List entries = new ArrayList();
+
+    private final int maxSize;
+
+    /**
+     * インスタンスを作成します。
+     * 
+     * @param maxSize
+     *            保持するカラムの並びの数の上限
+     */
+    public ResultSetMappingCache(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * カラムの並びに対応するカラム名の{@link Set}を返します。
+     * 
+     * @param columnLabels
+     *            結果セットのカラムのラベル
+     * @return カラム名の{@link Set}。登録されていない場合は<code>null</code>
+     */
+    public synchronized ColumnNameSet getColumnNames(
+            final String[] columnLabels) {
+        for (int i = 0; i < entries.size(); ++i) {
+            final Entry entry = (Entry) entries.get(i);
+            if (Arrays.equals(entry.columnLabels, columnLabels)) {
+                return entry.columnNames;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * カラムの並びに対応するカラム名の{@link Set}を登録します。
+     * <p>
+     * 上限に達している場合は登録しません。
+     * </p>
+     * 
+     * @param columnLabels
+     *            結果セットのカラムのラベル
+     * @param columnNames
+     *            カラム名の{@link Set}
+     * @return 登録されたカラム名の{@link Set}。他のスレッドが先に登録していた場合はそのカラム名の{@link Set}
+     */
+    public synchronized ColumnNameSet putColumnNames(
+            final String[] columnLabels, final ColumnNameSet columnNames) {
+        final ColumnNameSet current = getColumnNames(columnLabels);
+        if (current != null) {
+            return current;
+        }
+        if (entries.size() < maxSize) {
+            entries.add(new Entry(columnLabels, columnNames));
+        }
+        return columnNames;
+    }
+
+    /**
+     * カラム名の{@link Set}に対応するプロパティキャッシュを返します。
+     * 
+     * @param columnNames
+     *            {@link #getColumnNames(String[])}が返したカラム名の{@link Set}
+     * @return プロパティキャッシュ。登録されていない場合は<code>null</code>
+     */
+    public synchronized Map getPropertyCache(final Set columnNames) {
+        final Entry entry = getEntry(columnNames);
+        return entry != null ? entry.propertyCache : null;
+    }
+
+    /**
+     * カラム名の{@link Set}に対応するプロパティキャッシュを登録します。
+     * <p>
+     * カラム名の{@link Set}が登録されていない場合は何もしません。
+     * </p>
+     * 
+     * @param columnNames
+     *            カラム名の{@link Set}
+     * @param propertyCache
+     *            プロパティキャッシュ
+     * @return 登録されたプロパティキャッシュ。他のスレッドが先に登録していた場合はそのプロパティキャッシュ
+     */
+    public synchronized Map putPropertyCache(final Set columnNames,
+            final Map propertyCache) {
+        final Entry entry = getEntry(columnNames);
+        if (entry == null) {
+            return propertyCache;
+        }
+        if (entry.propertyCache == null) {
+            entry.propertyCache = propertyCache;
+        }
+        return entry.propertyCache;
+    }
+
+    /**
+     * カラム名の{@link Set}に対応するリレーションのプロパティキャッシュを返します。
+     * 
+     * @param columnNames
+     *            {@link #getColumnNames(String[])}が返したカラム名の{@link Set}
+     * @return リレーションのプロパティキャッシュ。登録されていない場合は<code>null</code>
+     */
+    public synchronized Map getRelationPropertyCache(final Set columnNames) {
+        final Entry entry = getEntry(columnNames);
+        return entry != null ? entry.relationPropertyCache : null;
+    }
+
+    /**
+     * カラム名の{@link Set}に対応するリレーションのプロパティキャッシュを登録します。
+     * <p>
+     * カラム名の{@link Set}が登録されていない場合は何もしません。
+     * </p>
+     * 
+     * @param columnNames
+     *            カラム名の{@link Set}
+     * @param relationPropertyCache
+     *            リレーションのプロパティキャッシュ
+     * @return 登録されたリレーションのプロパティキャッシュ。他のスレッドが先に登録していた場合はそのプロパティキャッシュ
+     */
+    public synchronized Map putRelationPropertyCache(final Set columnNames,
+            final Map relationPropertyCache) {
+        final Entry entry = getEntry(columnNames);
+        if (entry == null) {
+            return relationPropertyCache;
+        }
+        if (entry.relationPropertyCache == null) {
+            entry.relationPropertyCache = relationPropertyCache;
+        }
+        return entry.relationPropertyCache;
+    }
+
+    /**
+     * 保持しているカラムの並びの数を返します。
+     * 
+     * @return カラムの並びの数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 保持している内容をクリアします。
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private Entry getEntry(final Set columnNames) {
+        for (int i = 0; i < entries.size(); ++i) {
+            final Entry entry = (Entry) entries.get(i);
+            if (entry.columnNames == columnNames) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static class Entry {
+
+        private final String[] columnLabels;
+
+        private final ColumnNameSet columnNames;
+
+        private Map propertyCache;
+
+        private Map relationPropertyCache;
+
+        private Entry(final String[] columnLabels,
+                final ColumnNameSet columnNames) {
+            this.columnLabels = columnLabels;
+            this.columnNames = columnNames;
+        }
+    }
+
+}
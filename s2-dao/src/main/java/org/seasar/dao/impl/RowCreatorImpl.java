@@ -17,7 +17,6 @@ package org.seasar.dao.impl;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -26,6 +25,7 @@ import org.seasar.dao.BeanMetaData;
 import org.seasar.dao.DtoMetaData;
 import org.seasar.dao.RowCreator;
 import org.seasar.dao.util.DaoNamingConventionUtil;
+import org.seasar.dao.util.OverrideUtil;
 import org.seasar.dao.util.PropertyDescUtil;
 import org.seasar.extension.jdbc.PropertyType;
 import org.seasar.extension.jdbc.ValueType;
@@ -38,6 +38,24 @@ import org.seasar.framework.util.StringUtil;
  */
 public class RowCreatorImpl implements RowCreator {
 
+    /**
+     * カラム名で値を取得する{@link #registerValue(ResultSet, Object, PropertyType, String)}
+     * がサブクラスでオーバーライドされているかどうか。
+     * オーバーライドされている場合は、カラムの位置で値を取得しません。
+     */
+    private final boolean registerValueOverridden = isOverridden(
+            "registerValue", new Class[] { ResultSet.class, Object.class,
+                    PropertyType.class, String.class });
+
+    /**
+     * {@link RowMapper}を使うかどうか。
+     * 行の作成に関するメソッドがサブクラスでオーバーライドされている場合は使いません。
+     */
+    private final boolean rowMapperAvailable = !registerValueOverridden
+            && !isOverridden("registerValue", new Class[] { ResultSet.class,
+                    Object.class, PropertyType.class, int.class })
+            && !isOverridden("newBean", new Class[] { Class.class });
+
     // ===================================================================================
     //                                                                        Row Creation
     //                                                                        ============
@@ -53,6 +71,26 @@ public class RowCreatorImpl implements RowCreator {
         // - - - - - - - 
         // Entry Point!
         // - - - - - - -
+        if (!registerValueOverridden
+                && propertyCache instanceof IndexedPropertyCache) {
+            final IndexedPropertyCache indexedPropertyCache = (IndexedPropertyCache) propertyCache;
+            final int[] columnIndexes = indexedPropertyCache
+                    .getColumnIndexes();
+            final PropertyType[] propertyTypes = indexedPropertyCache
+                    .getPropertyTypes();
+            if (columnIndexes != null && propertyTypes != null) {
+                final RowMapper rowMapper = getRowMapper(indexedPropertyCache,
+                        beanClass, propertyTypes);
+                if (rowMapper != null) {
+                    return rowMapper.mapRow(rs, columnIndexes, propertyTypes);
+                }
+                final Object row = newBean(beanClass);
+                for (int i = 0; i < columnIndexes.length; ++i) {
+                    registerValue(rs, row, propertyTypes[i], columnIndexes[i]);
+                }
+                return row;
+            }
+        }
         final Object row = newBean(beanClass);
         final Set columnNameSet = propertyCache.keySet();
         for (final Iterator ite = columnNameSet.iterator(); ite.hasNext();) {
@@ -76,6 +114,38 @@ public class RowCreatorImpl implements RowCreator {
         pd.setValue(row, value);
     }
 
+    protected void registerValue(ResultSet rs, Object row, PropertyType pt,
+            int columnIndex) throws SQLException {
+        final ValueType valueType = pt.getValueType();
+        final Object value = valueType.getValue(rs, columnIndex);
+        final PropertyDesc pd = pt.getPropertyDesc();
+        pd.setValue(row, value);
+    }
+
+    /**
+     * @param propertyCache The property cache resolved by column index. (NotNull)
+     * @param beanClass Bean class. (NotNull)
+     * @param propertyTypes The array of property type. (NotNull)
+     * @return Row mapper. (Nullable: if the row mapper cannot be used)
+     */
+    protected RowMapper getRowMapper(IndexedPropertyCache propertyCache,
+            Class beanClass, PropertyType[] propertyTypes) {
+        if (!rowMapperAvailable) {
+            return null;
+        }
+        RowMapper rowMapper = propertyCache.getRowMapper(beanClass);
+        if (rowMapper == null && !propertyCache.hasRowMapper(beanClass)) {
+            rowMapper = RowMapperFactory.getRowMapper(beanClass, propertyTypes);
+            propertyCache.setRowMapper(beanClass, rowMapper);
+        }
+        return rowMapper;
+    }
+
+    private boolean isOverridden(String methodName, Class[] parameterTypes) {
+        return OverrideUtil.isOverridden(getClass(), RowCreatorImpl.class,
+                methodName, parameterTypes);
+    }
+
     // ===================================================================================
     //                                                             Property Cache Creation
     //                                                             =======================
@@ -95,6 +165,7 @@ public class RowCreatorImpl implements RowCreator {
         // - - - - - - -
         final Map proprertyCache = newPropertyCache();
         setupPropertyCache(proprertyCache, columnNames, beanMetaData);
+        resolveColumnIndexes(proprertyCache, columnNames);
         return proprertyCache;
     }
 
@@ -123,6 +194,14 @@ public class RowCreatorImpl implements RowCreator {
 
     protected void setupPropertyCacheNotPersistentElement(Map proprertyCache,
             Set columnNames, PropertyType pt) throws SQLException {
+        if (columnNames instanceof ColumnNameSet) {
+            final String columnName = ((ColumnNameSet) columnNames)
+                    .findColumnNameWithoutUnderscore(pt.getColumnName());
+            if (columnName != null) {
+                proprertyCache.put(columnName, pt);
+            }
+            return;
+        }
         for (Iterator iter = columnNames.iterator(); iter.hasNext();) {
             String columnName = (String) iter.next();
             String columnName2 = StringUtil.replace(columnName, "_", "");
@@ -149,6 +228,7 @@ public class RowCreatorImpl implements RowCreator {
         // - - - - - - -
         final Map proprertyCache = newPropertyCache();
         setupPropertyCache(proprertyCache, columnNames, dtoMetaData);
+        resolveColumnIndexes(proprertyCache, columnNames);
         return proprertyCache;
     }
 
@@ -178,7 +258,21 @@ public class RowCreatorImpl implements RowCreator {
     //                                                Common
     //                                                ------
     protected Map newPropertyCache() {
-        return new HashMap();
+        return new IndexedPropertyCache();
+    }
+
+    /**
+     * 結果セットのカラムの位置が分かる場合は、プロパティキャッシュをカラムの位置で展開します。
+     * 
+     * @param proprertyCache The map of property cache. (NotNull)
+     * @param columnNames The set of column name. (NotNull)
+     */
+    protected void resolveColumnIndexes(Map proprertyCache, Set columnNames) {
+        if (proprertyCache instanceof IndexedPropertyCache
+                && columnNames instanceof ColumnNameSet) {
+            ((IndexedPropertyCache) proprertyCache)
+                    .resolveColumnIndexes((ColumnNameSet) columnNames);
+        }
     }
 
     // ===================================================================================
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.seasar.extension.jdbc.PropertyType;
+
+/**
+ * 結果セットの現在の行からBeanを作成するインタフェースです。
+ * <p>
+ * 実装クラスは{@link RowMapperFactory}がBeanのクラスとプロパティの並びごとに生成します。
+ * </p>
+ */
+public interface RowMapper {
+
+    /**
+     * 結果セットの現在の行からBeanを作成します。
+     * 
+     * @param rs
+     *            結果セット
+     * @param columnIndexes
+     *            プロパティごとのカラムの位置
+     * @param propertyTypes
+     *            {@link RowMapper}を生成したときと同じ並びの{@link PropertyType}
+     * @return Bean
+     * @throws SQLException
+     */
+    Object mapRow(ResultSet rs, int[] columnIndexes, PropertyType[] propertyTypes)
+            throws SQLException;
+
+}
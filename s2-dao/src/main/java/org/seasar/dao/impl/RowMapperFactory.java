@@ -0,0 +1,383 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javassist.CtClass;
+
+import org.seasar.extension.jdbc.PropertyType;
+import org.seasar.framework.aop.javassist.AbstractGenerator;
+import org.seasar.framework.beans.IllegalPropertyRuntimeException;
+import org.seasar.framework.beans.PropertyDesc;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.ClassLoaderUtil;
+import org.seasar.framework.util.ClassPoolUtil;
+import org.seasar.framework.util.ClassUtil;
+import org.seasar.framework.util.Disposable;
+import org.seasar.framework.util.DisposableUtil;
+
+/**
+ * {@link RowMapper}の実装クラスをBeanのクラスとプロパティの並びごとに生成し、キャッシュするクラスです。
+ * <p>
+ * 生成されたクラスはBeanのコンストラクタとsetterメソッドを直接呼び出します。
+ * 取得した値の型がsetterメソッドの引数の型と一致しない場合や、プリミティブ型のプロパティに<code>null</code>
+ * を設定する場合は{@link PropertyDesc#setValue(Object, Object)}で変換してから設定します。
+ * setterメソッドが例外をスローした場合は、{@link PropertyDesc#setValue(Object, Object)}と同じように
+ * {@link IllegalPropertyRuntimeException}でラップします。
+ * </p>
+ * <p>
+ * 次のような場合は{@link RowMapper}を生成せず、<code>null</code>を返します。
+ * 呼び出し元はリフレクションで値を設定してください。
+ * </p>
+ * <ul>
+ * <li>Beanのクラス、引数のないコンストラクタ、setterメソッドのいずれかがpublicでない場合</li>
+ * <li>Beanのクラスが{@link org.seasar.dao.BeanEnhancer}で拡張されているなど、クラスファイルを読み込めない場合</li>
+ * <li>プロパティの数が{@link #getMaxPropertySize()}を超える場合</li>
+ * <li>1つのBeanのクラスに対するプロパティの並びの数が{@link #getMaxLayoutSize()}を超えた場合</li>
+ * </ul>
+ * <p>
+ * キャッシュは{@link DisposableUtil#dispose()}でクリアされます。
+ * Beanのクラスを保持し続けないように、Beanのクラスは弱参照、生成した{@link RowMapper}はソフト参照で保持します。
+ * クラスの生成はロックの外で行い、同時に同じ{@link RowMapper}が生成された場合は先に登録されたものを使います。
+ * </p>
+ */
+public final class RowMapperFactory {
+
+    private static final Logger logger = Logger
+            .getLogger(RowMapperFactory.class);
+
+    private static final String SUFFIX_ROW_MAPPER = "$$RowMapper$$";
+
+    private static final Object NOT_SUPPORTED = new Object();
+
+    private static final Map cache = new WeakHashMap();
+
+    private static volatile boolean enabled = true;
+
+    private static volatile int maxPropertySize = 100;
+
+    private static volatile int maxLayoutSize = 32;
+
+    private static int sequence;
+
+    private static boolean initialized;
+
+    private RowMapperFactory() {
+    }
+
+    /**
+     * {@link RowMapper}を返します。
+     * 
+     * @param beanClass
+     *            Beanのクラス
+     * @param propertyTypes
+     *            値を設定するプロパティの{@link PropertyType}
+     * @return {@link RowMapper}。生成できない場合は<code>null</code>
+     */
+    public static RowMapper getRowMapper(final Class beanClass,
+            final PropertyType[] propertyTypes) {
+        if (!enabled || propertyTypes.length > maxPropertySize) {
+            return null;
+        }
+        final String layout = createLayout(propertyTypes);
+        synchronized (cache) {
+            final Object rowMapper = getCachedRowMapper(beanClass, layout);
+            if (rowMapper != null) {
+                return toRowMapper(rowMapper);
+            }
+            if (getRowMappers(beanClass).size() >= maxLayoutSize) {
+                return null;
+            }
+        }
+        final Object created = createRowMapper(beanClass, propertyTypes);
+        synchronized (cache) {
+            final Object rowMapper = getCachedRowMapper(beanClass, layout);
+            if (rowMapper != null) {
+                return toRowMapper(rowMapper);
+            }
+            final Map rowMappers = getRowMappers(beanClass);
+            if (rowMappers.size() >= maxLayoutSize) {
+                return null;
+            }
+            rowMappers.put(layout, created == NOT_SUPPORTED ? created
+                    : new SoftReference(created));
+            return toRowMapper(created);
+        }
+    }
+
+    private static Map getRowMappers(final Class beanClass) {
+        if (!initialized) {
+            DisposableUtil.add(new Disposable() {
+                public void dispose() {
+                    clear();
+                }
+            });
+            initialized = true;
+        }
+        Map rowMappers = (Map) cache.get(beanClass);
+        if (rowMappers == null) {
+            rowMappers = new HashMap();
+            cache.put(beanClass, rowMappers);
+        }
+        return rowMappers;
+    }
+
+    private static Object getCachedRowMapper(final Class beanClass,
+            final String layout) {
+        final Map rowMappers = (Map) cache.get(beanClass);
+        if (rowMappers == null) {
+            return null;
+        }
+        final Object rowMapper = rowMappers.get(layout);
+        if (rowMapper instanceof Reference) {
+            final Object referent = ((Reference) rowMapper).get();
+            if (referent == null) {
+                rowMappers.remove(layout);
+            }
+            return referent;
+        }
+        return rowMapper;
+    }
+
+    private static RowMapper toRowMapper(final Object rowMapper) {
+        return rowMapper == NOT_SUPPORTED ? null : (RowMapper) rowMapper;
+    }
+
+    /**
+     * キャッシュをクリアします。
+     */
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+            initialized = false;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@link RowMapper}を生成するかどうかを設定します。デフォルトは<code>true</code>です。
+     * 
+     * @param enabled
+     *            生成する場合は<code>true</code>
+     */
+    public static void setEnabled(final boolean enabled) {
+        RowMapperFactory.enabled = enabled;
+    }
+
+    public static int getMaxPropertySize() {
+        return maxPropertySize;
+    }
+
+    /**
+     * {@link RowMapper}を生成するプロパティの数の上限を設定します。デフォルトは100です。
+     * <p>
+     * 生成されるメソッドが大きくなりすぎるとJITコンパイルの対象にならないため、上限を設けています。
+     * </p>
+     * 
+     * @param maxPropertySize
+     *            プロパティの数の上限
+     */
+    public static void setMaxPropertySize(final int maxPropertySize) {
+        RowMapperFactory.maxPropertySize = maxPropertySize;
+    }
+
+    public static int getMaxLayoutSize() {
+        return maxLayoutSize;
+    }
+
+    /**
+     * 1つのBeanのクラスに対して生成するプロパティの並びの数の上限を設定します。デフォルトは32です。
+     * 
+     * @param maxLayoutSize
+     *            プロパティの並びの数の上限
+     */
+    public static void setMaxLayoutSize(final int maxLayoutSize) {
+        RowMapperFactory.maxLayoutSize = maxLayoutSize;
+    }
+
+    private static String createLayout(final PropertyType[] propertyTypes) {
+        final StringBuffer buf = new StringBuffer(propertyTypes.length * 16);
+        for (int i = 0; i < propertyTypes.length; ++i) {
+            buf.append(propertyTypes[i].getPropertyName()).append(',');
+        }
+        return buf.toString();
+    }
+
+    private static Object createRowMapper(final Class beanClass,
+            final PropertyType[] propertyTypes) {
+        if (!isSupported(beanClass, propertyTypes)) {
+            return NOT_SUPPORTED;
+        }
+        try {
+            final Generator generator = new Generator(beanClass);
+            final Class rowMapperClass = generator.generate(beanClass
+                    .getName()
+                    + SUFFIX_ROW_MAPPER + nextSequence(), propertyTypes);
+            return ClassUtil.newInstance(rowMapperClass);
+        } catch (final RuntimeException e) {
+            logger.log("DDAO0003", new Object[] { beanClass.getName() }, e);
+        } catch (final LinkageError e) {
+            logger.log("DDAO0003", new Object[] { beanClass.getName() }, e);
+        }
+        return NOT_SUPPORTED;
+    }
+
+    private static boolean isSupported(final Class beanClass,
+            final PropertyType[] propertyTypes) {
+        if (!isPublic(beanClass) || beanClass.isInterface()
+                || Modifier.isAbstract(beanClass.getModifiers())) {
+            return false;
+        }
+        try {
+            final Constructor constructor = beanClass
+                    .getConstructor((Class[]) null);
+            if (!Modifier.isPublic(constructor.getModifiers())) {
+                return false;
+            }
+        } catch (final NoSuchMethodException e) {
+            return false;
+        }
+        for (int i = 0; i < propertyTypes.length; ++i) {
+            final PropertyDesc pd = propertyTypes[i].getPropertyDesc();
+            if (pd == null || !pd.hasWriteMethod()) {
+                return false;
+            }
+            final Method writeMethod = pd.getWriteMethod();
+            if (!Modifier.isPublic(writeMethod.getModifiers())
+                    || !isPublic(writeMethod.getDeclaringClass())
+                    || !isPublic(writeMethod.getParameterTypes()[0])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPublic(final Class clazz) {
+        if (clazz.isArray()) {
+            return isPublic(clazz.getComponentType());
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        for (Class c = clazz; c != null; c = c.getDeclaringClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static synchronized int nextSequence() {
+        return sequence++;
+    }
+
+    private static class Generator extends AbstractGenerator {
+
+        private final Class beanClass;
+
+        private Generator(final Class beanClass) {
+            super(ClassPoolUtil.getClassPool(beanClass));
+            this.beanClass = beanClass;
+        }
+
+        private Class generate(final String className,
+                final PropertyType[] propertyTypes) {
+            final CtClass ctClass = createCtClass(className);
+            setInterface(ctClass, RowMapper.class);
+            createDefaultConstructor(ctClass);
+            createMethod(ctClass, createMapRowSource(propertyTypes));
+            try {
+                return toClass(ClassLoaderUtil.getClassLoader(beanClass),
+                        ctClass);
+            } finally {
+                ctClass.detach();
+            }
+        }
+
+        private String createMapRowSource(final PropertyType[] propertyTypes) {
+            final String beanClassName = ClassUtil
+                    .getSimpleClassName(beanClass);
+            final StringBuffer buf = new StringBuffer(
+                    256 + propertyTypes.length * 256);
+            buf.append("public Object mapRow(java.sql.ResultSet rs, ");
+            buf.append("int[] columnIndexes, ");
+            buf.append(PropertyType.class.getName());
+            buf.append("[] propertyTypes) throws java.sql.SQLException {");
+            buf.append(beanClassName).append(" bean = new ").append(
+                    beanClassName).append("();");
+            buf.append("Object value;");
+            for (int i = 0; i < propertyTypes.length; ++i) {
+                final Method writeMethod = propertyTypes[i].getPropertyDesc()
+                        .getWriteMethod();
+                final Class type = writeMethod.getParameterTypes()[0];
+                buf.append("value = propertyTypes[").append(i).append(
+                        "].getValueType().getValue(rs, columnIndexes[")
+                        .append(i).append("]);");
+                final String setter = "bean." + writeMethod.getName() + "(";
+                if (type == Object.class) {
+                    appendSetterCall(buf, i, setter + "value);");
+                    continue;
+                }
+                if (type.isPrimitive()) {
+                    final String wrapperName = ClassUtil.getWrapperClass(type)
+                            .getName();
+                    buf.append("if (value instanceof ").append(wrapperName)
+                            .append(") {");
+                    appendSetterCall(buf, i, setter + "((" + wrapperName
+                            + ") value)." + type.getName() + "Value());");
+                } else {
+                    final String typeName = ClassUtil.getSimpleClassName(type);
+                    buf.append("if (value == null || value instanceof ")
+                            .append(typeName).append(") {");
+                    appendSetterCall(buf, i, setter + "(" + typeName
+                            + ") value);");
+                }
+                buf.append("} else {");
+                buf.append("propertyTypes[").append(i).append(
+                        "].getPropertyDesc().setValue(bean, value);");
+                buf.append("}");
+            }
+            buf.append("return bean;}");
+            return new String(buf);
+        }
+
+        /**
+         * setterメソッドの呼び出しを、{@link PropertyDesc#setValue(Object, Object)}
+         * と同じ例外をスローするように組み立てます。
+         */
+        private static void appendSetterCall(final StringBuffer buf,
+                final int index, final String call) {
+            buf.append("try {").append(call).append("} catch (Throwable t) {");
+            buf.append("throw new ").append(
+                    IllegalPropertyRuntimeException.class.getName()).append(
+                    "(bean.getClass(), propertyTypes[").append(index).append(
+                    "].getPropertyDesc().getPropertyName(), t);}");
+        }
+
+    }
+
+}
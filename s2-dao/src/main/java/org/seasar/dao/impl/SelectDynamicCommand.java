@@ -15,10 +15,19 @@
  */
 package org.seasar.dao.impl;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
 import javax.sql.DataSource;
 
 import org.seasar.dao.CommandContext;
+import org.seasar.dao.RowHandler;
+import org.seasar.dao.RowHandlingResultSetHandler;
 import org.seasar.dao.pager.PagingSqlRewriter;
+import org.seasar.dao.util.RowHandlerUtil;
+import org.seasar.dao.util.SqlLogUtil;
 import org.seasar.extension.jdbc.ResultSetFactory;
 import org.seasar.extension.jdbc.ResultSetHandler;
 import org.seasar.extension.jdbc.StatementFactory;
@@ -36,6 +45,8 @@ public class SelectDynamicCommand extends AbstractDynamicCommand {
 
     private PagingSqlRewriter pagingSqlRewriter;
 
+    private int rowHandlerFetchSize = -1;
+
     public SelectDynamicCommand(DataSource dataSource,
             StatementFactory statementFactory,
             ResultSetHandler resultSetHandler,
@@ -57,22 +68,112 @@ public class SelectDynamicCommand extends AbstractDynamicCommand {
         Object[] bindVariables = ctx.getBindVariables();
         Class[] bindVariableTypes = ctx.getBindVariableTypes();
         String sql = ctx.getSql();
+        release(ctx);
         String executingSql = pagingSqlRewriter.rewrite(sql, bindVariables,
                 bindVariableTypes);
+        final RowHandler rowHandler = RowHandlerUtil.getRowHandler(args);
+        final Object[] completeSqlArgs = bindVariables;
         BasicSelectHandler selectHandler = new BasicSelectHandler(
-                getDataSource(), executingSql, resultSetHandler,
-                getStatementFactory(), resultSetFactory);
+                getDataSource(), executingSql,
+                rowHandler == null ? resultSetHandler
+                        : createRowHandlingResultSetHandler(rowHandler),
+                getStatementFactory(), resultSetFactory) {
+
+            // 遅いSQLの実行時間には、結果セットの処理を含めない
+            protected ResultSet createResultSet(PreparedStatement ps) {
+                long start = SqlLogUtil.start();
+                ResultSet resultSet = super.createResultSet(ps);
+                long time = SqlLogUtil.getSlowQueryTime(start);
+                if (time >= 0) {
+                    SqlLogUtil.logSlowQuery(getLoggerClass(), time,
+                            SqlLogUtil.getCompleteSql(getSql(),
+                                    completeSqlArgs));
+                }
+                return resultSet;
+            }
+        };
         injectDaoClass(selectHandler);
         /*
          * Statement#setFetchSizeをサポートしていないDBMSがあるため、
          * S2DaoからはsetFetchSizeを行わないようにする。
          * https://www.seasar.org/issues/browse/DAO-2
+         * ただし、RowHandlerで行を処理する場合は、明示的に指定されたフェッチサイズを使用する。
          */
-        selectHandler.setFetchSize(-1);
-        Object ret = selectHandler.execute(ctx.getBindVariables(), ctx
-                .getBindVariableTypes());
+        selectHandler.setFetchSize(rowHandler == null ? -1
+                : rowHandlerFetchSize);
+        Object ret = selectHandler.execute(bindVariables, bindVariableTypes);
         pagingSqlRewriter.setCount(sql, args, bindVariables, bindVariableTypes);
 
         return ret;
     }
+
+    /**
+     * 行を{@link RowHandler}に1件ずつ渡し、処理した件数を返す{@link ResultSetHandler}を作成します。
+     * 
+     * @param rowHandler
+     *            行を処理する{@link RowHandler}
+     * @return 処理した件数({@link Integer})を返す{@link ResultSetHandler}
+     */
+    protected ResultSetHandler createRowHandlingResultSetHandler(
+            final RowHandler rowHandler) {
+        return new ResultSetHandler() {
+            public Object handle(ResultSet resultSet) throws SQLException {
+                return new Integer(handleRows(resultSet, rowHandler));
+            }
+        };
+    }
+
+    /**
+     * @param resultSet
+     *            結果セット
+     * @param rowHandler
+     *            行を処理する{@link RowHandler}
+     * @return 処理した件数
+     * @throws SQLException
+     */
+    protected int handleRows(final ResultSet resultSet,
+            final RowHandler rowHandler) throws SQLException {
+        if (resultSetHandler instanceof RowHandlingResultSetHandler) {
+            return ((RowHandlingResultSetHandler) resultSetHandler).handle(
+                    resultSet, rowHandler);
+        }
+        // 1件ずつ処理できないResultSetHandlerの場合は、結果をまとめて渡す
+        final Object result = resultSetHandler.handle(resultSet);
+        if (result == null) {
+            return 0;
+        }
+        final Object[] rows;
+        if (result instanceof List) {
+            rows = ((List) result).toArray();
+        } else if (result instanceof Object[]) {
+            rows = (Object[]) result;
+        } else {
+            rows = new Object[] { result };
+        }
+        int count = 0;
+        for (int i = 0; i < rows.length; ++i) {
+            ++count;
+            if (!rowHandler.handleRow(rows[i])) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    public int getRowHandlerFetchSize() {
+        return rowHandlerFetchSize;
+    }
+
+    /**
+     * {@link RowHandler}で行を処理する場合に{@link java.sql.Statement#setFetchSize(int)}に渡すフェッチサイズを設定します。
+     * <p>
+     * デフォルトは<code>-1</code>で、フェッチサイズを設定しません。
+     * </p>
+     * 
+     * @param rowHandlerFetchSize
+     *            フェッチサイズ
+     */
+    public void setRowHandlerFetchSize(int rowHandlerFetchSize) {
+        this.rowHandlerFetchSize = rowHandlerFetchSize;
+    }
 }
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+
+import org.seasar.dao.AnnotationReaderFactory;
+import org.seasar.dao.DaoNamingConvention;
+import org.seasar.dao.Dbms;
+import org.seasar.framework.beans.factory.BeanDescFactory;
+import org.seasar.framework.exception.IORuntimeException;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.ClassUtil;
+import org.seasar.framework.util.FileOutputStreamUtil;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.ResourceUtil;
+import org.seasar.framework.util.URLUtil;
+
+/**
+ * Daoごとに、SQLファイルが存在するかどうかの索引をビルド時に生成するクラスです。
+ * <p>
+ * {@link DaoMetaDataImpl#setUseSqlFileIndex(boolean)}に<code>true</code>を設定すると、
+ * Daoのインタフェースと同じパッケージに<code>Daoのインタフェース名.s2dao-sqlfile.properties</code>が存在する場合は、
+ * SQLファイルを探すかわりに索引を参照します。
+ * 索引にないパスは、これまでどおりクラスパスから探します。
+ * </p>
+ * <p>
+ * 索引には、Daoのクラスファイルから計算した指紋({@link #getFingerprint(Class)})と、
+ * SQLファイルがあるディレクトリのSQLファイルの一覧から計算した指紋({@link #getSqlFilesFingerprint(Properties)})を記録します。
+ * 索引を生成した後にDaoのクラスが変更された場合や、SQLファイルが追加または削除された場合
+ * (別のjarファイルに同じパスのSQLファイルが追加された場合を含みます)は索引を使用せず、クラスパスからSQLファイルを探します。
+ * </p>
+ * <p>
+ * コンパイル後のクラスとSQLファイルをクラスパスに含め、出力ディレクトリとDaoのクラス名を引数に指定して実行します。
+ * Daoのクラス名を省略すると、出力ディレクトリにあるDaoのサフィックスで終わるインタフェースと抽象クラスをすべて対象にします。
+ * Mavenでは<code>maven-antrun-plugin</code>で、<code>src/main/java</code>のDaoは<code>process-classes</code>フェーズに
+ * 出力ディレクトリを指定して実行します。
+ * </p>
+ * 
+ * <pre>
+ * &lt;java classname=&quot;org.seasar.dao.impl.SqlFileIndexGenerator&quot; classpathref=&quot;maven.compile.classpath&quot; fork=&quot;true&quot;&gt;
+ *     &lt;arg value=&quot;${project.build.outputDirectory}&quot;/&gt;
+ * &lt;/java&gt;
+ * </pre>
+ * <p>
+ * <code>src/test/java</code>のDaoは、<code>process-test-classes</code>フェーズに
+ * <code>maven.test.classpath</code>と<code>${project.build.testOutputDirectory}</code>を指定して実行します。
+ * S2Dao自身のビルドは、テスト用のDaoの索引をこの方法で生成します。
+ * </p>
+ */
+public class SqlFileIndexGenerator {
+
+    private static final Logger logger = Logger
+            .getLogger(SqlFileIndexGenerator.class);
+
+    public static final String INDEX_SUFFIX = ".s2dao-sqlfile.properties";
+
+    /**
+     * 索引に記録するDaoのクラスの指紋のキーです。
+     */
+    public static final String FINGERPRINT_KEY = ".fingerprint";
+
+    /**
+     * 索引に記録するSQLファイルの一覧の指紋のキーです。
+     */
+    public static final String SQL_FILES_FINGERPRINT_KEY = ".sqlFilesFingerprint";
+
+    protected AnnotationReaderFactory annotationReaderFactory = new AnnotationReaderFactoryImpl();
+
+    protected DaoNamingConvention daoNamingConvention = new DaoNamingConventionImpl();
+
+    /**
+     * 索引を生成します。
+     * 
+     * @param args 出力ディレクトリとDaoのクラス名(省略可)
+     */
+    public static void main(final String[] args) {
+        if (args.length < 1) {
+            throw new IllegalArgumentException(
+                    "usage: SqlFileIndexGenerator outputDir [daoClassName...]");
+        }
+        final SqlFileIndexGenerator generator = new SqlFileIndexGenerator();
+        final File outputDir = new File(args[0]);
+        if (args.length == 1) {
+            generator.writeAll(outputDir);
+            return;
+        }
+        for (int i = 1; i < args.length; ++i) {
+            generator.write(ClassUtil.forName(args[i]), outputDir);
+        }
+    }
+
+    /**
+     * ディレクトリにあるすべてのDaoの索引を生成して書き出します。
+     * <p>
+     * 索引を生成できなかったDaoは、警告を出力して読み飛ばします。
+     * </p>
+     * 
+     * @param outputDir Daoのクラスファイルがあり、索引を書き出すディレクトリ
+     * @return 索引を書き出したDaoの数
+     */
+    public int writeAll(final File outputDir) {
+        final List classNames = new ArrayList();
+        collectClassNames(outputDir, "", classNames);
+        int count = 0;
+        for (final Iterator i = classNames.iterator(); i.hasNext();) {
+            final String className = (String) i.next();
+            try {
+                final Class clazz = ClassUtil.forName(className);
+                if (isDaoClass(clazz)) {
+                    write(clazz, outputDir);
+                    ++count;
+                }
+            } catch (final RuntimeException e) {
+                logger.log("WDAO0008", new Object[] { className }, e);
+            } catch (final LinkageError e) {
+                logger.log("WDAO0008", new Object[] { className }, e);
+            }
+        }
+        return count;
+    }
+
+    private void collectClassNames(final File dir, final String packagePrefix,
+            final List classNames) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; ++i) {
+            final String name = files[i].getName();
+            if (files[i].isDirectory()) {
+                collectClassNames(files[i], packagePrefix + name + ".",
+                        classNames);
+            } else if (name.endsWith(".class")
+                    && isDaoClassName(name.substring(0, name.length() - 6))) {
+                classNames.add(packagePrefix
+                        + name.substring(0, name.length() - 6));
+            }
+        }
+    }
+
+    private boolean isDaoClassName(final String simpleName) {
+        final String[] daoSuffixes = daoNamingConvention.getDaoSuffixes();
+        for (int i = 0; i < daoSuffixes.length; ++i) {
+            if (simpleName.endsWith(daoSuffixes[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected boolean isDaoClass(final Class clazz) {
+        return clazz.isInterface()
+                || Modifier.isAbstract(clazz.getModifiers());
+    }
+
+    /**
+     * Daoのインタフェースと、そのスーパーインタフェースおよびスーパークラスのクラスファイルから指紋を計算します。
+     * 
+     * @param daoInterface Daoのインタフェース
+     * @return 指紋
+     */
+    public static String getFingerprint(final Class daoInterface) {
+        final CRC32 crc = new CRC32();
+        updateFingerprint(crc, daoInterface, new HashSet());
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static void updateFingerprint(final CRC32 crc, final Class clazz,
+            final Set visited) {
+        if (clazz == null || Object.class.equals(clazz) || !visited.add(clazz)) {
+            return;
+        }
+        crc.update(clazz.getName().getBytes());
+        final ClassLoader loader = clazz.getClassLoader();
+        if (loader != null) {
+            final InputStream is = loader.getResourceAsStream(clazz.getName()
+                    .replace('.', '/')
+                    + ".class");
+            if (is != null) {
+                crc.update(InputStreamUtil.getBytes(is));
+            }
+        }
+        final Class[] interfaces = clazz.getInterfaces();
+        for (int i = 0; i < interfaces.length; ++i) {
+            updateFingerprint(crc, interfaces[i], visited);
+        }
+        updateFingerprint(crc, clazz.getSuperclass(), visited);
+    }
+
+    /**
+     * 索引にあるSQLファイルのパスのディレクトリについて、クラスパス上にあるSQLファイルの一覧から指紋を計算します。
+     * <p>
+     * 同じパスのSQLファイルが複数のディレクトリやjarファイルにある場合は、その数も指紋に含めます。
+     * 一覧を取得できない場合(ディレクトリとjarファイル以外のURLや、パッケージに属さないSQLファイル)は<code>null</code>を返します。
+     * ディレクトリのエントリを含まないjarファイルは、クラスローダから見つけられないため一覧に含まれません。
+     * </p>
+     * 
+     * @param index SQLファイルの索引
+     * @return 指紋、計算できない場合は<code>null</code>
+     */
+    public static String getSqlFilesFingerprint(final Properties index) {
+        final Set dirs = new TreeSet();
+        for (final Iterator i = index.keySet().iterator(); i.hasNext();) {
+            final String path = (String) i.next();
+            if (path.startsWith(".")) {
+                continue;
+            }
+            final int pos = path.lastIndexOf('/');
+            if (pos < 0) {
+                return null;
+            }
+            dirs.add(path.substring(0, pos + 1));
+        }
+        final List sqlFiles = new ArrayList();
+        for (final Iterator i = dirs.iterator(); i.hasNext();) {
+            if (!collectSqlFiles((String) i.next(), sqlFiles)) {
+                return null;
+            }
+        }
+        Collections.sort(sqlFiles);
+        final CRC32 crc = new CRC32();
+        for (final Iterator i = sqlFiles.iterator(); i.hasNext();) {
+            crc.update(((String) i.next()).getBytes());
+            crc.update('\n');
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static boolean collectSqlFiles(final String dir,
+            final List sqlFiles) {
+        try {
+            final Enumeration urls = ResourceUtil.getClassLoader()
+                    .getResources(dir);
+            while (urls.hasMoreElements()) {
+                final URL url = (URL) urls.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    final String[] names = ResourceUtil.getFile(url).list();
+                    if (names == null) {
+                        return false;
+                    }
+                    for (int i = 0; i < names.length; ++i) {
+                        if (names[i].endsWith(".sql")) {
+                            sqlFiles.add(dir + names[i]);
+                        }
+                    }
+                } else if ("jar".equals(url.getProtocol())) {
+                    collectSqlFiles(dir, url, sqlFiles);
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        } catch (final IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    private static void collectSqlFiles(final String dir, final URL jarUrl,
+            final List sqlFiles) throws IOException {
+        final JarURLConnection con = (JarURLConnection) URLUtil
+                .openConnection(jarUrl);
+        con.setUseCaches(false);
+        final JarFile jarFile = con.getJarFile();
+        try {
+            for (final Enumeration e = jarFile.entries(); e.hasMoreElements();) {
+                final String name = ((JarEntry) e.nextElement()).getName();
+                if (name.startsWith(dir) && name.endsWith(".sql")
+                        && name.indexOf('/', dir.length()) < 0) {
+                    sqlFiles.add(name);
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+    }
+
+    /**
+     * 索引のリソースのパスを返します。
+     * 
+     * @param daoInterface Daoのインタフェース
+     * @return 索引のリソースのパス
+     */
+    public static String getIndexPath(final Class daoInterface) {
+        return daoInterface.getName().replace('.', '/') + INDEX_SUFFIX;
+    }
+
+    /**
+     * Daoの索引を生成してファイルに書き出します。
+     * 
+     * @param daoClass Daoのクラス
+     * @param outputDir 出力ディレクトリ
+     * @return 書き出したファイル
+     */
+    public File write(final Class daoClass, final File outputDir) {
+        final DaoMetaDataImpl dmd = createDaoMetaData(daoClass);
+        final Properties props = generate(dmd, daoClass);
+        final File file = new File(outputDir, getIndexPath(dmd
+                .getDaoInterface(daoClass)));
+        file.getParentFile().mkdirs();
+        final FileOutputStream out = FileOutputStreamUtil.create(file);
+        try {
+            try {
+                props.store(out, "S2Dao SQL file index for "
+                        + daoClass.getName());
+            } finally {
+                out.close();
+            }
+        } catch (final IOException e) {
+            throw new IORuntimeException(e);
+        }
+        return file;
+    }
+
+    /**
+     * Daoの索引を生成します。
+     * 
+     * @param daoClass Daoのクラス
+     * @return SQLファイルのパスをキー、存在するかどうかを値とする{@link Properties}
+     */
+    public Properties generate(final Class daoClass) {
+        return generate(createDaoMetaData(daoClass), daoClass);
+    }
+
+    protected Properties generate(final DaoMetaDataImpl dmd,
+            final Class daoClass) {
+        final Properties props = new Properties();
+        final String[] suffixes = getDbmsSuffixes();
+        final Class daoInterface = dmd.getDaoInterface(daoClass);
+        collect(dmd, daoInterface, suffixes, new HashSet(), props);
+        props.setProperty(FINGERPRINT_KEY, getFingerprint(daoInterface));
+        final String sqlFilesFingerprint = getSqlFilesFingerprint(props);
+        if (sqlFilesFingerprint != null) {
+            props.setProperty(SQL_FILES_FINGERPRINT_KEY, sqlFilesFingerprint);
+        }
+        return props;
+    }
+
+    /**
+     * <code>clazz</code>とそのスーパーインタフェース、スーパークラスのメソッドについて、SQLファイルが存在するかどうかを調べます。
+     */
+    private void collect(final DaoMetaDataImpl dmd, final Class clazz,
+            final String[] suffixes, final Set visited, final Properties props) {
+        if (clazz == null || Object.class.equals(clazz) || !visited.add(clazz)) {
+            return;
+        }
+        final Method[] methods = clazz.getMethods();
+        for (int i = 0; i < methods.length; ++i) {
+            if (Object.class.equals(methods[i].getDeclaringClass())) {
+                continue;
+            }
+            final String base = dmd.getSqlFilePath(clazz, methods[i]);
+            for (int j = 0; j < suffixes.length; ++j) {
+                final String path = base + suffixes[j] + ".sql";
+                props.setProperty(path, String.valueOf(ResourceUtil
+                        .isExist(path)));
+            }
+        }
+        final Class[] interfaces = clazz.getInterfaces();
+        for (int i = 0; i < interfaces.length; ++i) {
+            collect(dmd, interfaces[i], suffixes, visited, props);
+        }
+        collect(dmd, clazz.getSuperclass(), suffixes, visited, props);
+    }
+
+    /**
+     * 標準のSQLファイルとDBMSごとのSQLファイルのサフィックスを返します。
+     * 
+     * @return サフィックスの配列
+     */
+    protected String[] getDbmsSuffixes() {
+        final Set suffixes = new LinkedHashSet();
+        suffixes.add("");
+        final Properties dbmsClassNames = ResourceUtil
+                .getProperties("dbms.properties");
+        for (final Iterator i = dbmsClassNames.values().iterator(); i
+                .hasNext();) {
+            final Dbms dbms = (Dbms) ClassUtil.newInstance((String) i.next());
+            suffixes.add(dbms.getSuffix());
+        }
+        return (String[]) suffixes.toArray(new String[suffixes.size()]);
+    }
+
+    protected DaoMetaDataImpl createDaoMetaData(final Class daoClass) {
+        final DaoMetaDataImpl dmd = new DaoMetaDataImpl();
+        dmd.setDaoClass(daoClass);
+        dmd.setDaoNamingConvention(daoNamingConvention);
+        dmd.setDaoAnnotationReader(annotationReaderFactory
+                .createDaoAnnotationReader(BeanDescFactory
+                        .getBeanDesc(daoClass)));
+        return dmd;
+    }
+
+    public void setAnnotationReaderFactory(
+            final AnnotationReaderFactory annotationReaderFactory) {
+        this.annotationReaderFactory = annotationReaderFactory;
+    }
+
+    public void setDaoNamingConvention(
+            final DaoNamingConvention daoNamingConvention) {
+        this.daoNamingConvention = daoNamingConvention;
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.sql.DatabaseMetaData;
+import java.util.Set;
+
+import org.seasar.dao.TableMetaDataReader;
+import org.seasar.extension.jdbc.util.DatabaseMetaDataUtil;
+import org.seasar.framework.util.CaseInsensitiveSet;
+
+/**
+ * {@link DatabaseMetaData}からテーブルの情報を読み込む{@link TableMetaDataReader}の実装クラスです。
+ * 
+ */
+public class TableMetaDataReaderImpl implements TableMetaDataReader {
+
+    public Set getColumnNames(DatabaseMetaData dbMetaData, String tableName) {
+        return new CaseInsensitiveSet(DatabaseMetaDataUtil.getColumnMap(
+                dbMetaData, tableName).keySet());
+    }
+
+    public Set getPrimaryKeyNames(DatabaseMetaData dbMetaData,
+            String tableName) {
+        return DatabaseMetaDataUtil.getPrimaryKeySet(dbMetaData, tableName);
+    }
+
+}
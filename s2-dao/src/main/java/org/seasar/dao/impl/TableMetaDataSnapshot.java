@@ -0,0 +1,471 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.seasar.dao.TableMetaDataReader;
+import org.seasar.framework.exception.EmptyRuntimeException;
+import org.seasar.framework.exception.IORuntimeException;
+import org.seasar.framework.exception.SQLRuntimeException;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.CaseInsensitiveMap;
+import org.seasar.framework.util.CaseInsensitiveSet;
+import org.seasar.framework.util.Disposable;
+import org.seasar.framework.util.DisposableUtil;
+import org.seasar.framework.util.FileInputStreamUtil;
+import org.seasar.framework.util.FileOutputStreamUtil;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.PropertiesUtil;
+import org.seasar.framework.util.StringUtil;
+
+/**
+ * テーブルのカラムと主キーの情報をファイルに保存し、次回の起動時に再利用する{@link TableMetaDataReader}の実装クラスです。
+ * <p>
+ * スナップショットのファイルはデータソースとスキーマのバージョンごとに作成されます。
+ * データソースは{@link #setDataSourceName(String)}で設定した名前、設定していない場合は接続先のURLとユーザ名で区別します。
+ * スナップショットにないテーブルは{@link #setTableMetaDataReader(TableMetaDataReader)}で指定したリーダで読み込み、
+ * {@link #store()}または{@link #dispose()}が呼び出されたときにファイルへ書き出します。
+ * </p>
+ * <p>
+ * モードには次の3つがあります。
+ * </p>
+ * <dl>
+ * <dt>{@link #MODE_USE}</dt>
+ * <dd>スナップショットにあるテーブルはデータベースに問い合わせません。デフォルトです。</dd>
+ * <dt>{@link #MODE_VALIDATE}</dt>
+ * <dd>常にデータベースに問い合わせ、スナップショットとの差異があればログに出力してファイルを書き直します。</dd>
+ * <dt>{@link #MODE_REFRESH}</dt>
+ * <dd>既存のファイルを読み込まず、データベースから読み込んだ内容でファイルを作り直します。</dd>
+ * </dl>
+ * <p>
+ * dao.diconなどで次のように定義し、{@link PropertyTypeFactoryBuilderImpl}に設定します。
+ * </p>
+ * 
+ * <pre>
+ * &lt;component class=&quot;org.seasar.dao.impl.TableMetaDataSnapshot&quot;&gt;
+ *     &lt;property name=&quot;directory&quot;&gt;&quot;/var/cache/myapp&quot;&lt;/property&gt;
+ *     &lt;property name=&quot;schemaVersion&quot;&gt;&quot;20261018&quot;&lt;/property&gt;
+ * &lt;/component&gt;
+ * </pre>
+ */
+public class TableMetaDataSnapshot implements TableMetaDataReader, Disposable {
+
+    private static final Logger logger = Logger
+            .getLogger(TableMetaDataSnapshot.class);
+
+    public static final String MODE_USE = "use";
+
+    public static final String MODE_VALIDATE = "validate";
+
+    public static final String MODE_REFRESH = "refresh";
+
+    public static final String tableMetaDataReader_BINDING = "bindingType=none";
+
+    protected static final String TABLE_PREFIX = "table.";
+
+    protected static final String COLUMNS_SUFFIX = ".columns";
+
+    protected static final String PRIMARY_KEYS_SUFFIX = ".primaryKeys";
+
+    protected TableMetaDataReader tableMetaDataReader = new TableMetaDataReaderImpl();
+
+    protected String directory;
+
+    protected String dataSourceName;
+
+    protected String schemaVersion = "1";
+
+    protected String mode = MODE_USE;
+
+    private final Object lock = new Object();
+
+    /**
+     * データソース名をキー、{@link Snapshot}を値とするマップです。
+     */
+    private final Map snapshots = new HashMap();
+
+    private Set driftedTables = new LinkedHashSet();
+
+    private boolean registered = false;
+
+    public Set getColumnNames(final DatabaseMetaData dbMetaData,
+            final String tableName) {
+        final Snapshot snapshot = getSnapshot(dbMetaData);
+        final Set cached = getCache(snapshot, snapshot.columnsMap, tableName);
+        if (cached != null && !MODE_VALIDATE.equals(mode)) {
+            return cached;
+        }
+        final Set columns = tableMetaDataReader.getColumnNames(dbMetaData,
+                tableName);
+        return record(snapshot, snapshot.columnsMap, tableName, cached,
+                columns);
+    }
+
+    public Set getPrimaryKeyNames(final DatabaseMetaData dbMetaData,
+            final String tableName) {
+        final Snapshot snapshot = getSnapshot(dbMetaData);
+        final Set cached = getCache(snapshot, snapshot.primaryKeysMap,
+                tableName);
+        if (cached != null && !MODE_VALIDATE.equals(mode)) {
+            return cached;
+        }
+        final Set primaryKeys = tableMetaDataReader.getPrimaryKeyNames(
+                dbMetaData, tableName);
+        return record(snapshot, snapshot.primaryKeysMap, tableName, cached,
+                primaryKeys);
+    }
+
+    private Snapshot getSnapshot(final DatabaseMetaData dbMetaData) {
+        final String name = getDataSourceName(dbMetaData);
+        synchronized (lock) {
+            Snapshot snapshot = (Snapshot) snapshots.get(name);
+            if (snapshot == null) {
+                snapshot = new Snapshot(name, getFile(name));
+                snapshots.put(name, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    private Set getCache(final Snapshot snapshot, final Map map,
+            final String tableName) {
+        synchronized (lock) {
+            load(snapshot);
+            return (Set) map.get(tableName);
+        }
+    }
+
+    private Set record(final Snapshot snapshot, final Map map,
+            final String tableName, final Set cached, final Set names) {
+        final Set result = Collections
+                .unmodifiableSet(new CaseInsensitiveSet(names));
+        synchronized (lock) {
+            if (cached != null) {
+                if (cached.equals(result)) {
+                    return cached;
+                }
+                driftedTables.add(tableName);
+                logger.log("WDAO0005", new Object[] { tableName,
+                        snapshot.file.getPath() });
+            }
+            map.put(tableName, result);
+            snapshot.dirty = true;
+            if (!registered) {
+                DisposableUtil.add(this);
+                registered = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * スナップショットのファイルを読み込みます。
+     */
+    private void load(final Snapshot snapshot) {
+        if (snapshot.loaded) {
+            return;
+        }
+        snapshot.loaded = true;
+        final File file = snapshot.file;
+        if (MODE_REFRESH.equals(mode) || !file.exists()) {
+            return;
+        }
+        final Properties props = new Properties();
+        final InputStream is = FileInputStreamUtil.create(file);
+        try {
+            PropertiesUtil.load(props, is);
+        } finally {
+            InputStreamUtil.close(is);
+        }
+        for (final Iterator i = props.keySet().iterator(); i.hasNext();) {
+            final String key = (String) i.next();
+            if (!key.startsWith(TABLE_PREFIX)) {
+                continue;
+            }
+            final String value = props.getProperty(key);
+            if (key.endsWith(COLUMNS_SUFFIX)) {
+                snapshot.columnsMap.put(getTableName(key, COLUMNS_SUFFIX),
+                        toSet(value));
+            } else if (key.endsWith(PRIMARY_KEYS_SUFFIX)) {
+                snapshot.primaryKeysMap.put(getTableName(key,
+                        PRIMARY_KEYS_SUFFIX), toSet(value));
+            }
+        }
+        logger.log("IDAO0002", new Object[] {
+                String.valueOf(snapshot.columnsMap.size()), file.getPath() });
+    }
+
+    /**
+     * 読み込んだテーブルの情報をスナップショットのファイルに書き出します。
+     * <p>
+     * 前回書き出してから新たに読み込んだテーブルがないデータソースは書き出しません。
+     * </p>
+     */
+    public void store() {
+        synchronized (lock) {
+            for (final Iterator i = snapshots.values().iterator(); i.hasNext();) {
+                store((Snapshot) i.next());
+            }
+        }
+    }
+
+    private void store(final Snapshot snapshot) {
+        if (!snapshot.dirty) {
+            return;
+        }
+        final Properties props = new Properties();
+        put(props, snapshot.columnsMap, COLUMNS_SUFFIX);
+        put(props, snapshot.primaryKeysMap, PRIMARY_KEYS_SUFFIX);
+        final File file = snapshot.file;
+        file.getParentFile().mkdirs();
+        final FileOutputStream out = FileOutputStreamUtil.create(file);
+        try {
+            try {
+                props.store(out, "S2Dao table metadata: dataSourceName="
+                        + snapshot.name + ", schemaVersion=" + schemaVersion);
+            } finally {
+                out.close();
+            }
+        } catch (final IOException e) {
+            throw new IORuntimeException(e);
+        }
+        snapshot.dirty = false;
+        logger.log("IDAO0003", new Object[] {
+                String.valueOf(snapshot.columnsMap.size()), file.getPath() });
+    }
+
+    /**
+     * 未保存の内容をファイルに書き出し、メモリ上の情報を破棄します。
+     * <p>
+     * ファイルに書き出せなかった場合は、ログを出力してメモリ上の情報を破棄します。
+     * </p>
+     */
+    public void dispose() {
+        synchronized (lock) {
+            for (final Iterator i = snapshots.values().iterator(); i.hasNext();) {
+                final Snapshot snapshot = (Snapshot) i.next();
+                try {
+                    store(snapshot);
+                } catch (final RuntimeException e) {
+                    logger.log("WDAO0009", new Object[] { snapshot.file
+                            .getPath() }, e);
+                }
+            }
+            snapshots.clear();
+            driftedTables = new LinkedHashSet();
+            registered = false;
+        }
+    }
+
+    /**
+     * データソースのスナップショットの名前を返します。
+     * <p>
+     * {@link #setDataSourceName(String)}で設定した名前を返します。
+     * 設定していない場合は、接続先のURLとユーザ名から計算した名前を返します。
+     * </p>
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @return データソースのスナップショットの名前
+     */
+    protected String getDataSourceName(final DatabaseMetaData dbMetaData) {
+        if (dataSourceName != null) {
+            return dataSourceName;
+        }
+        if (dbMetaData == null) {
+            throw new EmptyRuntimeException("dataSourceName");
+        }
+        final CRC32 crc = new CRC32();
+        try {
+            crc.update(String.valueOf(dbMetaData.getURL()).getBytes());
+            crc.update('\n');
+            crc.update(String.valueOf(dbMetaData.getUserName()).getBytes());
+        } catch (final SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+        return "jdbc-" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * {@link #setDataSourceName(String)}で設定したデータソース名のスナップショットのファイルを返します。
+     * 
+     * @return スナップショットのファイル
+     */
+    public File getFile() {
+        if (dataSourceName == null) {
+            throw new EmptyRuntimeException("dataSourceName");
+        }
+        return getFile(dataSourceName);
+    }
+
+    /**
+     * データソースのスナップショットのファイルを返します。
+     * 
+     * @param dbMetaData データベースのメタ情報
+     * @return スナップショットのファイル
+     */
+    public File getFile(final DatabaseMetaData dbMetaData) {
+        return getFile(getDataSourceName(dbMetaData));
+    }
+
+    protected File getFile(final String name) {
+        if (directory == null) {
+            throw new EmptyRuntimeException("directory");
+        }
+        return new File(directory, "s2dao-tables-" + name + "-"
+                + schemaVersion + ".properties");
+    }
+
+    /**
+     * {@link #MODE_VALIDATE}でスナップショットと差異のあったテーブル名を返します。
+     * 
+     * @return テーブル名のセット
+     */
+    public Set getDriftedTables() {
+        synchronized (lock) {
+            return new LinkedHashSet(driftedTables);
+        }
+    }
+
+    private static String getTableName(final String key, final String suffix) {
+        return key.substring(TABLE_PREFIX.length(), key.length()
+                - suffix.length());
+    }
+
+    private static Set toSet(final String value) {
+        final String[] names = StringUtil.split(value, ",");
+        final Set set = new CaseInsensitiveSet(names.length);
+        for (int i = 0; i < names.length; ++i) {
+            set.add(names[i].trim());
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    private static void put(final Properties props, final Map map,
+            final String suffix) {
+        for (final Iterator i = map.entrySet().iterator(); i.hasNext();) {
+            final Map.Entry entry = (Map.Entry) i.next();
+            final StringBuffer buf = new StringBuffer();
+            for (final Iterator j = ((Set) entry.getValue()).iterator(); j
+                    .hasNext();) {
+                if (buf.length() > 0) {
+                    buf.append(',');
+                }
+                buf.append(j.next());
+            }
+            props.setProperty(TABLE_PREFIX + entry.getKey() + suffix, buf
+                    .toString());
+        }
+    }
+
+    public void setTableMetaDataReader(
+            final TableMetaDataReader tableMetaDataReader) {
+        this.tableMetaDataReader = tableMetaDataReader;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * スナップショットのファイルを置くディレクトリを設定します。
+     * 
+     * @param directory ディレクトリ
+     */
+    public void setDirectory(final String directory) {
+        this.directory = directory;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    /**
+     * データソース名を設定します。
+     * <p>
+     * 設定しない場合は、データソースごとに接続先のURLとユーザ名から名前を計算します。
+     * 同じ接続先を異なる名前で区別したい場合や、URLが起動のたびに変わる場合に設定してください。
+     * </p>
+     * 
+     * @param dataSourceName データソース名
+     */
+    public void setDataSourceName(final String dataSourceName) {
+        this.dataSourceName = dataSourceName;
+    }
+
+    public String getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * スキーマのバージョンを設定します。スキーマを変更したときはバージョンを変更してください。
+     * 
+     * @param schemaVersion スキーマのバージョン
+     */
+    public void setSchemaVersion(final String schemaVersion) {
+        this.schemaVersion = schemaVersion;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * モードを設定します。デフォルトは{@link #MODE_USE}です。
+     * 
+     * @param mode モード
+     */
+    public void setMode(final String mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * データソースごとのスナップショットです。
+     */
+    private static class Snapshot {
+
+        final String name;
+
+        final File file;
+
+        final Map columnsMap = new CaseInsensitiveMap();
+
+        final Map primaryKeysMap = new CaseInsensitiveMap();
+
+        boolean loaded = false;
+
+        boolean dirty = false;
+
+        Snapshot(final String name, final File file) {
+            this.name = name;
+            this.file = file;
+        }
+    }
+
+}
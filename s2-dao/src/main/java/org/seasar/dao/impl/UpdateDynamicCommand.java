@@ -15,11 +15,17 @@
  */
 package org.seasar.dao.impl;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
 import javax.sql.DataSource;
 
 import org.seasar.dao.CommandContext;
+import org.seasar.dao.util.SqlLogUtil;
 import org.seasar.extension.jdbc.StatementFactory;
 import org.seasar.extension.jdbc.impl.BasicUpdateHandler;
+import org.seasar.framework.util.PreparedStatementUtil;
+import org.seasar.framework.util.StatementUtil;
 
 /**
  * @author higa
@@ -37,11 +43,36 @@ public class UpdateDynamicCommand extends AbstractDynamicCommand {
 
     public Object execute(Object[] args) {
         CommandContext ctx = apply(args);
+        String sql = ctx.getSql();
+        Object[] bindVariables = ctx.getBindVariables();
+        Class[] bindVariableTypes = ctx.getBindVariableTypes();
+        release(ctx);
         BasicUpdateHandler updateHandler = new BasicUpdateHandler(
-                getDataSource(), ctx.getSql(), getStatementFactory());
+                getDataSource(), sql, getStatementFactory()) {
+
+            // 遅いSQLの実行時間には、コネクションの取得とステートメントの準備を含めない
+            public int execute(Connection connection, Object[] args,
+                    Class[] argTypes) {
+                logSql(args, argTypes);
+                PreparedStatement ps = prepareStatement(connection);
+                try {
+                    bindArgs(ps, args, argTypes);
+                    long start = SqlLogUtil.start();
+                    int ret = PreparedStatementUtil.executeUpdate(ps);
+                    long time = SqlLogUtil.getSlowQueryTime(start);
+                    if (time >= 0) {
+                        SqlLogUtil.logSlowQuery(getLoggerClass(), time,
+                                SqlLogUtil.getCompleteSql(getSql(), args));
+                    }
+                    return ret;
+                } finally {
+                    StatementUtil.close(ps);
+                }
+            }
+        };
         injectDaoClass(updateHandler);
-        return new Integer(updateHandler.execute(ctx.getBindVariables(), ctx
-                .getBindVariableTypes()));
+        int ret = updateHandler.execute(bindVariables, bindVariableTypes);
+        return new Integer(ret);
     }
 
 }
\ No newline at end of file
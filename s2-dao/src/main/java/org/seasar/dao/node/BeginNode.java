@@ -28,11 +28,12 @@ public class BeginNode extends ContainerNode {
     }
 
     public void accept(CommandContext ctx) {
-        CommandContext childCtx = new CommandContextImpl(ctx);
+        CommandContextImpl childCtx = ctx instanceof CommandContextImpl ? ((CommandContextImpl) ctx)
+                .getChildContext()
+                : new CommandContextImpl(ctx);
         super.accept(childCtx);
         if (childCtx.isEnabled()) {
-            ctx.addSql(childCtx.getSql(), childCtx.getBindVariables(), childCtx
-                    .getBindVariableTypes());
+            childCtx.appendTo(ctx);
         }
     }
 }
\ No newline at end of file
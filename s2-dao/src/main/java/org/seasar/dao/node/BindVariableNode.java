@@ -29,11 +29,14 @@ public class BindVariableNode extends AbstractNode {
 
     private String expression;
 
-    private String[] names;
+    private final String[] names;
+
+    private final PropertyPathAccessor accessor;
 
     public BindVariableNode(String expression) {
         this.expression = expression;
         names = StringUtil.split(expression, ".");
+        accessor = new PropertyPathAccessor(names);
         // baseName_ = array[0];
         // if (array.length > 1) {
         // propertyName_ = array[1];
@@ -48,17 +51,43 @@ public class BindVariableNode extends AbstractNode {
      * @see org.seasar.dao.Node#accept(org.seasar.dao.QueryContext)
      */
     public void accept(CommandContext ctx) {
+        bind(ctx, null, null, 0);
+    }
+
+    /**
+     * バインド変数の値と型を求めます。
+     * <p>
+     * <code>bindVariables</code>が<code>null</code>の場合は<code>ctx</code>に追加し、
+     * そうでない場合は<code>bindVariables</code>と<code>bindVariableTypes</code>の<code>index</code>番目に設定します。
+     * </p>
+     * 
+     * @param ctx コマンドコンテキスト
+     * @param bindVariables バインド変数の値を設定する配列
+     * @param bindVariableTypes バインド変数の型を設定する配列
+     * @param index 設定する位置
+     */
+    void bind(CommandContext ctx, Object[] bindVariables,
+            Class[] bindVariableTypes, int index) {
         Object value = ctx.getArg(names[0]);
         Class clazz = ctx.getArgType(names[0]);
+        PropertyDesc[] pds = accessor.getPropertyDescs(clazz);
         for (int pos = 1; pos < names.length; pos++) {
-            BeanDesc beanDesc = BeanDescFactory.getBeanDesc(clazz);
-            PropertyDesc pd = beanDesc.getPropertyDesc(names[pos]);
+            PropertyDesc pd = pds[pos];
+            if (pd == null) {
+                BeanDesc beanDesc = BeanDescFactory.getBeanDesc(clazz);
+                pd = beanDesc.getPropertyDesc(names[pos]);
+            }
             if (value == null) {
                 break;
             }
             value = pd.getValue(value);
             clazz = pd.getPropertyType();
         }
-        ctx.addSql("?", value, clazz);
+        if (bindVariables == null) {
+            ctx.addSql("?", value, clazz);
+        } else {
+            bindVariables[index] = value;
+            bindVariableTypes[index] = clazz;
+        }
     }
 }
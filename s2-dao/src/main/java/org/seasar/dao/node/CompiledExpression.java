@@ -0,0 +1,564 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import ognl.OgnlOps;
+
+import org.seasar.dao.CommandContext;
+import org.seasar.framework.beans.BeanDesc;
+import org.seasar.framework.beans.PropertyDesc;
+import org.seasar.framework.beans.factory.BeanDescFactory;
+
+/**
+ * IFコメントの条件式を、解釈せずに評価できる形に変換したものです。
+ * <p>
+ * OGNLの式のうち、<code>null</code>や真偽値、数値、文字列のリテラル、引数とそのプロパティの参照、
+ * 比較演算子(<code>==</code>, <code>!=</code>, <code>&lt;</code>,
+ * <code>&gt;</code>, <code>&lt;=</code>, <code>&gt;=</code>)、
+ * 論理演算子(<code>&amp;&amp;</code>, <code>||</code>, <code>!</code>)と括弧だけからなる式を扱います。
+ * 演算の結果はOGNLと同じになるように{@link OgnlOps}を使って求めます。
+ * </p>
+ * <p>
+ * それ以外の式は{@link #compile(String)}が<code>null</code>を返します。
+ * また、プロパティを持つオブジェクトが<code>null</code>や{@link Map}の特殊なキー、
+ * コレクションなどOGNLが特別に扱うものだった場合は、{@link #evaluate(CommandContext)}が
+ * {@link #UNSUPPORTED}を返すので、呼び出し側はOGNLで評価し直してください。
+ * </p>
+ * <p>
+ * プロパティの参照は直前に解決した{@link PropertyDesc}をクラスごとにキャッシュします。
+ * キャッシュは{@link PropertyPathAccessor}と同じく変更されないオブジェクトを<code>volatile</code>フィールドで保持するので、
+ * 1つのインスタンスを複数のスレッドで共有できます。
+ * </p>
+ */
+public abstract class CompiledExpression {
+
+    /**
+     * この式では評価できなかったことを表します。
+     */
+    public static final Object UNSUPPORTED = new Object();
+
+    /**
+     * 式を評価します。
+     * 
+     * @param ctx コマンドコンテキスト
+     * @return 評価した結果、評価できなかった場合は{@link #UNSUPPORTED}
+     */
+    public abstract Object evaluate(CommandContext ctx);
+
+    /**
+     * 式を変換します。
+     * 
+     * @param expression 式
+     * @return 変換した式、扱えない式の場合は<code>null</code>
+     */
+    public static CompiledExpression compile(final String expression) {
+        if (expression == null) {
+            return null;
+        }
+        final Compiler compiler = new Compiler(expression);
+        if (!compiler.tokenize()) {
+            return null;
+        }
+        final CompiledExpression result = compiler.parseOr();
+        if (result == null || compiler.hasNext()) {
+            return null;
+        }
+        return result;
+    }
+
+    private static class Compiler {
+
+        private static final String[] OPERATORS = new String[] { "==", "!=",
+                "<=", ">=", "&&", "||", "<", ">", "!", "(", ")", "." };
+
+        private static final String[] RESERVED = new String[] { "in",
+                "instanceof", "new", "shl", "shr", "ushr", "band", "bor",
+                "xor" };
+
+        private final String expression;
+
+        private final List tokens = new ArrayList();
+
+        private int position;
+
+        private Compiler(final String expression) {
+            this.expression = expression;
+        }
+
+        private boolean tokenize() {
+            final int length = expression.length();
+            int i = 0;
+            while (i < length) {
+                final char c = expression.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    ++i;
+                } else if (Character.isJavaIdentifierStart(c)) {
+                    int end = i + 1;
+                    while (end < length
+                            && Character.isJavaIdentifierPart(expression
+                                    .charAt(end))) {
+                        ++end;
+                    }
+                    final String name = expression.substring(i, end);
+                    for (int j = 0; j < RESERVED.length; ++j) {
+                        if (RESERVED[j].equals(name)) {
+                            return false;
+                        }
+                    }
+                    tokens.add(name);
+                    i = end;
+                } else if (c >= '0' && c <= '9') {
+                    int end = i;
+                    while (end < length
+                            && (Character.isLetterOrDigit(expression
+                                    .charAt(end)) || expression.charAt(end) == '.')) {
+                        ++end;
+                    }
+                    final Object value = toNumber(expression.substring(i, end));
+                    if (value == null) {
+                        return false;
+                    }
+                    tokens.add(new Constant(value));
+                    i = end;
+                } else if (c == '\'' || c == '"') {
+                    final int end = expression.indexOf(c, i + 1);
+                    if (end < 0) {
+                        return false;
+                    }
+                    final String text = expression.substring(i + 1, end);
+                    if (text.indexOf('\\') >= 0) {
+                        return false;
+                    }
+                    if (c == '\'' && text.length() == 1) {
+                        tokens.add(new Constant(new Character(text.charAt(0))));
+                    } else {
+                        tokens.add(new Constant(text));
+                    }
+                    i = end + 1;
+                } else {
+                    String operator = null;
+                    for (int j = 0; j < OPERATORS.length; ++j) {
+                        if (expression.startsWith(OPERATORS[j], i)) {
+                            operator = OPERATORS[j];
+                            break;
+                        }
+                    }
+                    if (operator == null) {
+                        return false;
+                    }
+                    tokens.add(new Operator(operator));
+                    i += operator.length();
+                }
+            }
+            return true;
+        }
+
+        private static Object toNumber(final String text) {
+            if (text.length() > 1 && text.charAt(0) == '0'
+                    && text.charAt(1) != '.') {
+                return null;
+            }
+            try {
+                if (text.endsWith("L")) {
+                    return new Long(text.substring(0, text.length() - 1));
+                }
+                for (int i = 0; i < text.length(); ++i) {
+                    final char c = text.charAt(i);
+                    if (c != '.' && (c < '0' || c > '9')) {
+                        return null;
+                    }
+                }
+                if (text.indexOf('.') >= 0) {
+                    if (text.endsWith(".")) {
+                        return null;
+                    }
+                    return new Double(text);
+                }
+                return new Integer(text);
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private boolean hasNext() {
+            return position < tokens.size();
+        }
+
+        private boolean accept(final String operator, final String keyword) {
+            if (!hasNext()) {
+                return false;
+            }
+            final Object token = tokens.get(position);
+            if (token instanceof Operator
+                    && ((Operator) token).symbol.equals(operator)
+                    || keyword != null && keyword.equals(token)) {
+                ++position;
+                return true;
+            }
+            return false;
+        }
+
+        private CompiledExpression parseOr() {
+            CompiledExpression left = parseAnd();
+            while (left != null && accept("||", "or")) {
+                final CompiledExpression right = parseAnd();
+                left = right != null ? new Or(left, right) : null;
+            }
+            return left;
+        }
+
+        private CompiledExpression parseAnd() {
+            CompiledExpression left = parseEquality();
+            while (left != null && accept("&&", "and")) {
+                final CompiledExpression right = parseEquality();
+                left = right != null ? new And(left, right) : null;
+            }
+            return left;
+        }
+
+        private CompiledExpression parseEquality() {
+            CompiledExpression left = parseRelational();
+            while (left != null) {
+                final int type;
+                if (accept("==", "eq")) {
+                    type = Comparison.EQ;
+                } else if (accept("!=", "neq")) {
+                    type = Comparison.NE;
+                } else {
+                    break;
+                }
+                final CompiledExpression right = parseRelational();
+                left = right != null ? new Comparison(type, left, right)
+                        : null;
+            }
+            return left;
+        }
+
+        private CompiledExpression parseRelational() {
+            CompiledExpression left = parseUnary();
+            while (left != null) {
+                final int type;
+                if (accept("<=", "lte")) {
+                    type = Comparison.LE;
+                } else if (accept(">=", "gte")) {
+                    type = Comparison.GE;
+                } else if (accept("<", "lt")) {
+                    type = Comparison.LT;
+                } else if (accept(">", "gt")) {
+                    type = Comparison.GT;
+                } else {
+                    break;
+                }
+                final CompiledExpression right = parseUnary();
+                left = right != null ? new Comparison(type, left, right)
+                        : null;
+            }
+            return left;
+        }
+
+        private CompiledExpression parseUnary() {
+            if (accept("!", "not")) {
+                final CompiledExpression operand = parseUnary();
+                return operand != null ? new Not(operand) : null;
+            }
+            return parsePrimary();
+        }
+
+        private CompiledExpression parsePrimary() {
+            if (!hasNext()) {
+                return null;
+            }
+            if (accept("(", null)) {
+                final CompiledExpression result = parseOr();
+                return accept(")", null) ? result : null;
+            }
+            final Object token = tokens.get(position++);
+            if (token instanceof Constant) {
+                return (Constant) token;
+            }
+            if (!(token instanceof String)) {
+                return null;
+            }
+            final String name = (String) token;
+            if ("null".equals(name)) {
+                return new Constant(null);
+            } else if ("true".equals(name)) {
+                return new Constant(Boolean.TRUE);
+            } else if ("false".equals(name)) {
+                return new Constant(Boolean.FALSE);
+            } else if (isKeyword(name)) {
+                return null;
+            }
+            final List names = new ArrayList();
+            names.add(name);
+            while (accept(".", null)) {
+                if (!hasNext() || !(tokens.get(position) instanceof String)
+                        || isKeyword((String) tokens.get(position))) {
+                    return null;
+                }
+                names.add(tokens.get(position++));
+            }
+            if (hasNext() && tokens.get(position) instanceof Operator
+                    && ((Operator) tokens.get(position)).symbol.equals("(")) {
+                return null;
+            }
+            return new PropertyPath((String[]) names.toArray(new String[names
+                    .size()]));
+        }
+
+        private static boolean isKeyword(final String name) {
+            return "and".equals(name) || "or".equals(name)
+                    || "not".equals(name) || "eq".equals(name)
+                    || "neq".equals(name) || "lt".equals(name)
+                    || "gt".equals(name) || "lte".equals(name)
+                    || "gte".equals(name) || "null".equals(name)
+                    || "true".equals(name) || "false".equals(name);
+        }
+    }
+
+    private static class Operator {
+
+        private final String symbol;
+
+        private Operator(final String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    private static class Constant extends CompiledExpression {
+
+        private final Object value;
+
+        private Constant(final Object value) {
+            this.value = value;
+        }
+
+        public Object evaluate(final CommandContext ctx) {
+            return value;
+        }
+    }
+
+    private static class PropertyPath extends CompiledExpression {
+
+        private final String[] names;
+
+        private final PropertyAccessor[] accessors;
+
+        private PropertyPath(final String[] names) {
+            this.names = names;
+            this.accessors = new PropertyAccessor[names.length];
+            for (int i = 1; i < names.length; ++i) {
+                accessors[i] = new PropertyAccessor(names[i]);
+            }
+        }
+
+        public Object evaluate(final CommandContext ctx) {
+            Object value = ctx.getArg(names[0]);
+            for (int i = 1; i < names.length; ++i) {
+                value = accessors[i].getValue(value);
+                if (value == UNSUPPORTED) {
+                    return UNSUPPORTED;
+                }
+            }
+            return value;
+        }
+    }
+
+    private static class PropertyAccessor {
+
+        private final String name;
+
+        private final boolean mapKey;
+
+        private volatile Resolved resolved;
+
+        private PropertyAccessor(final String name) {
+            this.name = name;
+            this.mapKey = !"size".equals(name) && !"isEmpty".equals(name)
+                    && !"keys".equals(name) && !"values".equals(name);
+        }
+
+        private Object getValue(final Object target) {
+            if (target == null) {
+                return UNSUPPORTED;
+            }
+            if (target instanceof Map) {
+                return mapKey ? ((Map) target).get(name) : UNSUPPORTED;
+            }
+            final Class clazz = target.getClass();
+            Resolved r = resolved;
+            if (r == null || r.clazz != clazz) {
+                r = new Resolved(clazz, resolve(clazz));
+                resolved = r;
+            }
+            final PropertyDesc pd = r.propertyDesc;
+            return pd != null ? pd.getValue(target) : UNSUPPORTED;
+        }
+
+        private PropertyDesc resolve(final Class clazz) {
+            if (clazz.isArray() || Collection.class.isAssignableFrom(clazz)
+                    || Iterator.class.isAssignableFrom(clazz)
+                    || Enumeration.class.isAssignableFrom(clazz)) {
+                return null;
+            }
+            final BeanDesc beanDesc = BeanDescFactory.getBeanDesc(clazz);
+            if (!beanDesc.hasPropertyDesc(name)) {
+                return null;
+            }
+            final PropertyDesc pd = beanDesc.getPropertyDesc(name);
+            return pd.hasReadMethod() ? pd : null;
+        }
+    }
+
+    private static class Resolved {
+
+        private final Class clazz;
+
+        private final PropertyDesc propertyDesc;
+
+        private Resolved(final Class clazz, final PropertyDesc propertyDesc) {
+            this.clazz = clazz;
+            this.propertyDesc = propertyDesc;
+        }
+    }
+
+    private static class Not extends CompiledExpression {
+
+        private final CompiledExpression operand;
+
+        private Not(final CompiledExpression operand) {
+            this.operand = operand;
+        }
+
+        public Object evaluate(final CommandContext ctx) {
+            final Object value = operand.evaluate(ctx);
+            if (value == UNSUPPORTED) {
+                return UNSUPPORTED;
+            }
+            return OgnlOps.booleanValue(value) ? Boolean.FALSE : Boolean.TRUE;
+        }
+    }
+
+    private static class And extends CompiledExpression {
+
+        private final CompiledExpression left;
+
+        private final CompiledExpression right;
+
+        private And(final CompiledExpression left,
+                final CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public Object evaluate(final CommandContext ctx) {
+            final Object value = left.evaluate(ctx);
+            if (value == UNSUPPORTED || !OgnlOps.booleanValue(value)) {
+                return value;
+            }
+            return right.evaluate(ctx);
+        }
+    }
+
+    private static class Or extends CompiledExpression {
+
+        private final CompiledExpression left;
+
+        private final CompiledExpression right;
+
+        private Or(final CompiledExpression left, final CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public Object evaluate(final CommandContext ctx) {
+            final Object value = left.evaluate(ctx);
+            if (value == UNSUPPORTED || OgnlOps.booleanValue(value)) {
+                return value;
+            }
+            return right.evaluate(ctx);
+        }
+    }
+
+    private static class Comparison extends CompiledExpression {
+
+        private static final int EQ = 0;
+
+        private static final int NE = 1;
+
+        private static final int LT = 2;
+
+        private static final int GT = 3;
+
+        private static final int LE = 4;
+
+        private static final int GE = 5;
+
+        private final int type;
+
+        private final CompiledExpression left;
+
+        private final CompiledExpression right;
+
+        private Comparison(final int type, final CompiledExpression left,
+                final CompiledExpression right) {
+            this.type = type;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Object evaluate(final CommandContext ctx) {
+            final Object v1 = left.evaluate(ctx);
+            if (v1 == UNSUPPORTED) {
+                return UNSUPPORTED;
+            }
+            final Object v2 = right.evaluate(ctx);
+            if (v2 == UNSUPPORTED) {
+                return UNSUPPORTED;
+            }
+            final boolean result;
+            switch (type) {
+            case EQ:
+                result = OgnlOps.equal(v1, v2);
+                break;
+            case NE:
+                result = !OgnlOps.equal(v1, v2);
+                break;
+            case LT:
+                result = OgnlOps.less(v1, v2);
+                break;
+            case GT:
+                result = OgnlOps.greater(v1, v2);
+                break;
+            case LE:
+                result = !OgnlOps.greater(v1, v2);
+                break;
+            default:
+                result = !OgnlOps.less(v1, v2);
+                break;
+            }
+            return result ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+}
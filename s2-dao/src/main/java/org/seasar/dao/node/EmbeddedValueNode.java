@@ -33,12 +33,18 @@ public class EmbeddedValueNode extends AbstractNode {
 
     private String propertyName;
 
+    private final PropertyPathAccessor accessor;
+
     public EmbeddedValueNode(String expression) {
         this.expression = expression;
         String[] array = StringUtil.split(expression, ".");
         this.baseName = array[0];
         if (array.length > 1) {
             this.propertyName = array[1];
+            this.accessor = new PropertyPathAccessor(new String[] { baseName,
+                    propertyName });
+        } else {
+            this.accessor = null;
         }
     }
 
@@ -53,8 +59,11 @@ public class EmbeddedValueNode extends AbstractNode {
         Object value = ctx.getArg(baseName);
         Class clazz = ctx.getArgType(baseName);
         if (propertyName != null) {
-            BeanDesc beanDesc = BeanDescFactory.getBeanDesc(clazz);
-            PropertyDesc pd = beanDesc.getPropertyDesc(propertyName);
+            PropertyDesc pd = accessor.getPropertyDescs(clazz)[1];
+            if (pd == null) {
+                BeanDesc beanDesc = BeanDescFactory.getBeanDesc(clazz);
+                pd = beanDesc.getPropertyDesc(propertyName);
+            }
             value = pd.getValue(value);
             clazz = pd.getPropertyType();
         }
@@ -27,13 +27,16 @@ public class IfNode extends ContainerNode {
 
     private String expression;
 
-    private Object parsedExpression;
+    private final Object parsedExpression;
+
+    private final CompiledExpression compiledExpression;
 
     private ElseNode elseNode;
 
     public IfNode(String expression) {
         this.expression = expression;
         this.parsedExpression = OgnlUtil.parseExpression(expression);
+        this.compiledExpression = CompiledExpression.compile(expression);
     }
 
     public String getExpression() {
@@ -52,7 +55,11 @@ public class IfNode extends ContainerNode {
      * @see org.seasar.dao.Node#accept(org.seasar.dao.QueryContext)
      */
     public void accept(CommandContext ctx) {
-        Object result = OgnlUtil.getValue(parsedExpression, ctx);
+        Object result = compiledExpression != null ? compiledExpression
+                .evaluate(ctx) : CompiledExpression.UNSUPPORTED;
+        if (result == CompiledExpression.UNSUPPORTED) {
+            result = OgnlUtil.getValue(parsedExpression, ctx);
+        }
         if (result instanceof Boolean) {
             if (((Boolean) result).booleanValue()) {
                 super.accept(ctx);
@@ -17,8 +17,11 @@ package org.seasar.dao.node;
 
 import java.lang.reflect.Array;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.seasar.dao.CommandContext;
+import org.seasar.dao.context.CommandContextImpl;
 import org.seasar.framework.util.OgnlUtil;
 
 /**
@@ -27,13 +30,20 @@ import org.seasar.framework.util.OgnlUtil;
  */
 public class ParenBindVariableNode extends AbstractNode {
 
+    private static final Pattern IN_PATTERN = Pattern.compile(
+            "^(.*?)([\\w.$#\"]+)\\s+(NOT\\s+)?IN\\s*$", Pattern.CASE_INSENSITIVE
+                    | Pattern.DOTALL);
+
     private String expression;
 
-    private Object parsedExpression;
+    private final Object parsedExpression;
+
+    private final CompiledExpression compiledExpression;
 
     public ParenBindVariableNode(String expression) {
         this.expression = expression;
         this.parsedExpression = OgnlUtil.parseExpression(expression);
+        this.compiledExpression = CompiledExpression.compile(expression);
     }
 
     public String getExpression() {
@@ -44,7 +54,11 @@ public class ParenBindVariableNode extends AbstractNode {
      * @see org.seasar.dao.Node#accept(org.seasar.dao.QueryContext)
      */
     public void accept(CommandContext ctx) {
-        Object var = OgnlUtil.getValue(parsedExpression, ctx);
+        Object var = compiledExpression != null ? compiledExpression
+                .evaluate(ctx) : CompiledExpression.UNSUPPORTED;
+        if (var == CompiledExpression.UNSUPPORTED) {
+            var = OgnlUtil.getValue(parsedExpression, ctx);
+        }
         if (var instanceof List) {
             bindArray(ctx, ((List) var).toArray());
         } else if (var == null) {
@@ -69,10 +83,65 @@ public class ParenBindVariableNode extends AbstractNode {
                 clazz = o.getClass();
             }
         }
+        boolean padding = false;
+        int maxSize = 0;
+        if (ctx instanceof CommandContextImpl) {
+            CommandContextImpl impl = (CommandContextImpl) ctx;
+            padding = impl.isInListPadding();
+            maxSize = impl.getMaxInListSize();
+            if (maxSize > 0 && length > maxSize
+                    && bindSplitArray(impl, array, clazz, padding, maxSize)) {
+                return;
+            }
+        }
+        bindArray(ctx, array, 0, length, clazz, padding, maxSize);
+    }
+
+    private boolean bindSplitArray(CommandContextImpl ctx, Object array,
+            Class clazz, boolean padding, int maxSize) {
+        String before = ctx.removeLastSql();
+        Matcher matcher = before != null ? IN_PATTERN.matcher(before) : null;
+        if (matcher == null || !matcher.matches()) {
+            if (before != null) {
+                ctx.addSql(before);
+            }
+            return false;
+        }
+        String column = matcher.group(2);
+        boolean not = matcher.group(3) != null;
+        ctx.addSql(matcher.group(1));
+        ctx.addSql("(");
+        int length = Array.getLength(array);
+        for (int offset = 0; offset < length; offset += maxSize) {
+            if (offset > 0) {
+                ctx.addSql(not ? " AND " : " OR ");
+            }
+            ctx.addSql(column);
+            ctx.addSql(not ? " NOT IN " : " IN ");
+            bindArray(ctx, array, offset, Math.min(maxSize, length - offset),
+                    clazz, padding, maxSize);
+        }
+        ctx.addSql(")");
+        return true;
+    }
+
+    private void bindArray(CommandContext ctx, Object array, int offset,
+            int length, Class clazz, boolean padding, int maxSize) {
+        int size = length;
+        if (padding) {
+            size = 1;
+            while (size < length) {
+                size <<= 1;
+            }
+            if (maxSize > 0 && size > maxSize) {
+                size = maxSize;
+            }
+        }
         ctx.addSql("(");
-        ctx.addSql("?", Array.get(array, 0), clazz);
-        for (int i = 1; i < length; ++i) {
-            ctx.addSql(", ?", Array.get(array, i), clazz);
+        ctx.addSql("?", Array.get(array, offset), clazz);
+        for (int i = 1; i < size; ++i) {
+            Object value = Array.get(array, offset + Math.min(i, length - 1));
+            ctx.addSql(", ?", value, clazz);
         }
         ctx.addSql(")");
     }
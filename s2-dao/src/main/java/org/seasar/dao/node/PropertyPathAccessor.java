@@ -0,0 +1,91 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.node;
+
+import org.seasar.framework.beans.BeanDesc;
+import org.seasar.framework.beans.PropertyDesc;
+import org.seasar.framework.beans.factory.BeanDescFactory;
+
+/**
+ * <code>dto.dept.id</code>のようなプロパティのパスを、引数の型ごとに解決してキャッシュするクラスです。
+ * <p>
+ * 直前に解決したときと引数の型が異なる場合は解決し直します。
+ * 解決結果は変更されないオブジェクトにまとめて<code>volatile</code>フィールドで保持するので、
+ * 複数のスレッドから同時に呼び出しても安全です。
+ * </p>
+ */
+public class PropertyPathAccessor {
+
+    private final String[] names;
+
+    private volatile Resolved resolved;
+
+    /**
+     * インスタンスを作成します。
+     * 
+     * @param names 引数名とプロパティ名の配列
+     */
+    public PropertyPathAccessor(final String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * パスの各プロパティの{@link PropertyDesc}を返します。
+     * <p>
+     * 戻り値の先頭の要素は引数自身に対応するため<code>null</code>です。
+     * 見つからなかったプロパティとそれ以降の要素も<code>null</code>になります。
+     * </p>
+     * 
+     * @param argType 引数の型
+     * @return {@link PropertyDesc}の配列
+     */
+    public PropertyDesc[] getPropertyDescs(final Class argType) {
+        Resolved r = resolved;
+        if (r == null || r.argType != argType) {
+            r = new Resolved(argType, resolve(argType));
+            resolved = r;
+        }
+        return r.propertyDescs;
+    }
+
+    private PropertyDesc[] resolve(final Class argType) {
+        final PropertyDesc[] propertyDescs = new PropertyDesc[names.length];
+        Class clazz = argType;
+        for (int i = 1; i < names.length; ++i) {
+            final BeanDesc beanDesc = BeanDescFactory.getBeanDesc(clazz);
+            if (!beanDesc.hasPropertyDesc(names[i])) {
+                break;
+            }
+            propertyDescs[i] = beanDesc.getPropertyDesc(names[i]);
+            clazz = propertyDescs[i].getPropertyType();
+        }
+        return propertyDescs;
+    }
+
+    private static class Resolved {
+
+        private final Class argType;
+
+        private final PropertyDesc[] propertyDescs;
+
+        private Resolved(final Class argType,
+                final PropertyDesc[] propertyDescs) {
+            this.argType = argType;
+            this.propertyDescs = propertyDescs;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.seasar.dao.CommandContext;
+import org.seasar.dao.Node;
+
+/**
+ * IFコメントや埋め込み変数コメントを含まず、SQLとバインド変数だけからなるSQLのルートノードです。
+ * <p>
+ * SQLの文字列は生成時に組み立てておき、実行時にはバインド変数の値だけを求めます。
+ * </p>
+ */
+public class StaticSqlNode extends ContainerNode {
+
+    private final String sql;
+
+    private final BindVariableNode[] bindVariableNodes;
+
+    /**
+     * インスタンスを作成します。
+     * 
+     * @param root {@link #isStatic(Node)}が<code>true</code>を返すノード
+     */
+    public StaticSqlNode(final Node root) {
+        final StringBuffer buf = new StringBuffer(200);
+        final List bindVariables = new ArrayList();
+        for (int i = 0; i < root.getChildSize(); ++i) {
+            final Node child = root.getChild(i);
+            addChild(child);
+            if (child instanceof SqlNode) {
+                buf.append(((SqlNode) child).getSql());
+            } else {
+                buf.append('?');
+                bindVariables.add(child);
+            }
+        }
+        sql = buf.toString();
+        bindVariableNodes = (BindVariableNode[]) bindVariables
+                .toArray(new BindVariableNode[bindVariables.size()]);
+    }
+
+    /**
+     * ノードの子が{@link SqlNode}と{@link BindVariableNode}だけかどうかを返します。
+     * 
+     * @param root ルートのノード
+     * @return {@link SqlNode}と{@link BindVariableNode}だけの場合は<code>true</code>
+     */
+    public static boolean isStatic(final Node root) {
+        if (root.getClass() != ContainerNode.class) {
+            return false;
+        }
+        for (int i = 0; i < root.getChildSize(); ++i) {
+            final Class childClass = root.getChild(i).getClass();
+            if (childClass != SqlNode.class
+                    && childClass != BindVariableNode.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @see org.seasar.dao.Node#accept(org.seasar.dao.QueryContext)
+     */
+    public void accept(final CommandContext ctx) {
+        final int size = bindVariableNodes.length;
+        if (size == 0) {
+            ctx.addSql(sql);
+            return;
+        }
+        final Object[] bindVariables = new Object[size];
+        final Class[] bindVariableTypes = new Class[size];
+        for (int i = 0; i < size; ++i) {
+            bindVariableNodes[i].bind(ctx, bindVariables, bindVariableTypes, i);
+        }
+        ctx.addSql(sql, bindVariables, bindVariableTypes);
+    }
+
+}
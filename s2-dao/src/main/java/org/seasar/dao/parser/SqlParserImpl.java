@@ -32,6 +32,7 @@ import org.seasar.dao.node.IfNode;
 import org.seasar.dao.node.ParenBindVariableNode;
 import org.seasar.dao.node.PrefixSqlNode;
 import org.seasar.dao.node.SqlNode;
+import org.seasar.dao.node.StaticSqlNode;
 import org.seasar.framework.util.StringUtil;
 
 /**
@@ -42,7 +43,7 @@ public class SqlParserImpl implements SqlParser {
 
     private static final Pattern lineBreak = Pattern.compile("(\\r(\\n)?|\\n)");
 
-    private SqlTokenizer tokenizer;
+    private SqlTokenizerImpl tokenizer;
 
     private Stack nodeStack = new Stack();
 
@@ -60,17 +61,25 @@ public class SqlParserImpl implements SqlParser {
         while (SqlTokenizer.EOF != tokenizer.next()) {
             parseToken();
         }
-        return pop();
+        Node root = pop();
+        if (StaticSqlNode.isStatic(root)) {
+            return new StaticSqlNode(root);
+        }
+        return root;
     }
 
     protected String deleteQuestionInLineComment(String sql) {
+        if (sql.indexOf("--") < 0 && sql.indexOf('\r') < 0
+                && !sql.endsWith("\n")) {
+            return sql;
+        }
         String[] sqlParts = lineBreak.split(sql);
         StringBuffer buf = new StringBuffer();
         for (int i = 0; i < sqlParts.length; i++) {
             int pos = sqlParts[i].indexOf("--");
             if (pos != -1 && (sqlParts[i].indexOf("ELSE") == -1)) {
                 buf.append(sqlParts[i].substring(0, pos));
-                buf.append(sqlParts[i].substring(pos).replaceAll("\\?", ""));
+                buf.append(deleteQuestion(sqlParts[i].substring(pos)));
             } else {
                 buf.append(sqlParts[i]);
             }
@@ -141,10 +150,8 @@ public class SqlParserImpl implements SqlParser {
                 parseCommentBindVariable();
             }
         } else if (comment != null && 0 < comment.length()) {
-            String before = tokenizer.getBefore();
             peek().addChild(
-                    new SqlNode(before.substring(before.lastIndexOf("/*"))
-                            .replaceAll("\\?", "")));
+                    new SqlNode(deleteQuestion(tokenizer.getLastComment())));
         }
     }
 
@@ -229,6 +236,10 @@ public class SqlParserImpl implements SqlParser {
         return false;
     }
 
+    private static String deleteQuestion(String s) {
+        return s.indexOf('?') < 0 ? s : StringUtil.replace(s, "?", "");
+    }
+
     private static boolean isTargetComment(String comment) {
         return comment != null && comment.length() > 0
                 && Character.isJavaIdentifierStart(comment.charAt(0));
@@ -26,6 +26,10 @@ public class SqlTokenizerImpl implements SqlTokenizer {
 
     private String sql;
 
+    private char[] chars;
+
+    private int length;
+
     private int position = 0;
 
     private String token;
@@ -38,6 +42,8 @@ public class SqlTokenizerImpl implements SqlTokenizer {
 
     public SqlTokenizerImpl(String sql) {
         this.sql = sql;
+        this.chars = sql.toCharArray();
+        this.length = chars.length;
     }
 
     public int getPosition() {
@@ -56,6 +62,19 @@ public class SqlTokenizerImpl implements SqlTokenizer {
         return sql.substring(position);
     }
 
+    /**
+     * 直前に読み込んだコメントを、開始の<code>/*</code>から終了の記号まで含めて返します。
+     * <p>
+     * <code>getBefore().substring(getBefore().lastIndexOf("/*"))</code>と同じ結果を、
+     * 先頭からの文字列を作らずに返します。
+     * </p>
+     * 
+     * @return コメント
+     */
+    public String getLastComment() {
+        return sql.substring(sql.lastIndexOf("/*", position - 2), position);
+    }
+
     public int getTokenType() {
         return tokenType;
     }
@@ -65,7 +84,7 @@ public class SqlTokenizerImpl implements SqlTokenizer {
     }
 
     public int next() {
-        if (position >= sql.length()) {
+        if (position >= length) {
             token = null;
             tokenType = EOF;
             nextTokenType = EOF;
@@ -92,21 +111,41 @@ public class SqlTokenizerImpl implements SqlTokenizer {
     }
 
     protected void parseSql() {
-        int commentStartPos = sql.indexOf("/*", position);
-        int commentStartPos2 = sql.indexOf("#*", position);
-        if (0 < commentStartPos2 && commentStartPos2 < commentStartPos) {
-            commentStartPos = commentStartPos2;
-        }
-        int lineCommentStartPos = sql.indexOf("--", position);
-        int bindVariableStartPos = sql.indexOf("?", position);
+        int commentStartPos = -1;
         int elseCommentStartPos = -1;
         int elseCommentLength = -1;
-        if (lineCommentStartPos >= 0) {
-            int skipPos = skipWhitespace(lineCommentStartPos + 2);
-            if (skipPos + 4 < sql.length()
-                    && "ELSE".equals(sql.substring(skipPos, skipPos + 4))) {
-                elseCommentStartPos = lineCommentStartPos;
-                elseCommentLength = skipPos + 4 - lineCommentStartPos;
+        int bindVariableStartPos = -1;
+        boolean commentStart2Found = false;
+        boolean lineCommentFound = false;
+        for (int i = position; i < length; ++i) {
+            char c = chars[i];
+            if (c == '?') {
+                bindVariableStartPos = i;
+                break;
+            }
+            if (i + 1 >= length || chars[i + 1] != (c == '-' ? '-' : '*')) {
+                continue;
+            }
+            if (c == '/') {
+                commentStartPos = i;
+                break;
+            } else if (c == '#' && !commentStart2Found) {
+                // #* は、それより後ろに /* がある場合だけコメントの開始とみなす
+                commentStart2Found = true;
+                if (0 < i && sql.indexOf("/*", i + 2) >= 0) {
+                    commentStartPos = i;
+                    break;
+                }
+            } else if (c == '-' && !lineCommentFound) {
+                // ELSEの判定は最初の -- だけを対象にする
+                lineCommentFound = true;
+                int skipPos = skipWhitespace(i + 2);
+                if (skipPos + 4 < length
+                        && sql.regionMatches(skipPos, "ELSE", 0, 4)) {
+                    elseCommentStartPos = i;
+                    elseCommentLength = skipPos + 4 - i;
+                    break;
+                }
             }
         }
         int nextStartPos = getNextStartPos(commentStartPos,
@@ -114,7 +153,7 @@ public class SqlTokenizerImpl implements SqlTokenizer {
         if (nextStartPos < 0) {
             token = sql.substring(position);
             nextTokenType = EOF;
-            position = sql.length();
+            position = length;
             tokenType = SQL;
         } else {
             token = sql.substring(position, nextStartPos);
@@ -159,10 +198,24 @@ public class SqlTokenizerImpl implements SqlTokenizer {
     }
 
     protected void parseComment() {
-        int commentEndPos = sql.indexOf("*/", position);
-        int commentEndPos2 = sql.indexOf("*#", position);
-        if (0 < commentEndPos2 && commentEndPos2 < commentEndPos) {
-            commentEndPos = commentEndPos2;
+        int commentEndPos = -1;
+        boolean commentEnd2Found = false;
+        for (int i = position; i + 1 < length; ++i) {
+            if (chars[i] != '*') {
+                continue;
+            }
+            char c = chars[i + 1];
+            if (c == '/') {
+                commentEndPos = i;
+                break;
+            } else if (c == '#' && !commentEnd2Found) {
+                // *# は、それより後ろに */ がある場合だけコメントの終了とみなす
+                commentEnd2Found = true;
+                if (0 < i && sql.indexOf("*/", i + 2) >= 0) {
+                    commentEndPos = i;
+                    break;
+                }
+            }
         }
         if (commentEndPos < 0) {
             throw new TokenNotClosedRuntimeException("*/", sql
@@ -194,28 +247,26 @@ public class SqlTokenizerImpl implements SqlTokenizer {
     }
 
     public String skipToken() {
-        int index = sql.length();
-        char quote = position < sql.length() ? sql.charAt(position) : '\0';
+        int index = length;
+        char quote = position < length ? chars[position] : '\0';
         boolean quoting = quote == '\'' || quote == '(';
         if (quote == '(') {
             quote = ')';
         }
-        for (int i = quoting ? position + 1 : position; i < sql.length(); ++i) {
-            char c = sql.charAt(i);
+        for (int i = quoting ? position + 1 : position; i < length; ++i) {
+            char c = chars[i];
             if ((Character.isWhitespace(c) || c == ',' || c == ')' || c == '(')
                     && !quoting) {
                 index = i;
                 break;
-            } else if (c == '/' && i + 1 < sql.length()
-                    && sql.charAt(i + 1) == '*') {
+            } else if (c == '/' && i + 1 < length && chars[i + 1] == '*') {
                 index = i;
                 break;
-            } else if (c == '-' && i + 1 < sql.length()
-                    && sql.charAt(i + 1) == '-') {
+            } else if (c == '-' && i + 1 < length && chars[i + 1] == '-') {
                 index = i;
                 break;
             } else if (quoting && quote == '\'' && c == '\''
-                    && (i + 1 >= sql.length() || sql.charAt(i + 1) != '\'')) {
+                    && (i + 1 >= length || chars[i + 1] != '\'')) {
                 index = i + 1;
                 break;
             } else if (quoting && c == quote) {
@@ -238,14 +289,13 @@ public class SqlTokenizerImpl implements SqlTokenizer {
     }
 
     private int skipWhitespace(int position) {
-        int index = sql.length();
-        for (int i = position; i < sql.length(); ++i) {
-            char c = sql.charAt(i);
-            if (!Character.isWhitespace(c)) {
+        int index = length;
+        for (int i = position; i < length; ++i) {
+            if (!Character.isWhitespace(chars[i])) {
                 index = i;
                 break;
             }
         }
         return index;
     }
-}
\ No newline at end of file
+}
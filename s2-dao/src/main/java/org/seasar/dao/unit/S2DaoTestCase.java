@@ -170,6 +170,7 @@ public abstract class S2DaoTestCase extends S2TestCase {
         dmd.setProcedureMetaDataFactory(getProcedureMetaDataFactory());
         dmd.setDtoMetaDataFactory(dmdf);
         dmd.setResultSetHandlerFactory(getResultSetHandlerFactory());
+        dmd.setEagerSqlCommandSetup(true);
         dmd.initialize();
         return dmd;
     }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+/**
+ * メソッドのオーバーライドに関するユーティリティです。
+ */
+public final class OverrideUtil {
+
+    private OverrideUtil() {
+    }
+
+    /**
+     * <code>clazz</code>から<code>baseClass</code>の手前までのクラスで、メソッドが宣言されている場合に<code>true</code>を返します。
+     * <p>
+     * 基底クラスのメソッドがサブクラスでオーバーライドされているかどうかを調べるために使います。
+     * オーバーライドされている場合は、最適化した処理を使わずにそのメソッドを呼び出すようにします。
+     * </p>
+     * 
+     * @param clazz
+     *            調べるクラス。<code>baseClass</code>またはそのサブクラスでなければなりません。
+     * @param baseClass
+     *            メソッドを宣言している基底クラス
+     * @param methodName
+     *            メソッド名
+     * @param parameterTypes
+     *            メソッドの引数の型
+     * @return オーバーライドされている場合は<code>true</code>
+     */
+    public static boolean isOverridden(final Class clazz,
+            final Class baseClass, final String methodName,
+            final Class[] parameterTypes) {
+        for (Class c = clazz; c != null && c != baseClass; c = c
+                .getSuperclass()) {
+            try {
+                c.getDeclaredMethod(methodName, parameterTypes);
+                return true;
+            } catch (final NoSuchMethodException ignore) {
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+import java.lang.reflect.Method;
+
+import org.seasar.dao.RowHandler;
+
+/**
+ * {@link RowHandler}に関するユーティリティです。
+ */
+public class RowHandlerUtil {
+
+    private RowHandlerUtil() {
+    }
+
+    /**
+     * クラスが{@link RowHandler}の場合に<code>true</code>を返します。
+     * 
+     * @param clazz
+     *            クラス
+     * @return {@link RowHandler}の場合は<code>true</code>
+     */
+    public static boolean isRowHandler(final Class clazz) {
+        return clazz != null && RowHandler.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * メソッドの最後の引数が{@link RowHandler}の場合に<code>true</code>を返します。
+     * 
+     * @param method
+     *            Daoのメソッド
+     * @return 最後の引数が{@link RowHandler}の場合は<code>true</code>
+     */
+    public static boolean isRowHandlerMethod(final Method method) {
+        final Class[] parameterTypes = method.getParameterTypes();
+        return parameterTypes.length > 0
+                && isRowHandler(parameterTypes[parameterTypes.length - 1]);
+    }
+
+    /**
+     * 最後の引数が{@link RowHandler}の場合はそれを返します。
+     * 
+     * @param args
+     *            Daoのメソッドの引数
+     * @return {@link RowHandler}。最後の引数が{@link RowHandler}でない場合は<code>null</code>
+     */
+    public static RowHandler getRowHandler(final Object[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        final Object last = args[args.length - 1];
+        if (last instanceof RowHandler) {
+            return (RowHandler) last;
+        }
+        return null;
+    }
+
+}
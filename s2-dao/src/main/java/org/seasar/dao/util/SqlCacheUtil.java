@@ -0,0 +1,204 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.seasar.dao.Node;
+import org.seasar.dao.parser.SqlParserImpl;
+import org.seasar.framework.util.Disposable;
+import org.seasar.framework.util.DisposableUtil;
+import org.seasar.framework.util.InputStreamReaderUtil;
+import org.seasar.framework.util.ReaderUtil;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * 解析済みのSQLとSQLファイルの内容をVM全体で共有するためのユーティリティです。
+ * <p>
+ * 同じSQLは1度だけ解析され、解析結果の{@link Node}は複数のコマンドで共有されます。
+ * {@link Node}の構造は解析後に変更されず、キャッシュへの登録と取得は同期化されているので、
+ * 解析した内容はすべてのスレッドから見えます。
+ * ただし、{@link org.seasar.dao.node.BindVariableNode}や{@link org.seasar.dao.node.IfNode}などは
+ * 引数の型ごとに解決したプロパティを{@link Node}ごとに遅延してキャッシュし、そのキャッシュはVM全体で共有されます。
+ * このキャッシュは変更されないオブジェクトを<code>volatile</code>フィールドで置き換えるだけなので、
+ * 複数のスレッドとコマンドから同時に使っても安全です。
+ * キャッシュは{@link DisposableUtil#dispose()}でクリアされます。
+ * </p>
+ */
+public final class SqlCacheUtil {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private static volatile int maxSize = 4096;
+
+    private static final Cache nodeCache = new Cache();
+
+    private static final Cache textCache = new Cache();
+
+    private static final Cache existCache = new Cache();
+
+    private static volatile boolean initialized = false;
+
+    private SqlCacheUtil() {
+    }
+
+    /**
+     * SQLを解析した{@link Node}を返します。
+     * 
+     * @param sql SQL
+     * @return 解析結果のルートの{@link Node}
+     */
+    public static Node getNode(final String sql) {
+        final Node node = (Node) nodeCache.get(sql);
+        if (node != null) {
+            return node;
+        }
+        return (Node) nodeCache.putIfAbsent(sql, new SqlParserImpl(sql)
+                .parse());
+    }
+
+    /**
+     * SQLファイルが存在するかどうかを返します。
+     * 
+     * @param path SQLファイルのパス
+     * @return SQLファイルが存在する場合は<code>true</code>
+     */
+    public static boolean isExist(final String path) {
+        final Boolean exist = (Boolean) existCache.get(path);
+        if (exist != null) {
+            return exist.booleanValue();
+        }
+        return ((Boolean) existCache.putIfAbsent(path, Boolean
+                .valueOf(ResourceUtil.isExist(path)))).booleanValue();
+    }
+
+    /**
+     * SQLファイルの内容を返します。
+     * 
+     * @param path SQLファイルのパス
+     * @param encoding SQLファイルのエンコーディング
+     * @return SQLファイルの内容
+     */
+    public static String readText(final String path, final String encoding) {
+        final String key = path + "|" + encoding;
+        final String text = (String) textCache.get(key);
+        if (text != null) {
+            return text;
+        }
+        final InputStream is = ResourceUtil.getResourceAsStream(path);
+        final Reader reader = InputStreamReaderUtil.create(is, encoding);
+        return (String) textCache.putIfAbsent(key, ReaderUtil
+                .readText(reader));
+    }
+
+    /**
+     * キャッシュをクリアします。
+     */
+    public static void clear() {
+        nodeCache.clear();
+        textCache.clear();
+        existCache.clear();
+        synchronized (SqlCacheUtil.class) {
+            initialized = false;
+        }
+    }
+
+    /**
+     * キャッシュごとの最大エントリ数を返します。
+     * 
+     * @return 最大エントリ数
+     */
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * キャッシュごとの最大エントリ数を設定します。デフォルトは4096です。
+     * <p>
+     * 最大エントリ数に達した後のSQLはキャッシュされず、呼び出しのたびに解析されます。
+     * </p>
+     * 
+     * @param maxSize 最大エントリ数
+     */
+    public static void setMaxSize(final int maxSize) {
+        SqlCacheUtil.maxSize = maxSize;
+    }
+
+    private static void initialize() {
+        synchronized (SqlCacheUtil.class) {
+            if (!initialized) {
+                DisposableUtil.add(new Disposable() {
+                    public void dispose() {
+                        clear();
+                    }
+                });
+                initialized = true;
+            }
+        }
+    }
+
+    private static class Cache {
+
+        private final Map[] segments = new Map[SEGMENT_COUNT];
+
+        private Cache() {
+            for (int i = 0; i < segments.length; ++i) {
+                segments[i] = new HashMap();
+            }
+        }
+
+        private Object get(final Object key) {
+            final Map segment = getSegment(key);
+            synchronized (segment) {
+                return segment.get(key);
+            }
+        }
+
+        private Object putIfAbsent(final Object key, final Object value) {
+            final Map segment = getSegment(key);
+            synchronized (segment) {
+                final Object current = segment.get(key);
+                if (current != null) {
+                    return current;
+                }
+                if (segment.size() < maxSize / SEGMENT_COUNT) {
+                    segment.put(key, value);
+                }
+            }
+            if (!initialized) {
+                initialize();
+            }
+            return value;
+        }
+
+        private void clear() {
+            for (int i = 0; i < segments.length; ++i) {
+                synchronized (segments[i]) {
+                    segments[i].clear();
+                }
+            }
+        }
+
+        private Map getSegment(final Object key) {
+            final int h = key.hashCode();
+            return segments[((h >>> 16) ^ h) & (SEGMENT_COUNT - 1)];
+        }
+    }
+
+}
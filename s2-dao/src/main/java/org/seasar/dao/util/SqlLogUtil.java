@@ -0,0 +1,249 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+
+import org.seasar.extension.jdbc.SqlLogRegistryLocator;
+import org.seasar.framework.log.Logger;
+
+/**
+ * S2Daoのコマンドが実行するSQLのログを制御するユーティリティです。
+ * <p>
+ * 通常のSQLは、デバッグログが有効な場合か<code>SqlLogRegistry</code>が登録されている場合だけ、
+ * バインド変数の値を埋め込んだ文字列を組み立てて出力します。
+ * {@link #setSamplingRate(int)}を設定すると、デバッグログにはそのうち指定した件数に1件だけを出力します。
+ * <code>SqlLogRegistry</code>にはサンプリングに関係なくすべてのSQLを登録します。
+ * </p>
+ * <p>
+ * {@link #setSlowQueryThreshold(long)}を設定すると、実行に閾値以上の時間がかかったSQLを、
+ * ログレベルやサンプリングに関係なく、バインド変数の値を埋め込んだ形で警告ログに出力します。
+ * 計測するのはステートメントの実行(<code>executeQuery()</code>、<code>executeUpdate()</code>、
+ * <code>executeBatch()</code>、<code>execute()</code>)にかかった時間だけで、
+ * コネクションの取得やステートメントの準備、結果セットの処理にかかった時間は含みません。
+ * </p>
+ * <p>
+ * dicon ファイルでは、次のように設定できます。
+ * </p>
+ * 
+ * <pre>
+ * &lt;initMethod&gt;@org.seasar.dao.util.SqlLogUtil@setSlowQueryThreshold(1000L)&lt;/initMethod&gt;
+ * &lt;initMethod&gt;@org.seasar.dao.util.SqlLogUtil@setSamplingRate(100)&lt;/initMethod&gt;
+ * </pre>
+ */
+public final class SqlLogUtil {
+
+    private static volatile long slowQueryThreshold = -1;
+
+    private static volatile int samplingRate = 1;
+
+    private static final Object sampleLock = new Object();
+
+    private static int sampleCount = 0;
+
+    private static final ThreadLocal dateFormats = new ThreadLocal();
+
+    private SqlLogUtil() {
+    }
+
+    public static long getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    /**
+     * 警告ログに出力するSQLの実行時間(ミリ秒)の閾値を設定します。デフォルトは<code>-1</code>(出力しない)です。
+     * 
+     * @param slowQueryThreshold 閾値(ミリ秒)、出力しない場合は負の値
+     */
+    public static void setSlowQueryThreshold(final long slowQueryThreshold) {
+        SqlLogUtil.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    public static int getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * 通常のSQLを何件に1件デバッグログに出力するかを設定します。デフォルトは<code>1</code>(すべて出力する)です。
+     * <p>
+     * <code>0</code>を設定すると、通常のSQLはデバッグログに出力しません。
+     * <code>SqlLogRegistry</code>への登録はサンプリングの対象になりません。
+     * </p>
+     * 
+     * @param samplingRate 何件に1件出力するか
+     */
+    public static void setSamplingRate(final int samplingRate) {
+        if (samplingRate < 0) {
+            throw new IllegalArgumentException("samplingRate");
+        }
+        SqlLogUtil.samplingRate = samplingRate;
+    }
+
+    /**
+     * 通常のSQLをデバッグログに出力するか、<code>SqlLogRegistry</code>に登録するかどうかを返します。
+     * <p>
+     * どちらかを行う場合だけ、バインド変数の型の取得などの準備をしてください。
+     * デバッグログに出力するかどうかは、さらに{@link #isSampled()}で決めます。
+     * </p>
+     * 
+     * @param loggerClass ログに出力するクラス
+     * @return どちらかを行う場合は<code>true</code>
+     */
+    public static boolean isSqlLogEnabled(final Class loggerClass) {
+        return Logger.getLogger(loggerClass).isDebugEnabled()
+                || SqlLogRegistryLocator.getInstance() != null;
+    }
+
+    /**
+     * 通常のSQLをデバッグログに出力する順番かどうかを返します。
+     * <p>
+     * {@link #getSamplingRate()}件ごとに1回だけ<code>true</code>を返します。
+     * 件数はスレッド間で同期して数え、出力するたびに<code>0</code>に戻します。
+     * </p>
+     * 
+     * @return 出力する順番の場合は<code>true</code>
+     */
+    public static boolean isSampled() {
+        final int rate = samplingRate;
+        if (rate <= 1) {
+            return rate == 1;
+        }
+        synchronized (sampleLock) {
+            if (++sampleCount < rate) {
+                return false;
+            }
+            sampleCount = 0;
+            return true;
+        }
+    }
+
+    /**
+     * SQLの実行時間の計測を開始します。
+     * 
+     * @return 開始時刻、閾値が設定されていない場合は<code>0</code>
+     */
+    public static long start() {
+        return slowQueryThreshold >= 0 ? System.currentTimeMillis() : 0;
+    }
+
+    /**
+     * SQLの実行時間が閾値以上の場合に、その時間を返します。
+     * 
+     * @param start {@link #start()}の戻り値
+     * @return 実行時間(ミリ秒)、閾値未満または計測していない場合は<code>-1</code>
+     */
+    public static long getSlowQueryTime(final long start) {
+        final long threshold = slowQueryThreshold;
+        if (threshold < 0 || start == 0) {
+            return -1;
+        }
+        final long time = System.currentTimeMillis() - start;
+        return time >= threshold ? time : -1;
+    }
+
+    /**
+     * 実行に時間がかかったSQLを警告ログに出力します。
+     * 
+     * @param loggerClass ログに出力するクラス
+     * @param time 実行時間(ミリ秒)
+     * @param completeSql バインド変数の値を埋め込んだSQL
+     */
+    public static void logSlowQuery(final Class loggerClass, final long time,
+            final String completeSql) {
+        Logger.getLogger(loggerClass).log("WDAO0006",
+                new Object[] { String.valueOf(time), completeSql });
+    }
+
+    /**
+     * SQLの<code>?</code>をバインド変数の値で置き換えた文字列を返します。
+     * <p>
+     * 文字列リテラルとコメントの中の<code>?</code>は置き換えません。
+     * </p>
+     * 
+     * @param sql SQL
+     * @param args バインド変数の値
+     * @return バインド変数の値を埋め込んだSQL
+     */
+    public static String getCompleteSql(final String sql, final Object[] args) {
+        if (args == null || args.length == 0) {
+            return sql;
+        }
+        final StringBuffer buf = new StringBuffer(sql.length() + args.length
+                * 8);
+        int index = 0;
+        final int length = sql.length();
+        for (int i = 0; i < length; ++i) {
+            final char c = sql.charAt(i);
+            if (c == '\'') {
+                final int end = sql.indexOf('\'', i + 1);
+                if (end > 0) {
+                    buf.append(sql.substring(i, end + 1));
+                    i = end;
+                    continue;
+                }
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                final int end = sql.indexOf("*/", i + 2);
+                if (end > 0) {
+                    buf.append(sql.substring(i, end + 2));
+                    i = end + 1;
+                    continue;
+                }
+            } else if (c == '?' && index < args.length) {
+                buf.append(getBindVariableText(args[index++]));
+                continue;
+            }
+            buf.append(c);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * バインド変数の値をSQLのリテラルとして返します。
+     * 
+     * @param bindVariable バインド変数の値
+     * @return SQLのリテラル
+     */
+    public static String getBindVariableText(final Object bindVariable) {
+        if (bindVariable instanceof String) {
+            return "'" + bindVariable + "'";
+        } else if (bindVariable instanceof Number) {
+            return bindVariable.toString();
+        } else if (bindVariable instanceof Timestamp) {
+            return "'" + getDateFormats()[0].format(bindVariable) + "'";
+        } else if (bindVariable instanceof java.util.Date) {
+            return "'" + getDateFormats()[1].format(bindVariable) + "'";
+        } else if (bindVariable instanceof Boolean) {
+            return bindVariable.toString();
+        } else if (bindVariable == null) {
+            return "null";
+        } else {
+            return "'" + bindVariable.toString() + "'";
+        }
+    }
+
+    private static DateFormat[] getDateFormats() {
+        DateFormat[] formats = (DateFormat[]) dateFormats.get();
+        if (formats == null) {
+            formats = new DateFormat[] {
+                    new SimpleDateFormat("yyyy-MM-dd HH.mm.ss"),
+                    new SimpleDateFormat("yyyy-MM-dd") };
+            dateFormats.set(formats);
+        }
+        return formats;
+    }
+}
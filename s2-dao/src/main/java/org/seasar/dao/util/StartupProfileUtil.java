@@ -0,0 +1,359 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daoのメタ情報の生成にかかった時間を、Daoごと、メソッドごとに記録するユーティリティです。
+ * <p>
+ * {@link #setEnabled(boolean)}で<code>true</code>を設定したときだけ記録します。
+ * 記録した内容は{@link #getProfiles()}または{@link #getReport()}で参照できます。
+ * 時間の単位はミリ秒です。各フェーズの時間は入れ子になることがあるため、合計は全体の時間と一致しません。
+ * </p>
+ * <p>
+ * dicon ファイルでは、次のように有効にできます。
+ * </p>
+ * 
+ * <pre>
+ * &lt;initMethod&gt;@org.seasar.dao.util.StartupProfileUtil@setEnabled(true)&lt;/initMethod&gt;
+ * </pre>
+ */
+public final class StartupProfileUtil {
+
+    /**
+     * コネクションの取得です。
+     */
+    public static final String CONNECTION = "connection";
+
+    /**
+     * <code>DatabaseMetaData</code>からのテーブル情報の取得です。
+     */
+    public static final String DATABASE_META_DATA = "databaseMetaData";
+
+    /**
+     * SQLファイルの検索と読み込みです。
+     */
+    public static final String SQL_FILE = "sqlFile";
+
+    /**
+     * SQLの解析です。
+     */
+    public static final String PARSE = "parse";
+
+    /**
+     * <code>BeanMetaData</code>の生成です。
+     */
+    public static final String BEAN_META_DATA = "beanMetaData";
+
+    /**
+     * Beanのクラスのエンハンスです。
+     */
+    public static final String ENHANCE = "enhance";
+
+    private static final String[] PHASES = new String[] { CONNECTION,
+            DATABASE_META_DATA, SQL_FILE, PARSE, BEAN_META_DATA, ENHANCE };
+
+    private static final String OTHER = "(other)";
+
+    private static volatile boolean enabled = false;
+
+    private static final ThreadLocal currentFrame = new ThreadLocal();
+
+    private static final Map profiles = new LinkedHashMap();
+
+    private StartupProfileUtil() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 記録するかどうかを設定します。デフォルトは<code>false</code>です。
+     * 
+     * @param enabled 記録する場合は<code>true</code>
+     */
+    public static void setEnabled(final boolean enabled) {
+        StartupProfileUtil.enabled = enabled;
+    }
+
+    /**
+     * 計測を開始します。
+     * 
+     * @return 開始時刻、記録しない場合は<code>0</code>
+     */
+    public static long start() {
+        return enabled ? System.currentTimeMillis() : 0;
+    }
+
+    /**
+     * Daoまたはそのメソッドの計測を開始します。
+     * <p>
+     * 戻り値は必ず{@link #end(long)}に渡してください。
+     * </p>
+     * 
+     * @param daoName Daoの名前
+     * @param methodName メソッド名、Dao全体の場合は<code>null</code>
+     * @return 開始時刻、記録しない場合は<code>0</code>
+     */
+    public static long begin(final String daoName, final String methodName) {
+        if (!enabled) {
+            return 0;
+        }
+        currentFrame.set(new Frame(daoName, methodName, (Frame) currentFrame
+                .get()));
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * {@link #begin(String, String)}で開始した計測を終了します。
+     * 
+     * @param start {@link #begin(String, String)}の戻り値
+     */
+    public static void end(final long start) {
+        if (start == 0) {
+            return;
+        }
+        final Frame frame = (Frame) currentFrame.get();
+        if (frame == null) {
+            return;
+        }
+        currentFrame.set(frame.parent);
+        final long time = System.currentTimeMillis() - start;
+        synchronized (profiles) {
+            final Profile profile = getProfile(frame.daoName);
+            if (frame.methodName == null) {
+                profile.totalTime += time;
+            } else {
+                profile.getMethod(frame.methodName).totalTime += time;
+                if (frame.parent == null
+                        || !frame.daoName.equals(frame.parent.daoName)) {
+                    profile.totalTime += time;
+                }
+            }
+        }
+    }
+
+    /**
+     * 実行中のDaoとメソッドに、フェーズの時間を記録します。
+     * 
+     * @param phase フェーズ
+     * @param start {@link #start()}の戻り値
+     */
+    public static void record(final String phase, final long start) {
+        if (start == 0) {
+            return;
+        }
+        final long time = System.currentTimeMillis() - start;
+        final Frame frame = (Frame) currentFrame.get();
+        synchronized (profiles) {
+            final Profile profile = getProfile(frame != null ? frame.daoName
+                    : OTHER);
+            profile.add(phase, time);
+            if (frame != null && frame.methodName != null) {
+                profile.getMethod(frame.methodName).add(phase, time);
+            }
+        }
+    }
+
+    private static Profile getProfile(final String name) {
+        Profile profile = (Profile) profiles.get(name);
+        if (profile == null) {
+            profile = new Profile(name);
+            profiles.put(name, profile);
+        }
+        return profile;
+    }
+
+    /**
+     * 記録した内容を、時間のかかった順に返します。
+     * 
+     * @return {@link Profile}のリスト
+     */
+    public static List getProfiles() {
+        final List list = new ArrayList();
+        synchronized (profiles) {
+            for (final Iterator i = profiles.values().iterator(); i.hasNext();) {
+                list.add(((Profile) i.next()).copy());
+            }
+        }
+        Collections.sort(list, new Comparator() {
+            public int compare(final Object o1, final Object o2) {
+                final long t1 = ((Profile) o1).getTotalTime();
+                final long t2 = ((Profile) o2).getTotalTime();
+                return t1 > t2 ? -1 : (t1 < t2 ? 1 : 0);
+            }
+        });
+        return list;
+    }
+
+    /**
+     * 記録した内容を表形式の文字列で返します。
+     * 
+     * @return レポート
+     */
+    public static String getReport() {
+        final StringBuffer buf = new StringBuffer(1024);
+        buf.append("total");
+        for (int i = 0; i < PHASES.length; ++i) {
+            buf.append('\t').append(PHASES[i]);
+        }
+        buf.append("\tname");
+        final List list = getProfiles();
+        for (int i = 0; i < list.size(); ++i) {
+            final Profile profile = (Profile) list.get(i);
+            appendRow(buf, profile, profile.getName());
+            for (final Iterator j = profile.getMethods().values().iterator(); j
+                    .hasNext();) {
+                final Profile method = (Profile) j.next();
+                appendRow(buf, method, "  " + method.getName());
+            }
+        }
+        return buf.toString();
+    }
+
+    private static void appendRow(final StringBuffer buf,
+            final Profile profile, final String name) {
+        buf.append('\n').append(profile.getTotalTime());
+        for (int i = 0; i < PHASES.length; ++i) {
+            buf.append('\t').append(profile.getTime(PHASES[i]));
+        }
+        buf.append('\t').append(name);
+    }
+
+    /**
+     * 記録した内容を破棄します。
+     */
+    public static void clear() {
+        synchronized (profiles) {
+            profiles.clear();
+        }
+    }
+
+    private static class Frame {
+
+        private final String daoName;
+
+        private final String methodName;
+
+        private final Frame parent;
+
+        private Frame(final String daoName, final String methodName,
+                final Frame parent) {
+            this.daoName = daoName;
+            this.methodName = methodName;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Daoまたはメソッドごとの計測結果です。
+     */
+    public static class Profile {
+
+        private final String name;
+
+        private long totalTime;
+
+        private final Map phaseTimes = new LinkedHashMap();
+
+        private final Map methods = new LinkedHashMap();
+
+        private Profile(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Daoのクラス名またはメソッド名を返します。
+         * 
+         * @return 名前
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 全体の時間を返します。
+         * 
+         * @return 全体の時間
+         */
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * フェーズの時間を返します。
+         * 
+         * @param phase フェーズ
+         * @return フェーズの時間
+         */
+        public long getTime(final String phase) {
+            final long[] time = (long[]) phaseTimes.get(phase);
+            return time != null ? time[0] : 0;
+        }
+
+        /**
+         * メソッドごとの計測結果を返します。
+         * 
+         * @return メソッド名をキー、{@link Profile}を値とする{@link Map}
+         */
+        public Map getMethods() {
+            return Collections.unmodifiableMap(methods);
+        }
+
+        private void add(final String phase, final long time) {
+            long[] total = (long[]) phaseTimes.get(phase);
+            if (total == null) {
+                total = new long[1];
+                phaseTimes.put(phase, total);
+            }
+            total[0] += time;
+        }
+
+        private Profile getMethod(final String methodName) {
+            Profile method = (Profile) methods.get(methodName);
+            if (method == null) {
+                method = new Profile(methodName);
+                methods.put(methodName, method);
+            }
+            return method;
+        }
+
+        private Profile copy() {
+            final Profile copy = new Profile(name);
+            copy.totalTime = totalTime;
+            for (final Iterator i = phaseTimes.entrySet().iterator(); i
+                    .hasNext();) {
+                final Map.Entry e = (Map.Entry) i.next();
+                copy.phaseTimes.put(e.getKey(), new long[] { ((long[]) e
+                        .getValue())[0] });
+            }
+            for (final Iterator i = methods.values().iterator(); i.hasNext();) {
+                final Profile method = (Profile) i.next();
+                copy.methods.put(method.name, method.copy());
+            }
+            return copy;
+        }
+    }
+
+}
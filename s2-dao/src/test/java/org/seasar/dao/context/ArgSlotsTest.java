@@ -0,0 +1,49 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.context;
+
+import junit.framework.TestCase;
+
+import org.seasar.framework.util.CaseInsensitiveMap;
+
+/**
+ * 
+ */
+public class ArgSlotsTest extends TestCase {
+
+    public void testGetSlot() throws Exception {
+        CaseInsensitiveMap argIndexes = new CaseInsensitiveMap();
+        argIndexes.put("empNo", new Integer(0));
+        argIndexes.put("deptNo", new Integer(1));
+        ArgSlots slots = new ArgSlots(argIndexes);
+        assertEquals(2, slots.size());
+        assertEquals(0, slots.getSlot("empNo"));
+        assertEquals(1, slots.getSlot("DEPTNO"));
+        assertEquals(1, slots.getSlot("DEPTNO"));
+        assertEquals(ArgSlots.NOT_FOUND, slots.getSlot("ename"));
+        assertEquals(ArgSlots.NOT_FOUND, slots.getSlot("ename"));
+        assertEquals(2, argIndexes.size());
+    }
+
+    public void testGetOnlySlot() throws Exception {
+        CaseInsensitiveMap argIndexes = new CaseInsensitiveMap();
+        argIndexes.put("dto", new Integer(0));
+        assertEquals(0, new ArgSlots(argIndexes).getOnlySlot());
+        argIndexes.put("empNo", new Integer(1));
+        assertEquals(ArgSlots.NOT_FOUND, new ArgSlots(argIndexes)
+                .getOnlySlot());
+    }
+}
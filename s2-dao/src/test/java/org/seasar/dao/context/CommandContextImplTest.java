@@ -0,0 +1,167 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.context;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.seasar.framework.util.CaseInsensitiveMap;
+
+/**
+ * 
+ */
+public class CommandContextImplTest extends TestCase {
+
+    public void testAddArg() throws Exception {
+        CommandContextImpl ctx = new CommandContextImpl();
+        ctx.addArg("aaa", "111", String.class);
+        ctx.addArg("bbb", new Integer(2), Integer.class);
+        ctx.addArg("AAA", "333", String.class);
+        assertEquals("333", ctx.getArg("aaa"));
+        assertEquals(String.class, ctx.getArgType("Aaa"));
+        assertEquals(new Integer(2), ctx.getArg("bbb"));
+        assertNull(ctx.getArg("ccc"));
+        assertNull(ctx.getArgType("ccc"));
+    }
+
+    public void testGetArg_singleArg() throws Exception {
+        CommandContextImpl ctx = new CommandContextImpl();
+        ctx.addArg("aaa", "111", String.class);
+        assertEquals("111", ctx.getArg("xxx"));
+        assertEquals(String.class, ctx.getArgType("xxx"));
+    }
+
+    public void testGetArg_parent() throws Exception {
+        CommandContextImpl parent = new CommandContextImpl();
+        parent.addArg("aaa", "111", String.class);
+        parent.addArg("bbb", "222", String.class);
+        CommandContextImpl child = new CommandContextImpl(parent);
+        assertFalse(child.isEnabled());
+        assertEquals("111", child.getArg("aaa"));
+        assertEquals(String.class, child.getArgType("bbb"));
+        assertNull(child.getArg("ccc"));
+    }
+
+    public void testSharedArgs() throws Exception {
+        CaseInsensitiveMap argIndexes = new CaseInsensitiveMap();
+        argIndexes.put("aaa", new Integer(0));
+        argIndexes.put("bbb", new Integer(1));
+        Object[] args = new Object[] { "111", "222" };
+        Class[] argTypes = new Class[] { String.class, String.class };
+        CommandContextImpl ctx = new CommandContextImpl(argIndexes, args,
+                argTypes, null);
+        assertEquals("111", ctx.getArg("AAA"));
+        assertEquals("222", ctx.getArg("bbb"));
+
+        ctx.addArg("aaa", new Integer(1), Integer.class);
+        ctx.addArg("ccc", "333", String.class);
+        assertEquals(new Integer(1), ctx.getArg("aaa"));
+        assertEquals(Integer.class, ctx.getArgType("aaa"));
+        assertEquals("222", ctx.getArg("bbb"));
+        assertEquals("333", ctx.getArg("ccc"));
+        assertEquals(2, argIndexes.size());
+        assertTrue(Arrays.equals(new Object[] { "111", "222" }, args));
+        assertEquals(String.class, argTypes[0]);
+    }
+
+    public void testReset() throws Exception {
+        CaseInsensitiveMap argIndexes = new CaseInsensitiveMap();
+        argIndexes.put("aaa", new Integer(0));
+        argIndexes.put("ccc", new Integer(1));
+        Class[] argTypes = new Class[] { String.class, String.class };
+        CommandContextImpl ctx = new CommandContextImpl(new ArgSlots(
+                argIndexes), new Object[] { "111", "444" }, argTypes, null);
+        ctx.addArg("bbb", "222", String.class);
+        ctx.addSql("SELECT * FROM emp WHERE ename = ?", "SCOTT", String.class);
+        ctx.setEnabled(false);
+
+        ctx.reset(new ArgSlots(argIndexes), new Object[] { "333", "555" },
+                argTypes, null);
+        assertTrue(ctx.isEnabled());
+        assertEquals("333", ctx.getArg("aaa"));
+        assertNull(ctx.getArg("bbb"));
+        assertEquals("", ctx.getSql());
+        assertEquals(0, ctx.getBindVariables().length);
+    }
+
+    public void testClear() throws Exception {
+        SqlShapeCache sqlShapeCache = new SqlShapeCache(8);
+        CommandContextImpl ctx = new CommandContextImpl(new ArgSlots(
+                new CaseInsensitiveMap()), new Object[0], new Class[0],
+                sqlShapeCache);
+        ctx.addSql("SELECT * FROM emp");
+        ctx.clear();
+
+        ctx.addSql("SELECT * FROM dept");
+        assertEquals("SELECT * FROM dept", ctx.getSql());
+        assertEquals(0, sqlShapeCache.getSize());
+    }
+
+    public void testGetChildContext() throws Exception {
+        CommandContextImpl parent = new CommandContextImpl();
+        parent.addArg("aaa", "111", String.class);
+        parent.setInListPadding(true);
+        CommandContextImpl child = parent.getChildContext();
+        assertFalse(child.isEnabled());
+        assertTrue(child.isInListPadding());
+        assertEquals("111", child.getArg("aaa"));
+        child.addSql(" AND ename = ?", "SCOTT", String.class);
+        child.setEnabled(true);
+        child.appendTo(parent);
+
+        assertSame(child, parent.getChildContext());
+        assertFalse(child.isEnabled());
+        assertEquals("", child.getSql());
+        assertEquals(0, child.getBindVariables().length);
+        assertEquals(" AND ename = ?", parent.getSql());
+        assertEquals("SCOTT", parent.getBindVariables()[0]);
+    }
+
+    public void testAddSql() throws Exception {
+        CommandContextImpl ctx = new CommandContextImpl();
+        ctx.addSql("SELECT * FROM emp WHERE empno IN (");
+        for (int i = 0; i < 10; ++i) {
+            ctx.addSql(i == 0 ? "?" : ", ?", new Integer(i), Integer.class);
+        }
+        ctx.addSql(") AND ename = ?", new Object[] { "SCOTT" },
+                new Class[] { String.class });
+        Object[] bindVariables = ctx.getBindVariables();
+        Class[] bindVariableTypes = ctx.getBindVariableTypes();
+        assertEquals(11, bindVariables.length);
+        assertEquals(11, bindVariableTypes.length);
+        assertEquals(new Integer(9), bindVariables[9]);
+        assertEquals("SCOTT", bindVariables[10]);
+        assertEquals(String.class, bindVariableTypes[10]);
+        assertNotSame(bindVariables, ctx.getBindVariables());
+    }
+
+    public void testAppendTo() throws Exception {
+        CommandContextImpl parent = new CommandContextImpl();
+        parent.addSql("SELECT * FROM emp WHERE deptno = ?", new Integer(10),
+                Integer.class);
+        CommandContextImpl child = new CommandContextImpl(parent);
+        child.addSql(" AND ename = ?", "SCOTT", String.class);
+        child.appendTo(parent);
+        assertEquals("SELECT * FROM emp WHERE deptno = ? AND ename = ?",
+                parent.getSql());
+        assertTrue(Arrays.equals(new Object[] { new Integer(10), "SCOTT" },
+                parent.getBindVariables()));
+        assertTrue(Arrays.equals(new Class[] { Integer.class, String.class },
+                parent.getBindVariableTypes()));
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.context;
+
+import junit.framework.TestCase;
+
+import org.seasar.framework.util.CaseInsensitiveMap;
+
+/**
+ * 
+ */
+public class SqlShapeCacheTest extends TestCase {
+
+    public void testGetSql() throws Exception {
+        SqlShapeCache cache = new SqlShapeCache(10);
+        String sql = cache.getSql(new String[] { "SELECT * FROM emp",
+                " WHERE empno = ?", null }, 2);
+        assertEquals("SELECT * FROM emp WHERE empno = ?", sql);
+        assertSame(sql, cache.getSql(new String[] { "SELECT * FROM emp",
+                new String(" WHERE empno = ?") }, 2));
+        assertNotSame(sql, cache.getSql(new String[] { "SELECT * FROM emp",
+                " WHERE empno = ?", " AND deptno = ?" }, 3));
+        assertEquals(2, cache.getSize());
+    }
+
+    public void testGetSql_maxSize() throws Exception {
+        SqlShapeCache cache = new SqlShapeCache(2);
+        String a = cache.getSql(new String[] { "a" }, 1);
+        cache.getSql(new String[] { "b", "c" }, 2);
+        assertSame(a, cache.getSql(new String[] { "a" }, 1));
+        cache.getSql(new String[] { "d", "e" }, 2);
+        assertEquals(2, cache.getSize());
+        assertSame(a, cache.getSql(new String[] { "a" }, 1));
+        assertEquals("bc", cache.getSql(new String[] { "b", "c" }, 2));
+    }
+
+    public void testGetSql_noCache() throws Exception {
+        SqlShapeCache cache = new SqlShapeCache(0);
+        assertEquals("ab", cache.getSql(new String[] { "a", "b" }, 2));
+        assertEquals(0, cache.getSize());
+    }
+
+    public void testGetSql_concurrent() throws Exception {
+        final SqlShapeCache cache = new SqlShapeCache(4);
+        final String[] errors = new String[1];
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 1000; ++j) {
+                        String n = String.valueOf(j % 8);
+                        String sql = cache.getSql(new String[] { "a", n }, 2);
+                        if (!sql.equals("a" + n)) {
+                            errors[0] = sql;
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+        }
+        assertNull(errors[0]);
+        assertEquals(4, cache.getSize());
+    }
+
+    public void testJoin() throws Exception {
+        assertEquals("", SqlShapeCache.join(new String[0], 0));
+        assertEquals("anull", SqlShapeCache.join(
+                new String[] { "a", null }, 2));
+    }
+
+    public void testCommandContext() throws Exception {
+        SqlShapeCache cache = new SqlShapeCache(10);
+        String sql = null;
+        for (int i = 0; i < 3; ++i) {
+            CommandContextImpl ctx = new CommandContextImpl(
+                    new CaseInsensitiveMap(),
+                    new Object[0], new Class[0], cache);
+            ctx.addSql("SELECT * FROM emp");
+            CommandContextImpl child = new CommandContextImpl(ctx);
+            child.addSql(" WHERE empno = ?", new Integer(i), Integer.class);
+            child.appendTo(ctx);
+            if (sql == null) {
+                sql = ctx.getSql();
+            }
+            assertSame(sql, ctx.getSql());
+            assertEquals(new Integer(i), ctx.getBindVariables()[0]);
+        }
+        assertEquals("SELECT * FROM emp WHERE empno = ?", sql);
+    }
+
+}
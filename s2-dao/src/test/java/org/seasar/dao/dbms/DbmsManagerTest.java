@@ -15,6 +15,14 @@
  */
 package org.seasar.dao.dbms;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+
+import javax.sql.DataSource;
+
 import junit.framework.TestCase;
 
 /**
@@ -37,4 +45,53 @@ public class DbmsManagerTest extends TestCase {
                 DbmsManager.getDbms("DB2 UDB for AS/400") instanceof DB2);
     }
 
+    public void testGetDbmsByDataSource() throws Exception {
+        final int[] count = new int[1];
+        final DatabaseMetaData dmd = (DatabaseMetaData) createProxy(
+                DatabaseMetaData.class, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        if (method.getName().equals("getDatabaseProductName")) {
+                            return "HSQL Database Engine";
+                        }
+                        return null;
+                    }
+                });
+        final Connection con = (Connection) createProxy(Connection.class,
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        if (method.getName().equals("getMetaData")) {
+                            return dmd;
+                        }
+                        return null;
+                    }
+                });
+        DataSource ds = (DataSource) createProxy(DataSource.class,
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        if (method.getName().equals("getConnection")) {
+                            count[0]++;
+                            return con;
+                        }
+                        if (method.getName().equals("hashCode")) {
+                            return new Integer(System.identityHashCode(proxy));
+                        }
+                        if (method.getName().equals("equals")) {
+                            return Boolean.valueOf(proxy == args[0]);
+                        }
+                        return null;
+                    }
+                });
+        assertTrue(DbmsManager.getDbms(ds) instanceof HSQL);
+        assertTrue(DbmsManager.getDbms(ds) instanceof HSQL);
+        assertEquals(1, count[0]);
+    }
+
+    private static Object createProxy(Class clazz, InvocationHandler handler) {
+        return Proxy.newProxyInstance(clazz.getClassLoader(),
+                new Class[] { clazz }, handler);
+    }
+
 }
@@ -133,6 +133,123 @@ public class BeanListMetaDataResultSetHandlerTest extends S2DaoTestCase {
         assertEquals("ACCOUNTING", dept2.getDname());
     }
 
+    public void testHandle_columnIndex() throws Exception {
+        BeanMetaData beanMetaData = createBeanMetaData(Employee.class);
+        ResultSetHandler handler = new BeanListMetaDataResultSetHandler(
+                beanMetaData, createRowCreator(), createRelationRowCreator());
+        String sql = "select dept.dname as dname_0, emp.ename, dept.loc as loc_0, emp.empno, emp.deptno from emp, dept where emp.deptno = dept.deptno and emp.empno = 7369";
+        Connection con = getConnection();
+        PreparedStatement ps = con.prepareStatement(sql);
+        List ret = null;
+        try {
+            ResultSet rs = ps.executeQuery();
+            try {
+                ret = (List) handler.handle(rs);
+            } finally {
+                rs.close();
+            }
+        } finally {
+            ps.close();
+        }
+        assertEquals(1, ret.size());
+        Employee emp = (Employee) ret.get(0);
+        assertEquals(7369, emp.getEmpno());
+        assertEquals("SMITH", emp.getEname());
+        assertEquals(20, emp.getDeptno());
+        Department dept = emp.getDepartment();
+        assertEquals("RESEARCH", dept.getDname());
+        assertEquals("DALLAS", dept.getLoc());
+    }
+
+    public void testHandle_registerValueOverridden() throws Exception {
+        BeanMetaData beanMetaData = createBeanMetaData(Employee.class);
+        final int[] count = new int[1];
+        RowCreator rowCreator = new RowCreatorImpl() {
+            protected void registerValue(ResultSet rs, Object row,
+                    org.seasar.extension.jdbc.PropertyType pt, String name)
+                    throws java.sql.SQLException {
+                ++count[0];
+                super.registerValue(rs, row, pt, name);
+            }
+        };
+        ResultSetHandler handler = new BeanListMetaDataResultSetHandler(
+                beanMetaData, rowCreator, createRelationRowCreator());
+        String sql = "select empno, ename from emp where empno = 7369";
+        Connection con = getConnection();
+        PreparedStatement ps = con.prepareStatement(sql);
+        List ret = null;
+        try {
+            ResultSet rs = ps.executeQuery();
+            try {
+                ret = (List) handler.handle(rs);
+            } finally {
+                rs.close();
+            }
+        } finally {
+            ps.close();
+        }
+        Employee emp = (Employee) ret.get(0);
+        assertEquals("SMITH", emp.getEname());
+        assertEquals(2, count[0]);
+    }
+
+    public void testHandle_reusePropertyCache() throws Exception {
+        BeanMetaData beanMetaData = createBeanMetaData(Employee.class);
+        final int[] count = new int[2];
+        RowCreator rowCreator = new RowCreatorImpl() {
+            public java.util.Map createPropertyCache(java.util.Set columnNames,
+                    BeanMetaData bmd) throws java.sql.SQLException {
+                ++count[0];
+                return super.createPropertyCache(columnNames, bmd);
+            }
+        };
+        RelationRowCreator relationRowCreator = new RelationRowCreatorImpl() {
+            public java.util.Map createPropertyCache(java.util.Set columnNames,
+                    BeanMetaData bmd) throws java.sql.SQLException {
+                ++count[1];
+                return super.createPropertyCache(columnNames, bmd);
+            }
+        };
+        BeanListMetaDataResultSetHandler handler = new BeanListMetaDataResultSetHandler(
+                beanMetaData, rowCreator, relationRowCreator);
+        String sql1 = "select emp.*, dept.dname as dname_0 from emp, dept where emp.deptno = dept.deptno and emp.deptno = ?";
+        String sql2 = "select emp.empno, emp.ename from emp where emp.deptno = ?";
+        assertEquals(5, handle(handler, sql1, 20).size());
+        assertEquals(6, handle(handler, sql1, 30).size());
+        assertEquals(1, handler.mappingCache.size());
+        assertEquals(1, count[0]);
+        assertEquals(1, count[1]);
+
+        List ret = handle(handler, sql2, 20);
+        assertEquals(2, handler.mappingCache.size());
+        assertEquals(2, count[0]);
+        Employee emp = (Employee) ret.get(0);
+        assertNotNull(emp.getEname());
+        assertEquals(0, emp.getDeptno());
+
+        ret = handle(handler, sql1, 10);
+        emp = (Employee) ret.get(0);
+        assertEquals("ACCOUNTING", emp.getDepartment().getDname());
+        assertEquals(2, count[0]);
+        assertEquals(2, count[1]);
+    }
+
+    private List handle(ResultSetHandler handler, String sql, int deptno)
+            throws Exception {
+        PreparedStatement ps = getConnection().prepareStatement(sql);
+        try {
+            ps.setInt(1, deptno);
+            ResultSet rs = ps.executeQuery();
+            try {
+                return (List) handler.handle(rs);
+            } finally {
+                rs.close();
+            }
+        } finally {
+            ps.close();
+        }
+    }
+
     protected RowCreator createRowCreator() {// [DAO-118] (2007/08/25)
         return new RowCreatorImpl();
     }
@@ -74,6 +74,23 @@ public class BeanMetaDataFactoryImplTest extends S2DaoTestCase {
         assertEquals(new Integer(0), new Integer(relationPropertyTypeSize));
     }
 
+    public void test_createBeanMetaData_cache_Tx() {
+        final BeanMetaDataFactoryImpl bmdFactory = (BeanMetaDataFactoryImpl) getBeanMetaDataFactory();
+        final BeanMetaData bmd = bmdFactory.createBeanMetaData(Employee.class);
+        assertSame(bmd, bmdFactory.createBeanMetaData(Employee.class));
+        assertSame(bmd, bmdFactory.createBeanMetaData(Employee.class, 0));
+        final BeanMetaData bmd1 = bmdFactory.createBeanMetaData(
+                Employee.class, 1);
+        assertNotSame(bmd, bmd1);
+        assertSame(bmd1, bmdFactory.createBeanMetaData(Employee.class, 1));
+        assertSame(bmd.getRelationPropertyType(0).getBeanMetaData(),
+                bmdFactory.createBeanMetaData(bmd.getRelationPropertyType(0)
+                        .getBeanMetaData().getBeanClass(), 1));
+
+        bmdFactory.dispose();
+        assertNotSame(bmd, bmdFactory.createBeanMetaData(Employee.class));
+    }
+
     public void test_newBeanMetaDataImpl() {
         // ## Arrange ##
         final String invokeMark = "test_newBeanMetaDataImpl()";
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.Set;
+
+import org.seasar.extension.unit.S2TestCase;
+
+/**
+ * 
+ */
+public class BulkTableMetaDataReaderTest extends S2TestCase {
+
+    private int getColumnsCount;
+
+    private int getPrimaryKeysCount;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        include("j2ee.dicon");
+    }
+
+    public void testGetColumnNames() throws Exception {
+        BulkTableMetaDataReader reader = new BulkTableMetaDataReader();
+        reader.setSchemaName("PUBLIC");
+        DatabaseMetaData dmd = createCountingMetaData();
+        Set expected = new TableMetaDataReaderImpl().getColumnNames(
+                getDatabaseMetaData(), "EMP");
+        Set columns = reader.getColumnNames(dmd, "EMP");
+        assertEquals(expected, columns);
+        assertTrue(reader.getColumnNames(dmd, "dept").contains("DNAME"));
+        assertTrue(reader.getColumnNames(dmd, "PUBLIC.EMP").contains(
+                "EMPNO"));
+        assertEquals(1, getColumnsCount);
+
+        assertTrue(reader.getPrimaryKeyNames(dmd, "EMP").contains("EMPNO"));
+        reader.dispose();
+    }
+
+    public void testGetColumnNames_defaultSchema() throws Exception {
+        BulkTableMetaDataReader reader = new BulkTableMetaDataReader();
+        DatabaseMetaData dmd = createCountingMetaData();
+        assertTrue(reader.getColumnNames(dmd, "EMP").contains("EMPNO"));
+        assertTrue(reader.getColumnNames(dmd, "DEPT").contains("DNAME"));
+        assertEquals(1, getColumnsCount);
+        reader.dispose();
+    }
+
+    public void testGetColumnNames_otherSchemaFiltered() throws Exception {
+        final String[][] rows = new String[][] { { "MY_S", "T1", "A" },
+                { "MYXS", "T1", "B" }, { "MY_S", "T2", "C" } };
+        final String[] schemaPattern = new String[1];
+        DatabaseMetaData dmd = (DatabaseMetaData) Proxy.newProxyInstance(
+                DatabaseMetaData.class.getClassLoader(),
+                new Class[] { DatabaseMetaData.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("getColumns")) {
+                            schemaPattern[0] = (String) args[1];
+                            return createResultSet(rows);
+                        } else if (name.equals("getSearchStringEscape")) {
+                            return "\\";
+                        } else if (name.equals("getURL")) {
+                            return "jdbc:test";
+                        } else if (name.equals("supportsMixedCaseIdentifiers")) {
+                            return Boolean.FALSE;
+                        } else if (name.equals("storesUpperCaseIdentifiers")) {
+                            return Boolean.TRUE;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+        BulkTableMetaDataReader reader = new BulkTableMetaDataReader();
+        reader.setSchemaName("MY_S");
+        Set columns = reader.getColumnNames(dmd, "T1");
+        assertEquals("MY\\_S", schemaPattern[0]);
+        assertEquals(1, columns.size());
+        assertTrue(columns.contains("A"));
+        assertTrue(reader.getColumnNames(dmd, "T2").contains("C"));
+        reader.dispose();
+    }
+
+    private static ResultSet createResultSet(final String[][] rows) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class
+                .getClassLoader(), new Class[] { ResultSet.class },
+                new InvocationHandler() {
+                    private int index = -1;
+
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("next")) {
+                            return Boolean.valueOf(++index < rows.length);
+                        } else if (name.equals("getString")) {
+                            int column = ((Integer) args[0]).intValue();
+                            return column == 1 ? null
+                                    : rows[index][column - 2];
+                        } else if (name.equals("close")) {
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    public void testGetColumnNames_notFound() throws Exception {
+        BulkTableMetaDataReader reader = new BulkTableMetaDataReader();
+        reader.setSchemaName("PUBLIC");
+        DatabaseMetaData dmd = createCountingMetaData();
+        assertTrue(reader.getColumnNames(dmd, "NO_SUCH_TABLE").isEmpty());
+        assertTrue(getColumnsCount > 1);
+        reader.dispose();
+    }
+
+    public void testGetPrimaryKeyNames_bulk() throws Exception {
+        BulkTableMetaDataReader reader = new BulkTableMetaDataReader();
+        reader.setSchemaName("PUBLIC");
+        reader.setBulkPrimaryKeys(true);
+        DatabaseMetaData dmd = createCountingMetaData();
+        Set primaryKeys = reader.getPrimaryKeyNames(dmd, "EMP");
+        assertEquals(1, primaryKeys.size());
+        assertTrue(primaryKeys.contains("empno"));
+        assertTrue(reader.getPrimaryKeyNames(dmd, "DEPT").contains("DEPTNO"));
+        assertEquals(1, getColumnsCount);
+        assertEquals(1, getPrimaryKeysCount);
+        reader.dispose();
+    }
+
+    private DatabaseMetaData createCountingMetaData() {
+        final DatabaseMetaData target = getDatabaseMetaData();
+        return (DatabaseMetaData) Proxy.newProxyInstance(
+                DatabaseMetaData.class.getClassLoader(),
+                new Class[] { DatabaseMetaData.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        if (method.getName().equals("getColumns")) {
+                            getColumnsCount++;
+                        } else if (method.getName().equals("getPrimaryKeys")) {
+                            getPrimaryKeysCount++;
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+    }
+
+}
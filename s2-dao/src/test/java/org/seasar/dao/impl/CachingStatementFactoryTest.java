@@ -0,0 +1,200 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.transaction.TransactionManager;
+
+import org.seasar.dao.unit.S2DaoTestCase;
+
+/**
+ * 
+ */
+public class CachingStatementFactoryTest extends S2DaoTestCase {
+
+    private static final String SQL = "SELECT ename FROM emp WHERE empno = ?";
+
+    private static final String INSERT_DEPT = "INSERT INTO dept (deptno, dname) VALUES (?, ?)";
+
+    private TransactionManager transactionManager;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        include("j2ee.dicon");
+    }
+
+    public void testCreatePreparedStatement_Tx() throws Exception {
+        CachingStatementFactory factory = new CachingStatementFactory();
+        factory.setTransactionManager(transactionManager);
+        Connection con = getConnection();
+
+        PreparedStatement ps = factory.createPreparedStatement(con, SQL);
+        ps.setInt(1, 7788);
+        ResultSet rs = ps.executeQuery();
+        assertTrue(rs.next());
+        assertEquals("SCOTT", rs.getString(1));
+        rs.close();
+        ps.close();
+
+        PreparedStatement ps2 = factory.createPreparedStatement(con, SQL);
+        assertSame(ps, ps2);
+        PreparedStatement ps3 = factory.createPreparedStatement(con, SQL);
+        assertNotSame(ps2, ps3);
+        ps3.close();
+        ps2.setInt(1, 7369);
+        rs = ps2.executeQuery();
+        assertTrue(rs.next());
+        assertEquals("SMITH", rs.getString(1));
+        rs.close();
+        ps2.close();
+
+        assertEquals(1, factory.getHitCount());
+        assertEquals(2, factory.getMissCount());
+    }
+
+    public void testCreatePreparedStatement_maxSize_Tx() throws Exception {
+        CachingStatementFactory factory = new CachingStatementFactory();
+        factory.setTransactionManager(transactionManager);
+        factory.setMaxSize(1);
+        Connection con = getConnection();
+
+        PreparedStatement ps = factory.createPreparedStatement(con, SQL);
+        ps.close();
+        factory.createPreparedStatement(con, "SELECT * FROM dept").close();
+        assertNotSame(ps, factory.createPreparedStatement(con, SQL));
+        assertEquals(0, factory.getHitCount());
+    }
+
+    public void testCreatePreparedStatement_restoreSettings_Tx()
+            throws Exception {
+        CachingStatementFactory factory = new CachingStatementFactory();
+        factory.setTransactionManager(transactionManager);
+        Connection con = getConnection();
+
+        PreparedStatement ps = factory.createPreparedStatement(con,
+                "SELECT ename FROM emp ORDER BY empno");
+        int queryTimeout = ps.getQueryTimeout();
+        ps.setMaxRows(1);
+        ps.setQueryTimeout(queryTimeout + 10);
+        ps.close();
+
+        PreparedStatement ps2 = factory.createPreparedStatement(con,
+                "SELECT ename FROM emp ORDER BY empno");
+        assertSame(ps, ps2);
+        assertEquals(0, ps2.getMaxRows());
+        assertEquals(queryTimeout, ps2.getQueryTimeout());
+        ResultSet rs = ps2.executeQuery();
+        int count = 0;
+        while (rs.next()) {
+            ++count;
+        }
+        rs.close();
+        ps2.close();
+        assertEquals(14, count);
+    }
+
+    public void testCreatePreparedStatement_abandonedBatch_Tx()
+            throws Exception {
+        CachingStatementFactory factory = new CachingStatementFactory();
+        factory.setTransactionManager(transactionManager);
+        Connection con = getConnection();
+
+        PreparedStatement ps = factory.createPreparedStatement(con,
+                INSERT_DEPT);
+        ps.setInt(1, 91);
+        ps.setString(2, "AAA");
+        ps.addBatch();
+        ps.close();
+
+        PreparedStatement ps2 = factory.createPreparedStatement(con,
+                INSERT_DEPT);
+        assertSame(ps, ps2);
+        ps2.setInt(1, 92);
+        ps2.setString(2, "BBB");
+        ps2.addBatch();
+        assertEquals(1, ps2.executeBatch().length);
+        ps2.close();
+        assertEquals(0, countDept(con, 91));
+        assertEquals(1, countDept(con, 92));
+    }
+
+    public void testCreatePreparedStatement_failedBatch_Tx() throws Exception {
+        CachingStatementFactory factory = new CachingStatementFactory();
+        factory.setTransactionManager(transactionManager);
+        Connection con = getConnection();
+
+        PreparedStatement ps = factory.createPreparedStatement(con,
+                INSERT_DEPT);
+        ps.setInt(1, 93);
+        ps.setString(2, "AAA");
+        ps.addBatch();
+        ps.setInt(1, 10);
+        ps.setString(2, "DUPLICATE");
+        ps.addBatch();
+        try {
+            ps.executeBatch();
+            fail();
+        } catch (SQLException expected) {
+        } finally {
+            ps.close();
+        }
+
+        PreparedStatement ps2 = factory.createPreparedStatement(con,
+                INSERT_DEPT);
+        assertNotSame(ps, ps2);
+        ps2.setInt(1, 94);
+        ps2.setString(2, "BBB");
+        ps2.addBatch();
+        assertEquals(1, ps2.executeBatch().length);
+        ps2.close();
+        assertEquals(1, countDept(con, 94));
+        assertEquals(0, factory.getHitCount());
+        assertEquals(2, factory.getMissCount());
+    }
+
+    private static int countDept(Connection con, int deptno)
+            throws SQLException {
+        PreparedStatement ps = con
+                .prepareStatement("SELECT COUNT(*) FROM dept WHERE deptno = ?");
+        try {
+            ps.setInt(1, deptno);
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            ps.close();
+        }
+    }
+
+    public void testCreatePreparedStatement_noTransaction() throws Exception {
+        CachingStatementFactory factory = new CachingStatementFactory();
+        Connection con = getConnection();
+        try {
+            PreparedStatement ps = factory.createPreparedStatement(con, SQL);
+            ps.close();
+            assertNotSame(ps, factory.createPreparedStatement(con, SQL));
+        } finally {
+            con.close();
+        }
+        assertEquals(0, factory.getHitCount());
+        assertEquals(0, factory.getMissCount());
+    }
+
+}
@@ -15,9 +15,13 @@
  */
 package org.seasar.dao.impl;
 
+import java.lang.reflect.Method;
 import java.util.List;
 
 import org.seasar.dao.DaoMetaData;
+import org.seasar.dao.IllegalSignatureRuntimeException;
+import org.seasar.dao.MethodSetupFailureRuntimeException;
+import org.seasar.dao.SqlCommand;
 import org.seasar.extension.unit.S2TestCase;
 import org.seasar.framework.util.DisposableUtil;
 
@@ -75,10 +79,135 @@ public class DaoMetaDataFactoryImplTest extends S2TestCase {
         assertEquals(0, daoMetaDataFactory.daoMetaDataCache.size());
     }
 
+    public void testGetSqlCommand_lazy() throws Exception {
+        final DaoMetaData dmd = daoMetaDataFactory.getDaoMetaData(FooDao.class);
+        assertTrue(dmd.hasSqlCommand("findAll"));
+        assertFalse(dmd.hasSqlCommand("findNothing"));
+        final SqlCommand cmd = dmd.getSqlCommand("findAll");
+        assertNotNull(cmd);
+        assertSame(cmd, dmd.getSqlCommand("findAll"));
+    }
+
+    public void testGetSqlCommand_lazySetupFailure() throws Exception {
+        final DaoMetaData dmd = daoMetaDataFactory
+                .getDaoMetaData(IllegalEmployeeAutoDao.class);
+        assertTrue(dmd.hasSqlCommand("insertIllegal"));
+        try {
+            dmd.getSqlCommand("insertIllegal");
+            fail();
+        } catch (final MethodSetupFailureRuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalSignatureRuntimeException);
+        }
+    }
+
+    public void testGetDaoMetaData_eagerSqlCommandSetup() throws Exception {
+        daoMetaDataFactory.setEagerSqlCommandSetup(true);
+        try {
+            daoMetaDataFactory.getDaoMetaData(IllegalEmployeeAutoDao.class);
+            fail();
+        } catch (final MethodSetupFailureRuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalSignatureRuntimeException);
+        }
+    }
+
+    public void testGetDaoMetaData_concurrent() throws Exception {
+        final int[] count = new int[1];
+        final DaoMetaDataFactoryImpl factory = new DaoMetaDataFactoryImpl() {
+            protected DaoMetaData createDaoMetaData(final Class daoClass) {
+                synchronized (count) {
+                    count[0]++;
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (final InterruptedException ignore) {
+                }
+                return new DaoMetaDataImpl();
+            }
+        };
+        final DaoMetaData[] results = new DaoMetaData[10];
+        final Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; ++i) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    results[index] = factory.getDaoMetaData(FooDao.class);
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+        }
+        assertEquals(1, count[0]);
+        for (int i = 0; i < results.length; ++i) {
+            assertSame(results[0], results[i]);
+        }
+        assertSame(results[0], factory.getDaoMetaData(FooDao.class));
+        assertEquals(1, factory.daoMetaDataCache.size());
+        assertEquals(0, factory.pendingDaoMetaData.size());
+        factory.dispose();
+    }
+
+    public void testGetSqlCommand_setupLockPerMethod() throws Exception {
+        final Object blocker = new Object();
+        final boolean[] released = new boolean[1];
+        final DaoMetaDataImpl dmd = new DaoMetaDataImpl() {
+            protected void setupMethod(final Method method) {
+                if (method.getName().equals("findAll")) {
+                    synchronized (blocker) {
+                        blocker.notifyAll();
+                        while (!released[0]) {
+                            try {
+                                blocker.wait(5000);
+                            } catch (final InterruptedException e) {
+                                return;
+                            }
+                        }
+                    }
+                }
+                putSqlCommand(method.getName(), new SqlCommand() {
+                    public Object execute(Object[] args) {
+                        return null;
+                    }
+                });
+            }
+        };
+        dmd.pendingMethods.put("findAll", FooDao.class.getMethod("findAll",
+                null));
+        dmd.pendingMethods.put("findArray", FooDao.class.getMethod(
+                "findArray", null));
+        final SqlCommand[] findAll = new SqlCommand[1];
+        final Thread thread = new Thread() {
+            public void run() {
+                findAll[0] = dmd.getSqlCommand("findAll");
+            }
+        };
+        synchronized (blocker) {
+            thread.start();
+            blocker.wait(5000);
+        }
+        try {
+            // findAllの生成中でも、別のメソッドは待たずに生成できる
+            assertNotNull(dmd.getSqlCommand("findArray"));
+            assertTrue(dmd.hasSqlCommand("findAll"));
+        } finally {
+            synchronized (blocker) {
+                released[0] = true;
+                blocker.notifyAll();
+            }
+            thread.join();
+        }
+        assertNotNull(findAll[0]);
+        assertSame(findAll[0], dmd.getSqlCommand("findAll"));
+        assertEquals(0, dmd.pendingMethods.size());
+    }
+
     public static interface FooDao {
         Class BEAN = Foo.class;
 
         List findAll();
+
+        Foo[] findArray();
     }
 
     public static class Foo {
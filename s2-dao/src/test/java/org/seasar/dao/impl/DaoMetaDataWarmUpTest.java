@@ -0,0 +1,54 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.util.Map;
+
+import org.seasar.dao.MethodSetupFailureRuntimeException;
+import org.seasar.extension.unit.S2TestCase;
+
+public class DaoMetaDataWarmUpTest extends S2TestCase {
+
+    private DaoMetaDataWarmUp warmUp;
+
+    private DaoMetaDataFactoryImpl daoMetaDataFactory;
+
+    protected void setUp() throws Exception {
+        include("DaoMetaDataWarmUpTest.dicon");
+    }
+
+    public void testWarmUp() throws Exception {
+        warmUp.warmUp();
+
+        final Map buildTimes = warmUp.getBuildTimes();
+        assertEquals(1, buildTimes.size());
+        assertTrue(buildTimes.containsKey(DaoMetaDataFactoryImplTest.FooDao.class
+                .getName()));
+        final Map failures = warmUp.getFailures();
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(IllegalEmployeeAutoDao.class.getName()) instanceof MethodSetupFailureRuntimeException);
+        assertEquals(2, daoMetaDataFactory.daoMetaDataCache.size());
+    }
+
+    public void testWarmUp_withoutSqlCommand() throws Exception {
+        warmUp.setSetupSqlCommand(false);
+        warmUp.warmUp();
+
+        assertEquals(2, warmUp.getBuildTimes().size());
+        assertEquals(0, warmUp.getFailures().size());
+    }
+
+}
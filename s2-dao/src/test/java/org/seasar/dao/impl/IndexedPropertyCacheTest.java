@@ -0,0 +1,103 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import junit.framework.TestCase;
+
+import org.seasar.extension.jdbc.PropertyType;
+import org.seasar.extension.jdbc.impl.PropertyTypeImpl;
+import org.seasar.extension.jdbc.types.ValueTypes;
+
+public class IndexedPropertyCacheTest extends TestCase {
+
+    public void testResolveColumnIndexes() throws Exception {
+        ColumnNameSet columnNames = new ColumnNameSet();
+        assertTrue(columnNames.add("AAA", 1));
+        assertTrue(columnNames.add("bbb", 2));
+        assertFalse(columnNames.add("BBB", 3));
+        assertEquals(2, columnNames.getColumnIndex("BBB"));
+        assertEquals(-1, columnNames.getColumnIndex("ccc"));
+
+        PropertyType aaa = new PropertyTypeImpl("aaa", ValueTypes.STRING);
+        PropertyType bbb = new PropertyTypeImpl("bbb", ValueTypes.STRING);
+        IndexedPropertyCache cache = new IndexedPropertyCache();
+        cache.put("aaa", aaa);
+        cache.put("BBB", bbb);
+        assertFalse(cache.isColumnIndexResolved());
+        assertTrue(cache.resolveColumnIndexes(columnNames));
+        assertTrue(cache.isColumnIndexResolved());
+        int[] columnIndexes = cache.getColumnIndexes();
+        PropertyType[] propertyTypes = cache.getPropertyTypes();
+        String[] names = cache.getColumnNames();
+        assertEquals(2, columnIndexes.length);
+        for (int i = 0; i < columnIndexes.length; ++i) {
+            assertSame(cache.get(names[i]), propertyTypes[i]);
+            assertEquals(propertyTypes[i] == aaa ? 1 : 2, columnIndexes[i]);
+        }
+
+        cache.remove("aaa");
+        assertFalse(cache.isColumnIndexResolved());
+    }
+
+    public void testFindColumnNameWithoutUnderscore() throws Exception {
+        ColumnNameSet columnNames = new ColumnNameSet();
+        columnNames.add("EMP_NO", 1);
+        columnNames.add("E_MPNO", 2);
+        assertEquals("emp_no", columnNames
+                .findColumnNameWithoutUnderscore("empNo"));
+        assertNull(columnNames.findColumnNameWithoutUnderscore("emp_no"));
+        columnNames.add("DEPT_NO", 3);
+        assertEquals("dept_no", columnNames
+                .findColumnNameWithoutUnderscore("DEPTNO"));
+    }
+
+    public void testSetRowMapper() throws Exception {
+        IndexedPropertyCache cache = new IndexedPropertyCache();
+        assertFalse(cache.hasRowMapper(String.class));
+        assertNull(cache.getRowMapper(String.class));
+
+        RowMapper rowMapper = new RowMapper() {
+            public Object mapRow(java.sql.ResultSet rs, int[] columnIndexes,
+                    PropertyType[] propertyTypes) {
+                return null;
+            }
+        };
+        cache.setRowMapper(String.class, rowMapper);
+        assertTrue(cache.hasRowMapper(String.class));
+        assertSame(rowMapper, cache.getRowMapper(String.class));
+        assertSame(rowMapper, cache.getRowMapper());
+        assertFalse(cache.hasRowMapper(Integer.class));
+        assertNull(cache.getRowMapper(Integer.class));
+
+        cache.setRowMapper(Integer.class, null);
+        assertTrue(cache.hasRowMapper(Integer.class));
+        assertNull(cache.getRowMapper(Integer.class));
+        assertNull(cache.getRowMapper(String.class));
+
+        cache.put("aaa", new PropertyTypeImpl("aaa", ValueTypes.STRING));
+        assertFalse(cache.hasRowMapper(Integer.class));
+    }
+
+    public void testResolveColumnIndexes_unknownColumn() throws Exception {
+        ColumnNameSet columnNames = new ColumnNameSet();
+        columnNames.add("AAA", 1);
+        IndexedPropertyCache cache = new IndexedPropertyCache();
+        cache.put("aaa", new PropertyTypeImpl("aaa", ValueTypes.STRING));
+        cache.put("bbb", new PropertyTypeImpl("bbb", ValueTypes.STRING));
+        assertFalse(cache.resolveColumnIndexes(columnNames));
+        assertFalse(cache.isColumnIndexResolved());
+    }
+}
@@ -37,6 +37,8 @@ public class NoPropertyForUpdateTest extends S2TestCase {
     }
 
     public void testExceptionOnUpdate() {
+        ((DaoMetaDataFactoryImpl) getComponent(DaoMetaDataFactoryImpl.class))
+                .setEagerSqlCommandSetup(true);
         try {
             noPropertyForUpdateDao.delete(new NoPropertyForUpdate());
             fail();
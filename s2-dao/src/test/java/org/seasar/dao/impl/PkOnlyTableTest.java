@@ -56,6 +56,8 @@ public class PkOnlyTableTest extends S2DaoTestCase {
     }
 
     public void testUpdateUnlessNullTx() throws Exception {
+        ((DaoMetaDataFactoryImpl) getComponent(DaoMetaDataFactoryImpl.class))
+                .setEagerSqlCommandSetup(true);
         PkOnlyTableDao2 dao = (PkOnlyTableDao2) getComponent(PkOnlyTableDao2.class);
         try {
             dao.updateUnlessNull(new PkOnlyTable());
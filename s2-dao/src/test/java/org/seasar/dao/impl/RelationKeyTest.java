@@ -38,7 +38,22 @@ public class RelationKeyTest extends TestCase {
     public void testHashCode() throws Exception {
         Object[] values = new Object[] { "1", "2" };
         RelationKey pk = new RelationKey(values);
-        assertEquals("1", "1".hashCode() + "2".hashCode(), pk.hashCode());
+        assertEquals("1", 31 * "1".hashCode() + "2".hashCode(), pk.hashCode());
+        assertFalse("2", new RelationKey(new Object[] { new Integer(1),
+                new Integer(2) }).hashCode() == new RelationKey(new Object[] {
+                new Integer(2), new Integer(1) }).hashCode());
+    }
+
+    public void testSingleValue() throws Exception {
+        RelationKey pk = new RelationKey("1");
+        assertEquals("1", pk, new RelationKey(new Object[] { "1" }));
+        assertEquals("2", new RelationKey(new Object[] { "1" }), pk);
+        assertEquals("3", "1".hashCode(), pk.hashCode());
+        assertEquals("4", new RelationKey(new Object[] { "1" }).hashCode(), pk
+                .hashCode());
+        assertFalse("5", pk.equals(new RelationKey(new Object[] { "1", "2" })));
+        assertEquals("6", 1, pk.getValues().length);
+        assertEquals("7", "1", pk.getValues()[0]);
     }
 
     public static class MyBean {
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class RelationRowCacheTest extends TestCase {
+
+    public void testGetRelationRow() throws Exception {
+        RelationRowCache cache = new RelationRowCache(2);
+        assertNull(cache.getRelationRow(0, new RelationKey("a")));
+        cache.addRelationRow(0, new RelationKey("a"), "rowA");
+        cache.addRelationRow(1, new RelationKey(new Object[] { "a", "b" }),
+                "rowAB");
+        assertEquals("rowA", cache.getRelationRow(0, new RelationKey("a")));
+        assertEquals("rowA", cache.getRelationRow(0, new Object[] { "a" }));
+        assertNull(cache.getRelationRow(1, new RelationKey("a")));
+        assertEquals("rowAB", cache.getRelationRow(1, new Object[] { "a",
+                "b" }));
+        assertNull(cache.getRelationRow(1, new Object[] { "b", "a" }));
+        assertEquals(2, cache.size());
+    }
+
+    public void testAddRelationRow_resize() throws Exception {
+        RelationRowCache cache = new RelationRowCache(1, 4);
+        for (int i = 0; i < 1000; ++i) {
+            cache.addRelationRow(0, new RelationKey(new Integer(i)), "row" + i);
+        }
+        cache.addRelationRow(0, new RelationKey(new Integer(10)), "replaced");
+        assertEquals(1000, cache.size());
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i == 10 ? "replaced" : "row" + i, cache
+                    .getRelationRow(0, new Object[] { new Integer(i) }));
+        }
+        assertNull(cache.getRelationRow(0, new Object[] { new Integer(1000) }));
+    }
+
+    public void testGetRowMap() throws Exception {
+        RelationRowCache cache = new RelationRowCache(2);
+        Map rowMap = cache.getRowMap(0);
+        assertTrue(rowMap.isEmpty());
+        assertTrue(cache.getRowMap(1).isEmpty());
+
+        cache.addRelationRow(0, new RelationKey("a"), "rowA");
+        cache.addRelationRow(0, new RelationKey("b"), "rowB");
+        assertEquals(2, rowMap.size());
+        assertEquals("rowA", rowMap.get(new RelationKey("a")));
+        assertTrue(rowMap.containsKey(new RelationKey("b")));
+        assertFalse(rowMap.containsKey("b"));
+        Map expected = new HashMap();
+        expected.put(new RelationKey("a"), "rowA");
+        expected.put(new RelationKey("b"), "rowB");
+        assertEquals(expected, rowMap);
+        try {
+            rowMap.put(new RelationKey("c"), "rowC");
+            fail();
+        } catch (UnsupportedOperationException expectedException) {
+        }
+    }
+
+    public void testClear() throws Exception {
+        RelationRowCache cache = new RelationRowCache(1);
+        cache.addRelationRow(0, new RelationKey("a"), "rowA");
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.getRelationRow(0, new RelationKey("a")));
+        cache.addRelationRow(0, new RelationKey("a"), "rowA");
+        assertEquals("rowA", cache.getRelationRow(0, new RelationKey("a")));
+    }
+}
@@ -15,6 +15,11 @@
  */
 package org.seasar.dao.impl;
 
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.seasar.dao.IllegalSignatureRuntimeException;
+import org.seasar.dao.RowHandler;
 import org.seasar.dao.impl.BeanMetaDataResultSetHandler.RestrictBeanMetaDataResultSetHandler;
 import org.seasar.dao.impl.DtoMetaDataResultSetHandler.RestrictDtoMetaDataResultSetHandler;
 import org.seasar.dao.impl.MapResultSetHandler.RestrictMapResultSetHandler;
@@ -94,4 +99,44 @@ public class ResultSetHandlerFactoryImplTest extends S2DaoTestCase {
         assertFalse(handler instanceof RestrictObjectResultSetHandler);
     }
 
+    public void testCheckRowHandlingReturnType() throws Exception {
+        String[] validNames = new String[] { "handleVoid", "handleInt",
+                "handleInteger", "handleNumber" };
+        for (int i = 0; i < validNames.length; ++i) {
+            resultSetHandlerFactoryImpl
+                    .checkRowHandlingReturnType(getRowHandlerMethod(validNames[i]));
+        }
+        String[] invalidNames = new String[] { "handleList", "handleLong" };
+        for (int i = 0; i < invalidNames.length; ++i) {
+            Method method = getRowHandlerMethod(invalidNames[i]);
+            try {
+                resultSetHandlerFactoryImpl.checkRowHandlingReturnType(method);
+                fail(invalidNames[i]);
+            } catch (IllegalSignatureRuntimeException e) {
+                assertEquals("EDAO0037", e.getMessageCode());
+                assertEquals(method.toString(), e.getSignature());
+            }
+        }
+    }
+
+    private Method getRowHandlerMethod(String name) throws Exception {
+        return RowHandlerDao.class.getMethod(name,
+                new Class[] { RowHandler.class });
+    }
+
+    public interface RowHandlerDao {
+
+        void handleVoid(RowHandler rowHandler);
+
+        int handleInt(RowHandler rowHandler);
+
+        Integer handleInteger(RowHandler rowHandler);
+
+        Number handleNumber(RowHandler rowHandler);
+
+        List handleList(RowHandler rowHandler);
+
+        long handleLong(RowHandler rowHandler);
+    }
+
 }
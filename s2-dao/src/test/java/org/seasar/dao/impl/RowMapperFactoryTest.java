@@ -0,0 +1,268 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Date;
+
+import org.seasar.dao.unit.S2DaoTestCase;
+import org.seasar.extension.jdbc.PropertyType;
+import org.seasar.extension.jdbc.ValueType;
+import org.seasar.extension.jdbc.impl.PropertyTypeImpl;
+import org.seasar.extension.jdbc.types.ValueTypes;
+import org.seasar.framework.beans.BeanDesc;
+import org.seasar.framework.beans.IllegalPropertyRuntimeException;
+import org.seasar.framework.beans.factory.BeanDescFactory;
+
+public class RowMapperFactoryTest extends S2DaoTestCase {
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        include("j2ee.dicon");
+    }
+
+    protected void tearDown() throws Exception {
+        RowMapperFactory.clear();
+        super.tearDown();
+    }
+
+    public void testGetRowMapper() throws Exception {
+        PropertyType[] propertyTypes = new PropertyType[] {
+                createPropertyType(MyBean.class, "empno"),
+                createPropertyType(MyBean.class, "ename"),
+                createPropertyType(MyBean.class, "comm"),
+                createPropertyType(MyBean.class, "mgr", ValueTypes.STRING),
+                createPropertyType(MyBean.class, "hiredate"),
+                createPropertyType(MyBean.class, "deptno"),
+                createPropertyType(MyBean.class, "job") };
+        RowMapper rowMapper = RowMapperFactory.getRowMapper(MyBean.class,
+                propertyTypes);
+        assertNotNull(rowMapper);
+        assertSame(rowMapper, RowMapperFactory.getRowMapper(MyBean.class,
+                propertyTypes));
+
+        PreparedStatement ps = getConnection().prepareStatement(
+                "select deptno, hiredate, mgr, comm, ename, empno, comm as job from emp where empno = 7369");
+        try {
+            ResultSet rs = ps.executeQuery();
+            try {
+                assertTrue(rs.next());
+                MyBean bean = (MyBean) rowMapper.mapRow(rs, new int[] { 6,
+                        5, 4, 3, 2, 1, 7 }, propertyTypes);
+                assertEquals(7369, bean.getEmpno());
+                assertEquals("SMITH", bean.getEname());
+                assertEquals(0, bean.getComm());
+                assertEquals(7902, bean.getMgr());
+                assertNotNull(bean.getHiredate());
+                assertEquals(new Integer(20), bean.getDeptno());
+                assertNull(bean.getJob());
+            } finally {
+                rs.close();
+            }
+        } finally {
+            ps.close();
+        }
+    }
+
+    public void testGetRowMapper_setterException() throws Exception {
+        PropertyType[] propertyTypes = new PropertyType[] { createPropertyType(
+                FailingBean.class, "ename") };
+        RowMapper rowMapper = RowMapperFactory.getRowMapper(FailingBean.class,
+                propertyTypes);
+        assertNotNull(rowMapper);
+
+        PreparedStatement ps = getConnection().prepareStatement(
+                "select ename from emp where empno = 7369");
+        try {
+            ResultSet rs = ps.executeQuery();
+            try {
+                assertTrue(rs.next());
+                try {
+                    rowMapper.mapRow(rs, new int[] { 1 }, propertyTypes);
+                    fail();
+                } catch (IllegalPropertyRuntimeException e) {
+                    assertEquals("ename", e.getPropertyName());
+                    assertEquals(FailingBean.class, e.getComponentClass());
+                    assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            ps.close();
+        }
+    }
+
+    public void testGetRowMapper_notPublic() throws Exception {
+        PropertyType[] propertyTypes = new PropertyType[] { createPropertyType(
+                PackagePrivateBean.class, "empno") };
+        assertNull(RowMapperFactory.getRowMapper(PackagePrivateBean.class,
+                propertyTypes));
+    }
+
+    public void testGetRowMapper_disabled() throws Exception {
+        PropertyType[] propertyTypes = new PropertyType[] { createPropertyType(
+                MyBean.class, "empno") };
+        RowMapperFactory.setEnabled(false);
+        try {
+            assertNull(RowMapperFactory.getRowMapper(MyBean.class,
+                    propertyTypes));
+        } finally {
+            RowMapperFactory.setEnabled(true);
+        }
+    }
+
+    public void testCreateRow_newBeanOverridden() throws Exception {
+        RowCreatorImpl rowCreator = new RowCreatorImpl() {
+            protected Object newBean(Class beanClass) {
+                MyBean bean = new MyBean();
+                bean.setEname("DEFAULT");
+                return bean;
+            }
+        };
+        IndexedPropertyCache propertyCache = new IndexedPropertyCache();
+        propertyCache.put("EMPNO", createPropertyType(MyBean.class, "empno"));
+        ColumnNameSet columnNames = new ColumnNameSet();
+        columnNames.add("EMPNO", 1);
+        propertyCache.resolveColumnIndexes(columnNames);
+
+        PreparedStatement ps = getConnection().prepareStatement(
+                "select empno from emp where empno = 7369");
+        try {
+            ResultSet rs = ps.executeQuery();
+            try {
+                assertTrue(rs.next());
+                MyBean bean = (MyBean) rowCreator.createRow(rs, propertyCache,
+                        MyBean.class);
+                assertEquals(7369, bean.getEmpno());
+                assertEquals("DEFAULT", bean.getEname());
+                assertNull(propertyCache.getRowMapper());
+            } finally {
+                rs.close();
+            }
+        } finally {
+            ps.close();
+        }
+    }
+
+    private PropertyType createPropertyType(Class beanClass, String name) {
+        BeanDesc beanDesc = BeanDescFactory.getBeanDesc(beanClass);
+        return createPropertyType(beanClass, name, ValueTypes
+                .getValueType(beanDesc.getPropertyDesc(name)
+                        .getPropertyType()));
+    }
+
+    private PropertyType createPropertyType(Class beanClass, String name,
+            ValueType valueType) {
+        BeanDesc beanDesc = BeanDescFactory.getBeanDesc(beanClass);
+        return new PropertyTypeImpl(beanDesc.getPropertyDesc(name), valueType);
+    }
+
+    public static class MyBean {
+
+        private int empno;
+
+        private String ename;
+
+        private long comm;
+
+        private int mgr;
+
+        private Date hiredate;
+
+        private Integer deptno;
+
+        private byte[] job;
+
+        public int getEmpno() {
+            return empno;
+        }
+
+        public void setEmpno(int empno) {
+            this.empno = empno;
+        }
+
+        public String getEname() {
+            return ename;
+        }
+
+        public void setEname(String ename) {
+            this.ename = ename;
+        }
+
+        public long getComm() {
+            return comm;
+        }
+
+        public void setComm(long comm) {
+            this.comm = comm;
+        }
+
+        public int getMgr() {
+            return mgr;
+        }
+
+        public void setMgr(int mgr) {
+            this.mgr = mgr;
+        }
+
+        public Date getHiredate() {
+            return hiredate;
+        }
+
+        public void setHiredate(Date hiredate) {
+            this.hiredate = hiredate;
+        }
+
+        public Integer getDeptno() {
+            return deptno;
+        }
+
+        public void setDeptno(Integer deptno) {
+            this.deptno = deptno;
+        }
+
+        public byte[] getJob() {
+            return job;
+        }
+
+        public void setJob(byte[] job) {
+            this.job = job;
+        }
+    }
+
+    public static class FailingBean {
+
+        public void setEname(String ename) {
+            throw new IllegalStateException(ename);
+        }
+    }
+
+    static class PackagePrivateBean {
+
+        private int empno;
+
+        public int getEmpno() {
+            return empno;
+        }
+
+        public void setEmpno(int empno) {
+            this.empno = empno;
+        }
+    }
+
+}
@@ -16,11 +16,14 @@
 package org.seasar.dao.impl;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.seasar.dao.DaoMetaData;
 import org.seasar.dao.RelationRowCreator;
 import org.seasar.dao.RowCreator;
+import org.seasar.dao.RowHandler;
 import org.seasar.dao.SqlCommand;
 import org.seasar.dao.pager.NullPagingSqlRewriter;
 import org.seasar.dao.unit.S2DaoTestCase;
@@ -85,6 +88,109 @@ public class SelectDynamicCommandTest extends S2DaoTestCase {
         List getEmployeeByDto(String s);
     }
 
+    public void testExecute_rowHandler() throws Exception {
+        DaoMetaData dmd = createDaoMetaData(RowHandlerDao.class);
+        SqlCommand cmd = dmd.getSqlCommand("findByDeptno");
+        RowCollector collector = new RowCollector(-1);
+        Object count = cmd.execute(new Object[] { new Integer(20), collector });
+        assertEquals(new Integer(5), count);
+        assertEquals(5, collector.rows.size());
+        Employee emp = (Employee) collector.rows.get(0);
+        assertEquals(20, emp.getDeptno());
+        assertEquals("RESEARCH", emp.getDepartment().getDname());
+
+        cmd = dmd.getSqlCommand("getEmployeeDtos");
+        collector = new RowCollector(-1);
+        count = cmd.execute(new Object[] { new Integer(10), collector });
+        assertEquals(new Integer(3), count);
+        assertTrue(collector.rows.get(0) instanceof EmployeeDto);
+
+        cmd = dmd.getSqlCommand("getEmployeeMaps");
+        collector = new RowCollector(-1);
+        count = cmd.execute(new Object[] { new Integer(10), collector });
+        assertEquals(new Integer(3), count);
+        assertTrue(collector.rows.get(0) instanceof Map);
+
+        cmd = dmd.getSqlCommand("getEnames");
+        collector = new RowCollector(-1);
+        count = cmd.execute(new Object[] { new Integer(10), collector });
+        assertEquals(new Integer(3), count);
+        assertTrue(collector.rows.get(0) instanceof String);
+    }
+
+    public void testExecute_rowHandlerStop() throws Exception {
+        DaoMetaData dmd = createDaoMetaData(RowHandlerDao.class);
+        SqlCommand cmd = dmd.getSqlCommand("findByDeptno");
+        RowCollector collector = new RowCollector(2);
+        Object count = cmd.execute(new Object[] { new Integer(30), collector });
+        assertEquals(new Integer(2), count);
+        assertEquals(2, collector.rows.size());
+    }
+
+    public void testExecute_rowHandlerWithNotRowHandlingResultSetHandler()
+            throws Exception {
+        SelectDynamicCommand cmd = new SelectDynamicCommand(getDataSource(),
+                BasicStatementFactory.INSTANCE,
+                new BeanMetaDataResultSetHandler(
+                        createBeanMetaData(Employee.class), createRowCreator(),
+                        createRelationRowCreator()),
+                BasicResultSetFactory.INSTANCE, new NullPagingSqlRewriter());
+        cmd.setSql("SELECT * FROM emp WHERE empno = /*empno*/1234");
+        RowCollector collector = new RowCollector(-1);
+        Object count = cmd.execute(new Object[] { new Integer(7788),
+                collector });
+        assertEquals(new Integer(1), count);
+        assertTrue(collector.rows.get(0) instanceof Employee);
+    }
+
+    public static class RowCollector implements RowHandler {
+
+        private final int limit;
+
+        private final List rows = new ArrayList();
+
+        public RowCollector(int limit) {
+            this.limit = limit;
+        }
+
+        public boolean handleRow(Object row) {
+            rows.add(row);
+            return rows.size() != limit;
+        }
+    }
+
+    public interface RowHandlerDao {
+        public Class BEAN = Employee.class;
+
+        public String findByDeptno_ARGS = "deptno";
+
+        int findByDeptno(Integer deptno, RowHandler rowHandler);
+
+        public Class getEmployeeDtos_BEAN = EmployeeDto.class;
+
+        public String getEmployeeDtos_ARGS = "deptno";
+
+        public String getEmployeeDtos_QUERY = "deptno = /*deptno*/10";
+
+        int getEmployeeDtos(Integer deptno, RowHandler rowHandler);
+
+        public Class getEmployeeMaps_BEAN = Map.class;
+
+        public String getEmployeeMaps_ARGS = "deptno";
+
+        public String getEmployeeMaps_QUERY = "deptno = /*deptno*/10";
+
+        void getEmployeeMaps(Integer deptno, RowHandler rowHandler);
+
+        public Class getEnames_BEAN = String.class;
+
+        public String getEnames_ARGS = "deptno";
+
+        public String getEnames_SQL = "SELECT ename FROM emp WHERE deptno = /*deptno*/10";
+
+        int getEnames(Integer deptno, RowHandler rowHandler);
+    }
+
     public void testSelectByDtoTx() throws Exception {
         DaoMetaData dmd = createDaoMetaData(Emp3Dao.class);
         SqlCommand cmd = dmd.getSqlCommand("insert");
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * 
+ */
+public class SqlFileIndexGeneratorTest extends TestCase {
+
+    private static final String BASE = "org/seasar/dao/impl/EmployeeDao_";
+
+    public void testGenerate() throws Exception {
+        Properties props = new SqlFileIndexGenerator()
+                .generate(EmployeeDao.class);
+        assertEquals("true", props.getProperty(BASE + "getCount.sql"));
+        assertEquals("true", props.getProperty(BASE + "getCount_hsql.sql"));
+        assertEquals("false", props.getProperty(BASE + "getCount_oracle.sql"));
+        assertEquals("false", props.getProperty(BASE + "findAll.sql"));
+        assertEquals("true", props
+                .getProperty("org/seasar/dao/impl/sqlfile/getCount.sql"));
+        assertEquals(SqlFileIndexGenerator.getFingerprint(EmployeeDao.class),
+                props.getProperty(SqlFileIndexGenerator.FINGERPRINT_KEY));
+        assertEquals(SqlFileIndexGenerator.getSqlFilesFingerprint(props),
+                props.getProperty(SqlFileIndexGenerator.SQL_FILES_FINGERPRINT_KEY));
+    }
+
+    public void testGetSqlFilesFingerprint() throws Exception {
+        Properties index = new Properties();
+        index.setProperty(BASE + "getCount.sql", "true");
+        String fingerprint = SqlFileIndexGenerator
+                .getSqlFilesFingerprint(index);
+        assertNotNull(fingerprint);
+
+        index.setProperty(BASE + "findAll.sql", "false");
+        assertEquals(fingerprint, SqlFileIndexGenerator
+                .getSqlFilesFingerprint(index));
+
+        index.setProperty("org/seasar/dao/impl/sqlfile/getCount.sql", "true");
+        assertFalse(fingerprint.equals(SqlFileIndexGenerator
+                .getSqlFilesFingerprint(index)));
+
+        index.setProperty("getCount.sql", "false");
+        assertNull(SqlFileIndexGenerator.getSqlFilesFingerprint(index));
+    }
+
+    public void testGetFingerprint() throws Exception {
+        String fingerprint = SqlFileIndexGenerator
+                .getFingerprint(EmployeeDao.class);
+        assertEquals(fingerprint, SqlFileIndexGenerator
+                .getFingerprint(EmployeeDao.class));
+        assertFalse(fingerprint.equals(SqlFileIndexGenerator
+                .getFingerprint(IndexedDao.class)));
+    }
+
+    public void testLoadSqlFileIndex_stale() throws Exception {
+        File dir = ResourceUtil.getBuildDir(getClass());
+        File file = new SqlFileIndexGenerator().write(IndexedDao.class, dir);
+        try {
+            DaoMetaDataImpl dmd = new DaoMetaDataImpl();
+            dmd.daoInterface = IndexedDao.class;
+            Properties index = dmd.loadSqlFileIndex();
+            assertNotNull(index);
+            assertEquals("false", index
+                    .getProperty("org/seasar/dao/impl/SqlFileIndexGeneratorTest$IndexedDao_findAll.sql"));
+
+            index.setProperty(SqlFileIndexGenerator.FINGERPRINT_KEY, "0");
+            OutputStream out = new FileOutputStream(file);
+            try {
+                index.store(out, null);
+            } finally {
+                out.close();
+            }
+            assertNull(dmd.loadSqlFileIndex());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testLoadSqlFileIndex_sqlFileAdded() throws Exception {
+        File dir = ResourceUtil.getBuildDir(getClass());
+        File file = new SqlFileIndexGenerator().write(IndexedDao.class, dir);
+        File sqlFile = new File(dir,
+                "org/seasar/dao/impl/SqlFileIndexGeneratorTest$IndexedDao_findAll_oracle.sql");
+        try {
+            DaoMetaDataImpl dmd = new DaoMetaDataImpl();
+            dmd.daoInterface = IndexedDao.class;
+            assertNotNull(dmd.loadSqlFileIndex());
+
+            sqlFile.createNewFile();
+            assertNull(dmd.loadSqlFileIndex());
+        } finally {
+            sqlFile.delete();
+            file.delete();
+        }
+    }
+
+    public void testWriteAll() throws Exception {
+        File dir = File.createTempFile("s2dao", "");
+        dir.delete();
+        File packageDir = new File(dir, "org/seasar/dao/impl");
+        packageDir.mkdirs();
+        File classFile = new File(packageDir, "SqlFileIndexGeneratorTest$IndexedDao.class");
+        File notDaoClassFile = new File(packageDir, "Employee.class");
+        File file = new File(dir, SqlFileIndexGenerator
+                .getIndexPath(IndexedDao.class));
+        try {
+            classFile.createNewFile();
+            notDaoClassFile.createNewFile();
+            assertEquals(1, new SqlFileIndexGenerator().writeAll(dir));
+            assertTrue(file.exists());
+        } finally {
+            file.delete();
+            classFile.delete();
+            notDaoClassFile.delete();
+            for (File f = packageDir; !f.equals(dir.getParentFile()); f = f
+                    .getParentFile()) {
+                f.delete();
+            }
+        }
+    }
+
+    public void testWrite() throws Exception {
+        File dir = File.createTempFile("s2dao", "");
+        dir.delete();
+        File file = new SqlFileIndexGenerator().write(EmployeeDao.class, dir);
+        try {
+            assertEquals(new File(dir, SqlFileIndexGenerator
+                    .getIndexPath(EmployeeDao.class)), file);
+            assertTrue(file.exists());
+        } finally {
+            file.delete();
+            for (File f = file.getParentFile(); !f.equals(dir.getParentFile()); f = f
+                    .getParentFile()) {
+                f.delete();
+            }
+        }
+    }
+
+    public void testIsSqlFileExist() throws Exception {
+        DaoMetaDataImpl dmd = new DaoMetaDataImpl();
+        assertTrue(dmd.isSqlFileExist(BASE + "getCount.sql"));
+        dmd.sqlFileIndex = new Properties();
+        dmd.sqlFileIndex.setProperty(BASE + "getCount.sql", "false");
+        assertFalse(dmd.isSqlFileExist(BASE + "getCount.sql"));
+        assertTrue(dmd.isSqlFileExist(BASE + "getCount_hsql.sql"));
+    }
+
+    public static interface IndexedDao {
+        Class BEAN = Employee.class;
+
+        List findAll();
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.seasar.extension.unit.S2TestCase;
+import org.seasar.framework.exception.EmptyRuntimeException;
+
+/**
+ * 
+ */
+public class TableMetaDataSnapshotTest extends S2TestCase {
+
+    private File directory;
+
+    private List snapshots = new ArrayList();
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        include("j2ee.dicon");
+        directory = File.createTempFile("s2dao", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    protected void tearDown() throws Exception {
+        for (int i = 0; i < snapshots.size(); ++i) {
+            ((TableMetaDataSnapshot) snapshots.get(i)).dispose();
+        }
+        super.tearDown();
+        File[] files = directory.listFiles();
+        for (int i = 0; i < files.length; ++i) {
+            files[i].delete();
+        }
+        directory.delete();
+    }
+
+    public void testStoreAndLoad() throws Exception {
+        TableMetaDataSnapshot snapshot = createSnapshot();
+        Set columns = snapshot.getColumnNames(getDatabaseMetaData(), "EMP");
+        assertTrue(columns.contains("empno"));
+        assertTrue(columns.contains("ENAME"));
+        Set primaryKeys = snapshot.getPrimaryKeyNames(getDatabaseMetaData(),
+                "EMP");
+        assertEquals(1, primaryKeys.size());
+        assertTrue(primaryKeys.contains("empno"));
+        assertFalse(snapshot.getFile().exists());
+        snapshot.dispose();
+        assertTrue(snapshot.getFile().exists());
+
+        TableMetaDataSnapshot snapshot2 = createSnapshot();
+        assertEquals(columns, snapshot2.getColumnNames(null, "emp"));
+        assertEquals(primaryKeys, snapshot2.getPrimaryKeyNames(null, "emp"));
+    }
+
+    public void testSchemaVersion() throws Exception {
+        TableMetaDataSnapshot snapshot = createSnapshot();
+        snapshot.getColumnNames(getDatabaseMetaData(), "EMP");
+        snapshot.store();
+
+        TableMetaDataSnapshot snapshot2 = createSnapshot();
+        snapshot2.setSchemaVersion("2");
+        assertFalse(snapshot2.getFile().exists());
+        assertTrue(snapshot2.getColumnNames(getDatabaseMetaData(), "EMP")
+                .contains("EMPNO"));
+    }
+
+    public void testValidate() throws Exception {
+        TableMetaDataSnapshot snapshot = createSnapshot();
+        snapshot.getColumnNames(getDatabaseMetaData(), "EMP");
+        snapshot.store();
+        Properties props = new Properties();
+        props.setProperty("table.EMP.columns", "EMPNO,ENAME");
+        FileOutputStream out = new FileOutputStream(snapshot.getFile());
+        try {
+            props.store(out, null);
+        } finally {
+            out.close();
+        }
+
+        TableMetaDataSnapshot snapshot2 = createSnapshot();
+        assertEquals(2, snapshot2.getColumnNames(null, "EMP").size());
+
+        TableMetaDataSnapshot snapshot3 = createSnapshot();
+        snapshot3.setMode(TableMetaDataSnapshot.MODE_VALIDATE);
+        Set columns = snapshot3.getColumnNames(getDatabaseMetaData(), "EMP");
+        assertTrue(columns.contains("DEPTNO"));
+        assertTrue(snapshot3.getDriftedTables().contains("EMP"));
+        snapshot3.store();
+
+        TableMetaDataSnapshot snapshot4 = createSnapshot();
+        assertEquals(columns, snapshot4.getColumnNames(null, "EMP"));
+    }
+
+    public void testRefresh() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("table.EMP.columns", "EMPNO");
+        TableMetaDataSnapshot snapshot = createSnapshot();
+        FileOutputStream out = new FileOutputStream(snapshot.getFile());
+        try {
+            props.store(out, null);
+        } finally {
+            out.close();
+        }
+        snapshot.setMode(TableMetaDataSnapshot.MODE_REFRESH);
+        assertTrue(snapshot.getColumnNames(getDatabaseMetaData(), "EMP")
+                .size() > 1);
+    }
+
+    public void testDispose_storeFailed() throws Exception {
+        File notDirectory = new File(directory, "file");
+        notDirectory.createNewFile();
+        TableMetaDataSnapshot snapshot = createSnapshot();
+        snapshot.setDirectory(notDirectory.getPath());
+        snapshot.getColumnNames(getDatabaseMetaData(), "EMP");
+        snapshot.dispose();
+
+        snapshot.setDirectory(directory.getPath());
+        snapshot.store();
+        assertFalse(snapshot.getFile().exists());
+    }
+
+    public void testDataSourceName() throws Exception {
+        TableMetaDataSnapshot snapshot = new TableMetaDataSnapshot();
+        snapshot.setDirectory(directory.getPath());
+        snapshots.add(snapshot);
+        DatabaseMetaData dbMetaData = getDatabaseMetaData();
+        DatabaseMetaData otherDbMetaData = createDatabaseMetaData(dbMetaData,
+                "jdbc:other");
+        Set columns = snapshot.getColumnNames(dbMetaData, "EMP");
+        Properties props = new Properties();
+        props.setProperty("table.EMP.columns", "EMPNO");
+        FileOutputStream out = new FileOutputStream(snapshot
+                .getFile(otherDbMetaData));
+        try {
+            props.store(out, null);
+        } finally {
+            out.close();
+        }
+        assertEquals(1, snapshot.getColumnNames(otherDbMetaData, "EMP").size());
+        assertEquals(columns, snapshot.getColumnNames(dbMetaData, "EMP"));
+        snapshot.dispose();
+
+        File file = snapshot.getFile(dbMetaData);
+        assertTrue(file.exists());
+        assertFalse(file.equals(snapshot.getFile(otherDbMetaData)));
+        try {
+            snapshot.getColumnNames(null, "EMP");
+            fail();
+        } catch (EmptyRuntimeException expected) {
+        }
+    }
+
+    private DatabaseMetaData createDatabaseMetaData(
+            final DatabaseMetaData dbMetaData, final String url) {
+        return (DatabaseMetaData) Proxy.newProxyInstance(getClass()
+                .getClassLoader(), new Class[] { DatabaseMetaData.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        if ("getURL".equals(method.getName())) {
+                            return url;
+                        }
+                        try {
+                            return method.invoke(dbMetaData, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+    }
+
+    private TableMetaDataSnapshot createSnapshot() {
+        TableMetaDataSnapshot snapshot = new TableMetaDataSnapshot();
+        snapshot.setDirectory(directory.getPath());
+        snapshot.setDataSourceName("test");
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+}
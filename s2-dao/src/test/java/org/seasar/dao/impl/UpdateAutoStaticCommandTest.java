@@ -19,6 +19,10 @@ import org.seasar.dao.DaoMetaData;
 import org.seasar.dao.SqlCommand;
 import org.seasar.dao.UpdateFailureRuntimeException;
 import org.seasar.dao.unit.S2DaoTestCase;
+import org.seasar.dao.util.SqlLogUtil;
+import org.seasar.extension.jdbc.SqlLogRegistry;
+import org.seasar.extension.jdbc.SqlLogRegistryLocator;
+import org.seasar.extension.jdbc.impl.SqlLogRegistryImpl;
 
 public class UpdateAutoStaticCommandTest extends S2DaoTestCase {
 
@@ -80,6 +84,25 @@ public class UpdateAutoStaticCommandTest extends S2DaoTestCase {
         assertEquals("1", new Integer(1), count);
     }
 
+    public void testExecute_notSampledTx() throws Exception {
+        DaoMetaData dmd = createDaoMetaData(DepartmentAutoDao.class);
+        SqlCommand cmd = dmd.getSqlCommand("update");
+        Department dept = new Department();
+        dept.setDeptno(10);
+        SqlLogRegistry registry = SqlLogRegistryLocator.getInstance();
+        SqlLogRegistryLocator.setInstance(new SqlLogRegistryImpl());
+        SqlLogUtil.setSamplingRate(0);
+        try {
+            cmd.execute(new Object[] { dept });
+            String sql = SqlLogRegistryLocator.getInstance().getLast()
+                    .getCompleteSql();
+            assertTrue(sql, sql.startsWith("UPDATE DEPT"));
+        } finally {
+            SqlLogUtil.setSamplingRate(1);
+            SqlLogRegistryLocator.setInstance(registry);
+        }
+    }
+
     public void setUp() {
         include("j2ee.dicon");
     }
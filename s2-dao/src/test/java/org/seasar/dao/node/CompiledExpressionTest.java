@@ -0,0 +1,152 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.node;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.seasar.dao.CommandContext;
+import org.seasar.dao.context.CommandContextImpl;
+import org.seasar.dao.impl.Department;
+import org.seasar.dao.impl.Employee;
+import org.seasar.framework.util.OgnlUtil;
+
+/**
+ * 
+ */
+public class CompiledExpressionTest extends TestCase {
+
+    private static final String[] EXPRESSIONS = new String[] { "true",
+            "false", "null", "aaa == null", "aaa != null", "!(aaa == null)",
+            "not (aaa == null)", "aaa", "!aaa", "bbb > 0", "bbb >= 10",
+            "bbb < 10L", "bbb <= 9.5", "bbb == 10", "bbb eq 10",
+            "bbb neq 10", "bbb gt 1 and bbb lt 100", "bbb lte 1 or bbb gte 2",
+            "ccc == 'x'", "ccc == 'xyz'", "ccc == \"xyz\"", "ccc != 'abc'",
+            "ccc < 'b'", "ddd > 1", "ddd == 10", "emp.ename != null",
+            "emp.empno == 7788", "emp.department.dname == 'SALES'",
+            "emp.sal > 1000", "emp.comm == null",
+            "emp != null && emp.ename != null && emp.ename == 'SCOTT'",
+            "aaa == null || bbb > 5", "aaa && bbb", "aaa || bbb",
+            "(bbb > 5 || ccc == null) && !(ddd < 0)", "map.key == 'value'",
+            "map.size == 1", "list.size > 0", "bbb == ccc", "flag",
+            "flag == true", "!flag" };
+
+    public void testCompile() throws Exception {
+        for (int i = 0; i < EXPRESSIONS.length; ++i) {
+            assertNotNull(EXPRESSIONS[i], CompiledExpression
+                    .compile(EXPRESSIONS[i]));
+        }
+    }
+
+    public void testCompile_unsupported() throws Exception {
+        assertNull(CompiledExpression.compile("aaa.length() > 0"));
+        assertNull(CompiledExpression.compile("aaa + 1 > 0"));
+        assertNull(CompiledExpression.compile("bbb in {1, 2}"));
+        assertNull(CompiledExpression.compile("#this != null"));
+        assertNull(CompiledExpression
+                .compile("@org.seasar.framework.util.StringUtil@isEmpty(aaa)"));
+        assertNull(CompiledExpression.compile("aaa[0] != null"));
+        assertNull(CompiledExpression.compile("ccc == 'a\\'b'"));
+        assertNull(CompiledExpression.compile("bbb == 010"));
+        assertNull(CompiledExpression.compile("bbb == 1e3"));
+        assertNull(CompiledExpression.compile("(aaa == null"));
+        assertNull(CompiledExpression.compile("aaa ="));
+        assertNull(CompiledExpression.compile("aaa == null bbb"));
+        assertNull(CompiledExpression.compile("and"));
+    }
+
+    public void testEvaluate_sameAsOgnl() throws Exception {
+        CommandContext[] contexts = new CommandContext[] {
+                createContext(null, null, null, null, null, null),
+                createContext("hoge", new Integer(10), "xyz", new BigDecimal(
+                        "10"), createEmployee(), Boolean.TRUE),
+                createContext(Boolean.FALSE, new Long(3), "a", new Double(
+                        -1.5), createEmployee(), Boolean.FALSE),
+                createContext(Boolean.TRUE, new Integer(0), "abc", new Short(
+                        (short) 1), new Employee(), null) };
+        for (int i = 0; i < contexts.length; ++i) {
+            for (int j = 0; j < EXPRESSIONS.length; ++j) {
+                String message = "context[" + i + "]: " + EXPRESSIONS[j];
+                Object expected;
+                try {
+                    expected = OgnlUtil.getValue(OgnlUtil
+                            .parseExpression(EXPRESSIONS[j]), contexts[i]);
+                } catch (RuntimeException e) {
+                    expected = e.getClass();
+                }
+                Object actual;
+                try {
+                    actual = CompiledExpression.compile(EXPRESSIONS[j])
+                            .evaluate(contexts[i]);
+                } catch (RuntimeException e) {
+                    actual = e.getClass();
+                }
+                if (actual == CompiledExpression.UNSUPPORTED) {
+                    continue;
+                }
+                if (expected instanceof Class) {
+                    assertTrue(message, actual instanceof Class);
+                    continue;
+                }
+                assertEquals(message, expected, actual);
+            }
+        }
+    }
+
+    public void testEvaluate_unsupported() throws Exception {
+        CommandContext ctx = createContext(null, null, null, null, null, null);
+        assertSame(CompiledExpression.UNSUPPORTED, CompiledExpression.compile(
+                "emp.ename == null").evaluate(ctx));
+        assertSame(CompiledExpression.UNSUPPORTED, CompiledExpression.compile(
+                "map.size == 1").evaluate(ctx));
+        assertSame(CompiledExpression.UNSUPPORTED, CompiledExpression.compile(
+                "list.size > 0").evaluate(ctx));
+    }
+
+    private CommandContext createContext(Object aaa, Object bbb, Object ccc,
+            Object ddd, Employee emp, Boolean flag) {
+        CommandContextImpl ctx = new CommandContextImpl();
+        ctx.addArg("aaa", aaa, Object.class);
+        ctx.addArg("bbb", bbb, Object.class);
+        ctx.addArg("ccc", ccc, Object.class);
+        ctx.addArg("ddd", ddd, Object.class);
+        ctx.addArg("emp", emp, Employee.class);
+        ctx.addArg("flag", flag, Boolean.class);
+        Map map = new HashMap();
+        map.put("key", "value");
+        ctx.addArg("map", map, Map.class);
+        ArrayList list = new ArrayList();
+        list.add("a");
+        ctx.addArg("list", list, ArrayList.class);
+        return ctx;
+    }
+
+    private Employee createEmployee() {
+        Employee emp = new Employee();
+        emp.setEmpno(7788);
+        emp.setEname("SCOTT");
+        emp.setSal(new Float(3000));
+        Department dept = new Department();
+        dept.setDname("SALES");
+        emp.setDepartment(dept);
+        return emp;
+    }
+
+}
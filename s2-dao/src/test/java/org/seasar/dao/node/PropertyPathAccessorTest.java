@@ -0,0 +1,95 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.node;
+
+import junit.framework.TestCase;
+
+import org.seasar.dao.impl.Department;
+import org.seasar.dao.impl.Employee;
+import org.seasar.framework.beans.PropertyDesc;
+
+/**
+ * 
+ */
+public class PropertyPathAccessorTest extends TestCase {
+
+    public void testGetPropertyDescs() throws Exception {
+        PropertyPathAccessor accessor = new PropertyPathAccessor(new String[] {
+                "emp", "department", "dname" });
+        PropertyDesc[] pds = accessor.getPropertyDescs(Employee.class);
+        assertEquals(3, pds.length);
+        assertNull(pds[0]);
+        assertEquals("department", pds[1].getPropertyName());
+        assertEquals(Department.class, pds[1].getPropertyType());
+        assertEquals("dname", pds[2].getPropertyName());
+        assertSame(pds, accessor.getPropertyDescs(Employee.class));
+    }
+
+    public void testGetPropertyDescs_otherType() throws Exception {
+        PropertyPathAccessor accessor = new PropertyPathAccessor(new String[] {
+                "bean", "dname" });
+        PropertyDesc[] pds = accessor.getPropertyDescs(Department.class);
+        assertEquals(Department.class, pds[1].getReadMethod()
+                .getDeclaringClass());
+        PropertyDesc[] pds2 = accessor
+                .getPropertyDescs(org.seasar.dao.unit.Department.class);
+        assertNotSame(pds, pds2);
+        assertEquals(org.seasar.dao.unit.Department.class, pds2[1]
+                .getReadMethod().getDeclaringClass());
+    }
+
+    public void testGetPropertyDescs_notFound() throws Exception {
+        PropertyPathAccessor accessor = new PropertyPathAccessor(new String[] {
+                "emp", "xxx", "dname" });
+        PropertyDesc[] pds = accessor.getPropertyDescs(Employee.class);
+        assertNull(pds[1]);
+        assertNull(pds[2]);
+    }
+
+    public void testGetPropertyDescs_threads() throws Exception {
+        final PropertyPathAccessor accessor = new PropertyPathAccessor(
+                new String[] { "bean", "dname" });
+        final Class[] types = new Class[] { Department.class,
+                org.seasar.dao.unit.Department.class };
+        final Throwable[] errors = new Throwable[types.length];
+        Thread[] threads = new Thread[types.length];
+        for (int i = 0; i < threads.length; ++i) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 10000; ++j) {
+                            PropertyDesc[] pds = accessor
+                                    .getPropertyDescs(types[index]);
+                            assertEquals(types[index], pds[1]
+                                    .getReadMethod().getDeclaringClass());
+                        }
+                    } catch (Throwable t) {
+                        errors[index] = t;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+            if (errors[i] != null) {
+                throw new AssertionError(errors[i]);
+            }
+        }
+    }
+
+}
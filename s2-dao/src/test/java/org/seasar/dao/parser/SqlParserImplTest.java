@@ -26,9 +26,11 @@ import org.seasar.dao.Node;
 import org.seasar.dao.SqlParser;
 import org.seasar.dao.TokenNotClosedRuntimeException;
 import org.seasar.dao.context.CommandContextImpl;
+import org.seasar.dao.impl.Department;
 import org.seasar.dao.node.BindVariableNode;
 import org.seasar.dao.node.IfNode;
 import org.seasar.dao.node.SqlNode;
+import org.seasar.dao.node.StaticSqlNode;
 
 /**
  * @author higa
@@ -127,6 +129,35 @@ public class SqlParserImplTest extends TestCase {
         assertEquals("9", "deptno", varNode2.getExpression());
     }
 
+    public void testParseStaticSql() throws Exception {
+        String sql = "SELECT * FROM emp WHERE job = /*job*/'CLERK' AND deptno = /*dept.deptno*/20";
+        Node root = new SqlParserImpl(sql).parse();
+        assertTrue(root instanceof StaticSqlNode);
+        assertEquals("SELECT * FROM emp WHERE job = ? AND deptno = ?",
+                ((StaticSqlNode) root).getSql());
+        assertEquals(4, root.getChildSize());
+        CommandContext ctx = new CommandContextImpl();
+        Department dept = new Department();
+        dept.setDeptno(20);
+        ctx.addArg("job", "CLERK", String.class);
+        ctx.addArg("dept", dept, Department.class);
+        root.accept(ctx);
+        assertEquals(((StaticSqlNode) root).getSql(), ctx.getSql());
+        Object[] vars = ctx.getBindVariables();
+        assertEquals(2, vars.length);
+        assertEquals("CLERK", vars[0]);
+        assertEquals(new Integer(20), vars[1]);
+        assertEquals(int.class, ctx.getBindVariableTypes()[1]);
+
+        assertFalse(new SqlParserImpl(
+                "SELECT * FROM emp /*IF job != null*/WHERE job = /*job*/'CLERK'/*END*/")
+                .parse() instanceof StaticSqlNode);
+        assertFalse(new SqlParserImpl(
+                "SELECT * FROM emp WHERE empno IN /*empnos*/(1, 2)").parse() instanceof StaticSqlNode);
+        assertFalse(new SqlParserImpl("SELECT * FROM emp ORDER BY /*$order*/")
+                .parse() instanceof StaticSqlNode);
+    }
+
     public void testParseBindVariable2() throws Exception {
         String sql = "SELECT * FROM emp WHERE job = /* job*/'CLERK'";
         String sql3 = "SELECT * FROM emp WHERE job = ";
@@ -378,6 +409,75 @@ public class SqlParserImplTest extends TestCase {
         assertEquals("6", "FREE", vars[3]);
     }
 
+    public void testInListPadding() throws Exception {
+        String sql = "SELECT * FROM emp WHERE empno IN /*empnos*/(1, 2) ORDER BY ename";
+        SqlParser parser = new SqlParserImpl(sql);
+        Node root = parser.parse();
+        CommandContextImpl ctx = new CommandContextImpl();
+        ctx.setInListPadding(true);
+        int[] empnos = { 10, 20, 30 };
+        ctx.addArg("empnos", empnos, empnos.getClass());
+        root.accept(ctx);
+        assertEquals("1",
+                "SELECT * FROM emp WHERE empno IN (?, ?, ?, ?) ORDER BY ename",
+                ctx.getSql());
+        Object[] vars = ctx.getBindVariables();
+        assertEquals("2", 4, vars.length);
+        assertEquals("3", new Integer(30), vars[2]);
+        assertEquals("4", new Integer(30), vars[3]);
+    }
+
+    public void testInListSplit() throws Exception {
+        String sql = "SELECT * FROM emp WHERE deptno = 10 AND empno IN /*empnos*/(1, 2)";
+        SqlParser parser = new SqlParserImpl(sql);
+        Node root = parser.parse();
+        CommandContextImpl ctx = new CommandContextImpl();
+        ctx.setInListPadding(true);
+        ctx.setMaxInListSize(2);
+        int[] empnos = { 10, 20, 30 };
+        ctx.addArg("empnos", empnos, empnos.getClass());
+        root.accept(ctx);
+        assertEquals("1", "SELECT * FROM emp WHERE deptno = 10 AND "
+                + "(empno IN (?, ?) OR empno IN (?))", ctx.getSql());
+        Object[] vars = ctx.getBindVariables();
+        assertEquals("2", 3, vars.length);
+        assertEquals("3", new Integer(30), vars[2]);
+    }
+
+    public void testNotInListSplit() throws Exception {
+        String sql = "SELECT * FROM emp WHERE e.empno NOT IN /*empnos*/(1, 2)";
+        SqlParser parser = new SqlParserImpl(sql);
+        Node root = parser.parse();
+        CommandContextImpl ctx = new CommandContextImpl();
+        ctx.setMaxInListSize(2);
+        List empnos = new ArrayList();
+        empnos.add(new Integer(10));
+        empnos.add(new Integer(20));
+        empnos.add(new Integer(30));
+        empnos.add(new Integer(40));
+        empnos.add(new Integer(50));
+        ctx.addArg("empnos", empnos, List.class);
+        root.accept(ctx);
+        assertEquals("1", "SELECT * FROM emp WHERE (e.empno NOT IN (?, ?)"
+                + " AND e.empno NOT IN (?, ?) AND e.empno NOT IN (?))", ctx
+                .getSql());
+        assertEquals("2", 5, ctx.getBindVariables().length);
+    }
+
+    public void testInListSplitWithoutColumn() throws Exception {
+        String sql = "SELECT * FROM emp WHERE empno IN (SELECT empno FROM emp2 WHERE a IN /*empnos*/(1, 2))";
+        SqlParser parser = new SqlParserImpl(sql);
+        Node root = parser.parse();
+        CommandContextImpl ctx = new CommandContextImpl();
+        ctx.setMaxInListSize(2);
+        int[] empnos = { 10, 20, 30 };
+        ctx.addArg("empnos", empnos, empnos.getClass());
+        root.accept(ctx);
+        assertEquals("1",
+                "SELECT * FROM emp WHERE empno IN (SELECT empno FROM emp2 "
+                        + "WHERE (a IN (?, ?) OR a IN (?)))", ctx.getSql());
+    }
+
     public void testParseBindVariable3() throws Exception {
         String sql = "BETWEEN sal ? AND ?";
         SqlParser parser = new SqlParserImpl(sql);
@@ -203,4 +203,33 @@ public class SqlTokenizerImplTest extends TestCase {
         assertEquals("5", ")", tokenizer.getToken());
         assertEquals("6", SqlTokenizer.EOF, tokenizer.next());
     }
+
+    public void testSharpComment() throws Exception {
+        String sql = "SELECT #*a*# /*b*/ FROM emp";
+        SqlTokenizer tokenizer = new SqlTokenizerImpl(sql);
+        assertEquals("1", SqlTokenizer.SQL, tokenizer.next());
+        assertEquals("2", "SELECT ", tokenizer.getToken());
+        assertEquals("3", SqlTokenizer.COMMENT, tokenizer.next());
+        assertEquals("4", "a", tokenizer.getToken());
+        assertEquals("5", SqlTokenizer.SQL, tokenizer.next());
+        assertEquals("6", " ", tokenizer.getToken());
+        assertEquals("7", SqlTokenizer.COMMENT, tokenizer.next());
+        assertEquals("8", "b", tokenizer.getToken());
+    }
+
+    public void testSharpCommentWithoutSlashComment() throws Exception {
+        String sql = "SELECT #*a*# FROM emp";
+        SqlTokenizer tokenizer = new SqlTokenizerImpl(sql);
+        assertEquals("1", SqlTokenizer.SQL, tokenizer.next());
+        assertEquals("2", sql, tokenizer.getToken());
+        assertEquals("3", SqlTokenizer.EOF, tokenizer.next());
+    }
+
+    public void testGetLastComment() throws Exception {
+        String sql = "SELECT /* hoge */ * FROM emp";
+        SqlTokenizerImpl tokenizer = new SqlTokenizerImpl(sql);
+        assertEquals("1", SqlTokenizer.SQL, tokenizer.next());
+        assertEquals("2", SqlTokenizer.COMMENT, tokenizer.next());
+        assertEquals("3", "/* hoge */", tokenizer.getLastComment());
+    }
 }
\ No newline at end of file
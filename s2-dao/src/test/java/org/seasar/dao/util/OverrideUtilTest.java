@@ -0,0 +1,58 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+import junit.framework.TestCase;
+
+/**
+ * 
+ */
+public class OverrideUtilTest extends TestCase {
+
+    public void testIsOverridden() throws Exception {
+        assertFalse(OverrideUtil.isOverridden(Base.class, Base.class, "foo",
+                new Class[] { String.class }));
+        assertTrue(OverrideUtil.isOverridden(Sub.class, Base.class, "foo",
+                new Class[] { String.class }));
+        assertTrue(OverrideUtil.isOverridden(SubSub.class, Base.class, "foo",
+                new Class[] { String.class }));
+        assertFalse(OverrideUtil.isOverridden(Sub.class, Base.class, "foo",
+                new Class[] { Integer.class }));
+        assertFalse(OverrideUtil.isOverridden(Sub.class, Base.class, "bar",
+                new Class[0]));
+    }
+
+    public static class Base {
+
+        public void foo(String s) {
+        }
+
+        public void foo(Integer i) {
+        }
+
+        public void bar() {
+        }
+    }
+
+    public static class Sub extends Base {
+
+        public void foo(String s) {
+        }
+    }
+
+    public static class SubSub extends Sub {
+    }
+}
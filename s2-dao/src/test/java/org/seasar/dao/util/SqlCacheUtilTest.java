@@ -0,0 +1,63 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+import junit.framework.TestCase;
+
+import org.seasar.dao.Node;
+
+/**
+ * 
+ */
+public class SqlCacheUtilTest extends TestCase {
+
+    private static final String PATH = "org/seasar/dao/impl/EmployeeDao_getEmployee.sql";
+
+    protected void tearDown() throws Exception {
+        SqlCacheUtil.clear();
+        super.tearDown();
+    }
+
+    public void testGetNode() throws Exception {
+        String sql = "SELECT * FROM emp WHERE empno = /*empno*/1";
+        Node node = SqlCacheUtil.getNode(sql);
+        assertSame(node, SqlCacheUtil.getNode(new String(sql)));
+        assertNotSame(node, SqlCacheUtil.getNode(sql + " "));
+        SqlCacheUtil.clear();
+        assertNotSame(node, SqlCacheUtil.getNode(sql));
+    }
+
+    public void testGetNode_maxSize() throws Exception {
+        int maxSize = SqlCacheUtil.getMaxSize();
+        SqlCacheUtil.setMaxSize(0);
+        try {
+            String sql = "SELECT * FROM emp";
+            assertNotSame(SqlCacheUtil.getNode(sql), SqlCacheUtil
+                    .getNode(sql));
+        } finally {
+            SqlCacheUtil.setMaxSize(maxSize);
+        }
+    }
+
+    public void testReadText() throws Exception {
+        assertTrue(SqlCacheUtil.isExist(PATH));
+        assertFalse(SqlCacheUtil.isExist("org/seasar/dao/impl/Nothing.sql"));
+        String text = SqlCacheUtil.readText(PATH, "UTF-8");
+        assertTrue(text.indexOf("emp") >= 0);
+        assertSame(text, SqlCacheUtil.readText(PATH, "UTF-8"));
+    }
+
+}
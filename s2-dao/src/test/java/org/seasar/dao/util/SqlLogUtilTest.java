@@ -0,0 +1,117 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+import junit.framework.TestCase;
+
+/**
+ * 
+ */
+public class SqlLogUtilTest extends TestCase {
+
+    protected void tearDown() throws Exception {
+        SqlLogUtil.setSlowQueryThreshold(-1);
+        SqlLogUtil.setSamplingRate(1);
+        super.tearDown();
+    }
+
+    public void testSamplingRate() throws Exception {
+        assertTrue(SqlLogUtil.isSqlLogEnabled(getClass()));
+        assertTrue(SqlLogUtil.isSampled());
+        SqlLogUtil.setSamplingRate(3);
+        int count = 0;
+        for (int i = 0; i < 6; ++i) {
+            if (SqlLogUtil.isSampled()) {
+                ++count;
+            }
+        }
+        assertEquals(2, count);
+        SqlLogUtil.setSamplingRate(0);
+        assertFalse(SqlLogUtil.isSampled());
+        assertTrue(SqlLogUtil.isSqlLogEnabled(getClass()));
+        try {
+            SqlLogUtil.setSamplingRate(-1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testSamplingRate_threads() throws Exception {
+        SqlLogUtil.setSamplingRate(3);
+        final int[] counts = new int[4];
+        Thread[] threads = new Thread[counts.length];
+        for (int i = 0; i < threads.length; ++i) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 3000; ++j) {
+                        if (SqlLogUtil.isSampled()) {
+                            ++counts[index];
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        int count = 0;
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+            count += counts[i];
+        }
+        assertEquals(4000, count);
+    }
+
+    public void testSlowQueryThreshold() throws Exception {
+        assertEquals(0, SqlLogUtil.start());
+        assertEquals(-1, SqlLogUtil.getSlowQueryTime(System
+                .currentTimeMillis() - 1000));
+        SqlLogUtil.setSlowQueryThreshold(0);
+        long start = SqlLogUtil.start();
+        assertTrue(start > 0);
+        assertTrue(SqlLogUtil.getSlowQueryTime(start) >= 0);
+        SqlLogUtil.setSlowQueryThreshold(60000);
+        assertEquals(-1, SqlLogUtil.getSlowQueryTime(SqlLogUtil.start()));
+        SqlLogUtil.logSlowQuery(getClass(), 100, "SELECT * FROM emp");
+    }
+
+    public void testGetCompleteSql() throws Exception {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2007, Calendar.JANUARY, 2, 3, 4, 5);
+        String sql = "SELECT * FROM emp WHERE ename = ? AND job = '?'"
+                + " /* ? */ AND hiredate = ? AND comm = ? AND mgr = ?";
+        Object[] args = new Object[] { "SCOTT",
+                new Timestamp(cal.getTimeInMillis()), null, new Integer(10) };
+        assertEquals("SELECT * FROM emp WHERE ename = 'SCOTT' AND job = '?'"
+                + " /* ? */ AND hiredate = '2007-01-02 03.04.05'"
+                + " AND comm = null AND mgr = 10", SqlLogUtil.getCompleteSql(
+                sql, args));
+        assertEquals(sql, SqlLogUtil.getCompleteSql(sql, null));
+    }
+
+    public void testGetBindVariableText() throws Exception {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2007, Calendar.JANUARY, 2);
+        assertEquals("'2007-01-02'", SqlLogUtil.getBindVariableText(cal
+                .getTime()));
+        assertEquals("true", SqlLogUtil.getBindVariableText(Boolean.TRUE));
+        assertEquals("'a'", SqlLogUtil.getBindVariableText(new Character('a')));
+    }
+}
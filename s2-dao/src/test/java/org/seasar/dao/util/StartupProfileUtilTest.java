@@ -0,0 +1,98 @@
+/*
+ * Copyright 2004-2011 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.dao.util;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.seasar.dao.util.StartupProfileUtil.Profile;
+
+/**
+ * 
+ */
+public class StartupProfileUtilTest extends TestCase {
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        StartupProfileUtil.clear();
+        StartupProfileUtil.setEnabled(true);
+    }
+
+    protected void tearDown() throws Exception {
+        StartupProfileUtil.setEnabled(false);
+        StartupProfileUtil.clear();
+        super.tearDown();
+    }
+
+    public void testDisabled() throws Exception {
+        StartupProfileUtil.setEnabled(false);
+        long start = StartupProfileUtil.begin("FooDao", null);
+        assertEquals(0, start);
+        StartupProfileUtil.record(StartupProfileUtil.CONNECTION,
+                StartupProfileUtil.start());
+        StartupProfileUtil.end(start);
+        assertEquals(0, StartupProfileUtil.getProfiles().size());
+    }
+
+    public void testBeginEnd() throws Exception {
+        long daoStart = StartupProfileUtil.begin("FooDao", null);
+        long methodStart = StartupProfileUtil.begin("FooDao", "getAll");
+        StartupProfileUtil.record(StartupProfileUtil.SQL_FILE, methodStart - 5);
+        StartupProfileUtil.end(methodStart);
+        StartupProfileUtil.record(StartupProfileUtil.CONNECTION, daoStart - 3);
+        StartupProfileUtil.end(daoStart);
+
+        List profiles = StartupProfileUtil.getProfiles();
+        assertEquals(1, profiles.size());
+        Profile profile = (Profile) profiles.get(0);
+        assertEquals("FooDao", profile.getName());
+        assertTrue(profile.getTime(StartupProfileUtil.SQL_FILE) >= 5);
+        assertTrue(profile.getTime(StartupProfileUtil.CONNECTION) >= 3);
+        assertEquals(0, profile.getTime(StartupProfileUtil.ENHANCE));
+        Profile method = (Profile) profile.getMethods().get("getAll");
+        assertTrue(method.getTime(StartupProfileUtil.SQL_FILE) >= 5);
+        assertEquals(0, method.getTime(StartupProfileUtil.CONNECTION));
+        assertTrue(profile.getTotalTime() >= method.getTotalTime());
+    }
+
+    public void testLazyMethod() throws Exception {
+        long start = StartupProfileUtil.begin("FooDao", "getAll");
+        StartupProfileUtil.end(start - 7);
+        Profile profile = (Profile) StartupProfileUtil.getProfiles().get(0);
+        assertTrue(profile.getTotalTime() >= 7);
+        assertTrue(((Profile) profile.getMethods().get("getAll"))
+                .getTotalTime() >= 7);
+    }
+
+    public void testRecordWithoutDao() throws Exception {
+        StartupProfileUtil.record(StartupProfileUtil.ENHANCE,
+                StartupProfileUtil.start());
+        Profile profile = (Profile) StartupProfileUtil.getProfiles().get(0);
+        assertEquals("(other)", profile.getName());
+    }
+
+    public void testGetReport() throws Exception {
+        StartupProfileUtil.end(StartupProfileUtil.begin("BarDao", "insert"));
+        StartupProfileUtil.end(StartupProfileUtil.begin("FooDao", null) - 10);
+        String report = StartupProfileUtil.getReport();
+        assertTrue(report, report.startsWith("total\tconnection"));
+        assertTrue(report, report.indexOf("\tFooDao") < report
+                .indexOf("\tBarDao"));
+        assertTrue(report, report.indexOf("\t  insert") > 0);
+    }
+
+}